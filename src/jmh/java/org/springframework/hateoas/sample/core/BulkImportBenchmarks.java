@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.sample.core.BulkImporter.Format;
+import org.springframework.hateoas.sample.core.BulkImporter.Result;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+import org.springframework.hateoas.sample.core.Orders.InMemoryOrders;
+
+/**
+ * Throughput of {@link BulkImporter} importing {@value #ORDER_COUNT} {@link Order}s with two line items each, placed
+ * by {@value #CUSTOMER_COUNT} {@link Customer}s, into empty in-memory repositories. Reports {@link Order}s imported
+ * per second.
+ * 
+ * @author Oliver Gierke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BulkImportBenchmarks {
+
+	private static final int ORDER_COUNT = 1000000;
+	private static final int CUSTOMER_COUNT = 10000;
+
+	@Param({ "NDJSON", "CSV" }) Format format;
+
+	byte[] input;
+	BulkImporter importer;
+
+	@Setup
+	public void setUp() {
+
+		StringBuilder builder = new StringBuilder();
+		int ordersPerCustomer = ORDER_COUNT / CUSTOMER_COUNT;
+
+		for (int customer = 100; customer < 100 + CUSTOMER_COUNT; customer++) {
+
+			append(builder, customer);
+
+			for (int i = 0; i < ordersPerCustomer; i++) {
+				append(builder, (long) customer * ordersPerCustomer + i, customer);
+			}
+		}
+
+		this.input = builder.toString().getBytes(Charset.forName("UTF-8"));
+	}
+
+	@Setup(Level.Invocation)
+	public void createRepositories() {
+
+		InMemoryCustomers customers = new InMemoryCustomers();
+		this.importer = new BulkImporter(customers, new InMemoryOrders(customers));
+	}
+
+	@TearDown(Level.Invocation)
+	public void destroyImporter() {
+		importer.destroy();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ORDER_COUNT)
+	public Result importOrders() throws Exception {
+		return importer.importFrom(new ByteArrayInputStream(input), format);
+	}
+
+	private void append(StringBuilder builder, int customer) {
+
+		if (format == Format.CSV) {
+			builder.append("customer,").append(customer).append(",Dave,Matthews\n");
+		} else {
+			builder.append("{\"type\":\"customer\",\"id\":").append(customer)
+					.append(",\"firstname\":\"Dave\",\"lastname\":\"Matthews\"}\n");
+		}
+	}
+
+	private void append(StringBuilder builder, long order, int customer) {
+
+		if (format == Format.CSV) {
+			builder.append("order,").append(order).append(',').append(customer).append('\n');
+			builder.append("lineItem,").append(order).append(",iPad\n");
+			builder.append("lineItem,").append(order).append(",iPhone\n");
+		} else {
+			builder.append("{\"type\":\"order\",\"id\":").append(order).append(",\"customerId\":").append(customer)
+					.append(",\"lineItems\":[{\"name\":\"iPad\"},{\"name\":\"iPhone\"}]}\n");
+		}
+	}
+}
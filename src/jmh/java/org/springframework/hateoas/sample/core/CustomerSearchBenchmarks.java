@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+
+/**
+ * Latency of looking up a page of {@link Customer}s by name and name prefix in {@link InMemoryCustomers} holding the
+ * given number of {@link Customer}s, whose names are drawn from {@value #NAME_COUNT} first- and lastnames each.
+ * 
+ * @author Oliver Gierke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class CustomerSearchBenchmarks {
+
+	private static final int NAME_COUNT = 5000;
+	private static final int PAGE_SIZE = 20;
+	private static final String[] SYLLABLES = { "ba", "ca", "da", "el", "fi", "go", "ha", "in", "jo", "ka", "le", "mo",
+			"na", "or", "pe", "ri", "sa", "tu", "ve", "wi" };
+
+	@Param({ "100000", "10000000" }) int customerCount;
+
+	InMemoryCustomers customers;
+	String[] names;
+	int next;
+
+	@Setup
+	public void setUp() {
+
+		Random random = new Random(42);
+
+		this.names = new String[NAME_COUNT];
+
+		for (int i = 0; i < NAME_COUNT; i++) {
+			names[i] = Character.toUpperCase(SYLLABLES[i % 20].charAt(0)) + SYLLABLES[i % 20].substring(1)
+					+ SYLLABLES[i / 20 % 20] + SYLLABLES[i / 400 % 20];
+		}
+
+		this.customers = new InMemoryCustomers();
+
+		List<Customer> batch = new ArrayList<Customer>();
+
+		for (long id = 10; id < 10 + customerCount; id++) {
+
+			batch.add(new Customer(id, names[random.nextInt(NAME_COUNT)], names[random.nextInt(NAME_COUNT)]));
+
+			if (batch.size() == 100000) {
+				customers.saveAll(batch);
+				batch.clear();
+			}
+		}
+
+		customers.saveAll(batch);
+	}
+
+	@Benchmark
+	public Slice<Customer> findByName() {
+		return customers.findByName(nextName(), Cursor.first(PAGE_SIZE));
+	}
+
+	@Benchmark
+	public Slice<Customer> findByNamePrefix() {
+		return customers.findByNameStartingWith(nextName().substring(0, 3), Cursor.first(PAGE_SIZE));
+	}
+
+	@Benchmark
+	public Slice<Customer> findByNamePrefixTenthPage() {
+		return customers.findByNameStartingWith(nextName().substring(0, 3), new Cursor(9 * PAGE_SIZE, PAGE_SIZE));
+	}
+
+	private String nextName() {
+		return names[next++ % NAME_COUNT];
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.core.Orders.InMemoryOrders;
+
+/**
+ * Throughput of concurrent writes to and reads of {@link InMemoryOrders}. Run with different numbers of threads, e.g.
+ * {@code -Djmh.args="OrderWriteBenchmarks -t 1"} and {@code -t 4}, to see how it scales with the cores available. The
+ * threads either write random {@link Order}s or all of them the same one.
+ * 
+ * @author Oliver Gierke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderWriteBenchmarks {
+
+	private static final int ORDER_COUNT = 4096;
+
+	InMemoryOrders orders;
+	List<LineItem> lineItems = Collections.singletonList(new LineItem("iPod"));
+
+	@Setup
+	public void setUp() {
+
+		InMemoryCustomers customers = new InMemoryCustomers();
+		this.orders = new InMemoryOrders(customers);
+
+		for (int i = 1; i < ORDER_COUNT; i++) {
+			orders.create(customers.findOne(i % 2 + 1L), lineItems);
+		}
+	}
+
+	@Benchmark
+	public Order updateOrder(Ids ids) {
+		return orders.update(ids.next(), lineItems);
+	}
+
+	@Benchmark
+	public Order updateSameOrder() {
+		return orders.update(1L, lineItems);
+	}
+
+	@Benchmark
+	public Order findOrder(Ids ids) {
+		return orders.findOne(ids.next());
+	}
+
+	/**
+	 * Pseudo-random sequence of {@link Order} ids per thread.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@State(Scope.Thread)
+	public static class Ids {
+
+		private long seed = System.identityHashCode(this);
+
+		long next() {
+
+			seed = seed * 6364136223846793005L + 1442695040888963407L;
+			return (seed >>> 33) % ORDER_COUNT + 1;
+		}
+	}
+}
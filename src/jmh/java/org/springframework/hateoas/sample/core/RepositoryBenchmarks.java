@@ -0,0 +1,121 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+import org.springframework.hateoas.sample.core.Orders.InMemoryOrders;
+
+/**
+ * Benchmarks for the lookups of {@link InMemoryCustomers} and {@link InMemoryOrders} at different data sizes.
+ * 
+ * @author Oliver Gierke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RepositoryBenchmarks {
+
+	private static final int ORDERS_PER_CUSTOMER = 10;
+	private static final int SAMPLES = 1024;
+
+	@Param({ "1000", "100000", "1000000" }) int orderCount;
+
+	Customers customers;
+	Orders orders;
+
+	long[] customerIds, orderIds;
+	Customer[] sampleCustomers;
+	int index;
+
+	@Setup
+	public void setUp() {
+
+		InMemoryCustomers customers = new InMemoryCustomers();
+		InMemoryOrders orders = new InMemoryOrders(customers);
+
+		int customerCount = Math.max(1, orderCount / ORDERS_PER_CUSTOMER);
+		Customer[] all = new Customer[customerCount];
+
+		for (int i = 0; i < customerCount; i++) {
+			all[i] = new Customer(i + 100, "Firstname" + i, "Lastname" + i);
+			customers.save(all[i]);
+		}
+
+		for (int i = 0; i < orderCount; i++) {
+			orders.save(new Order(i + 100, all[i % customerCount]).add(new Order.LineItem("Product" + (i % 50))));
+		}
+
+		this.customers = customers;
+		this.orders = orders;
+
+		Random random = new Random(42);
+
+		this.customerIds = new long[SAMPLES];
+		this.orderIds = new long[SAMPLES];
+		this.sampleCustomers = new Customer[SAMPLES];
+
+		for (int i = 0; i < SAMPLES; i++) {
+
+			Customer customer = all[random.nextInt(customerCount)];
+
+			customerIds[i] = customer.getId();
+			orderIds[i] = random.nextInt(orderCount) + 100;
+			sampleCustomers[i] = customer;
+		}
+	}
+
+	@Benchmark
+	public Customer findCustomer() {
+		return customers.findOne(customerIds[next()]);
+	}
+
+	@Benchmark
+	public Customer findCustomerBoxed() {
+		return customers.findOne(Long.valueOf(customerIds[next()]));
+	}
+
+	@Benchmark
+	public Order findOrder() {
+		return orders.findOne(orderIds[next()]);
+	}
+
+	@Benchmark
+	public List<Order> findOrdersOfCustomer() {
+		return orders.findAll(sampleCustomers[next()]);
+	}
+
+	private int next() {
+		return index = (index + 1) & (SAMPLES - 1);
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.hateoas.OrderController.OrderResource;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Benchmarks for rendering {@link Resources} of {@link OrderResource}s and {@link Order}s as HAL using an
+ * {@link ObjectMapper} set up the way {@code @EnableHypermediaSupport} does, with and without the {@link HalSerializers}.
+ * Note that the default setup only renders the last two elements of the {@link Resources}, so the results are only
+ * comparable for up to two {@link Order}s.
+ * 
+ * @author Oliver Gierke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HalRenderingBenchmarks {
+
+	@Param({ "1", "2", "100", "10000" }) int orderCount;
+	@Param({ "default", "handwritten" }) String serializers;
+
+	ObjectMapper mapper;
+	Resources<OrderResource> resources;
+	Resources<Resource<Order>> orders;
+
+	@Setup
+	public void setUp() {
+
+		this.mapper = new ObjectMapper();
+		this.mapper.registerModule(new Jackson2HalModule());
+		this.mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(new DefaultRelProvider()));
+
+		if ("handwritten".equals(serializers)) {
+			this.mapper.registerModule(new HalSerializers(new DefaultRelProvider()));
+		}
+
+		Customer customer = new Customer(1L, "Dave", "Matthews");
+		List<Resource<Order>> orders = new ArrayList<Resource<Order>>(orderCount);
+
+		List<OrderResource> content = new ArrayList<OrderResource>(orderCount);
+
+		for (int i = 0; i < orderCount; i++) {
+
+			List<LineItem> lineItems = new ArrayList<LineItem>();
+			lineItems.add(new LineItem("iPhone"));
+			lineItems.add(new LineItem("iPad"));
+
+			OrderResource resource = new OrderResource(lineItems);
+			resource.add(new Link("http://localhost/orders/" + i));
+			resource.add(new Link("http://localhost/customers/1", "customer"));
+
+			content.add(resource);
+
+			Order order = new Order(i, customer);
+
+			for (LineItem item : lineItems) {
+				order = order.add(item);
+			}
+
+			orders.add(new Resource<Order>(order, new Link("http://localhost/orders/" + i)));
+		}
+
+		this.resources = new Resources<OrderResource>(content, new Link("http://localhost/customers/1/orders"));
+		this.orders = new Resources<Resource<Order>>(orders, new Link("http://localhost/orders?ids"));
+	}
+
+	@Benchmark
+	public byte[] renderOrders() throws Exception {
+		return mapper.writeValueAsBytes(resources);
+	}
+
+	@Benchmark
+	public byte[] renderOrderBatch() throws Exception {
+		return mapper.writeValueAsBytes(orders);
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.Link;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Benchmarks for building {@link Link}s to controller methods using {@code linkTo(methodOn(...))} compared to the
+ * {@link LinkTemplate}s {@link OrderController} uses.
+ * 
+ * @author Oliver Gierke
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LinkBuildingBenchmarks {
+
+	long id;
+	LinkTemplate orderTemplate;
+
+	@Setup
+	public void setUp() {
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/customers/1/orders");
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+		this.orderTemplate = new ControllerLinkFactory().templateFor(methodOn(OrderController.class).showOrder(0L, null));
+	}
+
+	@TearDown
+	public void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Benchmark
+	public Link linkToOrder() {
+		return linkTo(methodOn(OrderController.class).showOrder(++id, null)).withSelfRel();
+	}
+
+	@Benchmark
+	public Link linkToOrderViaTemplate() {
+		return orderTemplate.withSelfRel(++id);
+	}
+
+	@Benchmark
+	public Link linkToCustomer() {
+		return linkTo(methodOn(CustomerController.class).showCustomer(++id, null)).withRel("customer");
+	}
+
+	@Benchmark
+	public Link linkToCustomerOrders() {
+		return linkTo(methodOn(OrderController.class).showCustomerOrders(++id, null)).withSelfRel();
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.sample.Projection;
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.hateoas.OrderController.OrderResource;
+import org.springframework.hateoas.sample.hateoas.OrderController.ProjectedOrder;
+
+/**
+ * Benchmarks for assembling the resources of a {@link Customer}'s {@link Order}s with the
+ * {@link OrderResourceAssembler}, sequentially and, for {@link List}s large enough, in parallel. Run with
+ * {@code -prof gc} to see the allocation rate per assembled {@link List}.
+ * 
+ * @author Oliver Gierke
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResourceAssemblyBenchmarks {
+
+	static final String BASE_URI = "http://localhost";
+
+	@Param({ "10", "1000", "10000" }) int orderCount;
+
+	OrderResourceAssembler assembler, sequential;
+	Customer customer;
+	List<Order> orders;
+
+	@Setup
+	public void setUp() {
+
+		this.assembler = new OrderResourceAssembler(new ControllerLinkFactory());
+		this.sequential = new OrderResourceAssembler(new ControllerLinkFactory(), Integer.MAX_VALUE,
+				OrderResourceAssembler.CHUNK_SIZE);
+		this.customer = new Customer(1L, "Dave", "Matthews");
+		this.orders = new ArrayList<Order>(orderCount);
+
+		for (int i = 0; i < orderCount; i++) {
+			orders.add(new Order(i, customer).add(new LineItem("iPhone")).add(new LineItem("iPad")));
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		assembler.destroy();
+		sequential.destroy();
+	}
+
+	@Benchmark
+	public List<OrderResource> assembleCustomerOrders() {
+		return assembler.toOrderResources(orders, customer, Projection.ALL, BASE_URI);
+	}
+
+	@Benchmark
+	public List<OrderResource> assembleCustomerOrdersSequentially() {
+		return sequential.toOrderResources(orders, customer, Projection.ALL, BASE_URI);
+	}
+
+	@Benchmark
+	public List<Resource<ProjectedOrder>> assembleProjectedOrders() {
+		return assembler.toResources(orders, ProjectedOrder.projection("id", ""), BASE_URI);
+	}
+}
@@ -15,23 +15,37 @@
  */
 package org.springframework.hateoas.sample;
 
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableMBeanExport;
+import org.springframework.hateoas.sample.metrics.MetricsInterceptor;
 import org.springframework.http.MediaType;
+import org.springframework.jmx.support.RegistrationPolicy;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
 
 /**
- * Spring JavaConfig configuration class. Enabling component scanning and basic Spring MVC configuration.
+ * Spring JavaConfig configuration class. Enabling component scanning, basic Spring MVC configuration including
+ * asynchronous request processing and request metrics as well as the export of managed components via JMX.
  * 
  * @author Oliver Gierke
  */
 @Configuration
 @ComponentScan
 @EnableWebMvc
+@EnableMBeanExport(registration = RegistrationPolicy.REPLACE_EXISTING)
 class ApplicationConfig extends WebMvcConfigurerAdapter {
 
+	@Autowired MetricsInterceptor metricsInterceptor;
+
 	/* 
 	 * (non-Javadoc)
 	 * @see org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter#configureContentNegotiation(org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer)
@@ -40,4 +54,39 @@ class ApplicationConfig extends WebMvcConfigurerAdapter {
 	public void configureContentNegotiation(ContentNegotiationConfigurer configurer) {
 		configurer.defaultContentType(MediaType.APPLICATION_JSON);
 	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter#configureAsyncSupport(org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer)
+	 */
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setDefaultTimeout(TimeUnit.SECONDS.toMillis(10));
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter#addInterceptors(org.springframework.web.servlet.config.annotation.InterceptorRegistry)
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry) {
+		registry.addInterceptor(metricsInterceptor);
+	}
+
+	/**
+	 * Small thread pool to run asynchronous repository lookups on.
+	 * 
+	 * @return
+	 */
+	@Bean
+	public ThreadPoolTaskExecutor repositoryExecutor() {
+
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(4);
+		executor.setMaxPoolSize(4);
+		executor.setQueueCapacity(10000);
+		executor.setThreadNamePrefix("repository-");
+
+		return executor;
+	}
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Filter compressing response bodies with gzip for clients accepting it. The body is buffered until it reaches the
+ * minimum size of the {@link ResponseCompression}, from then on it's compressed while it's written, so that streamed
+ * responses don't have to be held in memory. Smaller bodies go out uncompressed, as do ones that already have a
+ * {@code Content-Encoding}, e.g. the compressed representations served by the {@link RepresentationCache}. Compressed
+ * bodies get the entity tag of the gzip variant, see {@link ETags#forGzip(String)}.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+public class CompressionFilter extends OncePerRequestFilter {
+
+	private static final String CONTENT_LENGTH = "Content-Length";
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final ResponseCompression compression;
+
+	/**
+	 * Creates a new {@link CompressionFilter} using the given {@link ResponseCompression}.
+	 * 
+	 * @param compression must not be {@literal null}.
+	 */
+	@Autowired
+	public CompressionFilter(ResponseCompression compression) {
+
+		Assert.notNull(compression, "ResponseCompression must not be null!");
+		this.compression = compression;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.web.filter.OncePerRequestFilter#shouldNotFilterAsyncDispatch()
+	 */
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		return false;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.web.filter.OncePerRequestFilter#doFilterInternal(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, javax.servlet.FilterChain)
+	 */
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+
+		ETags.addVary(response, ResponseCompression.ACCEPT_ENCODING);
+
+		CompressingResponse compressing;
+
+		// Containers dispatch asynchronously handled requests with the response wrapped initially
+		if (response instanceof CompressingResponse) {
+			compressing = (CompressingResponse) response;
+		} else if (ResponseCompression.isAccepted(request.getHeader(ResponseCompression.ACCEPT_ENCODING))) {
+			compressing = new CompressingResponse(response, compression.getMinSize());
+		} else {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		chain.doFilter(request, compressing);
+
+		if (!isAsyncStarted(request)) {
+			compressing.finish();
+		}
+	}
+
+	/**
+	 * {@link HttpServletResponseWrapper} holding back the {@code Content-Length} until it's known whether the body is
+	 * compressed.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class CompressingResponse extends HttpServletResponseWrapper {
+
+		private final int minSize;
+		private CompressingOutputStream stream;
+		private PrintWriter writer;
+		private String contentLength;
+
+		public CompressingResponse(HttpServletResponse response, int minSize) {
+
+			super(response);
+			this.minSize = minSize;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+		 */
+		@Override
+		public ServletOutputStream getOutputStream() {
+
+			if (stream == null) {
+				stream = new CompressingOutputStream();
+			}
+
+			return stream;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see javax.servlet.ServletResponseWrapper#getWriter()
+		 */
+		@Override
+		public PrintWriter getWriter() throws IOException {
+
+			if (writer == null) {
+				writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+			}
+
+			return writer;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+		 */
+		@Override
+		public void flushBuffer() throws IOException {
+
+			if (writer != null) {
+				writer.flush();
+			} else if (stream != null) {
+				stream.flush();
+			}
+
+			super.flushBuffer();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+		 */
+		@Override
+		public void setContentLength(int length) {
+			this.contentLength = String.valueOf(length);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see javax.servlet.http.HttpServletResponseWrapper#setHeader(java.lang.String, java.lang.String)
+		 */
+		@Override
+		public void setHeader(String name, String value) {
+
+			if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+				this.contentLength = value;
+			} else {
+				super.setHeader(name, value);
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see javax.servlet.http.HttpServletResponseWrapper#addHeader(java.lang.String, java.lang.String)
+		 */
+		@Override
+		public void addHeader(String name, String value) {
+
+			if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+				this.contentLength = value;
+			} else {
+				super.addHeader(name, value);
+			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see javax.servlet.http.HttpServletResponseWrapper#setIntHeader(java.lang.String, int)
+		 */
+		@Override
+		public void setIntHeader(String name, int value) {
+			setHeader(name, String.valueOf(value));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see javax.servlet.http.HttpServletResponseWrapper#addIntHeader(java.lang.String, int)
+		 */
+		@Override
+		public void addIntHeader(String name, int value) {
+			addHeader(name, String.valueOf(value));
+		}
+
+		/**
+		 * Completes the body, i.e. writes a body still buffered or finishes the compressed one.
+		 * 
+		 * @throws IOException
+		 */
+		void finish() throws IOException {
+
+			if (writer != null) {
+				writer.close();
+			} else if (stream != null) {
+				stream.close();
+			} else if (contentLength != null) {
+				super.setHeader(CONTENT_LENGTH, contentLength);
+			}
+		}
+
+		/**
+		 * {@link ServletOutputStream} buffering the body until it reaches the minimum size and then either compressing it
+		 * or writing it through.
+		 * 
+		 * @author Oliver Gierke
+		 */
+		private class CompressingOutputStream extends ServletOutputStream {
+
+			private byte[] buffer = new byte[minSize];
+			private int count;
+			private OutputStream target;
+			private GZIPOutputStream gzip;
+			private boolean closed;
+
+			/*
+			 * (non-Javadoc)
+			 * @see java.io.OutputStream#write(int)
+			 */
+			@Override
+			public void write(int b) throws IOException {
+
+				if (target == null && count < buffer.length) {
+					buffer[count++] = (byte) b;
+					return;
+				}
+
+				start(true);
+				target.write(b);
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see java.io.OutputStream#write(byte[], int, int)
+			 */
+			@Override
+			public void write(byte[] bytes, int offset, int length) throws IOException {
+
+				if (target == null && count + length <= buffer.length) {
+					System.arraycopy(bytes, offset, buffer, count, length);
+					count += length;
+					return;
+				}
+
+				start(true);
+				target.write(bytes, offset, length);
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see java.io.OutputStream#flush()
+			 */
+			@Override
+			public void flush() throws IOException {
+
+				// Flushing a body smaller than the minimum size commits it uncompressed
+				start(false);
+				target.flush();
+			}
+
+			/*
+			 * (non-Javadoc)
+			 * @see java.io.OutputStream#close()
+			 */
+			@Override
+			public void close() throws IOException {
+
+				if (closed) {
+					return;
+				}
+
+				closed = true;
+				start(count > 0 && count >= minSize);
+
+				if (gzip != null) {
+					gzip.finish();
+				}
+
+				target.flush();
+			}
+
+			private void start(boolean compress) throws IOException {
+
+				if (target != null) {
+					return;
+				}
+
+				HttpServletResponse response = (HttpServletResponse) getResponse();
+
+				if (compress && !response.containsHeader(ResponseCompression.CONTENT_ENCODING)) {
+
+					String etag = response.getHeader(ETags.ETAG);
+
+					// The compressed body is a representation of its own
+					if (etag != null) {
+						response.setHeader(ETags.ETAG, ETags.forGzip(etag));
+					}
+
+					response.setHeader(ResponseCompression.CONTENT_ENCODING, ResponseCompression.GZIP);
+					target = gzip = new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE, true);
+
+				} else {
+
+					if (contentLength != null) {
+						response.setHeader(CONTENT_LENGTH, contentLength);
+					}
+
+					target = response.getOutputStream();
+				}
+
+				target.write(buffer, 0, count);
+				buffer = null;
+			}
+		}
+	}
+}
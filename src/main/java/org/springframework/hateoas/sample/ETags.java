@@ -0,0 +1,198 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Computes strong entity tags for the domain types from their ids and versions, so that conditional requests can be
+ * answered without rendering the representation first. Representations that differ by media type or content coding
+ * get entity tags of their own, as a strong entity tag identifies a representation byte by byte.
+ * 
+ * @author Oliver Gierke
+ */
+public abstract class ETags {
+
+	public static final String ETAG = "ETag";
+	public static final String IF_NONE_MATCH = "If-None-Match";
+	public static final String VARY = "Vary";
+
+	private ETags() {}
+
+	/**
+	 * Returns the entity tag for the given {@link Customer}.
+	 * 
+	 * @param customer must not be {@literal null}.
+	 * @return
+	 */
+	public static String forCustomer(Customer customer) {
+		return quote(new StringBuilder("c").append(customer.getId()).append('-').append(customer.getVersion()));
+	}
+
+	/**
+	 * Returns the entity tag for the given {@link Order}. Considers the version of the {@link Customer} as well, as its
+	 * representation might embed it.
+	 * 
+	 * @param order must not be {@literal null}.
+	 * @return
+	 */
+	public static String forOrder(Order order) {
+
+		Customer customer = order.getCustomer();
+
+		return quote(new StringBuilder("o").append(order.getId()).append('-').append(order.getVersion()).append('-')
+				.append(customer.getVersion()));
+	}
+
+	/**
+	 * Returns the entity tag for the collection of the given {@link Order}s placed by the given {@link Customer}. As
+	 * versions only ever increase, the number of {@link Order}s and the sum of their versions change whenever one of
+	 * them is added or changed.
+	 * 
+	 * @param customer must not be {@literal null}.
+	 * @param orders must not be {@literal null}.
+	 * @return
+	 */
+	public static String forOrders(Customer customer, Iterable<Order> orders) {
+
+		long count = 0, versions = 0;
+
+		for (Order order : orders) {
+			count++;
+			versions += order.getVersion();
+		}
+
+		return quote(new StringBuilder("c").append(customer.getId()).append('-').append(customer.getVersion())
+				.append("-o").append(count).append('-').append(versions));
+	}
+
+	/**
+	 * Returns the entity tag of a variant of the representation with the given entity tag, e.g. the same entity in a
+	 * different media type.
+	 * 
+	 * @param etag must not be {@literal null}.
+	 * @param variant must not be {@literal null} or empty.
+	 * @return
+	 */
+	public static String forVariant(String etag, String variant) {
+
+		Assert.hasText(variant, "Variant must not be null or empty!");
+
+		return quote(new StringBuilder(etag.length() + variant.length()).append(etag, 1, etag.length() - 1).append('-')
+				.append(variant));
+	}
+
+	/**
+	 * Returns the entity tag of the gzip compressed variant of the representation with the given entity tag. Weak entity
+	 * tags are returned as is, as the compressed variant is semantically equivalent.
+	 * 
+	 * @param etag must not be {@literal null}.
+	 * @return
+	 */
+	public static String forGzip(String etag) {
+		return etag.startsWith("W/") ? etag : forVariant(etag, ResponseCompression.GZIP);
+	}
+
+	/**
+	 * Adds the given request header to the {@code Vary} header of the given response unless it's already listed.
+	 * 
+	 * @param response must not be {@literal null}.
+	 * @param header must not be {@literal null} or empty.
+	 */
+	public static void addVary(HttpServletResponse response, String header) {
+
+		Assert.hasText(header, "Header must not be null or empty!");
+
+		String vary = response.getHeader(VARY);
+
+		if (!StringUtils.hasText(vary)) {
+			response.setHeader(VARY, header);
+			return;
+		}
+
+		for (String candidate : StringUtils.commaDelimitedListToStringArray(vary)) {
+
+			candidate = candidate.trim();
+
+			if (candidate.equals("*") || candidate.equalsIgnoreCase(header)) {
+				return;
+			}
+		}
+
+		response.setHeader(VARY, vary + ", " + header);
+	}
+
+	/**
+	 * Returns whether the given value of an {@code If-None-Match} header matches the given entity tag or the one of its
+	 * gzip compressed variant. Use this instead of
+	 * {@link org.springframework.web.context.request.WebRequest#checkNotModified(String)}, which doesn't know about the
+	 * latter.
+	 * 
+	 * @param ifNoneMatch can be {@literal null}.
+	 * @param etag must not be {@literal null}.
+	 * @return
+	 */
+	public static boolean matches(String ifNoneMatch, String etag) {
+
+		if (!StringUtils.hasText(ifNoneMatch)) {
+			return false;
+		}
+
+		String gzip = forGzip(etag);
+
+		for (String candidate : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+
+			candidate = candidate.trim();
+
+			if (candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+
+			if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(gzip)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns a {@code 304 Not Modified} response for the given entity tag.
+	 * 
+	 * @param etag must not be {@literal null}.
+	 * @return
+	 */
+	public static <T> HttpEntity<T> notModified(String etag) {
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag(etag);
+
+		return new ResponseEntity<T>(headers, HttpStatus.NOT_MODIFIED);
+	}
+
+	private static String quote(StringBuilder builder) {
+		return builder.insert(0, '"').append('"').toString();
+	}
+}
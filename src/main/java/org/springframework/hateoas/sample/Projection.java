@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Selection of the properties of a resource to render and the associations to embed into it, as requested by clients
+ * via the {@value #FIELDS_PARAMETER} and {@value #EMBED_PARAMETER} parameters, e.g.
+ * {@code /orders?fields=id&embed=}. Both take comma separated lists of names, an absent parameter selects everything.
+ * Associations not embedded are exposed as links. Links are always rendered. Names unknown to the projected type are
+ * ignored, so that the number of distinct {@link Projection}s, and thus of cached representations, stays bounded.
+ * 
+ * @author Oliver Gierke
+ */
+public class Projection {
+
+	public static final String FIELDS_PARAMETER = "fields";
+	public static final String EMBED_PARAMETER = "embed";
+
+	/**
+	 * The {@link Projection} selecting all properties and embedding all associations.
+	 */
+	public static final Projection ALL = new Projection(null, null);
+
+	private final Set<String> fields;
+	private final Set<String> embedded;
+
+	private Projection(Set<String> fields, Set<String> embedded) {
+		this.fields = fields;
+		this.embedded = embedded;
+	}
+
+	/**
+	 * Creates a {@link Projection} from the given request parameters. Only the given properties and associations can be
+	 * selected, all other names are dropped.
+	 * 
+	 * @param fields the comma separated names of the properties to render, {@literal null} for all of them.
+	 * @param embed the comma separated names of the associations to embed, {@literal null} for all of them.
+	 * @param properties the names of all properties of the projected type, must not be {@literal null}.
+	 * @param associations the names of all associations of the projected type, must not be {@literal null}.
+	 * @return
+	 */
+	public static Projection of(String fields, String embed, Collection<String> properties,
+			Collection<String> associations) {
+
+		Assert.notNull(properties, "Properties must not be null!");
+		Assert.notNull(associations, "Associations must not be null!");
+
+		return fields == null && embed == null ? ALL : new Projection(parse(fields, properties),
+				parse(embed, associations));
+	}
+
+	/**
+	 * Returns whether the property with the given name shall be rendered.
+	 * 
+	 * @param property
+	 * @return
+	 */
+	public boolean includes(String property) {
+		return fields == null || fields.contains(property);
+	}
+
+	/**
+	 * Returns whether the association with the given name shall be rendered and embedded.
+	 * 
+	 * @param association
+	 * @return
+	 */
+	public boolean embeds(String association) {
+		return includes(association) && (embedded == null || embedded.contains(association));
+	}
+
+	/**
+	 * Returns whether the {@link Projection} selects everything.
+	 * 
+	 * @return
+	 */
+	public boolean isAll() {
+		return fields == null && embedded == null;
+	}
+
+	/**
+	 * Returns the canonical form of the {@link Projection}, i.e. the same for the same selection no matter the order of
+	 * the names requested. Empty for {@link #ALL}.
+	 * 
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+
+		StringBuilder builder = new StringBuilder();
+
+		if (fields != null) {
+			builder.append(FIELDS_PARAMETER).append('=').append(StringUtils.collectionToCommaDelimitedString(fields));
+		}
+
+		if (embedded != null) {
+			builder.append(builder.length() == 0 ? "" : "&");
+			builder.append(EMBED_PARAMETER).append('=').append(StringUtils.collectionToCommaDelimitedString(embedded));
+		}
+
+		return builder.toString();
+	}
+
+	private static Set<String> parse(String names, Collection<String> known) {
+
+		if (names == null) {
+			return null;
+		}
+
+		Set<String> result = new TreeSet<String>();
+
+		for (String name : StringUtils.commaDelimitedListToStringArray(names)) {
+
+			String candidate = name.trim();
+
+			if (known.contains(candidate)) {
+				result.add(candidate);
+			}
+		}
+
+		return Collections.unmodifiableSet(result);
+	}
+}
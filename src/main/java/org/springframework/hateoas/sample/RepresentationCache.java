@@ -0,0 +1,389 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.sample.metrics.Phase;
+import org.springframework.hateoas.sample.metrics.Recording;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Cache of rendered representations of single resources. Entries are bounded by the total number of bytes cached and
+ * evicted in least recently used order. Every entry is stored along with the entity tag of the entity it was rendered
+ * from and only considered a hit if that tag still matches the current one. Thus any write to the entity that
+ * increments its version invalidates the cached representation without the repositories having to know about the
+ * cache. For clients accepting gzip, representations large enough to be worth compressing are compressed once and the
+ * compressed bytes are cached next to the plain ones. Statistics are exposed via JMX.
+ * 
+ * @author Oliver Gierke
+ * @see ETags
+ */
+@Component
+@ManagedResource(objectName = "org.springframework.hateoas.sample:type=RepresentationCache")
+public class RepresentationCache {
+
+	public static final String JSON = "application/json";
+	public static final String HAL_JSON = "application/hal+json";
+
+	public static final MediaType JSON_UTF8 = MediaType.valueOf("application/json;charset=UTF-8");
+
+	private static final long DEFAULT_MAX_BYTES = 16 * 1024 * 1024;
+	private static final int ENTRY_OVERHEAD = 128;
+
+	private final long maxBytes;
+	private final ResponseCompression compression;
+	private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(256, 0.75f, true);
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), evictions = new AtomicLong();
+	private long bytes;
+
+	/**
+	 * Creates a new {@link RepresentationCache} holding up to 16 MB of representations.
+	 */
+	public RepresentationCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Creates a new {@link RepresentationCache} holding up to the given number of bytes.
+	 * 
+	 * @param maxBytes must be greater than zero.
+	 */
+	public RepresentationCache(long maxBytes) {
+		this(maxBytes, new ResponseCompression(ResponseCompression.DEFAULT_MIN_SIZE));
+	}
+
+	/**
+	 * Creates a new {@link RepresentationCache} holding up to 16 MB of representations and compressing them according to
+	 * the given {@link ResponseCompression}.
+	 * 
+	 * @param compression must not be {@literal null}.
+	 */
+	@Autowired
+	public RepresentationCache(ResponseCompression compression) {
+		this(DEFAULT_MAX_BYTES, compression);
+	}
+
+	/**
+	 * Creates a new {@link RepresentationCache} holding up to the given number of bytes and compressing representations
+	 * according to the given {@link ResponseCompression}.
+	 * 
+	 * @param maxBytes must be greater than zero.
+	 * @param compression must not be {@literal null}.
+	 */
+	public RepresentationCache(long maxBytes, ResponseCompression compression) {
+
+		Assert.isTrue(maxBytes > 0, "Maximum number of bytes must be greater than zero!");
+		Assert.notNull(compression, "ResponseCompression must not be null!");
+
+		this.maxBytes = maxBytes;
+		this.compression = compression;
+	}
+
+	/**
+	 * Returns the representation cached for the given {@link Key} and entity tag or renders the body obtained from the
+	 * given {@link Callable} with the given {@link ObjectMapper} and caches the result.
+	 * 
+	 * @param key must not be {@literal null}.
+	 * @param etag the current entity tag of the entity the representation is rendered from, must not be
+	 *          {@literal null}.
+	 * @param mapper must not be {@literal null}.
+	 * @param body must not be {@literal null}.
+	 * @return
+	 */
+	public HttpEntity<byte[]> getOrRender(Key key, String etag, ObjectMapper mapper, Callable<?> body) {
+		return getOrRender(key, etag, mapper, JSON_UTF8, null, body);
+	}
+
+	/**
+	 * Returns the representation cached for the given {@link Key} and entity tag or renders the body obtained from the
+	 * given {@link Callable} with the given {@link ObjectMapper} and caches the result. The representation is returned
+	 * with the given content type, which has to be the one the {@link ObjectMapper} renders and match the media type of
+	 * the {@link Key}. If the given {@code Accept-Encoding} header accepts gzip and the representation is worth
+	 * compressing, the cached compressed representation is returned along with the entity tag of the gzip variant.
+	 * 
+	 * @param key must not be {@literal null}.
+	 * @param etag the current entity tag of the entity the representation is rendered from, must not be
+	 *          {@literal null}.
+	 * @param mapper must not be {@literal null}.
+	 * @param contentType must not be {@literal null}.
+	 * @param acceptEncoding the {@code Accept-Encoding} header of the request, can be {@literal null}.
+	 * @param body must not be {@literal null}.
+	 * @return
+	 */
+	public HttpEntity<byte[]> getOrRender(Key key, String etag, ObjectMapper mapper, MediaType contentType,
+			String acceptEncoding, Callable<?> body) {
+
+		Assert.notNull(key, "Key must not be null!");
+		Assert.notNull(contentType, "Content type must not be null!");
+		Assert.notNull(etag, "Entity tag must not be null!");
+
+		Entry entry = getEntry(key, etag);
+		byte[] representation;
+
+		if (entry != null) {
+			representation = entry.representation;
+		} else {
+
+			try {
+
+				Object value = body.call();
+				long start = Recording.start(Phase.SERIALIZATION);
+
+				try {
+					representation = mapper.writeValueAsBytes(value);
+				} finally {
+					Recording.stop(Phase.SERIALIZATION, start);
+				}
+
+			} catch (Exception o_O) {
+				throw new IllegalStateException("Could not render representation for " + key, o_O);
+			}
+
+			entry = putEntry(key, etag, representation);
+		}
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(contentType);
+
+		if (ResponseCompression.isAccepted(acceptEncoding) && compression.isWorthCompressing(representation.length)) {
+			headers.set(ResponseCompression.CONTENT_ENCODING, ResponseCompression.GZIP);
+			headers.setETag(ETags.forGzip(etag));
+			representation = getCompressed(key, entry);
+		} else {
+			headers.setETag(etag);
+		}
+
+		return new ResponseEntity<byte[]>(representation, headers, HttpStatus.OK);
+	}
+
+	/**
+	 * Returns the representation cached for the given {@link Key} if it was rendered for the given entity tag.
+	 * 
+	 * @param key must not be {@literal null}.
+	 * @param etag must not be {@literal null}.
+	 * @return the cached representation or {@literal null} if none is cached or the cached one is stale.
+	 */
+	public byte[] get(Key key, String etag) {
+
+		Entry entry = getEntry(key, etag);
+		return entry == null ? null : entry.representation;
+	}
+
+	/**
+	 * Caches the given representation rendered for the given entity tag under the given {@link Key}. Representations
+	 * exceeding an eighth of the cache's capacity are not cached.
+	 * 
+	 * @param key must not be {@literal null}.
+	 * @param etag must not be {@literal null}.
+	 * @param representation must not be {@literal null}.
+	 */
+	public void put(Key key, String etag, byte[] representation) {
+		putEntry(key, etag, representation);
+	}
+
+	/**
+	 * Removes all cached representations.
+	 */
+	@ManagedOperation
+	public synchronized void clear() {
+
+		entries.clear();
+		bytes = 0;
+	}
+
+	@ManagedAttribute
+	public long getHits() {
+		return hits.get();
+	}
+
+	@ManagedAttribute
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@ManagedAttribute
+	public long getEvictions() {
+		return evictions.get();
+	}
+
+	@ManagedAttribute
+	public double getHitRate() {
+
+		long hits = this.hits.get();
+		long total = hits + misses.get();
+
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	@ManagedAttribute
+	public synchronized int getSize() {
+		return entries.size();
+	}
+
+	@ManagedAttribute
+	public synchronized long getBytes() {
+		return bytes;
+	}
+
+	@ManagedAttribute
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	private synchronized Entry putEntry(Key key, String etag, byte[] representation) {
+
+		Entry entry = new Entry(etag, representation);
+		long weight = weigh(entry);
+
+		if (weight > maxBytes / 8) {
+			return entry;
+		}
+
+		Entry previous = entries.put(key, entry);
+
+		if (previous != null) {
+			bytes -= weigh(previous);
+		}
+
+		bytes += weight;
+		evict();
+
+		return entry;
+	}
+
+	private synchronized Entry getEntry(Key key, String etag) {
+
+		Entry entry = entries.get(key);
+
+		if (entry == null || !entry.etag.equals(etag)) {
+			misses.incrementAndGet();
+			return null;
+		}
+
+		hits.incrementAndGet();
+		return entry;
+	}
+
+	/**
+	 * Returns the compressed representation of the given {@link Entry}, compressing it on first access. Compression
+	 * happens outside the lock, so concurrent first accesses might compress twice, but only one result is kept.
+	 */
+	private byte[] getCompressed(Key key, Entry entry) {
+
+		byte[] compressed = entry.compressed;
+
+		if (compressed != null) {
+			return compressed;
+		}
+
+		compressed = ResponseCompression.gzip(entry.representation);
+
+		synchronized (this) {
+
+			if (entry.compressed != null) {
+				return entry.compressed;
+			}
+
+			entry.compressed = compressed;
+
+			// Only account for the compressed bytes if the entry is still cached
+			if (entries.get(key) == entry) {
+				bytes += compressed.length;
+				evict();
+			}
+		}
+
+		return compressed;
+	}
+
+	private void evict() {
+
+		Iterator<Entry> iterator = entries.values().iterator();
+
+		while (bytes > maxBytes && iterator.hasNext()) {
+
+			bytes -= weigh(iterator.next());
+			iterator.remove();
+			evictions.incrementAndGet();
+		}
+	}
+
+	private static long weigh(Entry entry) {
+
+		byte[] compressed = entry.compressed;
+		return entry.representation.length + (compressed == null ? 0 : compressed.length) + ENTRY_OVERHEAD;
+	}
+
+	/**
+	 * Key of a cached representation. Includes the media type, the base URI the links in the representation were built
+	 * for and the variant of the representation, e.g. a subset of its properties.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@ToString
+	@EqualsAndHashCode
+	@AllArgsConstructor
+	public static class Key {
+
+		private final Class<?> type;
+		private final long id;
+		private final String mediaType;
+		private final String baseUri;
+		private final String variant;
+
+		/**
+		 * Creates a new {@link Key} for the default variant of the representation.
+		 * 
+		 * @param type
+		 * @param id
+		 * @param mediaType
+		 * @param baseUri
+		 */
+		public Key(Class<?> type, long id, String mediaType, String baseUri) {
+			this(type, id, mediaType, baseUri, "");
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static class Entry {
+
+		private final String etag;
+		private final byte[] representation;
+		private volatile byte[] compressed;
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Policy for compressing response bodies with gzip. Bodies are only compressed for clients accepting gzip and if they
+ * have at least the minimum size configured via {@value #MIN_SIZE_PROPERTY}, as compressing small bodies costs more
+ * than it saves.
+ * 
+ * @author Oliver Gierke
+ * @see CompressionFilter
+ */
+@Component
+public class ResponseCompression {
+
+	public static final String ACCEPT_ENCODING = "Accept-Encoding";
+	public static final String CONTENT_ENCODING = "Content-Encoding";
+	public static final String GZIP = "gzip";
+
+	static final String MIN_SIZE_PROPERTY = "sample.compression.min-size";
+	static final int DEFAULT_MIN_SIZE = 1024;
+
+	private final int minSize;
+
+	/**
+	 * Creates a new {@link ResponseCompression} using the minimum size configured in the given {@link Environment} or
+	 * 1 KB by default.
+	 * 
+	 * @param environment must not be {@literal null}.
+	 */
+	@Autowired
+	public ResponseCompression(Environment environment) {
+		this(environment.getProperty(MIN_SIZE_PROPERTY, Integer.class, DEFAULT_MIN_SIZE));
+	}
+
+	/**
+	 * Creates a new {@link ResponseCompression} compressing bodies of at least the given number of bytes.
+	 * 
+	 * @param minSize must not be negative.
+	 */
+	public ResponseCompression(int minSize) {
+
+		Assert.isTrue(minSize >= 0, "Minimum size must not be negative!");
+		this.minSize = minSize;
+	}
+
+	/**
+	 * Returns the minimum number of bytes a body needs to have to be compressed.
+	 * 
+	 * @return
+	 */
+	public int getMinSize() {
+		return minSize;
+	}
+
+	/**
+	 * Returns whether a body of the given number of bytes is large enough to be compressed.
+	 * 
+	 * @param length
+	 * @return
+	 */
+	public boolean isWorthCompressing(int length) {
+		return length >= minSize;
+	}
+
+	/**
+	 * Returns whether the given {@code Accept-Encoding} header accepts gzip.
+	 * 
+	 * @param acceptEncoding can be {@literal null}.
+	 * @return
+	 */
+	public static boolean isAccepted(String acceptEncoding) {
+
+		if (!StringUtils.hasText(acceptEncoding)) {
+			return false;
+		}
+
+		for (String element : StringUtils.tokenizeToStringArray(acceptEncoding, ",")) {
+
+			String[] parts = StringUtils.tokenizeToStringArray(element, ";");
+			String coding = parts[0];
+
+			if (!GZIP.equalsIgnoreCase(coding) && !"x-gzip".equalsIgnoreCase(coding) && !"*".equals(coding)) {
+				continue;
+			}
+
+			return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+		}
+
+		return false;
+	}
+
+	/**
+	 * Compresses the given bytes with gzip.
+	 * 
+	 * @param bytes must not be {@literal null}.
+	 * @return
+	 */
+	public static byte[] gzip(byte[] bytes) {
+
+		Assert.notNull(bytes, "Bytes must not be null!");
+
+		ByteArrayOutputStream result = new ByteArrayOutputStream(bytes.length / 4 + 64);
+
+		try {
+
+			GZIPOutputStream stream = new GZIPOutputStream(result);
+			stream.write(bytes);
+			stream.close();
+
+		} catch (IOException o_O) {
+			throw new IllegalStateException("Could not compress bytes!", o_O);
+		}
+
+		return result.toByteArray();
+	}
+}
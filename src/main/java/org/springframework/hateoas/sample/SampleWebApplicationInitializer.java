@@ -15,7 +15,11 @@
  */
 package org.springframework.hateoas.sample;
 
+import javax.servlet.Filter;
+
 import org.springframework.web.WebApplicationInitializer;
+import org.springframework.web.filter.DelegatingFilterProxy;
+import org.springframework.web.servlet.FrameworkServlet;
 import org.springframework.web.servlet.support.AbstractAnnotationConfigDispatcherServletInitializer;
 
 /**
@@ -50,4 +54,27 @@ public class SampleWebApplicationInitializer extends AbstractAnnotationConfigDis
 	protected String[] getServletMappings() {
 		return new String[] { "/" };
 	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.web.servlet.support.AbstractDispatcherServletInitializer#getServletFilters()
+	 */
+	@Override
+	protected Filter[] getServletFilters() {
+
+		// The CompressionFilter is a bean of the DispatcherServlet's context as there's no root one
+		DelegatingFilterProxy compressionFilter = new DelegatingFilterProxy("compressionFilter");
+		compressionFilter.setContextAttribute(FrameworkServlet.SERVLET_CONTEXT_PREFIX + getServletName());
+
+		return new Filter[] { compressionFilter };
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.web.servlet.support.AbstractDispatcherServletInitializer#isAsyncSupported()
+	 */
+	@Override
+	protected boolean isAsyncSupported() {
+		return true;
+	}
 }
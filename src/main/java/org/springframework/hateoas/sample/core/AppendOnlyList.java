@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import org.springframework.util.Assert;
+
+/**
+ * {@link java.util.List} that can only be appended to. Reads don't lock and see all elements appended before the
+ * read started, appends are serialized and amortized constant time, unlike the ones of a
+ * {@link java.util.concurrent.CopyOnWriteArrayList}.
+ * 
+ * @author Oliver Gierke
+ */
+class AppendOnlyList<T> extends AbstractList<T> implements RandomAccess {
+
+	private volatile Object[] elements = new Object[16];
+	private volatile int size;
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+
+		// Read the size first, so that the elements read afterwards contain all elements up to it
+		int size = this.size;
+
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		return (T) elements[index];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see java.util.AbstractList#add(java.lang.Object)
+	 */
+	@Override
+	public synchronized boolean add(T element) {
+
+		Assert.notNull(element, "Element must not be null!");
+
+		Object[] elements = this.elements;
+
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, elements.length << 1);
+			this.elements = elements;
+		}
+
+		elements[size] = element;
+		size = size + 1;
+
+		return true;
+	}
+}
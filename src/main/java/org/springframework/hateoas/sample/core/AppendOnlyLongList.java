@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+/**
+ * List of primitive {@code long}s that can only be appended to. Like {@link AppendOnlyList}, reads don't lock and see
+ * all elements appended before the read started and appends are serialized per list. The elements are kept in chunks
+ * doubling in size, so that an append never copies the elements appended before and small lists stay small.
+ * 
+ * @author Oliver Gierke
+ */
+class AppendOnlyLongList {
+
+	private static final int FIRST_CHUNK_SHIFT = 3;
+	private static final int FIRST_CHUNK_SIZE = 1 << FIRST_CHUNK_SHIFT;
+
+	// Chunk i holds FIRST_CHUNK_SIZE << i elements, the largest one possible holds 2^30
+	private final long[][] chunks = new long[Integer.SIZE - 1 - FIRST_CHUNK_SHIFT][];
+	private volatile int size;
+
+	/**
+	 * Returns the element at the given index.
+	 * 
+	 * @param index
+	 * @return
+	 */
+	public long get(int index) {
+
+		// Read the size first, so that the chunks read afterwards contain all elements up to it
+		int size = this.size;
+
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+
+		int chunk = chunkFor(index);
+		return chunks[chunk][index - offsetOf(chunk)];
+	}
+
+	/**
+	 * Returns the number of elements.
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Appends the given element.
+	 * 
+	 * @param element
+	 * @throws IllegalStateException if the list can't hold any more elements.
+	 */
+	public synchronized void add(long element) {
+
+		int index = size;
+		int chunk = chunkFor(index);
+
+		if (chunk == chunks.length) {
+			throw new IllegalStateException("List is full!");
+		}
+
+		if (chunks[chunk] == null) {
+			chunks[chunk] = new long[FIRST_CHUNK_SIZE << chunk];
+		}
+
+		chunks[chunk][index - offsetOf(chunk)] = element;
+		size = index + 1;
+	}
+
+	private static int chunkFor(int index) {
+		return 31 - Integer.numberOfLeadingZeros((index >>> FIRST_CHUNK_SHIFT) + 1);
+	}
+
+	private static int offsetOf(int chunk) {
+		return FIRST_CHUNK_SIZE * ((1 << chunk) - 1);
+	}
+}
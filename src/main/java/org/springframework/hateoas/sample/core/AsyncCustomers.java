@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+/**
+ * Asynchronous variant of {@link Customers}. Lookups return immediately and hand their result to the given
+ * {@link Callback} once it is available, so that callers don't have to hold a thread while waiting for the storage.
+ * 
+ * @author Oliver Gierke
+ */
+public interface AsyncCustomers {
+
+	/**
+	 * Looks up the {@link Customer} with the given id and hands it to the given {@link Callback}.
+	 * 
+	 * @param id
+	 * @param callback must not be {@literal null}.
+	 */
+	void findOne(long id, Callback<Customer> callback);
+
+	/**
+	 * Looks up all {@link Customer}s and hands them to the given {@link Callback}.
+	 * 
+	 * @param callback must not be {@literal null}.
+	 */
+	void findAll(Callback<List<Customer>> callback);
+
+	/**
+	 * Looks up the {@link Slice} of all {@link Customer}s for the given {@link Cursor} and hands it to the given
+	 * {@link Callback}.
+	 * 
+	 * @param cursor must not be {@literal null}.
+	 * @param callback must not be {@literal null}.
+	 */
+	void findAll(Cursor cursor, Callback<Slice<Customer>> callback);
+
+	/**
+	 * Looks up the {@link Customer}s with the given ids and hands them to the given {@link Callback}. Unknown ids are
+	 * skipped.
+	 * 
+	 * @param ids must not be {@literal null}.
+	 * @param callback must not be {@literal null}.
+	 */
+	void findAll(Iterable<Long> ids, Callback<List<Customer>> callback);
+
+	/**
+	 * Looks up the {@link Slice} of the {@link Customer}s whose firstname or lastname equals the given name for the
+	 * given {@link Cursor} and hands it to the given {@link Callback}.
+	 * 
+	 * @param name must not be {@literal null}.
+	 * @param cursor must not be {@literal null}.
+	 * @param callback must not be {@literal null}.
+	 * @see Customers#findByName(String, Cursor)
+	 */
+	void findByName(String name, Cursor cursor, Callback<Slice<Customer>> callback);
+
+	/**
+	 * Looks up the {@link Slice} of the {@link Customer}s whose firstname or lastname starts with the given prefix for
+	 * the given {@link Cursor} and hands it to the given {@link Callback}.
+	 * 
+	 * @param prefix must not be {@literal null}.
+	 * @param cursor must not be {@literal null}.
+	 * @param callback must not be {@literal null}.
+	 * @see Customers#findByNameStartingWith(String, Cursor)
+	 */
+	void findByNameStartingWith(String prefix, Cursor cursor, Callback<Slice<Customer>> callback);
+
+	/**
+	 * {@link AsyncCustomers} executing the lookups against a {@link Customers} instance on an {@link Executor}.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@Repository
+	static class ExecutingAsyncCustomers implements AsyncCustomers {
+
+		private final Customers customers;
+		private final Executor executor;
+
+		@Autowired
+		public ExecutingAsyncCustomers(Customers customers, Executor executor) {
+
+			Assert.notNull(customers, "Customers must not be null!");
+			Assert.notNull(executor, "Executor must not be null!");
+
+			this.customers = customers;
+			this.executor = executor;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncCustomers#findOne(long, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findOne(final long id, Callback<Customer> callback) {
+
+			execute(new Lookup<Customer>(callback) {
+
+				@Override
+				protected Customer lookup() {
+					return customers.findOne(id);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncCustomers#findAll(org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findAll(Callback<List<Customer>> callback) {
+
+			execute(new Lookup<List<Customer>>(callback) {
+
+				@Override
+				protected List<Customer> lookup() {
+					return customers.findAll();
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncCustomers#findAll(org.springframework.hateoas.sample.core.Cursor, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findAll(final Cursor cursor, Callback<Slice<Customer>> callback) {
+
+			execute(new Lookup<Slice<Customer>>(callback) {
+
+				@Override
+				protected Slice<Customer> lookup() {
+					return customers.findAll(cursor);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncCustomers#findAll(java.lang.Iterable, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findAll(final Iterable<Long> ids, Callback<List<Customer>> callback) {
+
+			execute(new Lookup<List<Customer>>(callback) {
+
+				@Override
+				protected List<Customer> lookup() {
+					return customers.findAll(ids);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncCustomers#findByName(java.lang.String, org.springframework.hateoas.sample.core.Cursor, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findByName(final String name, final Cursor cursor, Callback<Slice<Customer>> callback) {
+
+			execute(new Lookup<Slice<Customer>>(callback) {
+
+				@Override
+				protected Slice<Customer> lookup() {
+					return customers.findByName(name, cursor);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncCustomers#findByNameStartingWith(java.lang.String, org.springframework.hateoas.sample.core.Cursor, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findByNameStartingWith(final String prefix, final Cursor cursor, Callback<Slice<Customer>> callback) {
+
+			execute(new Lookup<Slice<Customer>>(callback) {
+
+				@Override
+				protected Slice<Customer> lookup() {
+					return customers.findByNameStartingWith(prefix, cursor);
+				}
+			});
+		}
+
+		private void execute(Lookup<?> lookup) {
+
+			try {
+				executor.execute(lookup);
+			} catch (RejectedExecutionException o_O) {
+				lookup.callback.onFailure(o_O);
+			}
+		}
+	}
+}
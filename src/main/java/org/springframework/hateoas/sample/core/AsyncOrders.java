@@ -0,0 +1,183 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+/**
+ * Asynchronous variant of {@link Orders}. Lookups return immediately and hand their result to the given
+ * {@link Callback} once it is available, so that callers don't have to hold a thread while waiting for the storage.
+ * 
+ * @author Oliver Gierke
+ */
+public interface AsyncOrders {
+
+	/**
+	 * Looks up the {@link Order} with the given id and hands it to the given {@link Callback}.
+	 * 
+	 * @param id
+	 * @param callback must not be {@literal null}.
+	 */
+	void findOne(long id, Callback<Order> callback);
+
+	/**
+	 * Looks up the {@link Order}s placed by the given {@link Customer} and hands them to the given {@link Callback}.
+	 * 
+	 * @param customer
+	 * @param callback must not be {@literal null}.
+	 */
+	void findAll(Customer customer, Callback<List<Order>> callback);
+
+	/**
+	 * Looks up the {@link Slice} of all {@link Order}s for the given {@link Cursor} and hands it to the given
+	 * {@link Callback}.
+	 * 
+	 * @param cursor must not be {@literal null}.
+	 * @param callback must not be {@literal null}.
+	 */
+	void findAll(Cursor cursor, Callback<Slice<Order>> callback);
+
+	/**
+	 * Looks up the {@link Slice} of the {@link Order}s placed by the given {@link Customer} for the given {@link Cursor}
+	 * and hands it to the given {@link Callback}.
+	 * 
+	 * @param customer
+	 * @param cursor must not be {@literal null}.
+	 * @param callback must not be {@literal null}.
+	 */
+	void findAll(Customer customer, Cursor cursor, Callback<Slice<Order>> callback);
+
+	/**
+	 * Looks up the {@link Order}s with the given ids and hands them to the given {@link Callback}. Unknown ids are
+	 * skipped.
+	 * 
+	 * @param ids must not be {@literal null}.
+	 * @param callback must not be {@literal null}.
+	 */
+	void findAll(Iterable<Long> ids, Callback<List<Order>> callback);
+
+	/**
+	 * {@link AsyncOrders} executing the lookups against an {@link Orders} instance on an {@link Executor}.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@Repository
+	static class ExecutingAsyncOrders implements AsyncOrders {
+
+		private final Orders orders;
+		private final Executor executor;
+
+		@Autowired
+		public ExecutingAsyncOrders(Orders orders, Executor executor) {
+
+			Assert.notNull(orders, "Orders must not be null!");
+			Assert.notNull(executor, "Executor must not be null!");
+
+			this.orders = orders;
+			this.executor = executor;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncOrders#findOne(long, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findOne(final long id, final Callback<Order> callback) {
+
+			execute(new Lookup<Order>(callback) {
+
+				@Override
+				protected Order lookup() {
+					return orders.findOne(id);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncOrders#findAll(org.springframework.hateoas.sample.core.Customer, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findAll(final Customer customer, final Callback<List<Order>> callback) {
+
+			execute(new Lookup<List<Order>>(callback) {
+
+				@Override
+				protected List<Order> lookup() {
+					return orders.findAll(customer);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncOrders#findAll(org.springframework.hateoas.sample.core.Cursor, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findAll(final Cursor cursor, Callback<Slice<Order>> callback) {
+
+			execute(new Lookup<Slice<Order>>(callback) {
+
+				@Override
+				protected Slice<Order> lookup() {
+					return orders.findAll(cursor);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncOrders#findAll(org.springframework.hateoas.sample.core.Customer, org.springframework.hateoas.sample.core.Cursor, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findAll(final Customer customer, final Cursor cursor, Callback<Slice<Order>> callback) {
+
+			execute(new Lookup<Slice<Order>>(callback) {
+
+				@Override
+				protected Slice<Order> lookup() {
+					return orders.findAll(customer, cursor);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.AsyncOrders#findAll(java.lang.Iterable, org.springframework.hateoas.sample.core.Callback)
+		 */
+		public void findAll(final Iterable<Long> ids, final Callback<List<Order>> callback) {
+
+			execute(new Lookup<List<Order>>(callback) {
+
+				@Override
+				protected List<Order> lookup() {
+					return orders.findAll(ids);
+				}
+			});
+		}
+
+		private void execute(Lookup<?> lookup) {
+
+			try {
+				executor.execute(lookup);
+			} catch (RejectedExecutionException o_O) {
+				lookup.callback.onFailure(o_O);
+			}
+		}
+	}
+}
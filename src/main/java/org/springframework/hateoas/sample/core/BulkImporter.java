@@ -0,0 +1,628 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import lombok.Getter;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Loads large amounts of {@link Customer}s and {@link Order}s from NDJSON or CSV streams. The stream is parsed record
+ * by record on the calling thread and handed to a single indexing thread in batches of {@value #BATCH_SIZE} records,
+ * which resolves the {@link Customer}s of the {@link Order}s and registers them via
+ * {@link Customers#saveAll(java.util.Collection)} and {@link Orders#saveAll(java.util.Collection)}. Parsing a batch
+ * thus overlaps with indexing the previous one, but an import never has more than one batch in flight: the parser
+ * waits for it to be indexed before it hands over the next one, so that a stream read faster than it can be indexed
+ * doesn't pile up in memory.
+ * <p>
+ * Both formats consist of {@code customer}, {@code order} and {@code lineItem} records. An {@link Order} has to refer
+ * to a {@link Customer} registered already or imported before it, a {@code lineItem} record has to follow the
+ * {@code order} record it belongs to. {@link Order}s of unknown {@link Customer}s are skipped, as are records whose
+ * ids are taken already.
+ * 
+ * <pre>
+ * {"type":"customer","id":1,"firstname":"Dave","lastname":"Matthews"}
+ * {"type":"order","id":1,"customerId":1,"lineItems":[{"name":"iPad"}]}
+ * {"type":"lineItem","orderId":1,"name":"iPhone"}
+ * 
+ * customer,1,Dave,Matthews
+ * order,1,1
+ * lineItem,1,iPad
+ * </pre>
+ * 
+ * CSV fields can be quoted with double quotes, which in turn are escaped by doubling them, but must not span lines.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+public class BulkImporter implements DisposableBean {
+
+	static final int BATCH_SIZE = 8192;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/**
+	 * The formats {@link BulkImporter} can read.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	public enum Format {
+
+		NDJSON, CSV;
+
+		/**
+		 * Returns the {@link Format} of the file with the given name by its extension, {@literal null} if it's not an
+		 * {@code .ndjson}, {@code .json} or {@code .csv} file.
+		 * 
+		 * @param filename must not be {@literal null}.
+		 * @return
+		 */
+		public static Format forFilename(String filename) {
+
+			Assert.notNull(filename, "Filename must not be null!");
+
+			String name = filename.toLowerCase();
+
+			if (name.endsWith(".csv")) {
+				return CSV;
+			}
+
+			return name.endsWith(".ndjson") || name.endsWith(".json") ? NDJSON : null;
+		}
+	}
+
+	private final Customers customers;
+	private final Orders orders;
+	private final JsonFactory factory = new JsonFactory();
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a new {@link BulkImporter} registering the imported records with the given {@link Customers} and
+	 * {@link Orders}.
+	 * 
+	 * @param customers must not be {@literal null}.
+	 * @param orders must not be {@literal null}.
+	 */
+	@Autowired
+	public BulkImporter(Customers customers, Orders orders) {
+
+		Assert.notNull(customers, "Customers must not be null!");
+		Assert.notNull(orders, "Orders must not be null!");
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("import-");
+		threadFactory.setDaemon(true);
+
+		this.customers = customers;
+		this.orders = orders;
+		this.executor = Executors.newSingleThreadExecutor(threadFactory);
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Imports the records read from the given {@link InputStream} in the given {@link Format}. Returns once all records
+	 * read are registered. An invalid record aborts the import, the batches before it stay registered. The stream is
+	 * not closed.
+	 * 
+	 * @param stream must not be {@literal null}.
+	 * @param format must not be {@literal null}.
+	 * @return the {@link Result} of the import.
+	 * @throws IOException if reading the stream fails.
+	 * @throws InvalidRecordException if the stream contains an invalid record.
+	 */
+	public Result importFrom(InputStream stream, Format format) throws IOException {
+
+		Assert.notNull(stream, "InputStream must not be null!");
+		Assert.notNull(format, "Format must not be null!");
+
+		Run run = new Run();
+
+		try {
+
+			if (format == Format.CSV) {
+				readCsv(stream, run);
+			} else {
+				readNdjson(stream, run);
+			}
+
+			return run.finish();
+
+		} finally {
+			run.cancel();
+		}
+	}
+
+	private void readNdjson(InputStream stream, Run run) throws IOException {
+
+		JsonParser parser = factory.createParser(stream);
+		parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+		try {
+
+			for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+
+				if (token != JsonToken.START_OBJECT) {
+					throw invalid(parser.getCurrentLocation().getLineNr(), "Expected a JSON object!");
+				}
+
+				readNdjsonRecord(parser, run);
+			}
+
+		} catch (JsonProcessingException o_O) {
+			throw invalid(o_O.getLocation() == null ? 0 : o_O.getLocation().getLineNr(), o_O.getOriginalMessage());
+		} finally {
+			parser.close();
+		}
+	}
+
+	private void readNdjsonRecord(JsonParser parser, Run run) throws IOException {
+
+		int line = parser.getCurrentLocation().getLineNr();
+
+		String type = null, firstname = null, lastname = null, name = null;
+		Long id = null, customerId = null, orderId = null;
+		List<LineItem> lineItems = null;
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+
+			switch (field) {
+				case "type":
+					type = textOf(parser, value);
+					break;
+				case "id":
+					id = parser.getLongValue();
+					break;
+				case "customerId":
+					customerId = parser.getLongValue();
+					break;
+				case "orderId":
+					orderId = parser.getLongValue();
+					break;
+				case "firstname":
+					firstname = textOf(parser, value);
+					break;
+				case "lastname":
+					lastname = textOf(parser, value);
+					break;
+				case "name":
+					name = textOf(parser, value);
+					break;
+				case "lineItems":
+					lineItems = readLineItems(parser, line);
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+
+		if ("customer".equals(type) && id != null) {
+			run.customer(new Customer(id, firstname, lastname));
+		} else if ("order".equals(type) && id != null && customerId != null) {
+
+			List<LineItem> items = run.order(id, customerId);
+
+			if (lineItems != null) {
+				items.addAll(lineItems);
+			}
+
+		} else if ("lineItem".equals(type) && orderId != null && name != null) {
+			run.lineItem(orderId, name, line);
+		} else {
+			throw invalid(line, "Unknown record type or missing property!");
+		}
+	}
+
+	private static List<LineItem> readLineItems(JsonParser parser, int line) throws IOException {
+
+		if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+			throw invalid(line, "Expected an array of line items!");
+		}
+
+		List<LineItem> lineItems = new ArrayList<LineItem>();
+
+		while (parser.nextToken() == JsonToken.START_OBJECT) {
+
+			String name = null;
+
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+
+				String field = parser.getCurrentName();
+				JsonToken value = parser.nextToken();
+
+				if ("name".equals(field)) {
+					name = textOf(parser, value);
+				} else {
+					parser.skipChildren();
+				}
+			}
+
+			if (name == null) {
+				throw invalid(line, "Line item without a name!");
+			}
+
+			lineItems.add(new LineItem(name));
+		}
+
+		return lineItems;
+	}
+
+	// JSON null rather than its text "null"
+	private static String textOf(JsonParser parser, JsonToken value) throws IOException {
+		return value == JsonToken.VALUE_NULL ? null : parser.getText();
+	}
+
+	private static void readCsv(InputStream stream, Run run) throws IOException {
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(stream, UTF_8));
+		List<String> fields = new ArrayList<String>(4);
+		int line = 0;
+
+		for (String row = reader.readLine(); row != null; row = reader.readLine()) {
+
+			line++;
+
+			if (row.isEmpty()) {
+				continue;
+			}
+
+			split(row, fields, line);
+
+			try {
+
+				switch (fields.get(0)) {
+					case "customer":
+						run.customer(new Customer(Long.parseLong(fields.get(1)), fields.get(2), fields.get(3)));
+						break;
+					case "order":
+						run.order(Long.parseLong(fields.get(1)), Long.parseLong(fields.get(2)));
+						break;
+					case "lineItem":
+						run.lineItem(Long.parseLong(fields.get(1)), fields.get(2), line);
+						break;
+					default:
+						throw invalid(line, "Unknown record type!");
+				}
+
+			} catch (NumberFormatException o_O) {
+				throw invalid(line, o_O.getMessage());
+			} catch (IndexOutOfBoundsException o_O) {
+				throw invalid(line, "Missing field!");
+			}
+		}
+	}
+
+	/**
+	 * Splits the given CSV row into the given {@link List} of fields, unquoting quoted fields.
+	 * 
+	 * @param row
+	 * @param fields
+	 * @param line
+	 */
+	private static void split(String row, List<String> fields, int line) {
+
+		fields.clear();
+
+		int length = row.length();
+		int index = 0;
+
+		while (true) {
+
+			if (index < length && row.charAt(index) == '"') {
+
+				StringBuilder builder = new StringBuilder();
+				index++;
+
+				while (true) {
+
+					int quote = row.indexOf('"', index);
+
+					if (quote == -1) {
+						throw invalid(line, "Unterminated quoted field!");
+					}
+
+					builder.append(row, index, quote);
+					index = quote + 1;
+
+					// Doubled quote, escaped
+					if (index < length && row.charAt(index) == '"') {
+						builder.append('"');
+						index++;
+					} else {
+						break;
+					}
+				}
+
+				fields.add(builder.toString());
+
+				if (index < length && row.charAt(index) != ',') {
+					throw invalid(line, "Unexpected character after quoted field!");
+				}
+
+			} else {
+
+				int comma = row.indexOf(',', index);
+				int end = comma == -1 ? length : comma;
+
+				fields.add(row.substring(index, end));
+				index = end;
+			}
+
+			if (index >= length) {
+				return;
+			}
+
+			index++; // skip comma
+		}
+	}
+
+	private static InvalidRecordException invalid(int line, String message) {
+		return new InvalidRecordException(String.format("Invalid record in line %s: %s", line, message));
+	}
+
+	/**
+	 * Indexes the given {@link Batch}. Registers the {@link Customer}s first so that the {@link Order}s can refer to
+	 * them, looks up all {@link Customer}s and already registered {@link Order}s with a single call each and builds the
+	 * {@link Order}s not registered yet only.
+	 * 
+	 * @param batch
+	 * @return
+	 */
+	private Result index(Batch batch) {
+
+		int importedCustomers = customers.saveAll(batch.customers);
+
+		List<Long> orderIds = new ArrayList<Long>(batch.orders.size());
+		Set<Long> customerIds = new HashSet<Long>();
+		long lastCustomerId = -1;
+
+		for (OrderRecord record : batch.orders) {
+
+			orderIds.add(record.id);
+
+			// Orders usually come grouped by Customer
+			if (record.customerId != lastCustomerId) {
+				customerIds.add(record.customerId);
+				lastCustomerId = record.customerId;
+			}
+		}
+
+		LongObjectMap<Customer> customersById = new LongObjectMap<Customer>(customerIds.size());
+
+		for (Customer customer : customers.findAll(customerIds)) {
+			customersById.put(customer.getId(), customer);
+		}
+
+		LongObjectMap<Order> existing = new LongObjectMap<Order>();
+
+		for (Order order : orders.findAll(orderIds)) {
+			existing.put(order.getId(), order);
+		}
+
+		List<Order> toSave = new ArrayList<Order>(batch.orders.size());
+
+		for (OrderRecord record : batch.orders) {
+
+			Customer customer = customersById.get(record.customerId);
+
+			if (customer != null && existing.get(record.id) == null) {
+				toSave.add(new Order(record.id, customer, record.lineItems, 0));
+			}
+		}
+
+		int importedOrders = orders.saveAll(toSave);
+		int records = batch.customers.size() + batch.orders.size();
+
+		return new Result(importedCustomers, importedOrders, records - importedCustomers - importedOrders);
+	}
+
+	/**
+	 * The outcome of an import.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@Getter
+	public static class Result {
+
+		private final long customers, orders, skipped;
+
+		Result(long customers, long orders, long skipped) {
+
+			this.customers = customers;
+			this.orders = orders;
+			this.skipped = skipped;
+		}
+
+		Result plus(Result other) {
+			return new Result(customers + other.customers, orders + other.orders, skipped + other.skipped);
+		}
+	}
+
+	/**
+	 * Exception thrown if a stream to import contains an invalid record. Aborts the import.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	public static class InvalidRecordException extends IllegalArgumentException {
+
+		private static final long serialVersionUID = -4518634190377645732L;
+
+		InvalidRecordException(String message) {
+			super(message);
+		}
+	}
+
+	/**
+	 * A single import, collecting the records read into {@link Batch}es and handing them to the indexing thread.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private class Run {
+
+		private Batch batch = new Batch();
+		private Future<Result> pending;
+		private Result result = new Result(0, 0, 0);
+
+		void customer(Customer customer) {
+
+			flushIfFull();
+			batch.customers.add(customer);
+		}
+
+		List<LineItem> order(long id, long customerId) {
+
+			flushIfFull();
+
+			OrderRecord record = new OrderRecord(id, customerId);
+			batch.orders.add(record);
+
+			return record.lineItems;
+		}
+
+		void lineItem(long orderId, String name, int line) {
+
+			OrderRecord current = batch.orders.isEmpty() ? null : batch.orders.get(batch.orders.size() - 1);
+
+			if (current == null || current.id != orderId) {
+				throw invalid(line, "Line item does not follow the order it belongs to!");
+			}
+
+			current.lineItems.add(new LineItem(name));
+		}
+
+		Result finish() {
+
+			flush();
+			await();
+
+			return result;
+		}
+
+		void cancel() {
+
+			if (pending != null) {
+				pending.cancel(true);
+			}
+		}
+
+		/**
+		 * Hands the current {@link Batch} to the indexing thread once it's full. Only called at the start of a
+		 * {@code customer} or {@code order} record so that the {@code lineItem} records following an {@code order} end up
+		 * in the same {@link Batch}.
+		 */
+		private void flushIfFull() {
+
+			if (batch.size() >= BATCH_SIZE) {
+				flush();
+			}
+		}
+
+		private void flush() {
+
+			// Backpressure, don't hand over a batch before the previous one is indexed
+			await();
+
+			final Batch current = batch;
+			batch = new Batch();
+
+			pending = executor.submit(new Callable<Result>() {
+
+				@Override
+				public Result call() {
+					return index(current);
+				}
+			});
+		}
+
+		private void await() {
+
+			if (pending == null) {
+				return;
+			}
+
+			try {
+
+				result = result.plus(pending.get());
+				pending = null;
+
+			} catch (InterruptedException o_O) {
+
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted importing records!", o_O);
+
+			} catch (ExecutionException o_O) {
+
+				Throwable cause = o_O.getCause();
+				throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+			}
+		}
+	}
+
+	private static class Batch {
+
+		final List<Customer> customers = new ArrayList<Customer>();
+		final List<OrderRecord> orders = new ArrayList<OrderRecord>(BATCH_SIZE);
+
+		int size() {
+			return customers.size() + orders.size();
+		}
+	}
+
+	private static class OrderRecord {
+
+		final long id, customerId;
+		final List<LineItem> lineItems = new ArrayList<LineItem>(4);
+
+		OrderRecord(long id, long customerId) {
+			this.id = id;
+			this.customerId = customerId;
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+/**
+ * Callback to be notified about the outcome of an asynchronous repository operation.
+ * 
+ * @author Oliver Gierke
+ * @see AsyncOrders
+ * @see AsyncCustomers
+ */
+public interface Callback<T> {
+
+	/**
+	 * Invoked with the result of the operation.
+	 * 
+	 * @param result can be {@literal null}.
+	 */
+	void onSuccess(T result);
+
+	/**
+	 * Invoked if the operation failed.
+	 * 
+	 * @param error will never be {@literal null}.
+	 */
+	void onFailure(Throwable error);
+}
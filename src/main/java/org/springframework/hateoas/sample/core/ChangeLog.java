@@ -0,0 +1,276 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.util.Assert;
+
+/**
+ * In-process log of the ids of changed {@link Order}s. Every change is assigned the next sequence number, so that
+ * clients can ask for the changes after the last sequence number they've seen. Only the latest changes are retained in
+ * a ring buffer, clients falling further behind are told so and have to start over. Recording a change doesn't lock,
+ * neither does reading the log. Clients can register a {@link Callback} to be notified about the next change instead
+ * of polling.
+ * 
+ * @author Oliver Gierke
+ */
+public class ChangeLog {
+
+	static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private final AtomicLong sequence = new AtomicLong();
+	private final AtomicReferenceArray<Change> changes;
+	private final int mask;
+	private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<Waiter>();
+
+	/**
+	 * Creates a new {@link ChangeLog} retaining the latest {@value #DEFAULT_CAPACITY} changes.
+	 */
+	public ChangeLog() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new {@link ChangeLog} retaining the given number of changes.
+	 * 
+	 * @param capacity must be a power of two.
+	 */
+	ChangeLog(int capacity) {
+
+		Assert.isTrue(capacity > 0 && Integer.bitCount(capacity) == 1, "Capacity must be a power of two!");
+
+		this.changes = new AtomicReferenceArray<Change>(capacity);
+		this.mask = capacity - 1;
+	}
+
+	/**
+	 * Returns the sequence number of the latest change recorded.
+	 * 
+	 * @return
+	 */
+	public long getSequence() {
+		return sequence.get();
+	}
+
+	/**
+	 * Returns the ids of the {@link Order}s changed after the change with the given sequence number. Every id is
+	 * contained only once, no matter how often the {@link Order} changed.
+	 * 
+	 * @param since the sequence number of the last change seen.
+	 * @param limit the maximum number of changes to consider.
+	 * @return
+	 */
+	public Changes since(long since, int limit) {
+
+		Assert.isTrue(limit > 0, "Limit must be greater than zero!");
+
+		long latest = sequence.get();
+
+		// Unknown sequence number, e.g. handed out before a restart
+		if (since < 0 || since > latest) {
+			return new Changes(Collections.<Long> emptyList(), latest, false);
+		}
+
+		Set<Long> ids = new LinkedHashSet<Long>();
+		long current = since;
+
+		while (current < latest && current - since < limit) {
+
+			Change change = changes.get(slotFor(current + 1));
+
+			// Not published yet by a concurrent writer
+			if (change == null || change.sequence < current + 1) {
+				break;
+			}
+
+			// Overwritten by a newer change, the client fell behind
+			if (change.sequence > current + 1) {
+				return new Changes(Collections.<Long> emptyList(), latest, false);
+			}
+
+			ids.add(change.id);
+			current++;
+		}
+
+		return new Changes(Collections.unmodifiableList(new ArrayList<Long>(ids)), current, true);
+	}
+
+	/**
+	 * Invokes the given {@link Callback} with the latest sequence number as soon as a change after the given sequence
+	 * number was recorded. Invokes it right away if there is one published already. A change whose sequence number is
+	 * taken but that isn't published yet invokes it once published, so that a {@link Callback} reading the changes and
+	 * waiting again doesn't spin on it. The {@link Callback} is invoked by the thread recording the change, so it must not
+	 * block.
+	 * 
+	 * @param since the sequence number of the last change seen.
+	 * @param callback must not be {@literal null}.
+	 */
+	public void await(long since, Callback<Long> callback) {
+
+		Assert.notNull(callback, "Callback must not be null!");
+
+		Waiter waiter = new Waiter(since, callback);
+		waiters.add(waiter);
+
+		// Catch changes published while registering, the writers of the ones not published yet see the Waiter
+		if (isPublished(since + 1) && waiter.notifyIfChanged(sequence.get())) {
+			waiters.remove(waiter);
+		}
+	}
+
+	/**
+	 * Unregisters the given {@link Callback} registered via {@link #await(long, Callback)} if it wasn't invoked yet.
+	 * 
+	 * @param callback must not be {@literal null}.
+	 */
+	public void cancel(Callback<Long> callback) {
+
+		Assert.notNull(callback, "Callback must not be null!");
+
+		for (Waiter waiter : waiters) {
+			if (waiter.callback == callback && waiter.cancel()) {
+				waiters.remove(waiter);
+			}
+		}
+	}
+
+	/**
+	 * Records a change of the {@link Order} with the given id and notifies the waiting {@link Callback}s. Call this after
+	 * the change was published.
+	 * 
+	 * @param id
+	 * @return the sequence number of the change.
+	 */
+	long record(long id) {
+
+		long sequence = this.sequence.incrementAndGet();
+		changes.set(slotFor(sequence), new Change(sequence, id));
+
+		if (waiters.isEmpty()) {
+			return sequence;
+		}
+
+		for (Waiter waiter : waiters) {
+			if (waiter.notifyIfChanged(sequence)) {
+				waiters.remove(waiter);
+			}
+		}
+
+		return sequence;
+	}
+
+	/**
+	 * Returns whether the change with the given sequence number, or a later one overwriting it, is published.
+	 * 
+	 * @param sequence
+	 * @return
+	 */
+	private boolean isPublished(long sequence) {
+
+		if (sequence > this.sequence.get()) {
+			return false;
+		}
+
+		Change change = changes.get(slotFor(sequence));
+		return change != null && change.sequence >= sequence;
+	}
+
+	private int slotFor(long sequence) {
+		return (int) sequence & mask;
+	}
+
+	/**
+	 * The ids of the {@link Order}s changed in a range of the {@link ChangeLog}.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	public static class Changes {
+
+		/**
+		 * The ids of the {@link Order}s changed.
+		 */
+		private final List<Long> ids;
+
+		/**
+		 * The sequence number to ask for subsequent changes with.
+		 */
+		private final long sequence;
+
+		/**
+		 * Whether all changes since the sequence number asked for are contained. If not, the {@link Changes} are empty and
+		 * clients have to re-read the {@link Order}s they're interested in.
+		 */
+		private final boolean complete;
+	}
+
+	@RequiredArgsConstructor
+	private static class Change {
+
+		private final long sequence;
+		private final long id;
+	}
+
+	/**
+	 * A {@link Callback} waiting for a change, invoked at most once.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@RequiredArgsConstructor
+	private static class Waiter {
+
+		private final long since;
+		private final Callback<Long> callback;
+		private final AtomicBoolean done = new AtomicBoolean();
+
+		/**
+		 * Invokes the {@link Callback} if the given sequence number is a change the {@link Waiter} waits for.
+		 * 
+		 * @param sequence
+		 * @return whether the {@link Waiter} is done.
+		 */
+		boolean notifyIfChanged(long sequence) {
+
+			if (sequence <= since) {
+				return done.get();
+			}
+
+			if (done.compareAndSet(false, true)) {
+				callback.onSuccess(sequence);
+			}
+
+			return true;
+		}
+
+		boolean cancel() {
+			return done.compareAndSet(false, true);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+import org.springframework.util.Assert;
+
+/**
+ * Cursor into the sequence of elements of a repository. The repositories only ever append elements, so that the
+ * position of an element within that sequence is a stable key. Seeking to it doesn't depend on the total number of
+ * elements and pages don't shift if elements are added in the meantime.
+ * 
+ * @author Oliver Gierke
+ */
+@Getter
+@EqualsAndHashCode
+public class Cursor {
+
+	private final int position;
+	private final int size;
+
+	/**
+	 * Creates a new {@link Cursor} pointing to the given position and covering the given number of elements.
+	 * 
+	 * @param position must not be negative.
+	 * @param size must be greater than zero.
+	 */
+	public Cursor(int position, int size) {
+
+		Assert.isTrue(position >= 0, "Position must not be negative!");
+		Assert.isTrue(size > 0, "Size must be greater than zero!");
+
+		this.position = position;
+		this.size = size;
+	}
+
+	/**
+	 * Returns a {@link Cursor} for the first page of the given size.
+	 * 
+	 * @param size must be greater than zero.
+	 * @return
+	 */
+	public static Cursor first(int size) {
+		return new Cursor(0, size);
+	}
+
+	/**
+	 * Returns the {@link Cursor} for the page following the current one.
+	 * 
+	 * @return
+	 */
+	public Cursor next() {
+		return new Cursor(position + size, size);
+	}
+
+	/**
+	 * Returns the {@link Cursor} for the page preceding the current one or {@literal null} if the current one is the
+	 * first page.
+	 * 
+	 * @return
+	 */
+	public Cursor previous() {
+		return position == 0 ? null : new Cursor(Math.max(0, position - size), size);
+	}
+}
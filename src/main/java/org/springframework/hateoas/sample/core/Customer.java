@@ -17,20 +17,58 @@ package org.springframework.hateoas.sample.core;
 
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 /**
- * Customer domain class.
+ * Customer domain class. Immutable, changes create a new {@link Customer} with an incremented version.
  * 
  * @author Oliver Gierke
  */
 @Getter
-@RequiredArgsConstructor
 @EqualsAndHashCode(of = "id")
 public class Customer {
 
-	private final Long id;
+	private final long id;
 	private final String firstname, lastname;
+	private final long version;
+
+	/**
+	 * Creates a new {@link Customer} with the given id and names.
+	 * 
+	 * @param id
+	 * @param firstname
+	 * @param lastname
+	 */
+	public Customer(long id, String firstname, String lastname) {
+		this(id, firstname, lastname, 0);
+	}
+
+	/**
+	 * Creates a {@link Customer} with the given id, names and version. Used to restore persisted {@link Customer}s.
+	 * 
+	 * @param id
+	 * @param firstname
+	 * @param lastname
+	 * @param version
+	 */
+	Customer(long id, String firstname, String lastname, long version) {
+
+		this.id = id;
+		this.firstname = firstname;
+		this.lastname = lastname;
+		this.version = version;
+	}
+
+	/**
+	 * Returns a new {@link Customer} with the given names and the version incremented. The {@link Customer} itself is
+	 * not changed.
+	 * 
+	 * @param firstname
+	 * @param lastname
+	 * @return
+	 */
+	public Customer withName(String firstname, String lastname) {
+		return new Customer(id, firstname, lastname, version + 1);
+	}
 
 	/**
 	 * Returns whether the {@link Customer} has the given id.
@@ -38,8 +76,8 @@ public class Customer {
 	 * @param id
 	 * @return
 	 */
-	public boolean hasId(Long id) {
+	public boolean hasId(long id) {
 
-		return this.id.equals(id);
+		return this.id == id;
 	}
 }
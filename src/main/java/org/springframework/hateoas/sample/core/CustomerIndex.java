@@ -0,0 +1,675 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.springframework.util.Assert;
+
+/**
+ * Index of the {@link Customer}s of a {@link Customers} repository by their normalized first- and lastnames to look
+ * them up by name or name prefix. Names are normalized by stripping accents and lowercasing them.
+ * <p>
+ * The index consists of immutable runs of name and id pairs sorted by name, so that a lookup is a binary search per
+ * run followed by a merging scan of the matching ranges. New entries go to a small sorted delta first, which becomes a
+ * new run once it's full. Runs are merged as soon as a run is at least half the size of the one before, so that there
+ * are only logarithmically many of them and every entry is copied only logarithmically often.
+ * <p>
+ * Entries are never removed on write. A lookup rather checks every entry against the current state of its
+ * {@link Customer} and skips entries of names that changed. Merges drop those entries once enough names changed to
+ * make up for looking up every {@link Customer}.
+ * 
+ * @author Oliver Gierke
+ */
+class CustomerIndex {
+
+	private static final int DELTA_SIZE = 16 * 1024;
+	private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+
+	private static final NavigableSet<Entry> NO_ENTRIES = new TreeSet<Entry>();
+
+	private final Customers customers;
+	private final AtomicInteger deltaSize = new AtomicInteger();
+	private final AtomicInteger changes = new AtomicInteger();
+	private final Lock lock = new ReentrantLock();
+	private volatile State state = new State(new Run[0], NO_ENTRIES, new ConcurrentSkipListSet<Entry>());
+
+	/**
+	 * Creates a new {@link CustomerIndex} resolving the indexed ids against the given {@link Customers}.
+	 * 
+	 * @param customers must not be {@literal null}.
+	 */
+	CustomerIndex(Customers customers) {
+
+		Assert.notNull(customers, "Customers must not be null!");
+		this.customers = customers;
+	}
+
+	/**
+	 * Indexes the names of the given new {@link Customer}. Call this after the {@link Customer} was published.
+	 * 
+	 * @param customer must not be {@literal null}.
+	 */
+	void add(Customer customer) {
+
+		Assert.notNull(customer, "Customer must not be null!");
+
+		long id = customer.getId();
+		int added = add(customer.getFirstname(), id, false) + add(customer.getLastname(), id, true);
+
+		if (deltaSize.addAndGet(added) >= DELTA_SIZE) {
+			flush();
+		}
+	}
+
+	/**
+	 * Indexes the names of the given changed {@link Customer}, superseding the entries of its previous names. Call this
+	 * after the new state of the {@link Customer} was published.
+	 * 
+	 * @param customer must not be {@literal null}.
+	 */
+	void update(Customer customer) {
+
+		changes.incrementAndGet();
+		add(customer);
+	}
+
+	/**
+	 * Returns the {@link Slice} of {@link Customer}s whose first- or lastname equals or, if {@code prefix} is
+	 * {@literal true}, starts with the given query for the given {@link Cursor}. {@link Customer}s are ordered by the
+	 * matching name. Skipping to a {@link Cursor} scans the matches before it.
+	 * 
+	 * @param query must not be {@literal null}.
+	 * @param prefix
+	 * @param cursor must not be {@literal null}.
+	 * @return
+	 */
+	Slice<Customer> find(String query, boolean prefix, Cursor cursor) {
+
+		Assert.notNull(query, "Query must not be null!");
+		Assert.notNull(cursor, "Cursor must not be null!");
+
+		Matches matches = new Matches(normalize(query), prefix);
+
+		int skip = cursor.getPosition();
+		List<Customer> content = new ArrayList<Customer>(Math.min(cursor.getSize(), 64));
+
+		for (Customer customer = matches.next(); customer != null; customer = matches.next()) {
+
+			if (skip > 0) {
+				skip--;
+			} else if (content.size() < cursor.getSize()) {
+				content.add(customer);
+			} else {
+				return Slice.of(content, cursor, true);
+			}
+		}
+
+		return Slice.of(content, cursor, false);
+	}
+
+	/**
+	 * Indexes the names of the given new {@link Customer}s. Sorts the entries of larger batches right away and adds them
+	 * as a run of their own rather than going through the delta entry by entry. Call this after the {@link Customer}s
+	 * were published.
+	 * 
+	 * @param customers must not be {@literal null}.
+	 */
+	void addAll(Collection<Customer> customers) {
+
+		Assert.notNull(customers, "Customers must not be null!");
+
+		if (customers.size() * 2 < DELTA_SIZE) {
+
+			for (Customer customer : customers) {
+				add(customer);
+			}
+
+			return;
+		}
+
+		List<Entry> entries = new ArrayList<Entry>(customers.size() * 2);
+
+		for (Customer customer : customers) {
+			addEntry(entries, customer.getFirstname(), customer.getId(), false);
+			addEntry(entries, customer.getLastname(), customer.getId(), true);
+		}
+
+		Collections.sort(entries);
+
+		lock.lock();
+
+		try {
+			Run[] runs = push(toRun(entries, false));
+			state = new State(runs, state.frozen, state.delta);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Turns the current delta into a new run, dropping outdated entries. Freezes the delta first and lets writers switch
+	 * to a new one, lookups keep seeing the frozen delta until its entries are published as part of the runs. Entries
+	 * are never removed from a delta, so a lookup never misses an entry. Only one thread flushes at a time, others keep
+	 * adding to the new delta.
+	 */
+	void flush() {
+
+		if (!lock.tryLock()) {
+			return;
+		}
+
+		try {
+
+			State current = state;
+			state = new State(current.runs, current.delta, new ConcurrentSkipListSet<Entry>());
+
+			// Copy after publishing the new delta, so that writers missing the copy add their entries to the new one
+			List<Entry> flushed = new ArrayList<Entry>(current.delta);
+			Run[] runs = push(toRun(flushed, true));
+
+			state = new State(runs, NO_ENTRIES, state.delta);
+			deltaSize.addAndGet(-flushed.size());
+
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds the given {@link Run} to the current ones and merges them as needed. Merges all of them into one dropping
+	 * outdated entries if enough names changed since the last time. Must be called holding the lock.
+	 * 
+	 * @param run
+	 * @return the runs to publish.
+	 */
+	private Run[] push(Run run) {
+
+		List<Run> result = new ArrayList<Run>(Arrays.asList(state.runs));
+		result.add(run);
+
+		// Checking the entries of the runs requires a lookup each, only do so if a good share of them are outdated
+		int purged = changes.get();
+		long size = 0;
+
+		for (Run element : result) {
+			size += element.size();
+		}
+
+		if (purged * 16L > size) {
+
+			Run all = Run.EMPTY;
+
+			for (Run element : result) {
+				all = merge(all, element, false);
+			}
+
+			result = new ArrayList<Run>(Arrays.asList(merge(all, Run.EMPTY, true)));
+			changes.addAndGet(-purged);
+
+		} else {
+
+			int last = result.size() - 1;
+
+			// Keep every run at least twice the size of the one following it
+			while (last > 0 && result.get(last).size() * 2 >= result.get(last - 1).size()) {
+				result.add(merge(result.remove(last - 1), result.remove(last - 1), false));
+				last--;
+			}
+		}
+
+		return result.toArray(new Run[result.size()]);
+	}
+
+	/**
+	 * Normalizes the given name for lookups by stripping accents and lowercasing it. Returns the given instance for
+	 * names consisting of lowercase ASCII characters only.
+	 * 
+	 * @param name can be {@literal null}.
+	 * @return
+	 */
+	static String normalize(String name) {
+
+		if (name == null) {
+			return null;
+		}
+
+		boolean lowercase = true;
+
+		for (int i = 0; i < name.length(); i++) {
+
+			char c = name.charAt(i);
+
+			if (c >= 0x80) {
+				String stripped = ACCENTS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+				return stripped.toLowerCase(Locale.ENGLISH).trim();
+			}
+
+			lowercase &= c < 'A' || c > 'Z';
+		}
+
+		return lowercase ? name.trim() : name.toLowerCase(Locale.ENGLISH).trim();
+	}
+
+	private int add(String name, long id, boolean lastname) {
+
+		String term = normalize(name);
+
+		if (term == null || term.isEmpty()) {
+			return 0;
+		}
+
+		Entry entry = new Entry(term, id, lastname);
+		NavigableSet<Entry> delta = state.delta;
+
+		if (!delta.add(entry)) {
+			return 0;
+		}
+
+		// A concurrent flush might have copied the delta before the entry was added, add it to the new delta then
+		for (NavigableSet<Entry> current = state.delta; current != delta; current = state.delta) {
+			current.add(entry);
+			delta = current;
+		}
+
+		return 1;
+	}
+
+	private static void addEntry(List<Entry> entries, String name, long id, boolean lastname) {
+
+		String term = normalize(name);
+
+		if (term != null && !term.isEmpty()) {
+			entries.add(new Entry(term, id, lastname));
+		}
+	}
+
+	private Run toRun(List<Entry> entries, boolean check) {
+
+		String[] terms = new String[entries.size()];
+		long[] keys = new long[entries.size()];
+		int size = 0;
+
+		for (Entry entry : entries) {
+			if (!check || resolve(entry.term, entry.key) != null) {
+				terms[size] = entry.term;
+				keys[size++] = entry.key;
+			}
+		}
+
+		return new Run(Arrays.copyOf(terms, size), Arrays.copyOf(keys, size));
+	}
+
+	/**
+	 * Merges the given runs into a new one, dropping duplicates and, if {@code check} is {@literal true}, outdated
+	 * entries.
+	 * 
+	 * @param left
+	 * @param right
+	 * @param check
+	 * @return
+	 */
+	private Run merge(Run left, Run right, boolean check) {
+
+		String[] terms = new String[left.size() + right.size()];
+		long[] keys = new long[terms.length];
+		int size = 0, i = 0, j = 0;
+
+		while (i < left.size() || j < right.size()) {
+
+			String term;
+			long key;
+
+			if (j == right.size() || i < left.size() && left.compareTo(i, right.terms[j], right.keys[j]) < 0) {
+				term = left.terms[i];
+				key = left.keys[i++];
+			} else {
+				term = right.terms[j];
+				key = right.keys[j++];
+			}
+
+			boolean duplicate = size > 0 && keys[size - 1] == key && terms[size - 1].equals(term);
+
+			if (duplicate || check && resolve(term, key) == null) {
+				continue;
+			}
+
+			// Equal names are adjacent, share a single instance
+			terms[size] = size > 0 && terms[size - 1].equals(term) ? terms[size - 1] : term;
+			keys[size++] = key;
+		}
+
+		return new Run(Arrays.copyOf(terms, size), Arrays.copyOf(keys, size));
+	}
+
+	/**
+	 * Returns the {@link Customer} of the given entry if the entry still refers to its current name.
+	 * 
+	 * @param term
+	 * @param key
+	 * @return
+	 */
+	private Customer resolve(String term, long key) {
+
+		Customer customer = customers.findOne(key >>> 1);
+
+		if (customer == null) {
+			return null;
+		}
+
+		return normalizesTo((key & 1) == 0 ? customer.getFirstname() : customer.getLastname(), term) ? customer : null;
+	}
+
+	/**
+	 * Returns whether the given name normalizes to the given term. Compares ASCII names without normalizing them to
+	 * avoid creating a {@link String} for every entry checked.
+	 * 
+	 * @param name can be {@literal null}.
+	 * @param term must not be {@literal null}.
+	 * @return
+	 */
+	private static boolean normalizesTo(String name, String term) {
+
+		if (name == null || name.length() != term.length()) {
+			return term.equals(normalize(name));
+		}
+
+		for (int i = 0; i < name.length(); i++) {
+
+			char c = name.charAt(i);
+
+			if (c >= 0x80) {
+				return term.equals(normalize(name));
+			}
+
+			if ((c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c) != term.charAt(i)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Iterates over the {@link Customer}s matching a query in the order of the matching names, merging the runs and the
+	 * deltas of a single {@link State}.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private class Matches {
+
+		private final String term;
+		private final boolean prefix;
+		private final Run[] runs;
+		private final int[] positions;
+		private final Scan frozen, delta;
+
+		private String lastTerm;
+		private long lastKey = -1;
+
+		Matches(String term, boolean prefix) {
+
+			this.term = term;
+			this.prefix = prefix;
+
+			State state = CustomerIndex.this.state;
+
+			this.runs = state.runs;
+			this.positions = new int[runs.length];
+
+			for (int i = 0; i < runs.length; i++) {
+				positions[i] = runs[i].lowerBound(term);
+			}
+
+			this.frozen = new Scan(state.frozen, term);
+			this.delta = new Scan(state.delta, term);
+		}
+
+		/**
+		 * Returns the next matching {@link Customer} or {@literal null} if there are no more matches.
+		 * 
+		 * @return
+		 */
+		Customer next() {
+
+			while (true) {
+
+				int next = -1;
+
+				for (int i = 0; i < runs.length; i++) {
+
+					if (positions[i] == runs[i].size()) {
+						continue;
+					}
+
+					if (next == -1 || runs[i].compareTo(positions[i], runs[next], positions[next]) < 0) {
+						next = i;
+					}
+				}
+
+				String nextTerm;
+				long nextKey;
+
+				Scan scan = delta.current == null || frozen.current != null && frozen.current.compareTo(delta.current) < 0
+						? frozen : delta;
+				Entry pending = scan.current;
+
+				boolean fromDelta = pending != null
+						&& (next == -1 || runs[next].compareTo(positions[next], pending.term, pending.key) > 0);
+
+				if (fromDelta) {
+					nextTerm = pending.term;
+					nextKey = pending.key;
+					scan.advance();
+				} else if (next != -1) {
+					nextTerm = runs[next].terms[positions[next]];
+					nextKey = runs[next].keys[positions[next]++];
+				} else {
+					return null;
+				}
+
+				if (prefix ? !nextTerm.startsWith(term) : !nextTerm.equals(term)) {
+					return null;
+				}
+
+				// Entries contained in multiple runs or in a run and the deltas
+				if (nextKey == lastKey && nextTerm.equals(lastTerm)) {
+					continue;
+				}
+
+				lastTerm = nextTerm;
+				lastKey = nextKey;
+
+				Customer customer = resolve(nextTerm, nextKey);
+
+				if (customer != null && !isMatchedByFirstname(customer, nextKey)) {
+					return customer;
+				}
+			}
+		}
+
+		/**
+		 * Returns whether the given entry is a lastname entry of a {@link Customer} whose firstname matches as well, as
+		 * it's returned for the firstname entry then.
+		 */
+		private boolean isMatchedByFirstname(Customer customer, long key) {
+
+			if ((key & 1) == 0) {
+				return false;
+			}
+
+			String firstname = normalize(customer.getFirstname());
+			return firstname != null && (prefix ? firstname.startsWith(term) : firstname.equals(term));
+		}
+	}
+
+	/**
+	 * The runs along with the delta being flushed into them, if any, and the delta new entries are added to. Published as
+	 * a whole, so that a lookup sees every entry either in the runs or in one of the deltas.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class State {
+
+		final Run[] runs;
+		final NavigableSet<Entry> frozen;
+		final NavigableSet<Entry> delta;
+
+		State(Run[] runs, NavigableSet<Entry> frozen, NavigableSet<Entry> delta) {
+			this.runs = runs;
+			this.frozen = frozen;
+			this.delta = delta;
+		}
+	}
+
+	/**
+	 * Iterates over the entries of a delta starting at a given name.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class Scan {
+
+		private final Iterator<Entry> entries;
+		Entry current;
+
+		Scan(NavigableSet<Entry> delta, String term) {
+			this.entries = delta.tailSet(new Entry(term, 0, false)).iterator();
+			advance();
+		}
+
+		void advance() {
+			current = entries.hasNext() ? entries.next() : null;
+		}
+	}
+
+	/**
+	 * Immutable array of index entries sorted by name and key.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class Run {
+
+		static final Run EMPTY = new Run(new String[0], new long[0]);
+
+		final String[] terms;
+		final long[] keys;
+
+		Run(String[] terms, long[] keys) {
+			this.terms = terms;
+			this.keys = keys;
+		}
+
+		int size() {
+			return terms.length;
+		}
+
+		int compareTo(int index, Run run, int position) {
+			return compareTo(index, run.terms[position], run.keys[position]);
+		}
+
+		int compareTo(int index, String term, long key) {
+
+			int result = terms[index].compareTo(term);
+			return result != 0 ? result : Long.compare(keys[index], key);
+		}
+
+		/**
+		 * Returns the index of the first entry whose name is not less than the given one.
+		 */
+		int lowerBound(String term) {
+
+			int low = 0, high = terms.length;
+
+			while (low < high) {
+
+				int middle = (low + high) >>> 1;
+
+				if (terms[middle].compareTo(term) < 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+
+			return low;
+		}
+	}
+
+	/**
+	 * An entry of the delta. The key is the {@link Customer}'s id shifted by one bit, which is set for lastnames.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class Entry implements Comparable<Entry> {
+
+		final String term;
+		final long key;
+
+		Entry(String term, long id, boolean lastname) {
+			this.term = term;
+			this.key = id << 1 | (lastname ? 1 : 0);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		@Override
+		public int compareTo(Entry that) {
+
+			int result = term.compareTo(that.term);
+			return result != 0 ? result : Long.compare(key, that.key);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+
+			if (!(obj instanceof Entry)) {
+				return false;
+			}
+
+			Entry that = (Entry) obj;
+			return key == that.key && term.equals(that.term);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return 31 * term.hashCode() + (int) (key ^ (key >>> 32));
+		}
+	}
+}
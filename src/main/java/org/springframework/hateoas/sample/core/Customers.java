@@ -15,10 +15,18 @@
  */
 package org.springframework.hateoas.sample.core;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
 
 /**
  * Simple repository abstraction for {@link Customer}s.
@@ -34,6 +42,22 @@ public interface Customers {
 	 */
 	List<Customer> findAll();
 
+	/**
+	 * Returns the {@link Slice} of all {@link Customer}s for the given {@link Cursor}.
+	 * 
+	 * @param cursor must not be {@literal null}.
+	 * @return
+	 */
+	Slice<Customer> findAll(Cursor cursor);
+
+	/**
+	 * Returns the {@link Customer}s with the given ids in the order of the ids given. Unknown ids are skipped.
+	 * 
+	 * @param ids must not be {@literal null}.
+	 * @return
+	 */
+	List<Customer> findAll(Iterable<Long> ids);
+
 	/**
 	 * Finds a particular {@link Customer} with the given id or {@literal null} in case no Customer is available with the
 	 * given id.
@@ -44,18 +68,105 @@ public interface Customers {
 	Customer findOne(Long id);
 
 	/**
-	 * Basic in-memory implementation of {@link Customers}.
+	 * Finds a particular {@link Customer} with the given id or {@literal null} in case no Customer is available with the
+	 * given id. Prefer this one over {@link #findOne(Long)} to avoid boxing the id.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	Customer findOne(long id);
+
+	/**
+	 * Returns the {@link Slice} of {@link Customer}s whose firstname or lastname equals the given one for the given
+	 * {@link Cursor}. Names are compared ignoring case and accents.
+	 * 
+	 * @param name must not be {@literal null}.
+	 * @param cursor must not be {@literal null}.
+	 * @return
+	 */
+	Slice<Customer> findByName(String name, Cursor cursor);
+
+	/**
+	 * Returns the {@link Slice} of {@link Customer}s whose firstname or lastname starts with the given prefix for the
+	 * given {@link Cursor}, ordered by the matching name. Names are compared ignoring case and accents.
+	 * 
+	 * @param prefix must not be {@literal null}.
+	 * @param cursor must not be {@literal null}.
+	 * @return
+	 */
+	Slice<Customer> findByNameStartingWith(String prefix, Cursor cursor);
+
+	/**
+	 * Creates a new {@link Customer} with the given names using the next free id.
+	 * 
+	 * @param firstname
+	 * @param lastname
+	 * @return the created {@link Customer}.
+	 */
+	Customer create(String firstname, String lastname);
+
+	/**
+	 * Changes the names of the {@link Customer} with the given id.
+	 * 
+	 * @param id
+	 * @param firstname
+	 * @param lastname
+	 * @return the updated {@link Customer} or {@literal null} if there's no {@link Customer} with the given id.
+	 */
+	Customer update(long id, String firstname, String lastname);
+
+	/**
+	 * Registers all given {@link Customer}s whose ids are not taken yet, keeping their ids. Meant to load large amounts
+	 * of {@link Customer}s at once.
+	 * 
+	 * @param customers must not be {@literal null}.
+	 * @return the number of {@link Customer}s registered.
+	 */
+	int saveAll(Collection<Customer> customers);
+
+	/**
+	 * Basic in-memory implementation of {@link Customers}. Keeps the {@link Customer}s indexed by their primitive id so
+	 * that lookups neither have to scan all of them nor box the id. As {@link Customer}s are immutable, a write publishes
+	 * a new state of a {@link Customer} with a single put to the index. Reads don't lock, updates are serialized as
+	 * {@link Customer}s change rarely compared to {@link Order}s.
 	 * 
 	 * @author Oliver Gierke
 	 */
 	@Repository
+	@Profile("!persistent")
 	static class InMemoryCustomers implements Customers {
 
-		private final List<Customer> customers = new ArrayList<Customer>();
+		private final LongObjectMap<Customer> customersById = new LongObjectMap<Customer>();
+		private final List<Long> ids = new AppendOnlyList<Long>();
+		private final List<Customer> customers = new AllCustomers();
+		private final AtomicLong lastId = new AtomicLong();
+		private final CustomerIndex names = new CustomerIndex(this);
 
+		/**
+		 * Creates a new {@link InMemoryCustomers} instance registering sample {@link Customer}s.
+		 */
 		public InMemoryCustomers() {
-			customers.add(new Customer(1L, "Dave", "Matthews"));
-			customers.add(new Customer(2L, "Carter", "Beauford"));
+			this(true);
+		}
+
+		/**
+		 * Creates a new {@link InMemoryCustomers} instance registering sample {@link Customer}s unless they're about to
+		 * be restored from a snapshot configured in the given {@link Environment}.
+		 * 
+		 * @param environment must not be {@literal null}.
+		 * @see RepositorySnapshots#exists(Environment)
+		 */
+		@Autowired
+		public InMemoryCustomers(Environment environment) {
+			this(!RepositorySnapshots.exists(environment));
+		}
+
+		private InMemoryCustomers(boolean samples) {
+
+			if (samples) {
+				save(new Customer(1L, "Dave", "Matthews"));
+				save(new Customer(2L, "Carter", "Beauford"));
+			}
 		}
 
 		/*
@@ -66,19 +177,192 @@ public interface Customers {
 			return customers;
 		}
 
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Customers#findAll(org.springframework.hateoas.sample.core.Cursor)
+		 */
+		public Slice<Customer> findAll(Cursor cursor) {
+			return Slice.of(customers, cursor);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Customers#findAll(java.lang.Iterable)
+		 */
+		public List<Customer> findAll(Iterable<Long> ids) {
+
+			Assert.notNull(ids, "Ids must not be null!");
+
+			List<Customer> result = ids instanceof Collection ? new ArrayList<Customer>(((Collection<?>) ids).size())
+					: new ArrayList<Customer>();
+
+			for (Long id : ids) {
+
+				Customer customer = id == null ? null : findOne(id.longValue());
+
+				if (customer != null) {
+					result.add(customer);
+				}
+			}
+
+			return result;
+		}
+
 		/*
 		 * (non-Javadoc)
 		 * @see org.springframework.hateoas.sample.Customers#findOne(java.lang.Long)
 		 */
 		public Customer findOne(Long id) {
+			return id == null ? null : findOne(id.longValue());
+		}
 
-			for (Customer customer : customers) {
-				if (customer.hasId(id)) {
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Customers#findOne(long)
+		 */
+		public Customer findOne(long id) {
+			return customersById.get(id);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Customers#findByName(java.lang.String, org.springframework.hateoas.sample.core.Cursor)
+		 */
+		public Slice<Customer> findByName(String name, Cursor cursor) {
+			return names.find(name, false, cursor);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Customers#findByNameStartingWith(java.lang.String, org.springframework.hateoas.sample.core.Cursor)
+		 */
+		public Slice<Customer> findByNameStartingWith(String prefix, Cursor cursor) {
+			return names.find(prefix, true, cursor);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Customers#create(java.lang.String, java.lang.String)
+		 */
+		public Customer create(String firstname, String lastname) {
+
+			while (true) {
+
+				Customer customer = new Customer(lastId.incrementAndGet(), firstname, lastname);
+
+				// Id taken by a Customer saved concurrently, retry with the next one
+				if (register(customer)) {
 					return customer;
 				}
 			}
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Customers#update(long, java.lang.String, java.lang.String)
+		 */
+		public Customer update(long id, String firstname, String lastname) {
+
+			Customer updated;
+
+			synchronized (customersById) {
+
+				Customer current = customersById.get(id);
 
-			return null;
+				if (current == null) {
+					return null;
+				}
+
+				updated = current.withName(firstname, lastname);
+				customersById.put(id, updated);
+			}
+
+			names.update(updated);
+
+			return updated;
+		}
+
+		/**
+		 * Registers the given {@link Customer} unless one with the same id is already registered.
+		 * 
+		 * @param customer must not be {@literal null}.
+		 */
+		void save(Customer customer) {
+
+			Assert.notNull(customer, "Customer must not be null!");
+			register(customer);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Customers#saveAll(java.util.Collection)
+		 */
+		public int saveAll(Collection<Customer> customers) {
+
+			Assert.notNull(customers, "Customers must not be null!");
+
+			List<Customer> registered = new ArrayList<Customer>(customers.size());
+
+			for (Customer customer : customers) {
+				if (publish(customer)) {
+					registered.add(customer);
+				}
+			}
+
+			names.addAll(registered);
+
+			return registered.size();
+		}
+
+		private boolean register(Customer customer) {
+
+			if (!publish(customer)) {
+				return false;
+			}
+
+			names.add(customer);
+			return true;
+		}
+
+		private boolean publish(Customer customer) {
+
+			long id = customer.getId();
+
+			if (customersById.putIfAbsent(id, customer) != null) {
+				return false;
+			}
+
+			ids.add(id);
+
+			for (long last = lastId.get(); last < id && !lastId.compareAndSet(last, id); last = lastId.get()) {}
+
+			return true;
+		}
+
+		/**
+		 * Read-only view of all {@link Customer}s in the order they were registered, resolving them on access.
+		 * 
+		 * @author Oliver Gierke
+		 */
+		private class AllCustomers extends AbstractList<Customer> implements RandomAccess {
+
+			/* 
+			 * (non-Javadoc)
+			 * @see java.util.AbstractList#get(int)
+			 */
+			@Override
+			public Customer get(int index) {
+				return findOne(ids.get(index).longValue());
+			}
+
+			/* 
+			 * (non-Javadoc)
+			 * @see java.util.AbstractCollection#size()
+			 */
+			@Override
+			public int size() {
+				return ids.size();
+			}
 		}
 	}
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.util.Assert;
+
+/**
+ * Dictionary encoding of the {@link LineItem}s of {@link Order}s. Product names are interned into a dictionary and
+ * assigned int codes, an {@link Order} only keeps the codes of its {@link LineItem}s in an int array.
+ * <p>
+ * Code arrays are never written to once handed out, so that they're owned by the {@link Order} referring to them and
+ * reclaimed along with it. Looking up the codes of known products doesn't lock, registering new products is
+ * serialized.
+ *
+ * @author Oliver Gierke
+ */
+class LineItemStore {
+
+	/**
+	 * The codes of an {@link Order} without {@link LineItem}s.
+	 */
+	static final int[] EMPTY = new int[0];
+
+	private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<String, Integer>();
+	private volatile LineItem[] products = new LineItem[16];
+	private int productCount;
+
+	/**
+	 * Returns new codes consisting of the given ones followed by the code of the given {@link LineItem}.
+	 *
+	 * @param codes must not be {@literal null}.
+	 * @param item must not be {@literal null}.
+	 * @return
+	 */
+	int[] append(int[] codes, LineItem item) {
+
+		Assert.notNull(codes, "Codes must not be null!");
+		Assert.notNull(item, "LineItem must not be null!");
+
+		int[] result = Arrays.copyOf(codes, codes.length + 1);
+		result[codes.length] = codeOf(item);
+
+		return result;
+	}
+
+	/**
+	 * Returns the codes of the given {@link LineItem}s.
+	 *
+	 * @param lineItems must not be {@literal null} or contain {@literal null}.
+	 * @return
+	 */
+	int[] encode(Collection<LineItem> lineItems) {
+
+		Assert.notNull(lineItems, "LineItems must not be null!");
+
+		if (lineItems.isEmpty()) {
+			return EMPTY;
+		}
+
+		int[] result = new int[lineItems.size()];
+		int index = 0;
+
+		for (LineItem item : lineItems) {
+
+			Assert.notNull(item, "LineItem must not be null!");
+			result[index++] = codeOf(item);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns a read-only view of the {@link LineItem}s with the given codes.
+	 *
+	 * @param codes must not be {@literal null}.
+	 * @return
+	 */
+	List<LineItem> view(int[] codes) {
+		return new LineItems(codes);
+	}
+
+	/**
+	 * Returns the number of products registered.
+	 *
+	 * @return
+	 */
+	synchronized int size() {
+		return productCount;
+	}
+
+	private int codeOf(LineItem item) {
+
+		Integer code = codes.get(item.getName());
+		return code != null ? code : register(item.getName());
+	}
+
+	private synchronized int register(String name) {
+
+		// Registered concurrently
+		Integer code = codes.get(name);
+
+		if (code != null) {
+			return code;
+		}
+
+		LineItem[] products = this.products;
+
+		if (productCount == products.length) {
+			products = Arrays.copyOf(products, products.length << 1);
+			this.products = products;
+		}
+
+		// Register the product before publishing its code
+		products[productCount] = new LineItem(name);
+		codes.put(name, productCount);
+
+		return productCount++;
+	}
+
+	/**
+	 * View of the {@link LineItem}s with the given codes. As code arrays are never written to once handed out, the view
+	 * is immutable.
+	 *
+	 * @author Oliver Gierke
+	 */
+	private class LineItems extends AbstractList<LineItem> implements RandomAccess {
+
+		private final int[] codes;
+
+		public LineItems(int[] codes) {
+			this.codes = codes;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public LineItem get(int index) {
+
+			if (index < 0 || index >= codes.length) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + codes.length);
+			}
+
+			// Read the code first, so that the products read afterwards contain the product it refers to
+			int code = codes[index];
+			return products[code];
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return codes.length;
+		}
+	}
+}
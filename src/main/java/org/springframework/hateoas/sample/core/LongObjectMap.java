@@ -0,0 +1,228 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.springframework.util.Assert;
+
+/**
+ * Open addressing hash map using primitive {@code long} keys to avoid boxing ids and the per entry node objects of a
+ * {@link java.util.HashMap}. Reads are lock-free and never allocate, writes are serialized. Entries can be added and
+ * replaced but not removed.
+ * 
+ * @author Oliver Gierke
+ */
+class LongObjectMap<V> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float MAX_LOAD_FACTOR = 0.75f;
+
+	private volatile Table<V> table;
+	private volatile V zeroKeyValue;
+	private int size;
+
+	/**
+	 * Creates a new {@link LongObjectMap} with a default initial capacity.
+	 */
+	public LongObjectMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new {@link LongObjectMap} able to hold the given number of entries without resizing.
+	 * 
+	 * @param expectedSize
+	 */
+	public LongObjectMap(int expectedSize) {
+		this.table = new Table<V>(capacityFor(expectedSize));
+	}
+
+	/**
+	 * Returns the value registered for the given key or {@literal null} if none is registered.
+	 * 
+	 * @param key
+	 * @return
+	 */
+	public V get(long key) {
+
+		if (key == 0) {
+			return zeroKeyValue;
+		}
+
+		Table<V> table = this.table;
+		int mask = table.mask;
+
+		for (int i = indexFor(key, mask);; i = (i + 1) & mask) {
+
+			long candidate = table.keys.get(i);
+
+			if (candidate == key) {
+				return table.values.get(i);
+			}
+
+			if (candidate == 0) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Registers the given value for the given key.
+	 * 
+	 * @param key
+	 * @param value must not be {@literal null}.
+	 * @return the value previously registered for the key or {@literal null} if none was registered.
+	 */
+	public synchronized V put(long key, V value) {
+		return doPut(key, value, false);
+	}
+
+	/**
+	 * Registers the given value for the given key unless a value is registered for it already.
+	 * 
+	 * @param key
+	 * @param value must not be {@literal null}.
+	 * @return the value currently registered for the key or {@literal null} if the given value was registered.
+	 */
+	public synchronized V putIfAbsent(long key, V value) {
+		return doPut(key, value, true);
+	}
+
+	/**
+	 * Returns the number of entries.
+	 * 
+	 * @return
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	private V doPut(long key, V value, boolean onlyIfAbsent) {
+
+		Assert.notNull(value, "Value must not be null!");
+
+		if (key == 0) {
+
+			V previous = zeroKeyValue;
+
+			if (previous == null) {
+				size++;
+			}
+
+			if (previous == null || !onlyIfAbsent) {
+				zeroKeyValue = value;
+			}
+
+			return previous;
+		}
+
+		Table<V> table = this.table;
+		int mask = table.mask;
+
+		for (int i = indexFor(key, mask);; i = (i + 1) & mask) {
+
+			long candidate = table.keys.get(i);
+
+			if (candidate == key) {
+
+				V previous = table.values.get(i);
+
+				if (!onlyIfAbsent) {
+					table.values.set(i, value);
+				}
+
+				return previous;
+			}
+
+			if (candidate == 0) {
+
+				// Publish the value before the key so that readers seeing the key also see the value
+				table.values.set(i, value);
+				table.keys.set(i, key);
+
+				if (++size > table.keys.length() * MAX_LOAD_FACTOR) {
+					this.table = table.resize();
+				}
+
+				return null;
+			}
+		}
+	}
+
+	private static int indexFor(long key, int mask) {
+
+		int hash = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private static int capacityFor(int expectedSize) {
+
+		int capacity = DEFAULT_CAPACITY;
+
+		while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+			capacity <<= 1;
+		}
+
+		return capacity;
+	}
+
+	/**
+	 * The actual slots. A {@link Table} is never changed once it's been replaced by a resized one, so that readers
+	 * still working on it see a consistent state.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class Table<V> {
+
+		final AtomicLongArray keys;
+		final AtomicReferenceArray<V> values;
+		final int mask;
+
+		Table(int capacity) {
+
+			this.keys = new AtomicLongArray(capacity);
+			this.values = new AtomicReferenceArray<V>(capacity);
+			this.mask = capacity - 1;
+		}
+
+		Table<V> resize() {
+
+			Table<V> resized = new Table<V>(keys.length() << 1);
+
+			for (int i = 0; i < keys.length(); i++) {
+
+				long key = keys.get(i);
+
+				if (key == 0) {
+					continue;
+				}
+
+				int index = indexFor(key, resized.mask);
+
+				while (resized.keys.get(index) != 0) {
+					index = (index + 1) & resized.mask;
+				}
+
+				resized.values.set(index, values.get(i));
+				resized.keys.set(index, key);
+			}
+
+			return resized;
+		}
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import org.springframework.util.Assert;
+
+/**
+ * A repository lookup to be run asynchronously, handing its result or failure to a {@link Callback}.
+ * 
+ * @author Oliver Gierke
+ */
+abstract class Lookup<T> implements Runnable {
+
+	final Callback<T> callback;
+
+	/**
+	 * Creates a new {@link Lookup} notifying the given {@link Callback}.
+	 * 
+	 * @param callback must not be {@literal null}.
+	 */
+	Lookup(Callback<T> callback) {
+
+		Assert.notNull(callback, "Callback must not be null!");
+		this.callback = callback;
+	}
+
+	/**
+	 * Performs the actual lookup.
+	 * 
+	 * @return
+	 */
+	protected abstract T lookup();
+
+	/* 
+	 * (non-Javadoc)
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+
+		T result;
+
+		try {
+			result = lookup();
+		} catch (RuntimeException o_O) {
+			callback.onFailure(o_O);
+			return;
+		}
+
+		callback.onSuccess(result);
+	}
+}
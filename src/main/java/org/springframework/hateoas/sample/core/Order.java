@@ -15,26 +15,77 @@
  */
 package org.springframework.hateoas.sample.core;
 
-import java.util.ArrayList;
 import java.util.List;
 
+import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
 
 /**
- * Simple order entity.
+ * Simple order entity. The {@link LineItem}s are dictionary encoded by a shared {@link LineItemStore}, the
+ * {@link Order} itself only keeps the codes of its {@link LineItem}s. Immutable, changes create a new {@link Order}
+ * with an incremented version, so that a reference to an {@link Order} is a consistent snapshot that can be published
+ * to other threads as is.
  * 
  * @author Oliver Gierke
  */
 @Getter
-@RequiredArgsConstructor
 @EqualsAndHashCode(of = "id")
+@JsonPropertyOrder({ "id", "customer", "lineItems", "version" })
 public class Order {
 
-	private final Long id;
+	static final LineItemStore LINE_ITEMS = new LineItemStore();
+
+	private final long id;
 	private final Customer customer;
-	private final List<LineItem> lineItems = new ArrayList<LineItem>();
+	private final @Getter(AccessLevel.NONE) int[] lineItemCodes;
+	private final long version;
+
+	/**
+	 * Creates a new {@link Order} without {@link LineItem}s for the given {@link Customer}.
+	 * 
+	 * @param id
+	 * @param customer
+	 */
+	public Order(long id, Customer customer) {
+		this(id, customer, LineItemStore.EMPTY, 0);
+	}
+
+	/**
+	 * Creates an {@link Order} with the given id, {@link Customer}, {@link LineItem}s and version. Used to restore
+	 * persisted {@link Order}s.
+	 * 
+	 * @param id
+	 * @param customer
+	 * @param lineItems
+	 * @param version
+	 */
+	Order(long id, Customer customer, List<LineItem> lineItems, long version) {
+		this(id, customer, LINE_ITEMS.encode(lineItems), version);
+	}
+
+	private Order(long id, Customer customer, int[] lineItemCodes, long version) {
+
+		this.id = id;
+		this.customer = customer;
+		this.lineItemCodes = lineItemCodes;
+		this.version = version;
+	}
+
+	/**
+	 * Returns the {@link LineItem}s of the {@link Order}. The returned {@link List} is a read-only view.
+	 * 
+	 * @return
+	 */
+	public List<LineItem> getLineItems() {
+		return LINE_ITEMS.view(lineItemCodes);
+	}
 
 	/**
 	 * Returns whether the Order has the given id.
@@ -42,8 +93,8 @@ public class Order {
 	 * @param id
 	 * @return
 	 */
-	public boolean hasId(Long id) {
-		return this.id.equals(id);
+	public boolean hasId(long id) {
+		return this.id == id;
 	}
 
 	/**
@@ -57,20 +108,54 @@ public class Order {
 	}
 
 	/**
-	 * Adds the given {@link LineItem} to the {@link Order}.
+	 * Returns a new {@link Order} with the given {@link LineItem} added and the version incremented. The {@link Order}
+	 * itself is not changed.
 	 * 
 	 * @param item
 	 * @return
 	 */
 	public Order add(LineItem item) {
-		this.lineItems.add(item);
-		return this;
+		return new Order(id, customer, LINE_ITEMS.append(lineItemCodes, item), version + 1);
+	}
+
+	/**
+	 * Returns a new {@link Order} with its {@link LineItem}s replaced by the given ones and the version incremented. The
+	 * {@link Order} itself is not changed.
+	 * 
+	 * @param lineItems must not be {@literal null}.
+	 * @return
+	 */
+	public Order withLineItems(List<LineItem> lineItems) {
+		return new Order(id, customer, LINE_ITEMS.encode(lineItems), version + 1);
+	}
+
+	/**
+	 * Returns a new {@link Order} referring to the given state of its {@link Customer}. Keeps the version as the
+	 * {@link Order} itself doesn't change.
+	 * 
+	 * @param customer
+	 * @return
+	 */
+	Order withCustomer(Customer customer) {
+		return new Order(id, customer, lineItemCodes, version);
 	}
 
 	@Getter
-	@RequiredArgsConstructor
+	@EqualsAndHashCode
 	public static class LineItem {
 
 		private final String name;
+
+		/**
+		 * Creates a new {@link LineItem} with the given name.
+		 * 
+		 * @param name must not be {@literal null}.
+		 */
+		@JsonCreator
+		public LineItem(@JsonProperty("name") String name) {
+
+			Assert.notNull(name, "Name must not be null!");
+			this.name = name;
+		}
 	}
 }
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.util.Assert;
+
+/**
+ * Aggregates of the {@link Order}s of every {@link Customer}: the number of {@link Order}s and {@link LineItem}s and
+ * how often each product was ordered, i.e. the number of {@link LineItem}s per name. Maintained incrementally by the
+ * {@link Orders} implementations as {@link Order}s are written, so that reading them only costs the number of products
+ * of a {@link Customer} rather than a scan of its {@link Order}s. The aggregates of every {@link Customer} are guarded
+ * by a lock of their own, so that writes for different {@link Customer}s don't contend. Changes of an {@link Order}
+ * are recorded as the difference to its previous state, so that reads might not reflect writes still in progress.
+ * 
+ * @author Oliver Gierke
+ */
+public class OrderStatistics {
+
+	private final LongObjectMap<Tally> talliesByCustomerId = new LongObjectMap<Tally>();
+
+	/**
+	 * Returns the {@link Statistics} of the {@link Order}s of the {@link Customer} with the given id, listing its most
+	 * popular products first.
+	 * 
+	 * @param customerId
+	 * @param top the maximum number of products to list, must not be negative.
+	 * @return
+	 */
+	public Statistics forCustomer(long customerId, int top) {
+
+		Assert.isTrue(top >= 0, "Top must not be negative!");
+
+		Tally tally = talliesByCustomerId.get(customerId);
+		return tally == null ? new Statistics(0, 0, Collections.<ProductCount> emptyList()) : tally.summarize(top);
+	}
+
+	/**
+	 * Records the given state of an {@link Order}, replacing the previous one. Only the {@link LineItem}s following the
+	 * ones both states share are counted, so that adding {@link LineItem}s to an {@link Order} doesn't re-count the
+	 * existing ones.
+	 * 
+	 * @param previous the previous state of the {@link Order} or {@literal null} if it is a new one.
+	 * @param current must not be {@literal null}.
+	 */
+	void record(Order previous, Order current) {
+
+		Assert.notNull(current, "Order must not be null!");
+
+		List<LineItem> before = previous == null ? Collections.<LineItem> emptyList() : previous.getLineItems();
+		List<LineItem> after = current.getLineItems();
+
+		int shared = 0;
+
+		for (int limit = Math.min(before.size(), after.size()); shared < limit; shared++) {
+			if (!before.get(shared).equals(after.get(shared))) {
+				break;
+			}
+		}
+
+		Tally tally = tallyFor(current.getCustomer().getId());
+
+		synchronized (tally) {
+
+			if (previous == null) {
+				tally.orders++;
+			}
+
+			for (int i = shared; i < before.size(); i++) {
+				tally.count(before.get(i).getName(), -1);
+			}
+
+			for (int i = shared; i < after.size(); i++) {
+				tally.count(after.get(i).getName(), 1);
+			}
+		}
+	}
+
+	private Tally tallyFor(long customerId) {
+
+		Tally tally = talliesByCustomerId.get(customerId);
+
+		if (tally != null) {
+			return tally;
+		}
+
+		tally = new Tally();
+		Tally existing = talliesByCustomerId.putIfAbsent(customerId, tally);
+
+		return existing == null ? tally : existing;
+	}
+
+	/**
+	 * The aggregates of the {@link Order}s of a {@link Customer}.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	public static class Statistics {
+
+		/**
+		 * The number of {@link Order}s.
+		 */
+		private final long orders;
+
+		/**
+		 * The number of {@link LineItem}s of all {@link Order}s.
+		 */
+		private final long lineItems;
+
+		/**
+		 * The products ordered, the most popular ones first.
+		 */
+		private final List<ProductCount> products;
+	}
+
+	/**
+	 * The number of {@link LineItem}s with a particular name.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@Getter
+	@RequiredArgsConstructor
+	public static class ProductCount implements Comparable<ProductCount> {
+
+		private final String name;
+		private final long count;
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		@Override
+		public int compareTo(ProductCount that) {
+
+			if (count != that.count) {
+				return count > that.count ? -1 : 1;
+			}
+
+			return name == null ? (that.name == null ? 0 : -1) : that.name == null ? 1 : name.compareTo(that.name);
+		}
+	}
+
+	/**
+	 * The mutable aggregates of the {@link Order}s of a single {@link Customer}, guarded by the {@link Tally} itself.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class Tally {
+
+		private final Map<String, long[]> products = new HashMap<String, long[]>(4);
+		private long orders, lineItems;
+
+		void count(String name, int delta) {
+
+			long[] count = products.get(name);
+
+			if (count == null) {
+				count = new long[1];
+				products.put(name, count);
+			}
+
+			count[0] += delta;
+			lineItems += delta;
+
+			if (count[0] == 0) {
+				products.remove(name);
+			}
+		}
+
+		synchronized Statistics summarize(int top) {
+
+			List<ProductCount> counts = new ArrayList<ProductCount>(products.size());
+
+			for (Entry<String, long[]> entry : products.entrySet()) {
+				counts.add(new ProductCount(entry.getKey(), entry.getValue()[0]));
+			}
+
+			Collections.sort(counts);
+
+			return new Statistics(orders, lineItems, counts.size() > top ? new ArrayList<ProductCount>(counts.subList(0,
+					top)) : counts);
+		}
+	}
+}
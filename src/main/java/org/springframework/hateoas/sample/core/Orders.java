@@ -15,11 +15,18 @@
  */
 package org.springframework.hateoas.sample.core;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
 import org.springframework.hateoas.sample.core.Order.LineItem;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
@@ -46,6 +53,31 @@ public interface Orders {
 	 */
 	List<Order> findAll(Customer customer);
 
+	/**
+	 * Returns the {@link Slice} of all {@link Order}s for the given {@link Cursor}.
+	 * 
+	 * @param cursor must not be {@literal null}.
+	 * @return
+	 */
+	Slice<Order> findAll(Cursor cursor);
+
+	/**
+	 * Returns the {@link Slice} of the {@link Order}s placed by the given {@link Customer} for the given {@link Cursor}.
+	 * 
+	 * @param customer
+	 * @param cursor must not be {@literal null}.
+	 * @return
+	 */
+	Slice<Order> findAll(Customer customer, Cursor cursor);
+
+	/**
+	 * Returns the {@link Order}s with the given ids in the order of the ids given. Unknown ids are skipped.
+	 * 
+	 * @param ids must not be {@literal null}.
+	 * @return
+	 */
+	List<Order> findAll(Iterable<Long> ids);
+
 	/**
 	 * Returns the {@link Order} with the given id.
 	 * 
@@ -55,28 +87,142 @@ public interface Orders {
 	Order findOne(Long id);
 
 	/**
-	 * In-memory implementation of {@link Orders}.
+	 * Returns the {@link Order} with the given id. Prefer this one over {@link #findOne(Long)} to avoid boxing the id.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	Order findOne(long id);
+
+	/**
+	 * Creates a new {@link Order} with the given {@link LineItem}s for the given {@link Customer} using the next free id.
+	 * 
+	 * @param customer must not be {@literal null}.
+	 * @param lineItems must not be {@literal null}.
+	 * @return the created {@link Order}.
+	 */
+	Order create(Customer customer, List<LineItem> lineItems);
+
+	/**
+	 * Replaces the {@link LineItem}s of the {@link Order} with the given id.
+	 * 
+	 * @param id
+	 * @param lineItems must not be {@literal null}.
+	 * @return the updated {@link Order} or {@literal null} if there's no {@link Order} with the given id.
+	 */
+	Order update(long id, List<LineItem> lineItems);
+
+	/**
+	 * Adds the given {@link LineItem}s to the {@link Order} with the given id.
+	 * 
+	 * @param id
+	 * @param lineItems must not be {@literal null}.
+	 * @return the updated {@link Order} or {@literal null} if there's no {@link Order} with the given id.
+	 */
+	Order add(long id, List<LineItem> lineItems);
+
+	/**
+	 * Registers all given {@link Order}s whose ids are not taken yet, keeping their ids, and records them in the
+	 * {@link ChangeLog}. Meant to load large amounts of {@link Order}s at once, so implementations index the given
+	 * {@link Order}s as a whole rather than one by one.
+	 * 
+	 * @param orders must not be {@literal null}.
+	 * @return the number of {@link Order}s registered.
+	 */
+	int saveAll(Collection<Order> orders);
+
+	/**
+	 * Records a change of all {@link Order}s of the given {@link Customer} in the {@link ChangeLog}. Call this after the
+	 * {@link Customer} changed, as the {@link Order}s refer to its current state.
+	 * 
+	 * @param customer must not be {@literal null}.
+	 */
+	void recordCustomerChange(Customer customer);
+
+	/**
+	 * Returns the {@link ChangeLog} recording the {@link Order}s created and changed via {@link #create(Customer, List)},
+	 * {@link #update(long, List)} and {@link #add(long, List)} as well as the ones whose {@link Customer} changed, see
+	 * {@link #recordCustomerChange(Customer)}.
+	 * 
+	 * @return
+	 */
+	ChangeLog getChangeLog();
+
+	/**
+	 * Returns the {@link OrderStatistics} maintained for all {@link Order}s created, changed and registered.
+	 * 
+	 * @return
+	 */
+	OrderStatistics getStatistics();
+
+	/**
+	 * In-memory implementation of {@link Orders}. Keeps a primary index by {@link Order} id and a secondary one by
+	 * {@link Customer} id, both keyed by primitive {@code long}s, so that neither lookup has to scan all {@link Order}s
+	 * or box the id. As {@link Order}s are immutable, a write publishes a new state of an {@link Order} with a single put
+	 * to the primary index. The primary index is split into stripes by id and a write only locks the stripe of the
+	 * {@link Order} it changes, so that writes to different {@link Order}s don't contend. Reads don't lock at all. All
+	 * lists handed out are views of {@link Order} ids resolved against the primary index on access, so that they reflect
+	 * the current state of the {@link Order}s without having to be copied on every write.
 	 * 
 	 * @author Oliver Gierke
 	 */
 	@Repository
+	@Profile("!persistent")
 	static class InMemoryOrders implements Orders {
 
-		private final List<Order> orders = new ArrayList<Order>();
+		private static final int STRIPES = 64;
+
+		private final InMemoryCustomers customers;
+		private final LongObjectMap<Order>[] ordersById;
+		private final LongObjectMap<AppendOnlyLongList> idsByCustomerId = new LongObjectMap<AppendOnlyLongList>();
+		private final AppendOnlyLongList ids = new AppendOnlyLongList();
+		private final List<Order> orders = new AllOrders();
+		private final AtomicLong lastId = new AtomicLong();
+		private final ChangeLog changeLog = new ChangeLog();
+		private final OrderStatistics statistics = new OrderStatistics();
+
+		/**
+		 * Creates a new {@link InMemoryOrders} instance for the given {@link InMemoryCustomers} registering a sample
+		 * {@link Order}.
+		 * 
+		 * @param customers must not be {@literal null}.
+		 */
+		public InMemoryOrders(InMemoryCustomers customers) {
+			this(customers, true);
+		}
 
+		/**
+		 * Creates a new {@link InMemoryOrders} instance for the given {@link InMemoryCustomers} registering a sample
+		 * {@link Order} unless it's about to be restored from a snapshot configured in the given {@link Environment}.
+		 * 
+		 * @param customers must not be {@literal null}.
+		 * @param environment must not be {@literal null}.
+		 * @see RepositorySnapshots#exists(Environment)
+		 */
 		@Autowired
-		public InMemoryOrders(Customers customers) {
+		public InMemoryOrders(InMemoryCustomers customers, Environment environment) {
+			this(customers, !RepositorySnapshots.exists(environment));
+		}
+
+		@SuppressWarnings("unchecked")
+		private InMemoryOrders(InMemoryCustomers customers, boolean samples) {
 
 			Assert.notNull(customers, "Customers must not be null!");
-			Customer customer = customers.findOne(1L);
 
-			LineItem iPad = new Order.LineItem("iPad");
-			LineItem iPhone = new Order.LineItem("iPhone");
+			this.customers = customers;
+			this.ordersById = new LongObjectMap[STRIPES];
+
+			for (int i = 0; i < STRIPES; i++) {
+				ordersById[i] = new LongObjectMap<Order>();
+			}
+
+			if (samples) {
 
-			Order order = new Order(1L, customer);
-			order.add(iPhone).add(iPad);
+				LineItem iPad = new Order.LineItem("iPad");
+				LineItem iPhone = new Order.LineItem("iPhone");
 
-			this.orders.add(order);
+				save(new Order(1L, customers.findOne(1L)).add(iPhone).add(iPad));
+			}
 		}
 
 		/* 
@@ -84,7 +230,7 @@ public interface Orders {
 		 * @see org.springframework.hateoas.sample.Orders#findAll()
 		 */
 		public List<Order> findAll() {
-			return Collections.unmodifiableList(orders);
+			return orders;
 		}
 
 		/* 
@@ -93,15 +239,47 @@ public interface Orders {
 		 */
 		public List<Order> findAll(Customer customer) {
 
-			List<Order> result = new ArrayList<Order>();
+			AppendOnlyLongList ids = customer == null ? null : idsByCustomerId.get(customer.getId());
+			return ids == null ? Collections.<Order> emptyList() : new OrderList(ids, ids.size());
+		}
 
-			for (Order order : orders) {
-				if (order.belongsTo(customer)) {
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#findAll(org.springframework.hateoas.sample.core.Cursor)
+		 */
+		public Slice<Order> findAll(Cursor cursor) {
+			return Slice.of(orders, cursor);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#findAll(org.springframework.hateoas.sample.core.Customer, org.springframework.hateoas.sample.core.Cursor)
+		 */
+		public Slice<Order> findAll(Customer customer, Cursor cursor) {
+			return Slice.of(findAll(customer), cursor);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#findAll(java.lang.Iterable)
+		 */
+		public List<Order> findAll(Iterable<Long> ids) {
+
+			Assert.notNull(ids, "Ids must not be null!");
+
+			List<Order> result = ids instanceof Collection ? new ArrayList<Order>(((Collection<?>) ids).size())
+					: new ArrayList<Order>();
+
+			for (Long id : ids) {
+
+				Order order = id == null ? null : findOne(id.longValue());
+
+				if (order != null) {
 					result.add(order);
 				}
 			}
 
-			return Collections.unmodifiableList(result);
+			return result;
 		}
 
 		/* 
@@ -109,13 +287,333 @@ public interface Orders {
 		 * @see org.springframework.hateoas.sample.Orders#findOne(java.lang.Long)
 		 */
 		public Order findOne(Long id) {
+			return id == null ? null : findOne(id.longValue());
+		}
 
-			for (Order order : orders) {
-				if (order.hasId(id)) {
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#findOne(long)
+		 */
+		public Order findOne(long id) {
+
+			Order order = stripeFor(id).get(id);
+			return order == null ? null : refresh(order);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#create(org.springframework.hateoas.sample.core.Customer, java.util.List)
+		 */
+		public Order create(Customer customer, List<LineItem> lineItems) {
+
+			Assert.notNull(customer, "Customer must not be null!");
+			Assert.notNull(lineItems, "LineItems must not be null!");
+
+			while (true) {
+
+				Order order = new Order(lastId.incrementAndGet(), customer, lineItems, 0);
+
+				// Id taken by an Order saved concurrently, retry with the next one
+				if (register(order)) {
+					changeLog.record(order.getId());
 					return order;
 				}
 			}
-			return null;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#update(long, java.util.List)
+		 */
+		public Order update(long id, final List<LineItem> lineItems) {
+
+			Assert.notNull(lineItems, "LineItems must not be null!");
+
+			return modify(id, new Modification() {
+
+				@Override
+				Order apply(Order order) {
+					return order.withLineItems(lineItems);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#add(long, java.util.List)
+		 */
+		public Order add(long id, final List<LineItem> lineItems) {
+
+			Assert.notNull(lineItems, "LineItems must not be null!");
+
+			return modify(id, new Modification() {
+
+				@Override
+				Order apply(Order order) {
+
+					for (LineItem item : lineItems) {
+						order = order.add(item);
+					}
+
+					return order;
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#recordCustomerChange(org.springframework.hateoas.sample.core.Customer)
+		 */
+		public void recordCustomerChange(Customer customer) {
+
+			Assert.notNull(customer, "Customer must not be null!");
+
+			AppendOnlyLongList ids = idsByCustomerId.get(customer.getId());
+			int size = ids == null ? 0 : ids.size();
+
+			for (int i = 0; i < size; i++) {
+				changeLog.record(ids.get(i));
+			}
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#getChangeLog()
+		 */
+		public ChangeLog getChangeLog() {
+			return changeLog;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#getStatistics()
+		 */
+		public OrderStatistics getStatistics() {
+			return statistics;
+		}
+
+		/**
+		 * Registers the given {@link Order} and indexes it for its {@link Customer} unless an {@link Order} with the same
+		 * id is already registered.
+		 * 
+		 * @param order must not be {@literal null}.
+		 */
+		void save(Order order) {
+
+			Assert.notNull(order, "Order must not be null!");
+			register(order);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Orders#saveAll(java.util.Collection)
+		 */
+		public int saveAll(Collection<Order> orders) {
+
+			Assert.notNull(orders, "Orders must not be null!");
+
+			List<Long> registered = new ArrayList<Long>(orders.size());
+
+			for (Order order : orders) {
+
+				if (publish(order)) {
+					index(order.getCustomer().getId(), order.getId());
+					registered.add(order.getId());
+				}
+			}
+
+			for (Long id : registered) {
+				changeLog.record(id);
+			}
+
+			return registered.size();
+		}
+
+		private LongObjectMap<Order> stripeFor(long id) {
+			return ordersById[(int) (id ^ (id >>> 32)) & (STRIPES - 1)];
+		}
+
+		/**
+		 * Applies the given {@link Modification} to the current state of the {@link Order} with the given id, publishes
+		 * the result and records the change in the {@link ChangeLog} and the {@link OrderStatistics}. Holds the lock of
+		 * the {@link Order}'s stripe only, so that concurrent modifications of the same {@link Order} don't get lost.
+		 * 
+		 * @param id
+		 * @param modification
+		 * @return the modified {@link Order} or {@literal null} if there's no {@link Order} with the given id.
+		 */
+		private Order modify(long id, Modification modification) {
+
+			LongObjectMap<Order> stripe = stripeFor(id);
+			Order current, modified;
+
+			synchronized (stripe) {
+
+				current = stripe.get(id);
+
+				if (current == null) {
+					return null;
+				}
+
+				modified = modification.apply(refresh(current));
+				stripe.put(id, modified);
+			}
+
+			statistics.record(current, modified);
+			changeLog.record(id);
+
+			return modified;
+		}
+
+		/**
+		 * Returns the given {@link Order} referring to the current state of its {@link Customer}, as the {@link Customer}
+		 * might have changed since the {@link Order} was stored.
+		 * 
+		 * @param order
+		 * @return
+		 */
+		private Order refresh(Order order) {
+
+			Customer customer = order.getCustomer();
+			Customer current = customer == null ? null : customers.findOne(customer.getId());
+
+			return current == null || current.getVersion() == customer.getVersion() ? order : order.withCustomer(current);
+		}
+
+		private boolean register(Order order) {
+
+			if (!publish(order)) {
+				return false;
+			}
+
+			index(order.getCustomer().getId(), order.getId());
+			return true;
+		}
+
+		/**
+		 * Adds the given {@link Order} to the primary index, the list of all {@link Order}s and the
+		 * {@link OrderStatistics} unless an {@link Order} with the same id is already registered.
+		 * 
+		 * @param order
+		 * @return whether the {@link Order} was added.
+		 */
+		private boolean publish(Order order) {
+
+			long id = order.getId();
+
+			if (stripeFor(id).putIfAbsent(id, order) != null) {
+				return false;
+			}
+
+			ids.add(id);
+			statistics.record(null, order);
+
+			for (long last = lastId.get(); last < id && !lastId.compareAndSet(last, id); last = lastId.get()) {}
+
+			return true;
+		}
+
+		/**
+		 * Appends the given {@link Order} id to the ids of the {@link Order}s of the given {@link Customer}. Only locks the
+		 * ids of that {@link Customer}, so that creating {@link Order}s of different {@link Customer}s doesn't contend.
+		 * 
+		 * @param customerId
+		 * @param orderId
+		 */
+		private void index(long customerId, long orderId) {
+
+			AppendOnlyLongList orderIds = idsByCustomerId.get(customerId);
+
+			if (orderIds == null) {
+
+				AppendOnlyLongList created = new AppendOnlyLongList();
+				orderIds = idsByCustomerId.putIfAbsent(customerId, created);
+				orderIds = orderIds == null ? created : orderIds;
+			}
+
+			orderIds.add(orderId);
+		}
+
+		/**
+		 * A change to apply to the current state of an {@link Order}.
+		 * 
+		 * @author Oliver Gierke
+		 */
+		private static abstract class Modification {
+
+			/**
+			 * Returns the new state of the given {@link Order}.
+			 * 
+			 * @param order will never be {@literal null}.
+			 * @return
+			 */
+			abstract Order apply(Order order);
+		}
+
+		/**
+		 * Read-only view of all {@link Order}s in the order they were registered, resolving them on access.
+		 * 
+		 * @author Oliver Gierke
+		 */
+		private class AllOrders extends AbstractList<Order> implements RandomAccess {
+
+			/* 
+			 * (non-Javadoc)
+			 * @see java.util.AbstractList#get(int)
+			 */
+			@Override
+			public Order get(int index) {
+				return findOne(ids.get(index));
+			}
+
+			/* 
+			 * (non-Javadoc)
+			 * @see java.util.AbstractCollection#size()
+			 */
+			@Override
+			public int size() {
+				return ids.size();
+			}
+		}
+
+		/**
+		 * Read-only view of the {@link Order}s with the first given number of the given ids, resolving them on access.
+		 * Ids appended later are not part of the view, so that its size doesn't change while it's being iterated.
+		 * 
+		 * @author Oliver Gierke
+		 */
+		private class OrderList extends AbstractList<Order> implements RandomAccess {
+
+			private final AppendOnlyLongList ids;
+			private final int size;
+
+			OrderList(AppendOnlyLongList ids, int size) {
+
+				this.ids = ids;
+				this.size = size;
+			}
+
+			/* 
+			 * (non-Javadoc)
+			 * @see java.util.AbstractList#get(int)
+			 */
+			@Override
+			public Order get(int index) {
+				if (index >= size) {
+					throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+				}
+
+				return findOne(ids.get(index));
+			}
+
+			/* 
+			 * (non-Javadoc)
+			 * @see java.util.AbstractCollection#size()
+			 */
+			@Override
+			public int size() {
+				return size;
+			}
 		}
 	}
 }
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.hateoas.sample.core.SegmentLog.Compaction;
+import org.springframework.hateoas.sample.core.SegmentLog.RecordHandler;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+/**
+ * {@link Customers} implementation persisting {@link Customer}s to a {@link SegmentLog}. Only the address of the
+ * latest record of every {@link Customer} is kept in memory, the {@link Customer}s themselves are decoded from the
+ * mapped log on lookup. Writes are serialized as they append to a single log. Activated by the {@code persistent}
+ * profile.
+ * 
+ * @author Oliver Gierke
+ */
+@Repository
+@Profile("persistent")
+@ManagedResource(objectName = "org.springframework.hateoas.sample:type=PersistentCustomers")
+class PersistentCustomers implements Customers, DisposableBean {
+
+	private final SegmentLog log;
+	private final LongObjectMap<Long> addresses = new LongObjectMap<Long>();
+	private final List<Long> ids = new AppendOnlyList<Long>();
+	private final List<Customer> customers = new AllCustomers();
+	private final CustomerIndex names = new CustomerIndex(this);
+	private long lastId;
+
+	private final Compaction compaction = new Compaction() {
+
+		@Override
+		public boolean isLive(long address, ByteBuffer payload) {
+
+			Long current = addresses.get(payload.getLong(0));
+			return current != null && current.longValue() == address;
+		}
+
+		@Override
+		public void moved(long from, long to, ByteBuffer payload) {
+			addresses.put(payload.getLong(0), to);
+		}
+	};
+
+	/**
+	 * Creates a new {@link PersistentCustomers} instance storing the {@link Customer}s in the directory configured in
+	 * the given {@link Environment}.
+	 * 
+	 * @param environment must not be {@literal null}.
+	 */
+	@Autowired
+	public PersistentCustomers(Environment environment) {
+		this(new SegmentLog(SegmentLog.directory(environment, "customers"), SegmentLog.DEFAULT_SEGMENT_SIZE));
+	}
+
+	/**
+	 * Creates a new {@link PersistentCustomers} instance on top of the given {@link SegmentLog}. Rebuilds the index from
+	 * the log and registers the sample {@link Customer}s if it is empty.
+	 * 
+	 * @param log must not be {@literal null}.
+	 */
+	PersistentCustomers(SegmentLog log) {
+
+		Assert.notNull(log, "SegmentLog must not be null!");
+
+		this.log = log;
+		this.log.replay(new RecordHandler() {
+
+			@Override
+			public void handle(long address, ByteBuffer payload) {
+
+				index(decode(payload), address);
+			}
+		});
+
+		if (ids.isEmpty()) {
+			save(new Customer(1L, "Dave", "Matthews"));
+			save(new Customer(2L, "Carter", "Beauford"));
+		}
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#findAll()
+	 */
+	public List<Customer> findAll() {
+		return customers;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#findAll(org.springframework.hateoas.sample.core.Cursor)
+	 */
+	public Slice<Customer> findAll(Cursor cursor) {
+		return Slice.of(customers, cursor);
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#findAll(java.lang.Iterable)
+	 */
+	public List<Customer> findAll(Iterable<Long> ids) {
+
+		Assert.notNull(ids, "Ids must not be null!");
+
+		List<Customer> result = ids instanceof Collection ? new ArrayList<Customer>(((Collection<?>) ids).size())
+				: new ArrayList<Customer>();
+
+		for (Long id : ids) {
+
+			Customer customer = id == null ? null : findOne(id.longValue());
+
+			if (customer != null) {
+				result.add(customer);
+			}
+		}
+
+		return result;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#findOne(java.lang.Long)
+	 */
+	public Customer findOne(Long id) {
+		return id == null ? null : findOne(id.longValue());
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#findOne(long)
+	 */
+	public Customer findOne(long id) {
+
+		while (true) {
+
+			Long address = addresses.get(id);
+
+			if (address == null) {
+				return null;
+			}
+
+			ByteBuffer payload = log.read(address);
+
+			// Record moved by a concurrent compaction, retry with the new address
+			if (payload != null) {
+				return decode(payload);
+			}
+		}
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#findByName(java.lang.String, org.springframework.hateoas.sample.core.Cursor)
+	 */
+	public Slice<Customer> findByName(String name, Cursor cursor) {
+		return names.find(name, false, cursor);
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#findByNameStartingWith(java.lang.String, org.springframework.hateoas.sample.core.Cursor)
+	 */
+	public Slice<Customer> findByNameStartingWith(String prefix, Cursor cursor) {
+		return names.find(prefix, true, cursor);
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#create(java.lang.String, java.lang.String)
+	 */
+	public synchronized Customer create(String firstname, String lastname) {
+
+		Customer customer = new Customer(lastId + 1, firstname, lastname);
+		save(customer);
+
+		return customer;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#update(long, java.lang.String, java.lang.String)
+	 */
+	public synchronized Customer update(long id, String firstname, String lastname) {
+
+		Customer current = findOne(id);
+
+		if (current == null) {
+			return null;
+		}
+
+		Customer updated = current.withName(firstname, lastname);
+		save(updated);
+
+		return updated;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Customers#saveAll(java.util.Collection)
+	 */
+	public synchronized int saveAll(Collection<Customer> customers) {
+
+		Assert.notNull(customers, "Customers must not be null!");
+
+		int registered = 0;
+
+		for (Customer customer : customers) {
+
+			if (addresses.get(customer.getId()) == null) {
+				save(customer);
+				registered++;
+			}
+		}
+
+		return registered;
+	}
+
+	/**
+	 * Appends the given {@link Customer} to the log, superseding a previous state of it.
+	 * 
+	 * @param customer must not be {@literal null}.
+	 */
+	synchronized void save(Customer customer) {
+
+		Assert.notNull(customer, "Customer must not be null!");
+
+		index(customer, log.append(encode(customer)));
+
+		if (log.needsCompaction()) {
+			compact();
+		}
+	}
+
+	/**
+	 * Removes superseded {@link Customer} records from the log.
+	 */
+	@ManagedOperation
+	public synchronized void compact() {
+		log.compact(compaction);
+	}
+
+	@ManagedAttribute
+	public int getSegmentCount() {
+		return log.getSegmentCount();
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+		log.close();
+	}
+
+	private void index(Customer customer, long address) {
+
+		long id = customer.getId();
+
+		if (addresses.put(id, address) != null) {
+			names.update(customer);
+			return;
+		}
+
+		ids.add(id);
+		lastId = Math.max(lastId, id);
+		names.add(customer);
+	}
+
+	private static byte[] encode(Customer customer) {
+
+		ByteBuffer buffer = ByteBuffer.allocate(16 + SegmentLog.sizeOf(customer.getFirstname())
+				+ SegmentLog.sizeOf(customer.getLastname()));
+
+		buffer.putLong(customer.getId()).putLong(customer.getVersion());
+		SegmentLog.putString(buffer, customer.getFirstname());
+		SegmentLog.putString(buffer, customer.getLastname());
+
+		return buffer.array();
+	}
+
+	private static Customer decode(ByteBuffer payload) {
+
+		long id = payload.getLong();
+		long version = payload.getLong();
+
+		return new Customer(id, SegmentLog.getString(payload), SegmentLog.getString(payload), version);
+	}
+
+	/**
+	 * Read-only view of all {@link Customer}s in the order they were registered, decoding them on access.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private class AllCustomers extends AbstractList<Customer> implements RandomAccess {
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public Customer get(int index) {
+			return findOne(ids.get(index).longValue());
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return ids.size();
+		}
+	}
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.core.SegmentLog.Compaction;
+import org.springframework.hateoas.sample.core.SegmentLog.RecordHandler;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+/**
+ * {@link Orders} implementation persisting {@link Order}s to a {@link SegmentLog}. Keeps the address of the latest
+ * record of every {@link Order} and the ids of the {@link Order}s per {@link Customer} in memory, the {@link Order}s
+ * themselves are decoded from the mapped log on lookup. Writes are serialized as they append to a single log.
+ * Activated by the {@code persistent} profile.
+ * 
+ * @author Oliver Gierke
+ */
+@Repository
+@Profile("persistent")
+@ManagedResource(objectName = "org.springframework.hateoas.sample:type=PersistentOrders")
+class PersistentOrders implements Orders, DisposableBean {
+
+	private static final long[] NO_IDS = new long[0];
+	private static final int OPTIMISTIC_READS = 3;
+
+	private final SegmentLog log;
+	private final Customers customers;
+	private final LongObjectMap<Long> addresses = new LongObjectMap<Long>();
+	private final LongObjectMap<long[]> idsByCustomerId = new LongObjectMap<long[]>();
+	private final List<Long> ids = new AppendOnlyList<Long>();
+	private final List<Order> orders = new AllOrders();
+	private final ChangeLog changeLog = new ChangeLog();
+	private final OrderStatistics statistics = new OrderStatistics();
+	private long lastId;
+
+	private final Compaction compaction = new Compaction() {
+
+		@Override
+		public boolean isLive(long address, ByteBuffer payload) {
+
+			Long current = addresses.get(payload.getLong(0));
+			return current != null && current.longValue() == address;
+		}
+
+		@Override
+		public void moved(long from, long to, ByteBuffer payload) {
+			addresses.put(payload.getLong(0), to);
+		}
+	};
+
+	/**
+	 * Creates a new {@link PersistentOrders} instance storing the {@link Order}s in the directory configured in the
+	 * given {@link Environment}.
+	 * 
+	 * @param customers must not be {@literal null}.
+	 * @param environment must not be {@literal null}.
+	 */
+	@Autowired
+	public PersistentOrders(Customers customers, Environment environment) {
+		this(customers, new SegmentLog(SegmentLog.directory(environment, "orders"), SegmentLog.DEFAULT_SEGMENT_SIZE));
+	}
+
+	/**
+	 * Creates a new {@link PersistentOrders} instance on top of the given {@link SegmentLog}. Rebuilds the indexes from
+	 * the log, the {@link OrderStatistics} from the latest state of every {@link Order} and registers a sample
+	 * {@link Order} if the log is empty.
+	 * 
+	 * @param customers must not be {@literal null}.
+	 * @param log must not be {@literal null}.
+	 */
+	PersistentOrders(Customers customers, SegmentLog log) {
+
+		Assert.notNull(customers, "Customers must not be null!");
+		Assert.notNull(log, "SegmentLog must not be null!");
+
+		this.customers = customers;
+		this.log = log;
+		this.log.replay(new RecordHandler() {
+
+			@Override
+			public void handle(long address, ByteBuffer payload) {
+				index(payload.getLong(0), payload.getLong(16), address);
+			}
+		});
+
+		for (int i = 0; i < ids.size(); i++) {
+			statistics.record(null, findOne(ids.get(i).longValue()));
+		}
+
+		if (ids.isEmpty()) {
+
+			save(new Order(1L, customers.findOne(1L)).add(new LineItem("iPhone")).add(new LineItem("iPad")));
+		}
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#findAll()
+	 */
+	public List<Order> findAll() {
+		return orders;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#findAll(org.springframework.hateoas.sample.core.Customer)
+	 */
+	public List<Order> findAll(Customer customer) {
+
+		long[] ids = customer == null ? null : idsByCustomerId.get(customer.getId());
+		return ids == null ? Collections.<Order> emptyList() : new OrderList(ids);
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#findAll(org.springframework.hateoas.sample.core.Cursor)
+	 */
+	public Slice<Order> findAll(Cursor cursor) {
+		return Slice.of(orders, cursor);
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#findAll(org.springframework.hateoas.sample.core.Customer, org.springframework.hateoas.sample.core.Cursor)
+	 */
+	public Slice<Order> findAll(Customer customer, Cursor cursor) {
+		return Slice.of(findAll(customer), cursor);
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#findAll(java.lang.Iterable)
+	 */
+	public List<Order> findAll(Iterable<Long> ids) {
+
+		Assert.notNull(ids, "Ids must not be null!");
+
+		List<Order> result = ids instanceof Collection ? new ArrayList<Order>(((Collection<?>) ids).size())
+				: new ArrayList<Order>();
+
+		for (Long id : ids) {
+
+			Order order = id == null ? null : findOne(id.longValue());
+
+			if (order != null) {
+				result.add(order);
+			}
+		}
+
+		return result;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#findOne(java.lang.Long)
+	 */
+	public Order findOne(Long id) {
+		return id == null ? null : findOne(id.longValue());
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#findOne(long)
+	 */
+	public Order findOne(long id) {
+
+		for (int i = 0; i < OPTIMISTIC_READS; i++) {
+
+			Long address = addresses.get(id);
+
+			if (address == null) {
+				return null;
+			}
+
+			ByteBuffer payload = log.read(address);
+
+			// Record moved by a concurrent compaction, retry with the new address
+			if (payload != null) {
+				return decode(payload);
+			}
+		}
+
+		// Compactions keep moving the record, read it while they're held off
+		synchronized (this) {
+
+			Long address = addresses.get(id);
+			return address == null ? null : decode(log.read(address));
+		}
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#create(org.springframework.hateoas.sample.core.Customer, java.util.List)
+	 */
+	public synchronized Order create(Customer customer, List<LineItem> lineItems) {
+
+		Assert.notNull(customer, "Customer must not be null!");
+		Assert.notNull(lineItems, "LineItems must not be null!");
+
+		Order order = new Order(lastId + 1, customer, lineItems, 0);
+		save(null, order);
+		changeLog.record(order.getId());
+
+		return order;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#update(long, java.util.List)
+	 */
+	public synchronized Order update(long id, List<LineItem> lineItems) {
+
+		Assert.notNull(lineItems, "LineItems must not be null!");
+
+		Order current = findOne(id);
+
+		if (current == null) {
+			return null;
+		}
+
+		Order updated = current.withLineItems(lineItems);
+		save(current, updated);
+		changeLog.record(id);
+
+		return updated;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#add(long, java.util.List)
+	 */
+	public synchronized Order add(long id, List<LineItem> lineItems) {
+
+		Assert.notNull(lineItems, "LineItems must not be null!");
+
+		Order current = findOne(id);
+
+		if (current == null) {
+			return null;
+		}
+
+		Order order = current;
+
+		for (LineItem item : lineItems) {
+			order = order.add(item);
+		}
+
+		save(current, order);
+		changeLog.record(id);
+
+		return order;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#saveAll(java.util.Collection)
+	 */
+	public synchronized int saveAll(Collection<Order> orders) {
+
+		Assert.notNull(orders, "Orders must not be null!");
+
+		int registered = 0;
+
+		for (Order order : orders) {
+
+			if (addresses.get(order.getId()) != null) {
+				continue;
+			}
+
+			save(null, order);
+			changeLog.record(order.getId());
+			registered++;
+		}
+
+		return registered;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#recordCustomerChange(org.springframework.hateoas.sample.core.Customer)
+	 */
+	public void recordCustomerChange(Customer customer) {
+
+		Assert.notNull(customer, "Customer must not be null!");
+
+		long[] ids = idsByCustomerId.get(customer.getId());
+
+		if (ids == null) {
+			return;
+		}
+
+		for (long id : ids) {
+			changeLog.record(id);
+		}
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#getChangeLog()
+	 */
+	public ChangeLog getChangeLog() {
+		return changeLog;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Orders#getStatistics()
+	 */
+	public OrderStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Appends the given {@link Order} to the log, superseding a previous state of it.
+	 * 
+	 * @param order must not be {@literal null}.
+	 */
+	synchronized void save(Order order) {
+
+		Assert.notNull(order, "Order must not be null!");
+		save(findOne(order.getId()), order);
+	}
+
+	/**
+	 * Appends the given {@link Order} to the log and records it in the {@link OrderStatistics} as successor of the given
+	 * previous state.
+	 * 
+	 * @param previous the current state of the {@link Order} or {@literal null} if it is a new one.
+	 * @param order must not be {@literal null}.
+	 */
+	private void save(Order previous, Order order) {
+
+		index(order.getId(), order.getCustomer().getId(), log.append(encode(order)));
+		statistics.record(previous, order);
+
+		if (log.needsCompaction()) {
+			compact();
+		}
+	}
+
+	/**
+	 * Removes superseded {@link Order} records from the log.
+	 */
+	@ManagedOperation
+	public synchronized void compact() {
+		log.compact(compaction);
+	}
+
+	@ManagedAttribute
+	public int getSegmentCount() {
+		return log.getSegmentCount();
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+		log.close();
+	}
+
+	private void index(long id, long customerId, long address) {
+
+		if (addresses.put(id, address) != null) {
+			return;
+		}
+
+		ids.add(id);
+		lastId = Math.max(lastId, id);
+
+		long[] current = idsByCustomerId.get(customerId);
+		current = current == null ? NO_IDS : current;
+
+		long[] updated = Arrays.copyOf(current, current.length + 1);
+		updated[current.length] = id;
+
+		idsByCustomerId.put(customerId, updated);
+	}
+
+	private static byte[] encode(Order order) {
+
+		List<LineItem> lineItems = order.getLineItems();
+		int size = 28;
+
+		for (LineItem item : lineItems) {
+			size += SegmentLog.sizeOf(item.getName());
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putLong(order.getId()).putLong(order.getVersion()).putLong(order.getCustomer().getId());
+		buffer.putInt(lineItems.size());
+
+		for (LineItem item : lineItems) {
+			SegmentLog.putString(buffer, item.getName());
+		}
+
+		return buffer.array();
+	}
+
+	private Order decode(ByteBuffer payload) {
+
+		long id = payload.getLong();
+		long version = payload.getLong();
+		Customer customer = customers.findOne(payload.getLong());
+
+		int count = payload.getInt();
+		List<LineItem> lineItems = new ArrayList<LineItem>(count);
+
+		for (int i = 0; i < count; i++) {
+			lineItems.add(new LineItem(SegmentLog.getString(payload)));
+		}
+
+		return new Order(id, customer, lineItems, version);
+	}
+
+	/**
+	 * Read-only view of all {@link Order}s in the order they were registered, decoding them on access.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private class AllOrders extends AbstractList<Order> implements RandomAccess {
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public Order get(int index) {
+			return findOne(ids.get(index).longValue());
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return ids.size();
+		}
+	}
+
+	/**
+	 * Read-only view of the {@link Order}s with the given ids, decoding them on access.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private class OrderList extends AbstractList<Order> implements RandomAccess {
+
+		private final long[] ids;
+
+		OrderList(long[] ids) {
+			this.ids = ids;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public Order get(int index) {
+			return findOne(ids[index]);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return ids.length;
+		}
+	}
+}
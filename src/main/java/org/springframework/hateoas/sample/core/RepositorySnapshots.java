@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+import org.springframework.hateoas.sample.core.Orders.InMemoryOrders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Restores the in-memory repositories from a {@link Snapshot} on startup and stores a {@link Snapshot} of them on
+ * shutdown. Only active if the file to use is configured via {@value #FILE_PROPERTY}.
+ *
+ * @author Oliver Gierke
+ */
+@Component
+@Profile("!persistent")
+class RepositorySnapshots implements InitializingBean, DisposableBean {
+
+	static final String FILE_PROPERTY = "sample.snapshot.file";
+
+	private final InMemoryCustomers customers;
+	private final InMemoryOrders orders;
+	private final File file;
+
+	/**
+	 * Creates a new {@link RepositorySnapshots} for the given repositories using the snapshot file configured in the
+	 * given {@link Environment}.
+	 *
+	 * @param customers must not be {@literal null}.
+	 * @param orders must not be {@literal null}.
+	 * @param environment must not be {@literal null}.
+	 */
+	@Autowired
+	public RepositorySnapshots(InMemoryCustomers customers, InMemoryOrders orders, Environment environment) {
+
+		Assert.notNull(customers, "Customers must not be null!");
+		Assert.notNull(orders, "Orders must not be null!");
+		Assert.notNull(environment, "Environment must not be null!");
+
+		String file = environment.getProperty(FILE_PROPERTY);
+
+		this.customers = customers;
+		this.orders = orders;
+		this.file = file == null ? null : new File(file);
+	}
+
+	/**
+	 * Returns whether a snapshot to restore the repositories from is configured in the given {@link Environment}. The
+	 * repositories only register their sample data if there's none, as it would prevent the snapshotted state of the
+	 * same ids from being restored.
+	 * 
+	 * @param environment must not be {@literal null}.
+	 * @return
+	 */
+	static boolean exists(Environment environment) {
+
+		Assert.notNull(environment, "Environment must not be null!");
+
+		String file = environment.getProperty(FILE_PROPERTY);
+		return file != null && new File(file).isFile();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+	 */
+	@Override
+	public void afterPropertiesSet() throws Exception {
+
+		if (file == null || !file.isFile()) {
+			return;
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+		try {
+
+			Snapshot snapshot = Snapshot.open(file);
+
+			// Orders refer to customers, so those have to be registered first
+			customers.saveAll(snapshot.readCustomers(executor));
+			orders.saveAll(snapshot.readOrders(executor, customers));
+
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() throws Exception {
+
+		if (file != null) {
+			Snapshot.write(file, customers.findAll(), orders.findAll());
+		}
+	}
+}
@@ -0,0 +1,749 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.springframework.core.env.Environment;
+import org.springframework.util.Assert;
+
+/**
+ * Append-only log of records stored in memory-mapped segment files. Records are appended sequentially to the active
+ * segment, which is rolled over to a new one once full. A record is identified by its address, which is stable until
+ * the record is moved by a {@link #compact(Compaction) compaction}. Reading a record returns a read-only view of the
+ * mapped file, so no data is copied to the heap unless the caller decodes it.
+ * <p>
+ * An address consists of the slot of the segment in an in-memory table, a generation of that slot and the position
+ * of the record in the segment. Slots of segments removed by a compaction are reused for new ones with the next
+ * generation, so that the table doesn't grow with the number of compactions and stale addresses are still detected.
+ * <p>
+ * Every record is prefixed with its length and a CRC32 checksum of its payload. The length is written last, so that a
+ * record torn by a crash is ignored on the next start. Appended records are written to the file by the operating
+ * system eventually, {@link #flush()} forces them to disk.
+ * <p>
+ * Compaction rewrites the sealed segments, keeping only the records considered live. Adjacent segments are merged as
+ * long as their live records fit into a single segment. The merged segment replaces the last segment of the group
+ * atomically before the others are removed, so that the log stays consistent if the process dies halfway.
+ * 
+ * @author Oliver Gierke
+ */
+class SegmentLog implements Closeable {
+
+	static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	static final String DIRECTORY_PROPERTY = "sample.data.directory";
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int HEADER_SIZE = 8;
+	private static final String SUFFIX = ".log";
+	private static final String COMPACTION_SUFFIX = ".compact";
+	private static final int COMPACTION_THRESHOLD = 4;
+	private static final int MAX_SLOTS = 0xFFFF;
+
+	private final File directory;
+	private final int segmentSize;
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	private volatile Segment[] slots = new Segment[0];
+	private int[] generations = new int[0];
+	private Segment active;
+	private int rolledSinceCompaction;
+
+	/**
+	 * Opens the log stored in the given directory, creating the directory if necessary.
+	 * 
+	 * @param directory must not be {@literal null}.
+	 * @param segmentSize the size of a segment file in bytes, must be greater than the record header.
+	 */
+	SegmentLog(File directory, int segmentSize) {
+
+		Assert.notNull(directory, "Directory must not be null!");
+		Assert.isTrue(segmentSize > HEADER_SIZE, "Segment size must be greater than " + HEADER_SIZE + "!");
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalStateException("Could not create directory " + directory);
+		}
+
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+
+		try {
+			open();
+		} catch (IOException o_O) {
+			throw new IllegalStateException("Could not open log in " + directory, o_O);
+		}
+	}
+
+	/**
+	 * Appends the given payload to the log.
+	 * 
+	 * @param payload must not be {@literal null} or empty.
+	 * @return the address of the record.
+	 */
+	synchronized long append(byte[] payload) {
+
+		Assert.isTrue(payload != null && payload.length > 0, "Payload must not be null or empty!");
+		Assert.isTrue(payload.length <= segmentSize - HEADER_SIZE, "Payload exceeds segment size!");
+
+		if (active.position + HEADER_SIZE + payload.length > segmentSize) {
+			roll();
+		}
+
+		int position = active.position;
+
+		CRC32 checksum = new CRC32();
+		checksum.update(payload);
+
+		ByteBuffer buffer = active.buffer.duplicate();
+		buffer.position(position + HEADER_SIZE);
+		buffer.put(payload);
+
+		active.buffer.putInt(position + 4, (int) checksum.getValue());
+		active.buffer.putInt(position, payload.length);
+		active.position = position + HEADER_SIZE + payload.length;
+
+		return address(active, position);
+	}
+
+	/**
+	 * Returns a read-only view of the payload of the record with the given address. The view is only valid until the
+	 * record is moved by a compaction, so callers shouldn't hold on to it.
+	 * 
+	 * @param address
+	 * @return the payload or {@literal null} if the record has been moved by a compaction in the meantime.
+	 */
+	ByteBuffer read(long address) {
+
+		Segment[] slots = this.slots;
+		int slot = (int) (address >>> 32) & MAX_SLOTS;
+		Segment segment = slot < slots.length ? slots[slot] : null;
+
+		if (segment == null || segment.generation != (int) (address >>> 48)) {
+			return null;
+		}
+
+		int position = (int) address;
+		int length = segment.view.getInt(position);
+
+		ByteBuffer payload = segment.view.duplicate();
+		payload.limit(position + HEADER_SIZE + length).position(position + HEADER_SIZE);
+
+		return payload.slice();
+	}
+
+	/**
+	 * Hands all records of the log to the given {@link RecordHandler} in the order they were appended.
+	 * 
+	 * @param handler must not be {@literal null}.
+	 */
+	synchronized void replay(RecordHandler handler) {
+
+		Assert.notNull(handler, "RecordHandler must not be null!");
+
+		for (Segment segment : segments) {
+
+			int position = 0;
+
+			while (position < segment.position) {
+
+				int length = segment.view.getInt(position);
+				long address = address(segment, position);
+
+				handler.handle(address, read(address));
+				position += HEADER_SIZE + length;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether enough segments were rolled since the last compaction to make another one worthwhile.
+	 * 
+	 * @return
+	 */
+	synchronized boolean needsCompaction() {
+		return rolledSinceCompaction >= COMPACTION_THRESHOLD;
+	}
+
+	/**
+	 * Rewrites the sealed segments keeping only the records the given {@link Compaction} considers live and notifies it
+	 * about the new addresses of the records moved. Callers have to make sure the liveness of records doesn't change
+	 * while the compaction runs.
+	 * 
+	 * @param compaction must not be {@literal null}.
+	 */
+	synchronized void compact(Compaction compaction) {
+
+		Assert.notNull(compaction, "Compaction must not be null!");
+
+		List<Segment> group = new ArrayList<Segment>();
+		List<int[]> groupRecords = new ArrayList<int[]>();
+		long groupSize = 0;
+		boolean groupHasGarbage = false;
+
+		for (Segment segment : new ArrayList<Segment>(segments)) {
+
+			if (segment == active) {
+				break;
+			}
+
+			int[] live = liveRecords(segment, compaction);
+			long liveSize = sizeOf(segment, live);
+
+			if (!group.isEmpty() && groupSize + liveSize > segmentSize) {
+
+				rewrite(group, groupRecords, groupHasGarbage, compaction);
+
+				group.clear();
+				groupRecords.clear();
+				groupSize = 0;
+				groupHasGarbage = false;
+			}
+
+			group.add(segment);
+			groupRecords.add(live);
+			groupSize += liveSize;
+			groupHasGarbage |= liveSize < segment.view.limit();
+		}
+
+		if (!group.isEmpty()) {
+			rewrite(group, groupRecords, groupHasGarbage, compaction);
+		}
+
+		rolledSinceCompaction = 0;
+	}
+
+	/**
+	 * Forces all records appended to disk.
+	 */
+	synchronized void flush() {
+		active.buffer.force();
+	}
+
+	/**
+	 * Returns the number of segments the log currently consists of.
+	 * 
+	 * @return
+	 */
+	synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Returns the number of slots of the segment table, including the ones currently unused.
+	 * 
+	 * @return
+	 */
+	int getSlotCount() {
+		return slots.length;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() {
+		flush();
+	}
+
+	/**
+	 * Returns the directory to store the log with the given name in. Resolves the base directory from the
+	 * {@value #DIRECTORY_PROPERTY} property and falls back to a folder in the temporary directory.
+	 * 
+	 * @param environment must not be {@literal null}.
+	 * @param name must not be {@literal null} or empty.
+	 * @return
+	 */
+	static File directory(Environment environment, String name) {
+
+		String fallback = new File(System.getProperty("java.io.tmpdir"), "spring-hateoas-sample").getPath();
+		return new File(environment.getProperty(DIRECTORY_PROPERTY, fallback), name);
+	}
+
+	/**
+	 * Writes the given {@link String} to the given {@link ByteBuffer} prefixed with its length.
+	 * 
+	 * @param buffer must not be {@literal null}.
+	 * @param value must not be {@literal null}.
+	 */
+	static void putString(ByteBuffer buffer, String value) {
+
+		byte[] bytes = value.getBytes(UTF_8);
+		buffer.putInt(bytes.length).put(bytes);
+	}
+
+	/**
+	 * Reads a {@link String} written by {@link #putString(ByteBuffer, String)} from the given {@link ByteBuffer}.
+	 * 
+	 * @param buffer must not be {@literal null}.
+	 * @return
+	 */
+	static String getString(ByteBuffer buffer) {
+
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * Returns the number of bytes {@link #putString(ByteBuffer, String)} will write for the given {@link String}.
+	 * 
+	 * @param value must not be {@literal null}.
+	 * @return
+	 */
+	static int sizeOf(String value) {
+		return 4 + value.getBytes(UTF_8).length;
+	}
+
+	private void open() throws IOException {
+
+		for (File file : directory.listFiles(new SuffixFilter(COMPACTION_SUFFIX))) {
+			Files.delete(file.toPath());
+		}
+
+		File[] files = directory.listFiles(new SuffixFilter(SUFFIX));
+		long[] ids = new long[files.length];
+
+		for (int i = 0; i < files.length; i++) {
+			String name = files[i].getName();
+			ids[i] = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+		}
+
+		Arrays.sort(ids);
+
+		for (long id : ids) {
+
+			File file = fileFor(id, SUFFIX);
+			Segment segment = register(id, file, map(file, file.length()));
+			segments.add(segment);
+		}
+
+		Segment last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+
+		for (Segment segment : segments) {
+			segment.position = validate(segment, segment == last);
+		}
+
+		if (last != null && last.view.limit() == segmentSize) {
+			this.active = last;
+		} else {
+			roll();
+		}
+
+		this.rolledSinceCompaction = 0;
+	}
+
+	/**
+	 * Verifies the checksums of all records of the given {@link Segment} and returns the end of the last valid one. A
+	 * torn record is only tolerated at the end of the last {@link Segment}.
+	 * 
+	 * @param segment
+	 * @param last
+	 * @return
+	 */
+	private int validate(Segment segment, boolean last) {
+
+		ByteBuffer view = segment.view;
+		int limit = view.limit();
+		int position = 0;
+		CRC32 checksum = new CRC32();
+		byte[] bytes = new byte[0];
+
+		while (position + HEADER_SIZE <= limit) {
+
+			int length = view.getInt(position);
+
+			if (length == 0) {
+				break;
+			}
+
+			boolean valid = length > 0 && position + HEADER_SIZE + length <= limit;
+
+			if (valid) {
+
+				if (bytes.length < length) {
+					bytes = new byte[length];
+				}
+
+				ByteBuffer payload = view.duplicate();
+				payload.position(position + HEADER_SIZE);
+				payload.get(bytes, 0, length);
+
+				checksum.reset();
+				checksum.update(bytes, 0, length);
+				valid = (int) checksum.getValue() == view.getInt(position + 4);
+			}
+
+			if (!valid) {
+
+				if (last) {
+					clear(segment, position);
+					break;
+				}
+
+				throw new IllegalStateException(String.format("Corrupt record at position %s of %s!", position,
+						segment.file));
+			}
+
+			position += HEADER_SIZE + length;
+		}
+
+		return position;
+	}
+
+	/**
+	 * Zeroes the given {@link Segment} from the given position on, so that appended records aren't confused with the
+	 * remainders of a torn one.
+	 * 
+	 * @param segment
+	 * @param position
+	 */
+	private static void clear(Segment segment, int position) {
+
+		for (int i = position; i < segment.buffer.limit(); i++) {
+			segment.buffer.put(i, (byte) 0);
+		}
+	}
+
+	private void roll() {
+
+		if (active != null) {
+			active.buffer.force();
+			rolledSinceCompaction++;
+		}
+
+		long id = segments.isEmpty() ? 0 : segments.get(segments.size() - 1).id + 1;
+		File file = fileFor(id, SUFFIX);
+
+		try {
+
+			Segment segment = register(id, file, map(file, segmentSize));
+			segments.add(segment);
+
+			this.active = segment;
+
+		} catch (IOException o_O) {
+			throw new IllegalStateException("Could not create segment " + file, o_O);
+		}
+	}
+
+	private int[] liveRecords(Segment segment, Compaction compaction) {
+
+		int[] positions = new int[16];
+		int count = 0;
+		int position = 0;
+		int end = segment.position;
+
+		while (position < end) {
+
+			long address = address(segment, position);
+
+			if (compaction.isLive(address, read(address))) {
+
+				if (count == positions.length) {
+					positions = Arrays.copyOf(positions, count * 2);
+				}
+
+				positions[count++] = position;
+			}
+
+			position += HEADER_SIZE + segment.view.getInt(position);
+		}
+
+		return Arrays.copyOf(positions, count);
+	}
+
+	private static long sizeOf(Segment segment, int[] positions) {
+
+		long size = 0;
+
+		for (int position : positions) {
+			size += HEADER_SIZE + segment.view.getInt(position);
+		}
+
+		return size;
+	}
+
+	/**
+	 * Replaces the given group of adjacent segments by a single one containing the given live records. The new segment
+	 * takes the place of the last segment of the group. Groups consisting of a single segment without garbage are left
+	 * untouched.
+	 * 
+	 * @param group
+	 * @param records
+	 * @param hasGarbage
+	 * @param compaction
+	 */
+	private void rewrite(List<Segment> group, List<int[]> records, boolean hasGarbage, Compaction compaction) {
+
+		if (group.size() == 1 && !hasGarbage) {
+			return;
+		}
+
+		Segment last = group.get(group.size() - 1);
+		Segment replacement = null;
+
+		try {
+
+			long size = 0;
+
+			for (int i = 0; i < group.size(); i++) {
+				size += sizeOf(group.get(i), records.get(i));
+			}
+
+			if (size == 0) {
+				Files.delete(last.file.toPath());
+			} else {
+
+				File temporary = fileFor(last.id, COMPACTION_SUFFIX);
+				FileOutputStream stream = new FileOutputStream(temporary);
+
+				try {
+
+					FileChannel channel = stream.getChannel();
+
+					for (int i = 0; i < group.size(); i++) {
+
+						Segment segment = group.get(i);
+
+						for (int position : records.get(i)) {
+
+							ByteBuffer record = segment.view.duplicate();
+							record.limit(position + HEADER_SIZE + segment.view.getInt(position)).position(position);
+
+							while (record.hasRemaining()) {
+								channel.write(record);
+							}
+						}
+					}
+
+					channel.force(true);
+
+				} finally {
+					stream.close();
+				}
+
+				Files.move(temporary.toPath(), last.file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+
+				replacement = register(last.id, last.file, map(last.file, size));
+				replacement.position = (int) size;
+			}
+
+			int target = 0;
+
+			for (int i = 0; i < group.size(); i++) {
+
+				Segment segment = group.get(i);
+
+				for (int position : records.get(i)) {
+
+					long from = address(segment, position);
+					long to = address(replacement, target);
+
+					compaction.moved(from, to, read(to));
+					target += HEADER_SIZE + segment.view.getInt(position);
+				}
+			}
+
+			int index = segments.indexOf(group.get(0));
+			segments.removeAll(group);
+
+			if (replacement != null) {
+				segments.add(index, replacement);
+			}
+
+			for (Segment segment : group) {
+
+				unregister(segment);
+
+				if (segment != last) {
+					Files.delete(segment.file.toPath());
+				}
+			}
+
+		} catch (IOException o_O) {
+			throw new IllegalStateException("Could not compact segments up to " + last.file, o_O);
+		}
+	}
+
+	private MappedByteBuffer map(File file, long size) throws IOException {
+
+		RandomAccessFile access = new RandomAccessFile(file, "rw");
+
+		try {
+
+			if (access.length() < size) {
+				access.setLength(size);
+			}
+
+			return access.getChannel().map(MapMode.READ_WRITE, 0, size);
+
+		} finally {
+			access.close();
+		}
+	}
+
+	private File fileFor(long id, String suffix) {
+		return new File(directory, String.format("%020d%s", id, suffix));
+	}
+
+	/**
+	 * Creates a {@link Segment} for the given file and registers it in the first free slot. A reused slot gets the next
+	 * generation, so that addresses of the {@link Segment} previously registered in it are not resolved anymore.
+	 * 
+	 * @param id
+	 * @param file
+	 * @param buffer
+	 * @return
+	 */
+	private Segment register(long id, File file, MappedByteBuffer buffer) {
+
+		Segment[] slots = this.slots;
+		int slot = 0;
+
+		while (slot < slots.length && slots[slot] != null) {
+			slot++;
+		}
+
+		if (slot == slots.length) {
+
+			Assert.state(slot < MAX_SLOTS, "Too many segments!");
+
+			slots = Arrays.copyOf(slots, slot + 1);
+			generations = Arrays.copyOf(generations, slot + 1);
+		} else {
+			slots = slots.clone();
+		}
+
+		Segment segment = new Segment(id, slot, generations[slot], file, buffer);
+		slots[slot] = segment;
+
+		this.slots = slots;
+
+		return segment;
+	}
+
+	private void unregister(Segment segment) {
+
+		Segment[] slots = this.slots.clone();
+		slots[segment.slot] = null;
+		generations[segment.slot] = (segment.generation + 1) & 0xFFFF;
+
+		this.slots = slots;
+	}
+
+	private static long address(Segment segment, int position) {
+		return (long) segment.generation << 48 | (long) segment.slot << 32 | position;
+	}
+
+	/**
+	 * Callback to process the records of the log.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	interface RecordHandler {
+
+		/**
+		 * Handles the record with the given address and payload.
+		 * 
+		 * @param address
+		 * @param payload a read-only view of the payload, only valid during the invocation.
+		 */
+		void handle(long address, ByteBuffer payload);
+	}
+
+	/**
+	 * Callback to determine which records to keep during a compaction.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	interface Compaction {
+
+		/**
+		 * Returns whether the record with the given address and payload is still live.
+		 * 
+		 * @param address
+		 * @param payload a read-only view of the payload, only valid during the invocation.
+		 * @return
+		 */
+		boolean isLive(long address, ByteBuffer payload);
+
+		/**
+		 * Notifies about a live record being moved to a new address.
+		 * 
+		 * @param from the previous address of the record.
+		 * @param to the new address of the record.
+		 * @param payload a read-only view of the payload, only valid during the invocation.
+		 */
+		void moved(long from, long to, ByteBuffer payload);
+	}
+
+	private static class Segment {
+
+		final long id;
+		final int slot;
+		final int generation;
+		final File file;
+		final MappedByteBuffer buffer;
+		final ByteBuffer view;
+		int position;
+
+		Segment(long id, int slot, int generation, File file, MappedByteBuffer buffer) {
+
+			this.id = id;
+			this.slot = slot;
+			this.generation = generation;
+			this.file = file;
+			this.buffer = buffer;
+			this.view = buffer.asReadOnlyBuffer();
+		}
+	}
+
+	private static class SuffixFilter implements FilenameFilter {
+
+		private final String suffix;
+
+		SuffixFilter(String suffix) {
+			this.suffix = suffix;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.io.FilenameFilter#accept(java.io.File, java.lang.String)
+		 */
+		@Override
+		public boolean accept(File dir, String name) {
+			return name.endsWith(suffix);
+		}
+	}
+}
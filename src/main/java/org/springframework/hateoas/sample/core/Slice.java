@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.util.Collections;
+import java.util.List;
+
+import lombok.Getter;
+
+import org.springframework.util.Assert;
+
+/**
+ * A page of elements obtained for a {@link Cursor}.
+ * 
+ * @author Oliver Gierke
+ */
+public class Slice<T> {
+
+	private final @Getter List<T> content;
+	private final @Getter Cursor cursor;
+	private final boolean hasNext;
+
+	private Slice(List<T> content, Cursor cursor, boolean hasNext) {
+
+		this.content = content;
+		this.cursor = cursor;
+		this.hasNext = hasNext;
+	}
+
+	/**
+	 * Creates a {@link Slice} of the given elements for the given {@link Cursor}. Only accesses the elements within the
+	 * page, so that the given {@link List} should allow random access.
+	 * 
+	 * @param elements must not be {@literal null}.
+	 * @param cursor must not be {@literal null}.
+	 * @return
+	 */
+	public static <T> Slice<T> of(List<T> elements, Cursor cursor) {
+
+		Assert.notNull(elements, "Elements must not be null!");
+		Assert.notNull(cursor, "Cursor must not be null!");
+
+		int total = elements.size();
+		int from = Math.min(cursor.getPosition(), total);
+		int to = (int) Math.min((long) from + cursor.getSize(), total);
+
+		return new Slice<T>(Collections.unmodifiableList(elements.subList(from, to)), cursor, to < total);
+	}
+
+	/**
+	 * Creates a {@link Slice} with the given content for the given {@link Cursor}. Meant for content looked up for the
+	 * {@link Cursor} already.
+	 * 
+	 * @param content must not be {@literal null}.
+	 * @param cursor must not be {@literal null}.
+	 * @param hasNext whether there are elements following the given content.
+	 * @return
+	 */
+	public static <T> Slice<T> of(List<T> content, Cursor cursor, boolean hasNext) {
+
+		Assert.notNull(content, "Content must not be null!");
+		Assert.notNull(cursor, "Cursor must not be null!");
+
+		return new Slice<T>(Collections.unmodifiableList(content), cursor, hasNext);
+	}
+
+	/**
+	 * Returns whether there's a {@link Slice} following this one.
+	 * 
+	 * @return
+	 */
+	public boolean hasNext() {
+		return hasNext;
+	}
+
+	/**
+	 * Returns whether there's a {@link Slice} preceding this one.
+	 * 
+	 * @return
+	 */
+	public boolean hasPrevious() {
+		return cursor.getPosition() > 0;
+	}
+
+	/**
+	 * Returns the {@link Cursor} for the next {@link Slice} or {@literal null} if this is the last one.
+	 * 
+	 * @return
+	 */
+	public Cursor getNext() {
+		return hasNext ? cursor.next() : null;
+	}
+
+	/**
+	 * Returns the {@link Cursor} for the previous {@link Slice} or {@literal null} if this is the first one.
+	 * 
+	 * @return
+	 */
+	public Cursor getPrevious() {
+		return cursor.previous();
+	}
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.util.Assert;
+
+/**
+ * Binary snapshot of {@link Customer}s and {@link Order}s. Names are stored in dictionaries and referred to by index,
+ * {@link Customer} records have a fixed size and {@link Order} records are grouped into chunks of known size. Thus a
+ * snapshot can be decoded chunk by chunk in parallel straight from the memory-mapped file. {@link LineItem}s with the
+ * same name are shared between the {@link Order}s decoded.
+ * <p>
+ * Layout: magic, format version, the name and the product dictionaries, the number of {@link Customer}s followed by
+ * their records, the number of {@link Order} chunks followed by the record count and size of every chunk, the
+ * {@link Order} records.
+ * 
+ * @author Oliver Gierke
+ */
+class Snapshot {
+
+	private static final int MAGIC = 0x48534e50;
+	private static final int FORMAT_VERSION = 1;
+	private static final int CHUNK_SIZE = 64 * 1024;
+	private static final int CUSTOMER_RECORD_SIZE = 24;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final ByteBuffer buffer;
+	private final String[] names;
+	private final LineItem[] products;
+	private final int customersStart;
+
+	private Snapshot(ByteBuffer buffer) {
+
+		this.buffer = buffer;
+		this.names = readDictionary(buffer);
+
+		String[] productNames = readDictionary(buffer);
+		this.products = new LineItem[productNames.length];
+
+		for (int i = 0; i < productNames.length; i++) {
+			this.products[i] = new LineItem(productNames[i]);
+		}
+
+		this.customersStart = buffer.position();
+	}
+
+	/**
+	 * Opens the snapshot stored in the given file by mapping it into memory and reading the dictionaries.
+	 * 
+	 * @param file must not be {@literal null}.
+	 * @return
+	 * @throws IOException if the file is not a snapshot.
+	 */
+	static Snapshot open(File file) throws IOException {
+
+		Assert.notNull(file, "File must not be null!");
+
+		RandomAccessFile access = new RandomAccessFile(file, "r");
+		ByteBuffer buffer;
+
+		try {
+			buffer = access.getChannel().map(MapMode.READ_ONLY, 0, access.length());
+		} finally {
+			access.close();
+		}
+
+		if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+			throw new IOException("Unsupported snapshot format in " + file);
+		}
+
+		return new Snapshot(buffer);
+	}
+
+	/**
+	 * Decodes the {@link Customer}s of the snapshot, a chunk per task submitted to the given {@link ExecutorService}.
+	 * 
+	 * @param executor must not be {@literal null}.
+	 * @return
+	 * @throws IOException
+	 */
+	List<Customer> readCustomers(ExecutorService executor) throws IOException {
+
+		final int count = buffer.getInt(customersStart);
+		List<Callable<Customer[]>> tasks = new ArrayList<Callable<Customer[]>>();
+
+		// Customer records have a fixed size, so the chunks can be located directly
+		for (int start = 0; start < count; start += CHUNK_SIZE) {
+
+			final int offset = customersStart + 4 + start * CUSTOMER_RECORD_SIZE;
+			final int size = Math.min(CHUNK_SIZE, count - start);
+
+			tasks.add(new Callable<Customer[]>() {
+
+				@Override
+				public Customer[] call() {
+
+					ByteBuffer chunk = buffer.duplicate();
+					chunk.position(offset);
+
+					Customer[] result = new Customer[size];
+
+					for (int i = 0; i < size; i++) {
+
+						long id = chunk.getLong();
+						long version = chunk.getLong();
+
+						result[i] = new Customer(id, names[chunk.getInt()], names[chunk.getInt()], version);
+					}
+
+					return result;
+				}
+			});
+		}
+
+		return invokeAll(executor, tasks, count);
+	}
+
+	/**
+	 * Decodes the {@link Order}s of the snapshot, a chunk per task submitted to the given {@link ExecutorService}. The
+	 * {@link Customer}s of the {@link Order}s are looked up from the given {@link Customers}.
+	 * 
+	 * @param executor must not be {@literal null}.
+	 * @param customers must not be {@literal null}.
+	 * @return
+	 * @throws IOException
+	 */
+	List<Order> readOrders(ExecutorService executor, final Customers customers) throws IOException {
+
+		ByteBuffer table = buffer.duplicate();
+		table.position(customersStart);
+		table.position(customersStart + 4 + table.getInt() * CUSTOMER_RECORD_SIZE);
+
+		int chunks = table.getInt();
+		int offset = table.position() + chunks * 8;
+		int count = 0;
+		List<Callable<Order[]>> tasks = new ArrayList<Callable<Order[]>>(chunks);
+
+		// Order records vary in size, so the chunks are located via the chunk table
+		for (int i = 0; i < chunks; i++) {
+
+			final int start = offset;
+			final int size = table.getInt();
+
+			tasks.add(new Callable<Order[]>() {
+
+				@Override
+				public Order[] call() {
+
+					ByteBuffer chunk = buffer.duplicate();
+					chunk.position(start);
+
+					Order[] result = new Order[size];
+
+					for (int i = 0; i < size; i++) {
+
+						long id = chunk.getLong();
+						long version = chunk.getLong();
+						Customer customer = customers.findOne(chunk.getLong());
+						LineItem[] lineItems = new LineItem[chunk.getInt()];
+
+						for (int j = 0; j < lineItems.length; j++) {
+							lineItems[j] = products[chunk.getInt()];
+						}
+
+						result[i] = new Order(id, customer, Arrays.asList(lineItems), version);
+					}
+
+					return result;
+				}
+			});
+
+			offset += table.getInt();
+			count += size;
+		}
+
+		return invokeAll(executor, tasks, count);
+	}
+
+	/**
+	 * Writes a snapshot of the given {@link Customer}s and {@link Order}s to the given file. The snapshot is written to a
+	 * temporary file first and moved to the given one once complete. All {@link Customer}s referred to by the
+	 * {@link Order}s have to be contained in the given ones.
+	 * 
+	 * @param file must not be {@literal null}.
+	 * @param customers must not be {@literal null}.
+	 * @param orders must not be {@literal null}.
+	 * @throws IOException
+	 */
+	static void write(File file, List<Customer> customers, List<Order> orders) throws IOException {
+
+		Assert.notNull(file, "File must not be null!");
+		Assert.notNull(customers, "Customers must not be null!");
+		Assert.notNull(orders, "Orders must not be null!");
+
+		Dictionary names = new Dictionary();
+		Dictionary products = new Dictionary();
+
+		for (Customer customer : customers) {
+			names.add(customer.getFirstname());
+			names.add(customer.getLastname());
+		}
+
+		int chunks = (orders.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		int[] chunkSizes = new int[chunks];
+
+		for (int i = 0; i < orders.size(); i++) {
+
+			List<LineItem> lineItems = orders.get(i).getLineItems();
+			chunkSizes[i / CHUNK_SIZE] += 28 + 4 * lineItems.size();
+
+			for (LineItem item : lineItems) {
+				products.add(item.getName());
+			}
+		}
+
+		File temporary = new File(file.getPath() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16));
+
+		try {
+
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+
+			names.writeTo(out);
+			products.writeTo(out);
+
+			out.writeInt(customers.size());
+
+			for (Customer customer : customers) {
+				out.writeLong(customer.getId());
+				out.writeLong(customer.getVersion());
+				out.writeInt(names.indexOf(customer.getFirstname()));
+				out.writeInt(names.indexOf(customer.getLastname()));
+			}
+
+			out.writeInt(chunks);
+
+			for (int i = 0; i < chunks; i++) {
+				out.writeInt(Math.min(CHUNK_SIZE, orders.size() - i * CHUNK_SIZE));
+				out.writeInt(chunkSizes[i]);
+			}
+
+			for (Order order : orders) {
+
+				List<LineItem> lineItems = order.getLineItems();
+
+				out.writeLong(order.getId());
+				out.writeLong(order.getVersion());
+				out.writeLong(order.getCustomer().getId());
+				out.writeInt(lineItems.size());
+
+				for (LineItem item : lineItems) {
+					out.writeInt(products.indexOf(item.getName()));
+				}
+			}
+
+		} finally {
+			out.close();
+		}
+
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+				StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T[]>> tasks, int size)
+			throws IOException {
+
+		List<T> result = new ArrayList<T>(size);
+
+		try {
+
+			for (Future<T[]> chunk : executor.invokeAll(tasks)) {
+				result.addAll(Arrays.asList(chunk.get()));
+			}
+
+		} catch (InterruptedException o_O) {
+
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted reading snapshot!", o_O);
+
+		} catch (ExecutionException o_O) {
+			throw new IOException("Could not read snapshot!", o_O.getCause());
+		}
+
+		return result;
+	}
+
+	private static String[] readDictionary(ByteBuffer buffer) {
+
+		String[] result = new String[buffer.getInt()];
+
+		for (int i = 0; i < result.length; i++) {
+
+			byte[] bytes = new byte[buffer.getInt()];
+			buffer.get(bytes);
+
+			result[i] = new String(bytes, UTF_8);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Assigns indexes to {@link String}s in the order they're added.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class Dictionary {
+
+		private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+		private final List<String> values = new ArrayList<String>();
+
+		void add(String value) {
+
+			if (!indexes.containsKey(value)) {
+				indexes.put(value, values.size());
+				values.add(value);
+			}
+		}
+
+		int indexOf(String value) {
+			return indexes.get(value);
+		}
+
+		void writeTo(DataOutputStream out) throws IOException {
+
+			out.writeInt(values.size());
+
+			for (String value : values) {
+
+				byte[] bytes = value.getBytes(UTF_8);
+
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+}
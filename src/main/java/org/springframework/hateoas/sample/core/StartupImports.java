@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.hateoas.sample.core.BulkImporter.Format;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+
+/**
+ * Imports the NDJSON and CSV files configured via {@value #FILES_PROPERTY} as comma separated list on startup using the
+ * {@link BulkImporter}. The {@link Format} of a file is derived from its extension. Records already registered, e.g.
+ * restored from a snapshot, are skipped, so the files can stay configured across restarts.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+class StartupImports implements InitializingBean {
+
+	static final String FILES_PROPERTY = "sample.import.files";
+
+	private final BulkImporter importer;
+	private final String[] files;
+
+	/**
+	 * Creates a new {@link StartupImports} for the given {@link BulkImporter} using the files configured in the given
+	 * {@link Environment}.
+	 * 
+	 * @param importer must not be {@literal null}.
+	 * @param environment must not be {@literal null}.
+	 */
+	@Autowired
+	public StartupImports(BulkImporter importer, Environment environment) {
+
+		Assert.notNull(importer, "BulkImporter must not be null!");
+		Assert.notNull(environment, "Environment must not be null!");
+
+		this.importer = importer;
+		this.files = StringUtils.commaDelimitedListToStringArray(environment.getProperty(FILES_PROPERTY, ""));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.InitializingBean#afterPropertiesSet()
+	 */
+	@Override
+	public void afterPropertiesSet() throws Exception {
+
+		for (String name : files) {
+
+			File file = new File(name.trim());
+			Format format = Format.forFilename(file.getName());
+
+			if (format == null || !file.isFile()) {
+				throw new IllegalStateException(String.format("Cannot import %s, expected an existing .ndjson, .json or "
+						+ ".csv file!", file));
+			}
+
+			InputStream stream = new FileInputStream(file);
+
+			try {
+				importer.importFrom(stream, format);
+			} finally {
+				stream.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.util.Collection;
+
+import org.springframework.hateoas.Link;
+
+/**
+ * Helper to expose batches of resources looked up by a list of ids in a single request.
+ * 
+ * @author Oliver Gierke
+ */
+class Batches {
+
+	static final String IDS_PARAMETER = "ids";
+	static final int MAX_SIZE = Pagination.MAX_SIZE;
+
+	private Batches() {}
+
+	/**
+	 * Returns whether the given ids can be looked up in a single batch, i.e. don't exceed {@value #MAX_SIZE}.
+	 * 
+	 * @param ids must not be {@literal null}.
+	 * @return
+	 */
+	static boolean isValid(Collection<Long> ids) {
+		return ids.size() <= MAX_SIZE;
+	}
+
+	/**
+	 * Creates the {@code self} {@link Link} for the batch of the given ids of the collection resource with the given
+	 * {@link LinkTemplate}.
+	 * 
+	 * @param template the {@link LinkTemplate} of the collection resource, must not be {@literal null}.
+	 * @param ids must not be {@literal null}.
+	 * @return
+	 */
+	static Link selfLink(LinkTemplate template, Collection<Long> ids) {
+
+		String uri = template.expand();
+		StringBuilder builder = new StringBuilder(uri.length() + 8 + ids.size() * 8).append(uri);
+		builder.append('?').append(IDS_PARAMETER).append('=');
+
+		boolean first = true;
+
+		for (Long id : ids) {
+
+			if (!first) {
+				builder.append(',');
+			}
+
+			builder.append(id);
+			first = false;
+		}
+
+		return new Link(builder.toString(), Link.REL_SELF);
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.sample.core.ChangeLog;
+import org.springframework.http.MediaType;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.WebRequest;
+
+/**
+ * Helper to expose the {@link ChangeLog} of the {@link org.springframework.hateoas.sample.core.Orders} as a feed of the
+ * {@link org.springframework.hateoas.sample.core.Order}s changed after a given sequence number. The feed is rendered as
+ * HAL or, for clients asking for an event stream, as a single server-sent event. The connection is closed after every
+ * event and {@code EventSource} clients resume from the id of the last event they received when reconnecting, so that
+ * no thread or connection is held between changes.
+ * 
+ * @author Oliver Gierke
+ */
+class ChangeFeed {
+
+	static final String SINCE_PARAMETER = "since";
+	static final String CUSTOMER_PARAMETER = "customer";
+	static final String WAIT_PARAMETER = "wait";
+	static final String REL = "changes";
+	static final String LAST_EVENT_ID = "Last-Event-ID";
+	static final MediaType EVENT_STREAM = MediaType.valueOf("text/event-stream;charset=UTF-8");
+	static final int MAX_SIZE = Pagination.MAX_SIZE;
+	static final int MAX_WAIT = 30;
+
+	private static final String ACCEPT = "Accept";
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private ChangeFeed() {}
+
+	/**
+	 * Returns the number of seconds to wait for changes if there are none yet, limited to {@value #MAX_WAIT}. Event
+	 * stream clients always wait as long as possible.
+	 * 
+	 * @param requested the number of seconds requested.
+	 * @param eventStream whether the client asked for an event stream.
+	 * @return
+	 */
+	static int getWait(int requested, boolean eventStream) {
+		return eventStream ? MAX_WAIT : Math.min(Math.max(0, requested), MAX_WAIT);
+	}
+
+	/**
+	 * Creates a {@link Link} with the given rel to the changes after the given sequence number.
+	 * 
+	 * @param template the {@link LinkTemplate} of the feed, must not be {@literal null}.
+	 * @param since the sequence number.
+	 * @param customerId the id of the {@link org.springframework.hateoas.sample.core.Customer} to restrict the changes
+	 *          to, can be {@literal null}.
+	 * @param rel must not be {@literal null} or empty.
+	 * @return
+	 */
+	static Link createLink(LinkTemplate template, long since, Long customerId, String rel) {
+
+		String uri = template.expand();
+		StringBuilder builder = new StringBuilder(uri.length() + 40).append(uri);
+		builder.append('?').append(SINCE_PARAMETER).append('=').append(since);
+
+		if (customerId != null) {
+			builder.append('&').append(CUSTOMER_PARAMETER).append('=').append(customerId);
+		}
+
+		return new Link(builder.toString(), rel);
+	}
+
+	/**
+	 * Returns whether the {@code Accept} header of the given {@link WebRequest} explicitly asks for an event stream.
+	 * 
+	 * @param request must not be {@literal null}.
+	 * @return
+	 */
+	static boolean isEventStreamRequested(WebRequest request) {
+
+		Assert.notNull(request, "WebRequest must not be null!");
+
+		String accept = request.getHeader(ACCEPT);
+
+		if (!StringUtils.hasText(accept)) {
+			return false;
+		}
+
+		List<MediaType> types;
+
+		try {
+			types = MediaType.parseMediaTypes(accept);
+		} catch (IllegalArgumentException o_O) {
+			return false;
+		}
+
+		for (MediaType type : types) {
+			if (type.getQualityValue() > 0 && EVENT_STREAM.getType().equals(type.getType())
+					&& EVENT_STREAM.getSubtype().equals(type.getSubtype())) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the sequence number an {@code EventSource} client reconnecting resumes from or {@literal null} if the
+	 * given {@link WebRequest} doesn't carry a valid one.
+	 * 
+	 * @param request must not be {@literal null}.
+	 * @return
+	 */
+	static Long getLastEventId(WebRequest request) {
+
+		Assert.notNull(request, "WebRequest must not be null!");
+
+		String lastEventId = request.getHeader(LAST_EVENT_ID);
+
+		if (!StringUtils.hasText(lastEventId)) {
+			return null;
+		}
+
+		try {
+			return Long.valueOf(lastEventId.trim());
+		} catch (NumberFormatException o_O) {
+			return null;
+		}
+	}
+
+	/**
+	 * Renders the given data as a server-sent event with the given sequence number as id. The data must not contain line
+	 * breaks, which holds for JSON rendered without indentation.
+	 * 
+	 * @param sequence the sequence number to resume from.
+	 * @param event the name of the event, must not be {@literal null}.
+	 * @param data must not be {@literal null}.
+	 * @return
+	 */
+	static byte[] toEvent(long sequence, String event, byte[] data) {
+
+		byte[] head = new StringBuilder(40).append("id: ").append(sequence).append("\nevent: ").append(event)
+				.append("\ndata: ").toString().getBytes(UTF_8);
+
+		byte[] result = new byte[head.length + data.length + 2];
+
+		System.arraycopy(head, 0, result, 0, head.length);
+		System.arraycopy(data, 0, result, head.length, data.length);
+		result[result.length - 2] = '\n';
+		result[result.length - 1] = '\n';
+
+		return result;
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.objenesis.Objenesis;
+import org.objenesis.ObjenesisStd;
+import org.springframework.cglib.proxy.Callback;
+import org.springframework.cglib.proxy.Enhancer;
+import org.springframework.cglib.proxy.Factory;
+import org.springframework.cglib.proxy.MethodInterceptor;
+import org.springframework.cglib.proxy.MethodProxy;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.core.AnnotationMappingDiscoverer;
+import org.springframework.hateoas.core.DummyInvocationUtils.LastInvocationAware;
+import org.springframework.hateoas.core.MappingDiscoverer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Factory for {@link Link}s pointing to controller methods. As opposed to
+ * {@link org.springframework.hateoas.mvc.ControllerLinkBuilder#linkTo(Object)} it resolves the URI template of a
+ * controller method only once, so that building a {@link Link} neither requires a proxy invocation nor inspecting the
+ * request mappings again. The base URI is resolved once per request.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+@Profile("hateoas")
+class ControllerLinkFactory {
+
+	private static final String BASE_URI_ATTRIBUTE = ControllerLinkFactory.class.getName() + ".BASE_URI";
+	private static final MappingDiscoverer DISCOVERER = new AnnotationMappingDiscoverer(RequestMapping.class);
+	private static final Objenesis OBJENESIS = new ObjenesisStd(true);
+
+	private final ConcurrentMap<Method, LinkTemplate> templates = new ConcurrentHashMap<Method, LinkTemplate>();
+
+	/**
+	 * Returns the {@link LinkTemplate} for the controller method invoked on a proxy created via
+	 * {@link org.springframework.hateoas.mvc.ControllerLinkBuilder#methodOn(Class, Object...)}. Meant to be called on
+	 * startup, the arguments handed to the invocation are ignored.
+	 * 
+	 * @param invocationValue must not be {@literal null}.
+	 * @return
+	 */
+	public LinkTemplate templateFor(Object invocationValue) {
+
+		Assert.isInstanceOf(LastInvocationAware.class, invocationValue);
+
+		return templateFor(((LastInvocationAware) invocationValue).getLastInvocation().getMethod());
+	}
+
+	/**
+	 * Returns the {@link LinkTemplate} for the controller method the given {@link Invocation} invokes on a proxy of the
+	 * given controller type. Use this for methods that can't be invoked on a proxy created via
+	 * {@link org.springframework.hateoas.mvc.ControllerLinkBuilder#methodOn(Class, Object...)} as they don't return a
+	 * value. Meant to be called on startup, the arguments handed to the invocation are ignored.
+	 * 
+	 * @param type the controller type, must not be {@literal null}.
+	 * @param invocation must not be {@literal null}.
+	 * @return
+	 */
+	public <T> LinkTemplate templateFor(Class<T> type, Invocation<T> invocation) {
+
+		Assert.notNull(type, "Type must not be null!");
+		Assert.notNull(invocation, "Invocation must not be null!");
+
+		Enhancer enhancer = new Enhancer();
+		enhancer.setSuperclass(type);
+		enhancer.setCallbackType(MethodInterceptor.class);
+
+		MethodRecorder recorder = new MethodRecorder();
+		Factory proxy = (Factory) OBJENESIS.newInstance(enhancer.createClass());
+		proxy.setCallbacks(new Callback[] { recorder });
+
+		try {
+			invocation.invoke(type.cast(proxy));
+		} catch (Exception o_O) {
+			throw new IllegalStateException(o_O);
+		}
+
+		Assert.state(recorder.method != null, "No controller method invoked!");
+
+		return templateFor(recorder.method);
+	}
+
+	private LinkTemplate templateFor(Method method) {
+
+		Assert.notNull(method, "Method must not be null!");
+
+		LinkTemplate template = templates.get(method);
+
+		if (template == null) {
+			template = new LinkTemplate(this, DISCOVERER.getMapping(method));
+			LinkTemplate existing = templates.putIfAbsent(method, template);
+			template = existing == null ? template : existing;
+		}
+
+		return template;
+	}
+
+	/**
+	 * Returns the base URI of the current request, considering an {@code X-Forwarded-Host} header the same way
+	 * {@link org.springframework.hateoas.mvc.ControllerLinkBuilder} does.
+	 * 
+	 * @return
+	 */
+	String getBaseUri() {
+
+		RequestAttributes attributes = RequestContextHolder.currentRequestAttributes();
+		String baseUri = (String) attributes.getAttribute(BASE_URI_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+		if (baseUri == null) {
+			baseUri = createBaseUri(((ServletRequestAttributes) attributes).getRequest());
+			attributes.setAttribute(BASE_URI_ATTRIBUTE, baseUri, RequestAttributes.SCOPE_REQUEST);
+		}
+
+		return baseUri;
+	}
+
+	private static String createBaseUri(HttpServletRequest request) {
+
+		UriComponentsBuilder builder = ServletUriComponentsBuilder.fromServletMapping(request);
+		String header = request.getHeader("X-Forwarded-Host");
+
+		if (StringUtils.hasText(header)) {
+
+			String host = StringUtils.commaDelimitedListToStringArray(header)[0];
+
+			if (host.contains(":")) {
+				String[] parts = StringUtils.split(host, ":");
+				builder.host(parts[0]).port(Integer.parseInt(parts[1]));
+			} else {
+				builder.host(host);
+			}
+		}
+
+		return builder.build().toUriString();
+	}
+
+	/**
+	 * An invocation of a controller method to obtain the {@link LinkTemplate} for.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	public interface Invocation<T> {
+
+		/**
+		 * Invokes the controller method on the given proxy.
+		 * 
+		 * @param controller will never be {@literal null}.
+		 * @throws Exception
+		 */
+		void invoke(T controller) throws Exception;
+	}
+
+	/**
+	 * {@link MethodInterceptor} recording the method invoked last and returning the default value of its return type.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class MethodRecorder implements MethodInterceptor {
+
+		private Method method;
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.cglib.proxy.MethodInterceptor#intercept(java.lang.Object, java.lang.reflect.Method, java.lang.Object[], org.springframework.cglib.proxy.MethodProxy)
+		 */
+		@Override
+		public Object intercept(Object proxy, Method method, Object[] arguments, MethodProxy methodProxy) {
+
+			this.method = method;
+
+			Class<?> type = method.getReturnType();
+			return type.isPrimitive() && type != void.class ? Array.get(Array.newInstance(type, 1), 0) : null;
+		}
+	}
+}
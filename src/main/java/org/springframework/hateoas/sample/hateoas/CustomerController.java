@@ -15,24 +15,51 @@
  */
 package org.springframework.hateoas.sample.hateoas;
 
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import lombok.Data;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.hateoas.EntityLinks;
 import org.springframework.hateoas.ExposesResourceFor;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.sample.ETags;
+import org.springframework.hateoas.sample.RepresentationCache;
+import org.springframework.hateoas.sample.RepresentationCache.Key;
+import org.springframework.hateoas.sample.ResponseCompression;
+import org.springframework.hateoas.sample.core.AsyncCustomers;
 import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Cursor;
 import org.springframework.hateoas.sample.core.Customers;
+import org.springframework.hateoas.sample.core.Orders;
+import org.springframework.hateoas.sample.core.Slice;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.util.UriUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * @author Oliver Gierke
@@ -42,26 +69,354 @@ import org.springframework.web.bind.annotation.RequestMethod;
 @RequestMapping("/customers")
 @ExposesResourceFor(Customer.class)
 @RequiredArgsConstructor(onConstructor = @_(@Autowired))
-public class CustomerController {
+public class CustomerController implements InitializingBean {
+
+	static final String NAME_PARAMETER = "name";
+	static final String PREFIX_PARAMETER = "prefix";
+	static final String DEFAULT_SEARCH_SIZE = "20";
 
 	private final @NonNull Customers customers;
+	private final @NonNull AsyncCustomers asyncCustomers;
+	private final @NonNull Orders orders;
 	private final @NonNull EntityLinks entityLinks;
+	private final @NonNull ControllerLinkFactory links;
+	private final @NonNull CustomerResourceAssembler assembler;
+	private final @NonNull RepresentationCache cache;
+	private final @NonNull ObjectMapper mapper;
+	private final @NonNull HalSmileHttpMessageConverter smileConverter;
+
+	private LinkTemplate customersTemplate, searchTemplate;
 
+	/**
+	 * Resolves the {@link LinkTemplate}s for all links exposed up front.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+
+		this.customersTemplate = links.templateFor(methodOn(CustomerController.class).showCustomers());
+		this.searchTemplate = links.templateFor(methodOn(CustomerController.class).searchByName(null, 0, 0));
+	}
+
+	/**
+	 * Exposes all {@link Customer}s. Looks up the {@link Customer}s asynchronously.
+	 * 
+	 * @return
+	 */
 	@RequestMapping(method = RequestMethod.GET)
-	HttpEntity<Resources<Customer>> showCustomers() {
+	DeferredResult<HttpEntity<Resources<Customer>>> showCustomers() {
+
+		final String baseUri = links.getBaseUri();
+		final DeferredResult<HttpEntity<Resources<Customer>>> result = new DeferredResult<>();
+
+		asyncCustomers.findAll(new DeferredResultCallback<List<Customer>, HttpEntity<Resources<Customer>>>(result) {
+
+			@Override
+			protected HttpEntity<Resources<Customer>> map(List<Customer> customers) {
+
+				Resources<Customer> resources = new Resources<>(customers);
+				resources.add(customersTemplate.relativeTo(baseUri).withSelfRel());
+
+				return new ResponseEntity<>(resources, HttpStatus.OK);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Exposes a page of the {@link Customer}s collection resource linking to the adjacent pages. Looks up the page
+	 * asynchronously.
+	 * 
+	 * @param position the position of the page's first {@link Customer}.
+	 * @param size the maximum number of {@link Customer}s to return.
+	 * @return
+	 */
+	@RequestMapping(method = RequestMethod.GET, params = { Pagination.SIZE_PARAMETER, "!" + Batches.IDS_PARAMETER })
+	DeferredResult<HttpEntity<Resources<Customer>>> showCustomersPage(
+			@RequestParam(value = Pagination.CURSOR_PARAMETER, defaultValue = "0") int position,
+			@RequestParam(Pagination.SIZE_PARAMETER) int size) {
+
+		final String baseUri = links.getBaseUri();
+		final DeferredResult<HttpEntity<Resources<Customer>>> result = new DeferredResult<>();
+
+		asyncCustomers.findAll(Pagination.cursor(position, size),
+				new DeferredResultCallback<Slice<Customer>, HttpEntity<Resources<Customer>>>(result) {
+
+					@Override
+					protected HttpEntity<Resources<Customer>> map(Slice<Customer> slice) {
+
+						Resources<Customer> resources = new Resources<>(slice.getContent());
+						Pagination.addLinks(resources, slice, customersTemplate.relativeTo(baseUri));
+
+						return new ResponseEntity<>(resources, HttpStatus.OK);
+					}
+				});
+
+		return result;
+	}
+
+	/**
+	 * Exposes the {@link Customer}s with the given ids in a single collection resource. The {@code self} links of the
+	 * {@link Customer}s point to the individual resources so that clients don't have to look them up one by one. Looks
+	 * up the {@link Customer}s asynchronously.
+	 * 
+	 * @param ids the ids of the {@link Customer}s to return.
+	 * @return
+	 */
+	@RequestMapping(method = RequestMethod.GET, params = Batches.IDS_PARAMETER)
+	DeferredResult<HttpEntity<Resources<Resource<Customer>>>> showCustomersBatch(
+			@RequestParam(Batches.IDS_PARAMETER) List<Long> ids) {
+
+		final DeferredResult<HttpEntity<Resources<Resource<Customer>>>> result = new DeferredResult<>();
+
+		if (!Batches.isValid(ids)) {
+			result.setResult(new ResponseEntity<Resources<Resource<Customer>>>(HttpStatus.BAD_REQUEST));
+			return result;
+		}
+
+		final String baseUri = links.getBaseUri();
+		final Link selfLink = Batches.selfLink(customersTemplate.relativeTo(baseUri), ids);
+
+		asyncCustomers.findAll(ids, new DeferredResultCallback<List<Customer>, HttpEntity<Resources<Resource<Customer>>>>(
+				result) {
+
+			@Override
+			protected HttpEntity<Resources<Resource<Customer>>> map(List<Customer> customers) {
+
+				Resources<Resource<Customer>> resources = new Resources<>(assembler.toResources(customers, baseUri));
+				resources.add(selfLink);
+
+				return new ResponseEntity<>(resources, HttpStatus.OK);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Exposes the {@link Customer}s whose firstname or lastname equals the given name, ignoring case and accents. The
+	 * {@code self} links of the {@link Customer}s point to the individual resources.
+	 * 
+	 * @param name
+	 * @param position
+	 * @param size
+	 * @return
+	 */
+	@RequestMapping(value = "/search", method = RequestMethod.GET, params = NAME_PARAMETER)
+	DeferredResult<HttpEntity<Resources<Resource<Customer>>>> searchByName(@RequestParam(NAME_PARAMETER) String name,
+			@RequestParam(value = Pagination.CURSOR_PARAMETER, defaultValue = "0") int position,
+			@RequestParam(value = Pagination.SIZE_PARAMETER, defaultValue = DEFAULT_SEARCH_SIZE) int size) {
+		return search(NAME_PARAMETER, name, position, size);
+	}
+
+	/**
+	 * Exposes the {@link Customer}s whose firstname or lastname starts with the given prefix, ignoring case and
+	 * accents, ordered by the matching name.
+	 * 
+	 * @param prefix
+	 * @param position
+	 * @param size
+	 * @return
+	 */
+	@RequestMapping(value = "/search", method = RequestMethod.GET, params = PREFIX_PARAMETER)
+	DeferredResult<HttpEntity<Resources<Resource<Customer>>>> searchByPrefix(@RequestParam(PREFIX_PARAMETER) String prefix,
+			@RequestParam(value = Pagination.CURSOR_PARAMETER, defaultValue = "0") int position,
+			@RequestParam(value = Pagination.SIZE_PARAMETER, defaultValue = DEFAULT_SEARCH_SIZE) int size) {
+		return search(PREFIX_PARAMETER, prefix, position, size);
+	}
+
+	/**
+	 * Looks up the {@link Customer}s matching the given query asynchronously.
+	 * 
+	 * @param parameter the request parameter the query was given in, selects exact or prefix matches.
+	 * @param query
+	 * @param position
+	 * @param size
+	 * @return
+	 */
+	private DeferredResult<HttpEntity<Resources<Resource<Customer>>>> search(final String parameter,
+			final String query, int position, int size) {
+
+		final DeferredResult<HttpEntity<Resources<Resource<Customer>>>> result = new DeferredResult<>();
 
-		Resources<Customer> resources = new Resources<>(customers.findAll());
-		resources.add(entityLinks.linkToCollectionResource(Customer.class));
+		if (!StringUtils.hasText(query)) {
+			result.setResult(new ResponseEntity<Resources<Resource<Customer>>>(HttpStatus.BAD_REQUEST));
+			return result;
+		}
 
-		return new ResponseEntity<>(resources, HttpStatus.OK);
+		final String baseUri = links.getBaseUri();
+		final String uri = searchTemplate.relativeTo(baseUri).expand() + "?" + parameter + "=" + encode(query);
+		Cursor cursor = Pagination.cursor(position, size);
+
+		DeferredResultCallback<Slice<Customer>, HttpEntity<Resources<Resource<Customer>>>> callback = new DeferredResultCallback<Slice<Customer>, HttpEntity<Resources<Resource<Customer>>>>(
+				result) {
+
+			@Override
+			protected HttpEntity<Resources<Resource<Customer>>> map(Slice<Customer> slice) {
+
+				Resources<Resource<Customer>> resources = new Resources<>(assembler.toResources(slice.getContent(), baseUri));
+				Pagination.addLinks(resources, slice, uri);
+
+				return new ResponseEntity<>(resources, HttpStatus.OK);
+			}
+		};
+
+		if (PREFIX_PARAMETER.equals(parameter)) {
+			asyncCustomers.findByNameStartingWith(query, cursor, callback);
+		} else {
+			asyncCustomers.findByName(query, cursor, callback);
+		}
+
+		return result;
 	}
 
+	private static String encode(String parameter) {
+
+		try {
+			return UriUtils.encodeQueryParam(parameter, "UTF-8");
+		} catch (UnsupportedEncodingException o_O) {
+			throw new IllegalStateException(o_O);
+		}
+	}
+
+	/**
+	 * Exposes a single {@link Customer}. Looks up the {@link Customer} asynchronously, answers conditional requests for
+	 * an unchanged {@link Customer} without rendering it and serves the representation from the
+	 * {@link RepresentationCache} if possible. Renders Smile if the client prefers it.
+	 * 
+	 * @param id
+	 * @param request
+	 * @return
+	 */
 	@RequestMapping(value = "/{id}", method = RequestMethod.GET)
-	HttpEntity<Resource<Customer>> showCustomer(@PathVariable Long id) {
+	DeferredResult<HttpEntity<byte[]>> showCustomer(@PathVariable final long id, WebRequest request) {
+
+		final String ifNoneMatch = request.getHeader(ETags.IF_NONE_MATCH);
+		final String baseUri = links.getBaseUri();
+		final String acceptEncoding = request.getHeader(ResponseCompression.ACCEPT_ENCODING);
+		final boolean smile = HalSmileHttpMessageConverter.isPreferred(request);
+		final Key key = new Key(Customer.class, id, smile ? HalSmileHttpMessageConverter.HAL_SMILE_VALUE
+				: RepresentationCache.HAL_JSON, baseUri);
+		final DeferredResult<HttpEntity<byte[]>> result = new DeferredResult<>();
+
+		asyncCustomers.findOne(id, new DeferredResultCallback<Customer, HttpEntity<byte[]>>(result) {
+
+			@Override
+			protected HttpEntity<byte[]> map(final Customer customer) {
+
+				if (customer == null) {
+					return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+				}
+
+				String etag = HalSmileHttpMessageConverter.etagFor(ETags.forCustomer(customer), smile);
+
+				if (ETags.matches(ifNoneMatch, etag)) {
+					return HalSmileHttpMessageConverter.varyByAccept(ETags.<byte[]> notModified(etag));
+				}
+
+				Callable<Resource<Customer>> body = new Callable<Resource<Customer>>() {
+
+					@Override
+					public Resource<Customer> call() {
+						return assembler.toResource(customer, baseUri);
+					}
+				};
+
+				return HalSmileHttpMessageConverter.varyByAccept(cache.getOrRender(key, etag,
+						smile ? smileConverter.getObjectMapper() : mapper, smile ? HalSmileHttpMessageConverter.HAL_SMILE
+								: RepresentationCache.JSON_UTF8, acceptEncoding, body));
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Creates a new {@link Customer} with the names given in the request body. Returns {@code 400 Bad Request} if they
+	 * are invalid.
+	 * 
+	 * @param input
+	 * @return
+	 */
+	@RequestMapping(method = RequestMethod.POST)
+	HttpEntity<Resource<Customer>> createCustomer(@RequestBody CustomerInput input) {
+
+		if (!isValid(input)) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		return render(customers.create(input.getFirstname(), input.getLastname()), HttpStatus.CREATED);
+	}
+
+	/**
+	 * Changes the names of a {@link Customer} to the ones given in the request body. Returns {@code 400 Bad Request} if
+	 * they are invalid. Records a change of all orders of the {@link Customer} in the change feed, as their
+	 * representations embed the {@link Customer}.
+	 * 
+	 * @param id
+	 * @param input
+	 * @return
+	 */
+	@RequestMapping(value = "/{id}", method = RequestMethod.PUT)
+	HttpEntity<Resource<Customer>> updateCustomer(@PathVariable long id, @RequestBody CustomerInput input) {
+
+		if (!isValid(input)) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		Customer customer = customers.update(id, input.getFirstname(), input.getLastname());
+
+		if (customer != null) {
+			orders.recordCustomerChange(customer);
+		}
+
+		return render(customer, HttpStatus.OK);
+	}
+
+	/**
+	 * Returns whether the given {@link CustomerInput} contains both names.
+	 * 
+	 * @param input must not be {@literal null}.
+	 * @return
+	 */
+	private static boolean isValid(CustomerInput input) {
+		return StringUtils.hasText(input.getFirstname()) && StringUtils.hasText(input.getLastname());
+	}
+
+	/**
+	 * Renders the given, just written {@link Customer} along with its entity tag. Points to the {@link Customer} in the
+	 * {@code Location} header if it was created and returns {@code 404 Not Found} if there's no {@link Customer}.
+	 * 
+	 * @param customer can be {@literal null}.
+	 * @param status the status to respond with if the {@link Customer} exists.
+	 * @return
+	 */
+	private HttpEntity<Resource<Customer>> render(Customer customer, HttpStatus status) {
+
+		if (customer == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+
+		Resource<Customer> resource = assembler.toResource(customer, links.getBaseUri());
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag(ETags.forCustomer(customer));
+
+		if (status == HttpStatus.CREATED) {
+			headers.setLocation(URI.create(entityLinks.linkToSingleResource(Customer.class, customer.getId()).getHref()));
+		}
+
+		return new ResponseEntity<>(resource, headers, status);
+	}
 
-		Resource<Customer> resource = new Resource<>(customers.findOne(id));
-		resource.add(entityLinks.linkToSingleResource(Customer.class, id));
+	/**
+	 * Request body to create and change {@link Customer}s.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@Data
+	static class CustomerInput {
 
-		return new ResponseEntity<>(resource, HttpStatus.OK);
+		private String firstname, lastname;
 	}
 }
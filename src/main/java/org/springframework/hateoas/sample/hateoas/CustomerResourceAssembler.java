@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.ResourceAssembler;
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceAssembler} for {@link Customer}s. Assembles whole {@link List}s of {@link Customer}s in a single pass
+ * into a collection sized up front, resolving the {@link LinkTemplate}s against the base URI once per {@link List}.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+@Profile("hateoas")
+class CustomerResourceAssembler implements ResourceAssembler<Customer, Resource<Customer>> {
+
+	static final String STATISTICS_REL = "statistics";
+
+	private final ControllerLinkFactory links;
+	private final LinkTemplate customerTemplate, statisticsTemplate;
+
+	/**
+	 * Creates a new {@link CustomerResourceAssembler} using the given {@link ControllerLinkFactory}.
+	 * 
+	 * @param links must not be {@literal null}.
+	 */
+	@Autowired
+	public CustomerResourceAssembler(ControllerLinkFactory links) {
+
+		Assert.notNull(links, "ControllerLinkFactory must not be null!");
+
+		this.links = links;
+		this.customerTemplate = links.templateFor(methodOn(CustomerController.class).showCustomer(0L, null));
+		this.statisticsTemplate = links.templateFor(methodOn(OrderController.class).showCustomerStatistics(0L, null));
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.ResourceAssembler#toResource(java.lang.Object)
+	 */
+	@Override
+	public Resource<Customer> toResource(Customer customer) {
+		return toResource(customer, links.getBaseUri());
+	}
+
+	/**
+	 * Creates a resource for the given {@link Customer} linking to itself and the statistics of its {@link Order}s.
+	 * 
+	 * @param customer must not be {@literal null}.
+	 * @param baseUri the base URI to build the {@link Link}s for, must not be {@literal null}.
+	 * @return
+	 */
+	public Resource<Customer> toResource(Customer customer, String baseUri) {
+
+		Assert.notNull(customer, "Customer must not be null!");
+		return toResource(customer, customerTemplate.relativeTo(baseUri), statisticsTemplate.relativeTo(baseUri));
+	}
+
+	/**
+	 * Creates resources for the given {@link Customer}s, each linking to itself and the statistics of its
+	 * {@link Order}s.
+	 * 
+	 * @param customers must not be {@literal null}.
+	 * @param baseUri the base URI to build the {@link Link}s for, must not be {@literal null}.
+	 * @return
+	 */
+	public List<Resource<Customer>> toResources(List<Customer> customers, String baseUri) {
+
+		Assert.notNull(customers, "Customers must not be null!");
+
+		LinkTemplate customerTemplate = this.customerTemplate.relativeTo(baseUri);
+		LinkTemplate statisticsTemplate = this.statisticsTemplate.relativeTo(baseUri);
+		List<Resource<Customer>> result = new ArrayList<Resource<Customer>>(customers.size());
+
+		for (int i = 0; i < customers.size(); i++) {
+			result.add(toResource(customers.get(i), customerTemplate, statisticsTemplate));
+		}
+
+		return result;
+	}
+
+	private static Resource<Customer> toResource(Customer customer, LinkTemplate customerTemplate,
+			LinkTemplate statisticsTemplate) {
+
+		Resource<Customer> resource = new Resource<Customer>(customer);
+		resource.add(customerTemplate.withSelfRel(customer.getId()));
+		resource.add(statisticsTemplate.withRel(STATISTICS_REL, customer.getId()));
+
+		return resource;
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import org.springframework.hateoas.sample.core.Callback;
+import org.springframework.util.Assert;
+import org.springframework.web.context.request.async.DeferredResult;
+
+/**
+ * {@link Callback} completing a {@link DeferredResult} with the value the result of an asynchronous repository
+ * operation is mapped to.
+ * 
+ * @author Oliver Gierke
+ */
+abstract class DeferredResultCallback<S, T> implements Callback<S> {
+
+	private final DeferredResult<T> result;
+
+	/**
+	 * Creates a new {@link DeferredResultCallback} for the given {@link DeferredResult}.
+	 * 
+	 * @param result must not be {@literal null}.
+	 */
+	DeferredResultCallback(DeferredResult<T> result) {
+
+		Assert.notNull(result, "DeferredResult must not be null!");
+		this.result = result;
+	}
+
+	/**
+	 * Maps the result of the repository operation to the value to complete the {@link DeferredResult} with.
+	 * 
+	 * @param source can be {@literal null}.
+	 * @return
+	 * @throws Exception
+	 */
+	protected abstract T map(S source) throws Exception;
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Callback#onSuccess(java.lang.Object)
+	 */
+	@Override
+	public void onSuccess(S source) {
+
+		try {
+			result.setResult(map(source));
+		} catch (Exception o_O) {
+			result.setErrorResult(o_O);
+		}
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.sample.core.Callback#onFailure(java.lang.Throwable)
+	 */
+	@Override
+	public void onFailure(Throwable error) {
+		result.setErrorResult(error);
+	}
+}
@@ -0,0 +1,528 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.RelProvider;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.sample.Projection;
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.hateoas.OrderController.OrderResource;
+import org.springframework.hateoas.sample.hateoas.OrderController.ProjectedOrder;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import com.fasterxml.jackson.databind.util.NameTransformer;
+
+/**
+ * Jackson {@link Module} with hand-written serializers for the domain types and the HAL representations of
+ * {@link Resource}s, {@link Resources}, {@link OrderResource}s and {@link ProjectedOrder}s. They write the fields straight to the
+ * {@link JsonGenerator} using pre-encoded field names instead of going through reflection based bean serializers, but
+ * produce the same output as the HAL support enabled in {@link HypermediaConfiguration}. The only exception are
+ * {@link Resources} with more than two elements of the same rel, which the HAL support of Spring HATEOAS 0.7 truncates
+ * to the last two elements while these serializers embed all of them. The serializers are only used for exactly the
+ * types they're written for, subtypes, e.g. {@link org.springframework.hateoas.PagedResources}, are rendered the
+ * default way. {@link ProjectedOrder}s are rendered like the {@link Order}s they're projecting, reduced to the
+ * properties selected.
+ * 
+ * @author Oliver Gierke
+ */
+class HalSerializers extends Module {
+
+	private static final SerializedString LINKS = new SerializedString("_links");
+	private static final SerializedString EMBEDDED = new SerializedString("_embedded");
+	private static final SerializedString HREF = new SerializedString("href");
+	private static final SerializedString ID = new SerializedString("id");
+	private static final SerializedString FIRSTNAME = new SerializedString("firstname");
+	private static final SerializedString LASTNAME = new SerializedString("lastname");
+	private static final SerializedString VERSION = new SerializedString("version");
+	private static final SerializedString CUSTOMER = new SerializedString("customer");
+	private static final SerializedString LINE_ITEMS = new SerializedString("lineItems");
+	private static final SerializedString NAME = new SerializedString("name");
+
+	private final RelProvider relProvider;
+	private final ConcurrentMap<Class<?>, SerializedString[]> rels = new ConcurrentHashMap<Class<?>, SerializedString[]>();
+	private final ConcurrentMap<String, SerializedString> linkRels = new ConcurrentHashMap<String, SerializedString>();
+	private final Map<Class<?>, FieldsSerializer<?>> serializers = new HashMap<Class<?>, FieldsSerializer<?>>();
+
+	/**
+	 * Creates a new {@link HalSerializers} module using the given {@link RelProvider} to determine the rels of embedded
+	 * resources.
+	 * 
+	 * @param relProvider must not be {@literal null}.
+	 */
+	public HalSerializers(RelProvider relProvider) {
+
+		Assert.notNull(relProvider, "RelProvider must not be null!");
+
+		this.relProvider = relProvider;
+
+		serializers.put(Customer.class, new CustomerSerializer());
+		serializers.put(LineItem.class, new LineItemSerializer());
+		serializers.put(Order.class, new OrderSerializer());
+		serializers.put(OrderResource.class, new OrderResourceSerializer());
+		serializers.put(ProjectedOrder.class, new ProjectedOrderSerializer());
+		serializers.put(Resource.class, new ResourceSerializer());
+		serializers.put(Resources.class, new ResourcesSerializer());
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see com.fasterxml.jackson.databind.Module#getModuleName()
+	 */
+	@Override
+	public String getModuleName() {
+		return getClass().getSimpleName();
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see com.fasterxml.jackson.databind.Module#version()
+	 */
+	@Override
+	public Version version() {
+		return Version.unknownVersion();
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see com.fasterxml.jackson.databind.Module#setupModule(com.fasterxml.jackson.databind.Module.SetupContext)
+	 */
+	@Override
+	public void setupModule(SetupContext context) {
+
+		context.addSerializers(new Serializers.Base() {
+
+			@Override
+			public JsonSerializer<?> findSerializer(SerializationConfig config, JavaType type, BeanDescription beanDesc) {
+				return serializers.get(type.getRawClass());
+			}
+		});
+	}
+
+	/**
+	 * Writes the fields of the given value to the given {@link JsonGenerator}, using the hand-written serializer if
+	 * available or the one registered with the given {@link SerializerProvider} otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	private void writeContent(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+		FieldsSerializer<Object> serializer = (FieldsSerializer<Object>) serializers.get(value.getClass());
+
+		if (serializer != null) {
+			serializer.writeFields(value, generator, provider);
+		} else {
+			provider.findValueSerializer(value.getClass(), null).unwrappingSerializer(null)
+					.serialize(value, generator, provider);
+		}
+	}
+
+	/**
+	 * Writes the given value using the hand-written serializer if available or the one registered with the given
+	 * {@link SerializerProvider} otherwise.
+	 */
+	private void writeValue(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+		if (value == null) {
+			generator.writeNull();
+			return;
+		}
+
+		FieldsSerializer<?> serializer = serializers.get(value.getClass());
+
+		if (serializer != null) {
+			generator.writeStartObject();
+			writeContent(value, generator, provider);
+			generator.writeEndObject();
+		} else {
+			provider.defaultSerializeValue(value, generator);
+		}
+	}
+
+	/**
+	 * Writes the given {@link Link}s as HAL does, i.e. grouped by rel, a single {@link Link} for a rel as object,
+	 * multiple ones as array. Assumes only few {@link Link}s, so it looks up the other {@link Link}s with the same rel
+	 * by scanning the {@link List}.
+	 */
+	private void writeLinks(List<Link> links, JsonGenerator generator) throws IOException {
+
+		generator.writeFieldName(LINKS);
+		generator.writeStartObject();
+
+		for (int i = 0; i < links.size(); i++) {
+
+			String rel = links.get(i).getRel();
+
+			if (indexOfRel(links, rel, 0) < i) {
+				continue;
+			}
+
+			int next = indexOfRel(links, rel, i + 1);
+
+			generator.writeFieldName(getLinkRel(rel));
+
+			if (next < 0) {
+				writeLink(links.get(i), generator);
+				continue;
+			}
+
+			generator.writeStartArray();
+
+			for (int j = i; j >= 0; j = indexOfRel(links, rel, j + 1)) {
+				writeLink(links.get(j), generator);
+			}
+
+			generator.writeEndArray();
+		}
+
+		generator.writeEndObject();
+	}
+
+	private static void writeLink(Link link, JsonGenerator generator) throws IOException {
+
+		generator.writeStartObject();
+		generator.writeFieldName(HREF);
+		generator.writeString(link.getHref());
+		generator.writeEndObject();
+	}
+
+	/**
+	 * Returns the pre-encoded field name for the given {@link Link} rel.
+	 */
+	private SerializedString getLinkRel(String rel) {
+
+		SerializedString result = linkRels.get(rel);
+
+		if (result == null) {
+			result = new SerializedString(rel);
+			linkRels.putIfAbsent(rel, result);
+		}
+
+		return result;
+	}
+
+	private static int indexOfRel(List<Link> links, String rel, int start) {
+
+		for (int i = start; i < links.size(); i++) {
+			if (links.get(i).getRel().equals(rel)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Returns the rel to embed the given element with if it's the only one of its type or one of multiple ones.
+	 */
+	private SerializedString getRel(Object element, boolean single) {
+
+		Class<?> type = getEmbeddedType(element);
+		SerializedString[] rels = this.rels.get(type);
+
+		if (rels == null) {
+			rels = new SerializedString[] { new SerializedString(relProvider.getSingleResourceRelFor(type)),
+					new SerializedString(relProvider.getCollectionResourceRelFor(type)) };
+			this.rels.put(type, rels);
+		}
+
+		return single ? rels[0] : rels[1];
+	}
+
+	/**
+	 * Returns the type determining the rel to embed the given element with, i.e. the type of the content for
+	 * {@link Resource}s and {@link Order} for {@link ProjectedOrder}s.
+	 */
+	private static Class<?> getEmbeddedType(Object element) {
+
+		Object content = element instanceof Resource ? ((Resource<?>) element).getContent() : element;
+		return content instanceof ProjectedOrder ? Order.class : content.getClass();
+	}
+
+	/**
+	 * Serializer writing an object's fields between the start and end of the object. Unwraps to writing the fields only.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private abstract static class FieldsSerializer<T> extends JsonSerializer<T> {
+
+		/**
+		 * Writes the fields of the given value.
+		 * 
+		 * @param value will never be {@literal null}.
+		 * @param generator will never be {@literal null}.
+		 * @param provider will never be {@literal null}.
+		 * @throws IOException
+		 */
+		abstract void writeFields(T value, JsonGenerator generator, SerializerProvider provider) throws IOException;
+
+		/* 
+		 * (non-Javadoc)
+		 * @see com.fasterxml.jackson.databind.JsonSerializer#serialize(java.lang.Object, com.fasterxml.jackson.core.JsonGenerator, com.fasterxml.jackson.databind.SerializerProvider)
+		 */
+		@Override
+		public void serialize(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+			generator.writeStartObject();
+			writeFields(value, generator, provider);
+			generator.writeEndObject();
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see com.fasterxml.jackson.databind.JsonSerializer#unwrappingSerializer(com.fasterxml.jackson.databind.util.NameTransformer)
+		 */
+		@Override
+		public JsonSerializer<T> unwrappingSerializer(NameTransformer unwrapper) {
+
+			final FieldsSerializer<T> delegate = this;
+
+			return new JsonSerializer<T>() {
+
+				@Override
+				public void serialize(T value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+					delegate.writeFields(value, generator, provider);
+				}
+
+				@Override
+				public boolean isUnwrappingSerializer() {
+					return true;
+				}
+			};
+		}
+	}
+
+	private static class CustomerSerializer extends FieldsSerializer<Customer> {
+
+		@Override
+		void writeFields(Customer customer, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+			generator.writeFieldName(ID);
+			generator.writeNumber(customer.getId());
+			generator.writeFieldName(FIRSTNAME);
+			generator.writeString(customer.getFirstname());
+			generator.writeFieldName(LASTNAME);
+			generator.writeString(customer.getLastname());
+			generator.writeFieldName(VERSION);
+			generator.writeNumber(customer.getVersion());
+		}
+	}
+
+	private static class LineItemSerializer extends FieldsSerializer<LineItem> {
+
+		@Override
+		void writeFields(LineItem item, JsonGenerator generator, SerializerProvider provider) throws IOException {
+			generator.writeFieldName(NAME);
+			generator.writeString(item.getName());
+		}
+	}
+
+	private static void writeLineItems(List<LineItem> lineItems, JsonGenerator generator) throws IOException {
+
+		generator.writeFieldName(LINE_ITEMS);
+
+		if (lineItems == null) {
+			generator.writeNull();
+			return;
+		}
+
+		generator.writeStartArray();
+
+		for (int i = 0; i < lineItems.size(); i++) {
+			generator.writeStartObject();
+			generator.writeFieldName(NAME);
+			generator.writeString(lineItems.get(i).getName());
+			generator.writeEndObject();
+		}
+
+		generator.writeEndArray();
+	}
+
+	private class OrderSerializer extends FieldsSerializer<Order> {
+
+		@Override
+		void writeFields(Order order, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+			generator.writeFieldName(ID);
+			generator.writeNumber(order.getId());
+			generator.writeFieldName(CUSTOMER);
+			writeValue(order.getCustomer(), generator, provider);
+			writeLineItems(order.getLineItems(), generator);
+			generator.writeFieldName(VERSION);
+			generator.writeNumber(order.getVersion());
+		}
+	}
+
+	private class OrderResourceSerializer extends FieldsSerializer<OrderResource> {
+
+		@Override
+		void writeFields(OrderResource resource, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+			if (resource.getLineItems() != null) {
+				writeLineItems(resource.getLineItems(), generator);
+			}
+
+			writeLinks(resource.getLinks(), generator);
+		}
+	}
+
+	private class ProjectedOrderSerializer extends FieldsSerializer<ProjectedOrder> {
+
+		@Override
+		void writeFields(ProjectedOrder projected, JsonGenerator generator, SerializerProvider provider)
+				throws IOException {
+
+			Order order = projected.getOrder();
+			Projection projection = projected.getProjection();
+
+			if (projection.includes(ProjectedOrder.ID)) {
+				generator.writeFieldName(ID);
+				generator.writeNumber(order.getId());
+			}
+
+			if (projection.embeds(ProjectedOrder.CUSTOMER)) {
+				generator.writeFieldName(CUSTOMER);
+				writeValue(order.getCustomer(), generator, provider);
+			}
+
+			if (projection.includes(ProjectedOrder.LINE_ITEMS)) {
+				writeLineItems(order.getLineItems(), generator);
+			}
+
+			if (projection.includes(ProjectedOrder.VERSION)) {
+				generator.writeFieldName(VERSION);
+				generator.writeNumber(order.getVersion());
+			}
+		}
+	}
+
+	private class ResourceSerializer extends FieldsSerializer<Resource<?>> {
+
+		@Override
+		void writeFields(Resource<?> resource, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+			writeContent(resource.getContent(), generator, provider);
+			writeLinks(resource.getLinks(), generator);
+		}
+	}
+
+	private class ResourcesSerializer extends FieldsSerializer<Resources<?>> {
+
+		@Override
+		void writeFields(Resources<?> resources, JsonGenerator generator, SerializerProvider provider) throws IOException {
+
+			writeLinks(resources.getLinks(), generator);
+			generator.writeFieldName(EMBEDDED);
+			generator.writeStartObject();
+
+			Collection<?> elements = resources.getContent();
+
+			if (isOfSingleType(elements)) {
+				writeEmbedded(elements, generator, provider);
+			} else {
+
+				// Group the elements by type in the rare case of different ones
+				Map<Class<?>, List<Object>> groups = new LinkedHashMap<Class<?>, List<Object>>();
+
+				for (Object element : elements) {
+
+					Class<?> type = getEmbeddedType(element);
+					List<Object> group = groups.get(type);
+
+					if (group == null) {
+						group = new ArrayList<Object>();
+						groups.put(type, group);
+					}
+
+					group.add(element);
+				}
+
+				for (List<Object> group : groups.values()) {
+					writeEmbedded(group, generator, provider);
+				}
+			}
+
+			generator.writeEndObject();
+		}
+
+		private void writeEmbedded(Collection<?> elements, JsonGenerator generator, SerializerProvider provider)
+				throws IOException {
+
+			if (elements.isEmpty()) {
+				return;
+			}
+
+			Iterator<?> iterator = elements.iterator();
+			Object first = iterator.next();
+
+			if (!iterator.hasNext()) {
+				generator.writeFieldName(getRel(first, true));
+				writeValue(first, generator, provider);
+				return;
+			}
+
+			generator.writeFieldName(getRel(first, false));
+			generator.writeStartArray();
+
+			for (Object element : elements) {
+				writeValue(element, generator, provider);
+			}
+
+			generator.writeEndArray();
+		}
+
+		private boolean isOfSingleType(Collection<?> elements) {
+
+			Class<?> type = null;
+
+			for (Object element : elements) {
+
+				Class<?> candidate = getEmbeddedType(element);
+
+				if (type == null) {
+					type = candidate;
+				} else if (!type.equals(candidate)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
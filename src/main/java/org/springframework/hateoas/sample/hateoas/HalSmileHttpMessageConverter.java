@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.hateoas.sample.ETags;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * {@link MappingJackson2HttpMessageConverter} reading and writing HAL encoded as Smile, Jackson's binary JSON format,
+ * for {@value #HAL_SMILE_VALUE}. The representations have the same structure and links as the HAL JSON ones but are
+ * smaller and cheaper to parse. Clients have to ask for them explicitly, HAL JSON stays the default.
+ * 
+ * @author Oliver Gierke
+ */
+class HalSmileHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+	static final String HAL_SMILE_VALUE = "application/hal+smile";
+	static final MediaType HAL_SMILE = MediaType.valueOf(HAL_SMILE_VALUE);
+
+	static final String ACCEPT = "Accept";
+	private static final String ETAG_VARIANT = "smile";
+
+	/**
+	 * Creates a new {@link HalSmileHttpMessageConverter} using the given {@link ObjectMapper}.
+	 * 
+	 * @param mapper must not be {@literal null} and has to use a {@link SmileFactory}.
+	 */
+	public HalSmileHttpMessageConverter(ObjectMapper mapper) {
+
+		Assert.notNull(mapper, "ObjectMapper must not be null!");
+		Assert.isInstanceOf(SmileFactory.class, mapper.getFactory(), "ObjectMapper must use a SmileFactory!");
+
+		setObjectMapper(mapper);
+		setSupportedMediaTypes(Arrays.asList(HAL_SMILE));
+	}
+
+	/**
+	 * Returns whether the {@code Accept} header of the given {@link WebRequest} prefers {@value #HAL_SMILE_VALUE} over
+	 * JSON. Wildcards select JSON.
+	 * 
+	 * @param request must not be {@literal null}.
+	 * @return
+	 */
+	static boolean isPreferred(WebRequest request) {
+
+		Assert.notNull(request, "WebRequest must not be null!");
+
+		String accept = request.getHeader(ACCEPT);
+
+		if (!StringUtils.hasText(accept)) {
+			return false;
+		}
+
+		List<MediaType> types;
+
+		try {
+			types = MediaType.parseMediaTypes(accept);
+		} catch (IllegalArgumentException o_O) {
+			return false;
+		}
+
+		MediaType.sortBySpecificityAndQuality(types);
+
+		for (MediaType type : types) {
+
+			if (type.getQualityValue() == 0) {
+				continue;
+			}
+
+			if (type.isWildcardType() || type.isWildcardSubtype() || type.getSubtype().endsWith("json")) {
+				return false;
+			}
+
+			if (type.includes(HAL_SMILE)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Returns the entity tag of the representation with the given entity tag in the media type the client prefers
+	 * according to {@link #isPreferred(WebRequest)}.
+	 * 
+	 * @param etag must not be {@literal null}.
+	 * @param smile whether the client prefers {@value #HAL_SMILE_VALUE}.
+	 * @return
+	 */
+	static String etagFor(String etag, boolean smile) {
+		return smile ? ETags.forVariant(etag, ETAG_VARIANT) : etag;
+	}
+
+	/**
+	 * Declares the given response to vary by the {@code Accept} header, as the representation written depends on
+	 * {@link #isPreferred(WebRequest)}.
+	 * 
+	 * @param response must not be {@literal null}.
+	 */
+	static void addVary(HttpServletResponse response) {
+		ETags.addVary(response, ACCEPT);
+	}
+
+	/**
+	 * Returns a copy of the given {@link HttpEntity} declaring it to vary by the {@code Accept} header, as the
+	 * representation depends on {@link #isPreferred(WebRequest)}. Use this for responses not written by the request
+	 * thread.
+	 * 
+	 * @param entity must not be {@literal null}.
+	 * @return
+	 */
+	static <T> HttpEntity<T> varyByAccept(HttpEntity<T> entity) {
+
+		Assert.notNull(entity, "HttpEntity must not be null!");
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.putAll(entity.getHeaders());
+		headers.add(ETags.VARY, ACCEPT);
+
+		HttpStatus status = entity instanceof ResponseEntity ? ((ResponseEntity<?>) entity).getStatusCode()
+				: HttpStatus.OK;
+
+		return new ResponseEntity<T>(entity.getBody(), headers, status);
+	}
+}
@@ -15,13 +15,28 @@
  */
 package org.springframework.hateoas.sample.hateoas;
 
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.hateoas.config.EnableHypermediaSupport;
 import org.springframework.hateoas.config.EnableHypermediaSupport.HypermediaType;
+import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 /**
  * Separate configuration class to enable Spring Hateoas functionality if the {@code hateoas} profile is activated.
+ * Representations are rendered using the {@link HalSerializers}, as HAL JSON by default and as Smile for clients
+ * asking for {@value HalSmileHttpMessageConverter#HAL_SMILE_VALUE}.
  * 
  * @author Oliver Gierke
  */
@@ -30,4 +45,102 @@ import org.springframework.hateoas.config.EnableHypermediaSupport.HypermediaType
 @EnableHypermediaSupport(type = HypermediaType.HAL)
 class HypermediaConfiguration {
 
+	/**
+	 * {@link ObjectMapper} rendering HAL the same way the one set up by {@link EnableHypermediaSupport} does. Used by
+	 * controllers rendering representations themselves.
+	 * 
+	 * @return
+	 */
+	@Bean
+	public ObjectMapper halObjectMapper() {
+		return createHalMapper(new JsonFactory());
+	}
+
+	/**
+	 * {@link HalSmileHttpMessageConverter} rendering the same representations as {@link #halObjectMapper()} in Smile.
+	 * Also used by controllers rendering representations themselves.
+	 * 
+	 * @return
+	 */
+	@Bean
+	public HalSmileHttpMessageConverter halSmileMessageConverter() {
+		return new HalSmileHttpMessageConverter(createHalMapper(new SmileFactory()));
+	}
+
+	/**
+	 * Registers the {@link HalSerializers} with the {@link ObjectMapper}s of the message converters rendering the
+	 * representations returned from controller methods and adds the {@link HalSmileHttpMessageConverter}.
+	 * 
+	 * @return
+	 */
+	@Bean
+	public static BeanPostProcessor halMessageConvertersRegistrar() {
+		return new HalMessageConvertersRegistrar();
+	}
+
+	private static ObjectMapper createHalMapper(JsonFactory factory) {
+
+		ObjectMapper mapper = new ObjectMapper(factory);
+		mapper.registerModule(new Jackson2HalModule());
+		mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(new DefaultRelProvider()));
+		mapper.registerModule(new HalSerializers(new DefaultRelProvider()));
+
+		return mapper;
+	}
+
+	/**
+	 * {@link BeanPostProcessor} customizing the message converters of the {@link RequestMappingHandlerAdapter}. The
+	 * {@link HalSmileHttpMessageConverter} is added after the default ones so that HAL JSON is rendered for clients
+	 * accepting any media type.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	static class HalMessageConvertersRegistrar implements BeanPostProcessor, BeanFactoryAware {
+
+		private BeanFactory beanFactory;
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.beans.factory.BeanFactoryAware#setBeanFactory(org.springframework.beans.factory.BeanFactory)
+		 */
+		@Override
+		public void setBeanFactory(BeanFactory beanFactory) {
+			this.beanFactory = beanFactory;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessBeforeInitialization(java.lang.Object, java.lang.String)
+		 */
+		@Override
+		public Object postProcessBeforeInitialization(Object bean, String beanName) {
+
+			if (bean instanceof RequestMappingHandlerAdapter) {
+				((RequestMappingHandlerAdapter) bean).getMessageConverters().add(
+						beanFactory.getBean(HalSmileHttpMessageConverter.class));
+			}
+
+			return bean;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessAfterInitialization(java.lang.Object, java.lang.String)
+		 */
+		@Override
+		public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+			if (bean instanceof RequestMappingHandlerAdapter) {
+				for (HttpMessageConverter<?> converter : ((RequestMappingHandlerAdapter) bean).getMessageConverters()) {
+					if (converter instanceof MappingJackson2HttpMessageConverter
+							&& !(converter instanceof HalSmileHttpMessageConverter)) {
+						((MappingJackson2HttpMessageConverter) converter).getObjectMapper().registerModule(
+								new HalSerializers(new DefaultRelProvider()));
+					}
+				}
+			}
+
+			return bean;
+		}
+	}
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.sample.core.BulkImporter;
+import org.springframework.hateoas.sample.core.BulkImporter.Format;
+import org.springframework.hateoas.sample.core.BulkImporter.InvalidRecordException;
+import org.springframework.hateoas.sample.core.BulkImporter.Result;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Exposes the {@link BulkImporter} to load {@link org.springframework.hateoas.sample.core.Customer}s and
+ * {@link org.springframework.hateoas.sample.core.Order}s from NDJSON or CSV request bodies. The body is parsed while
+ * it's read, so it's never buffered as a whole.
+ * 
+ * @author Oliver Gierke
+ */
+@Controller
+@Profile("hateoas")
+@RequestMapping("/imports")
+@RequiredArgsConstructor(onConstructor = @_(@Autowired))
+public class ImportController implements InitializingBean {
+
+	static final String NDJSON = "application/x-ndjson";
+	static final String CSV = "text/csv";
+
+	private final @NonNull BulkImporter importer;
+	private final @NonNull ControllerLinkFactory links;
+
+	private LinkTemplate ordersTemplate, customersTemplate;
+
+	/**
+	 * Resolves the {@link LinkTemplate}s for all links exposed up front.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+
+		this.ordersTemplate = links.templateFor(OrderController.class, OrderController.SHOW_ORDERS);
+		this.customersTemplate = links.templateFor(methodOn(CustomerController.class).showCustomers());
+	}
+
+	/**
+	 * Imports the NDJSON records of the request body.
+	 * 
+	 * @param body
+	 * @return the {@link Result} of the import or {@code 400 Bad Request} if the body contains an invalid record.
+	 * @throws IOException
+	 */
+	@RequestMapping(method = RequestMethod.POST, consumes = NDJSON)
+	HttpEntity<Resource<Result>> importNdjson(InputStream body) throws IOException {
+		return importFrom(body, Format.NDJSON);
+	}
+
+	/**
+	 * Imports the CSV records of the request body.
+	 * 
+	 * @param body
+	 * @return the {@link Result} of the import or {@code 400 Bad Request} if the body contains an invalid record.
+	 * @throws IOException
+	 */
+	@RequestMapping(method = RequestMethod.POST, consumes = CSV)
+	HttpEntity<Resource<Result>> importCsv(InputStream body) throws IOException {
+		return importFrom(body, Format.CSV);
+	}
+
+	private HttpEntity<Resource<Result>> importFrom(InputStream body, Format format) throws IOException {
+
+		Result result;
+
+		try {
+			result = importer.importFrom(body, format);
+		} catch (InvalidRecordException o_O) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		Resource<Result> resource = new Resource<>(result, ordersTemplate.withRel("orders"),
+				customersTemplate.withRel("customers"));
+
+		return new ResponseEntity<>(resource, HttpStatus.OK);
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.sample.metrics.Phase;
+import org.springframework.hateoas.sample.metrics.Recording;
+import org.springframework.util.Assert;
+import org.springframework.web.util.UriUtils;
+
+/**
+ * Pre-parsed URI template of a controller method. Expanding it only concatenates the literal parts of the template
+ * with the given parameters, which are applied to the template variables in the order they appear. Templates are
+ * expanded relative to the base URI of the current request unless bound to a particular one via
+ * {@link #relativeTo(String)}.
+ * 
+ * @author Oliver Gierke
+ * @see ControllerLinkFactory#templateFor(Object)
+ */
+class LinkTemplate {
+
+	private final ControllerLinkFactory factory;
+	private final String[] literals;
+	private final String baseUri;
+
+	/**
+	 * Creates a new {@link LinkTemplate} for the given {@link ControllerLinkFactory} and mapping.
+	 * 
+	 * @param factory must not be {@literal null}.
+	 * @param mapping must not be {@literal null}.
+	 */
+	LinkTemplate(ControllerLinkFactory factory, String mapping) {
+
+		Assert.notNull(factory, "ControllerLinkFactory must not be null!");
+		Assert.notNull(mapping, "Mapping must not be null!");
+
+		List<String> literals = new ArrayList<String>();
+		int start = 0;
+		int open = mapping.indexOf('{');
+
+		while (open != -1) {
+
+			literals.add(mapping.substring(start, open));
+			start = mapping.indexOf('}', open) + 1;
+			open = mapping.indexOf('{', start);
+		}
+
+		literals.add(mapping.substring(start));
+
+		this.factory = factory;
+		this.literals = literals.toArray(new String[literals.size()]);
+		this.baseUri = null;
+	}
+
+	private LinkTemplate(ControllerLinkFactory factory, String[] literals, String baseUri) {
+
+		this.factory = factory;
+		this.literals = literals;
+		this.baseUri = baseUri;
+	}
+
+	/**
+	 * Returns a {@link LinkTemplate} expanding relative to the given base URI instead of the one of the current request.
+	 * Use this to build links on threads not bound to the request, e.g. when completing a request asynchronously.
+	 * 
+	 * @param baseUri must not be {@literal null}.
+	 * @return
+	 * @see ControllerLinkFactory#getBaseUri()
+	 */
+	public LinkTemplate relativeTo(String baseUri) {
+
+		Assert.notNull(baseUri, "Base URI must not be null!");
+		return new LinkTemplate(factory, literals, baseUri);
+	}
+
+	/**
+	 * Creates a {@link Link} with rel {@value Link#REL_SELF} by expanding the template with the given parameters.
+	 * 
+	 * @param parameters
+	 * @return
+	 */
+	public Link withSelfRel(Object... parameters) {
+		return withRel(Link.REL_SELF, parameters);
+	}
+
+	/**
+	 * Creates a {@link Link} with the given rel by expanding the template with the given parameters.
+	 * 
+	 * @param rel must not be {@literal null} or empty.
+	 * @param parameters
+	 * @return
+	 */
+	public Link withRel(String rel, Object... parameters) {
+		return new Link(expand(parameters), rel);
+	}
+
+	/**
+	 * Creates a {@link Link} with rel {@value Link#REL_SELF} by expanding a template with a single variable with the
+	 * given id. Avoids boxing the id and allocating a parameter array.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public Link withSelfRel(long id) {
+		return withRel(Link.REL_SELF, id);
+	}
+
+	/**
+	 * Creates a {@link Link} with the given rel by expanding a template with a single variable with the given id. Avoids
+	 * boxing the id and allocating a parameter array.
+	 * 
+	 * @param rel must not be {@literal null} or empty.
+	 * @param id
+	 * @return
+	 */
+	public Link withRel(String rel, long id) {
+
+		Assert.isTrue(literals.length == 2, "Invalid number of parameters for template!");
+
+		long start = Recording.start(Phase.LINKS);
+
+		try {
+
+			String baseUri = this.baseUri == null ? factory.getBaseUri() : this.baseUri;
+			StringBuilder builder = new StringBuilder(baseUri.length() + literals[0].length() + literals[1].length() + 20);
+
+			return new Link(builder.append(baseUri).append(literals[0]).append(id).append(literals[1]).toString(), rel);
+
+		} finally {
+			Recording.stop(Phase.LINKS, start);
+		}
+	}
+
+	/**
+	 * Expands the template with the given parameters into an absolute URI.
+	 * 
+	 * @param parameters
+	 * @return
+	 */
+	public String expand(Object... parameters) {
+
+		Assert.isTrue(parameters.length == literals.length - 1, "Invalid number of parameters for template!");
+
+		long start = Recording.start(Phase.LINKS);
+
+		try {
+			return doExpand(parameters);
+		} finally {
+			Recording.stop(Phase.LINKS, start);
+		}
+	}
+
+	private String doExpand(Object[] parameters) {
+
+		String baseUri = this.baseUri == null ? factory.getBaseUri() : this.baseUri;
+		StringBuilder builder = new StringBuilder(baseUri.length() + 32);
+		builder.append(baseUri).append(literals[0]);
+
+		for (int i = 0; i < parameters.length; i++) {
+			builder.append(encode(parameters[i])).append(literals[i + 1]);
+		}
+
+		return builder.toString();
+	}
+
+	private static String encode(Object parameter) {
+
+		if (parameter instanceof Number) {
+			return parameter.toString();
+		}
+
+		try {
+			return UriUtils.encodePathSegment(String.valueOf(parameter), "UTF-8");
+		} catch (UnsupportedEncodingException o_O) {
+			throw new IllegalStateException(o_O);
+		}
+	}
+}
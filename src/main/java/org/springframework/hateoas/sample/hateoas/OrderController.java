@@ -17,30 +17,63 @@ package org.springframework.hateoas.sample.hateoas;
 
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 
+import javax.servlet.http.HttpServletResponse;
+
+import lombok.Data;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceSupport;
 import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.sample.ETags;
+import org.springframework.hateoas.sample.Projection;
+import org.springframework.hateoas.sample.RepresentationCache;
+import org.springframework.hateoas.sample.RepresentationCache.Key;
+import org.springframework.hateoas.sample.ResponseCompression;
+import org.springframework.hateoas.sample.core.AsyncCustomers;
+import org.springframework.hateoas.sample.core.AsyncOrders;
+import org.springframework.hateoas.sample.core.Callback;
+import org.springframework.hateoas.sample.core.ChangeLog;
+import org.springframework.hateoas.sample.core.ChangeLog.Changes;
+import org.springframework.hateoas.sample.core.Cursor;
 import org.springframework.hateoas.sample.core.Customer;
 import org.springframework.hateoas.sample.core.Customers;
 import org.springframework.hateoas.sample.core.Order;
 import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.core.OrderStatistics.Statistics;
 import org.springframework.hateoas.sample.core.Orders;
+import org.springframework.hateoas.sample.core.Slice;
+import org.springframework.hateoas.sample.hateoas.ControllerLinkFactory.Invocation;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * @author Oliver Gierke
@@ -48,84 +81,767 @@ import org.springframework.web.bind.annotation.RequestMapping;
 @Controller
 @Profile("hateoas")
 @RequiredArgsConstructor(onConstructor = @_(@Autowired))
-public class OrderController {
+public class OrderController implements InitializingBean {
+
+	static final String TOP_PARAMETER = "top";
+
+	private static final String JSON_UTF8 = "application/json;charset=UTF-8";
 
 	private final @NonNull Orders orders;
 	private final @NonNull Customers customers;
+	private final @NonNull AsyncOrders asyncOrders;
+	private final @NonNull AsyncCustomers asyncCustomers;
+	private final @NonNull ControllerLinkFactory links;
+	private final @NonNull OrderResourceAssembler assembler;
+	private final @NonNull RepresentationCache cache;
+	private final @NonNull ObjectMapper mapper;
+	private final @NonNull HalSmileHttpMessageConverter smileConverter;
 
 	/**
-	 * Exposes a collection resource for {@link Order}s.
+	 * The {@link Invocation} of {@link #showOrders(WebRequest, HttpServletResponse)} to obtain the {@link LinkTemplate}
+	 * for the collection resource of {@link Order}s with.
+	 */
+	static final Invocation<OrderController> SHOW_ORDERS = new Invocation<OrderController>() {
+
+		@Override
+		public void invoke(OrderController controller) throws IOException {
+			controller.showOrders(null, null);
+		}
+	};
+
+	private StreamingHalWriter writer, smileWriter;
+	private LinkTemplate ordersTemplate, customerOrdersTemplate, changesTemplate, statisticsTemplate;
+
+	/**
+	 * Sets up the {@link StreamingHalWriter}s using the configured {@link ObjectMapper}s and resolves the
+	 * {@link LinkTemplate}s for all links exposed up front.
+	 */
+	@Override
+	public void afterPropertiesSet() {
+
+		this.writer = new StreamingHalWriter(mapper);
+		this.smileWriter = new StreamingHalWriter(smileConverter.getObjectMapper());
+
+		this.ordersTemplate = links.templateFor(OrderController.class, SHOW_ORDERS);
+		this.customerOrdersTemplate = links.templateFor(methodOn(OrderController.class).showCustomerOrders(0L, null));
+		this.changesTemplate = links.templateFor(methodOn(OrderController.class).showChanges(null, null, 0, null));
+		this.statisticsTemplate = links.templateFor(methodOn(OrderController.class).showCustomerStatistics(0L, null));
+	}
+
+	/**
+	 * Exposes a collection resource for {@link Order}s. Streams the {@link Order}s to the response as they're read to
+	 * keep memory consumption independent of the number of {@link Order}s. Writes Smile if the client prefers it. If
+	 * the client selects a {@link Projection}, the {@link Order}s are embedded as resources with the selected properties
+	 * only.
 	 * 
-	 * @return
+	 * @param request
+	 * @param response
+	 * @throws IOException
 	 */
 	@RequestMapping("/orders")
-	HttpEntity<Resources<Order>> showOrders() {
+	void showOrders(WebRequest request, HttpServletResponse response) throws IOException {
+
+		boolean smile = HalSmileHttpMessageConverter.isPreferred(request);
+		Projection projection = getProjection(request);
+		long sequence = this.orders.getChangeLog().getSequence();
+		List<Order> orders = this.orders.findAll();
+		List<?> elements = projection.isAll() ? orders : assembler.toResourceView(orders, projection, links.getBaseUri());
+
+		HalSmileHttpMessageConverter.addVary(response);
+		response.setContentType(smile ? HalSmileHttpMessageConverter.HAL_SMILE_VALUE : JSON_UTF8);
+		(smile ? smileWriter : writer).write(response.getOutputStream(), Order.class, elements,
+				ordersTemplate.withSelfRel(), ChangeFeed.createLink(changesTemplate, sequence, null, ChangeFeed.REL));
+	}
+
+	/**
+	 * Exposes a page of the {@link Order}s collection resource linking to the adjacent pages. Looks up the page
+	 * asynchronously.
+	 * 
+	 * @param position the position of the page's first {@link Order}.
+	 * @param size the maximum number of {@link Order}s to return.
+	 * @param request
+	 * @return
+	 */
+	@RequestMapping(value = "/orders", params = { Pagination.SIZE_PARAMETER, "!" + Batches.IDS_PARAMETER })
+	DeferredResult<HttpEntity<Resources<?>>> showOrdersPage(
+			@RequestParam(value = Pagination.CURSOR_PARAMETER, defaultValue = "0") int position,
+			@RequestParam(Pagination.SIZE_PARAMETER) int size, WebRequest request) {
+
+		final long sequence = orders.getChangeLog().getSequence();
+		final Projection projection = getProjection(request);
+		final String baseUri = links.getBaseUri();
+		final DeferredResult<HttpEntity<Resources<?>>> result = new DeferredResult<>();
+
+		asyncOrders.findAll(Pagination.cursor(position, size), new DeferredResultCallback<Slice<Order>, HttpEntity<Resources<?>>>(
+				result) {
+
+			@Override
+			protected HttpEntity<Resources<?>> map(Slice<Order> slice) {
+
+				Resources<?> resources = projection.isAll() ? new Resources<>(slice.getContent()) : new Resources<>(
+						assembler.toResources(slice.getContent(), projection, baseUri));
+				Pagination.addLinks(resources, slice, ordersTemplate.relativeTo(baseUri));
+				resources.add(ChangeFeed.createLink(changesTemplate.relativeTo(baseUri), sequence, null, ChangeFeed.REL));
 
-		Resources<Order> orders = new Resources<>(this.orders.findAll());
-		orders.add(linkTo(methodOn(OrderController.class).showOrders()).withSelfRel());
+				return new ResponseEntity<Resources<?>>(resources, HttpStatus.OK);
+			}
+		});
 
-		return new ResponseEntity<>(orders, HttpStatus.OK);
+		return result;
 	}
 
 	/**
-	 * Exposes a single {@link Order} resource.
+	 * Exposes the {@link Order}s with the given ids in a single collection resource. The {@code self} links of the
+	 * {@link Order}s point to the individual resources so that clients don't have to look them up one by one. Looks up
+	 * the {@link Order}s asynchronously.
+	 * 
+	 * @param ids the ids of the {@link Order}s to return.
+	 * @param request
+	 * @return
+	 */
+	@RequestMapping(value = "/orders", params = Batches.IDS_PARAMETER)
+	DeferredResult<HttpEntity<Resources<Resource<ProjectedOrder>>>> showOrdersBatch(
+			@RequestParam(Batches.IDS_PARAMETER) List<Long> ids, WebRequest request) {
+
+		final DeferredResult<HttpEntity<Resources<Resource<ProjectedOrder>>>> result = new DeferredResult<>();
+
+		if (!Batches.isValid(ids)) {
+			result.setResult(new ResponseEntity<Resources<Resource<ProjectedOrder>>>(HttpStatus.BAD_REQUEST));
+			return result;
+		}
+
+		final Projection projection = getProjection(request);
+		final String baseUri = links.getBaseUri();
+		final Link selfLink = Batches.selfLink(ordersTemplate.relativeTo(baseUri), ids);
+
+		asyncOrders.findAll(ids, new DeferredResultCallback<List<Order>, HttpEntity<Resources<Resource<ProjectedOrder>>>>(
+				result) {
+
+			@Override
+			protected HttpEntity<Resources<Resource<ProjectedOrder>>> map(List<Order> orders) {
+
+				Resources<Resource<ProjectedOrder>> resources = new Resources<>(assembler.toResources(orders, projection,
+						baseUri));
+				resources.add(selfLink);
+
+				return new ResponseEntity<>(resources, HttpStatus.OK);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Exposes a single {@link Order} resource. Looks up the {@link Order} asynchronously, answers conditional requests
+	 * for an unchanged {@link Order} without rendering it and serves the representation from the
+	 * {@link RepresentationCache} if possible. Renders Smile if the client prefers it. Every {@link Projection} is cached
+	 * as a variant of its own.
 	 * 
 	 * @param id
+	 * @param request
 	 * @return
 	 */
 	@RequestMapping("/orders/{id}")
-	HttpEntity<Resource<Order>> showOrder(@PathVariable Long id) {
+	DeferredResult<HttpEntity<byte[]>> showOrder(@PathVariable final long id, WebRequest request) {
 
-		Resource<Order> order = new Resource<Order>(orders.findOne(id));
-		order.add(linkTo(methodOn(OrderController.class).showOrder(id)).withSelfRel());
+		final String ifNoneMatch = request.getHeader(ETags.IF_NONE_MATCH);
+		final String baseUri = links.getBaseUri();
+		final String acceptEncoding = request.getHeader(ResponseCompression.ACCEPT_ENCODING);
+		final boolean smile = HalSmileHttpMessageConverter.isPreferred(request);
+		final Projection projection = getProjection(request);
+		final Key key = new Key(Order.class, id, smile ? HalSmileHttpMessageConverter.HAL_SMILE_VALUE
+				: RepresentationCache.HAL_JSON, baseUri, projection.toString());
+		final DeferredResult<HttpEntity<byte[]>> result = new DeferredResult<>();
 
-		return new ResponseEntity<Resource<Order>>(order, HttpStatus.OK);
+		asyncOrders.findOne(id, new DeferredResultCallback<Order, HttpEntity<byte[]>>(result) {
+
+			@Override
+			protected HttpEntity<byte[]> map(final Order order) {
+
+				if (order == null) {
+					return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+				}
+
+				String etag = HalSmileHttpMessageConverter.etagFor(ETags.forOrder(order), smile);
+
+				if (ETags.matches(ifNoneMatch, etag)) {
+					return HalSmileHttpMessageConverter.varyByAccept(ETags.<byte[]> notModified(etag));
+				}
+
+				Callable<Resource<ProjectedOrder>> body = new Callable<Resource<ProjectedOrder>>() {
+
+					@Override
+					public Resource<ProjectedOrder> call() {
+						return assembler.toResource(order, projection, baseUri);
+					}
+				};
+
+				return HalSmileHttpMessageConverter.varyByAccept(cache.getOrRender(key, etag,
+						smile ? smileConverter.getObjectMapper() : mapper, smile ? HalSmileHttpMessageConverter.HAL_SMILE
+								: RepresentationCache.JSON_UTF8, acceptEncoding, body));
+			}
+		});
+
+		return result;
 	}
 
 	/**
-	 * Exposes all {@link Order}s for {@link Customer}s.
+	 * Exposes all {@link Order}s for {@link Customer}s. Looks up the {@link Customer} and its {@link Order}s
+	 * asynchronously and answers conditional requests without rendering the {@link Order}s if none of them changed. The
+	 * {@link LineItem}s are only included if the client's {@link Projection} selects them.
 	 * 
 	 * @param id
+	 * @param request
 	 * @return
 	 */
 	@RequestMapping("/customers/{id}/orders")
-	HttpEntity<Resources<OrderResource>> showCustomerOrders(@PathVariable Long id) {
+	DeferredResult<HttpEntity<Resources<OrderResource>>> showCustomerOrders(@PathVariable final long id,
+			WebRequest request) {
+
+		final String ifNoneMatch = request.getHeader(ETags.IF_NONE_MATCH);
+		final boolean smile = HalSmileHttpMessageConverter.isPreferred(request);
+		final String baseUri = links.getBaseUri();
+		final Projection projection = getProjection(request);
+		final long sequence = orders.getChangeLog().getSequence();
+		final DeferredResult<HttpEntity<Resources<OrderResource>>> result = new DeferredResult<>();
+
+		asyncCustomers.findOne(id, new Callback<Customer>() {
+
+			@Override
+			public void onSuccess(final Customer customer) {
+
+				if (customer == null) {
+					result.setResult(new ResponseEntity<Resources<OrderResource>>(HttpStatus.OK));
+					return;
+				}
+
+				asyncOrders.findAll(customer, new DeferredResultCallback<List<Order>, HttpEntity<Resources<OrderResource>>>(
+						result) {
+
+					@Override
+					protected HttpEntity<Resources<OrderResource>> map(List<Order> orders) {
+
+						String etag = HalSmileHttpMessageConverter.etagFor(ETags.forOrders(customer, orders), smile);
+
+						if (ETags.matches(ifNoneMatch, etag)) {
+							return HalSmileHttpMessageConverter.varyByAccept(ETags.<Resources<OrderResource>> notModified(etag));
+						}
+
+						Link selfLink = customerOrdersTemplate.relativeTo(baseUri).withSelfRel(id);
+
+						Resources<OrderResource> resources = new Resources<>(assembler.toOrderResources(orders, customer,
+									projection, baseUri));
+						resources.add(selfLink);
+						resources.add(ChangeFeed.createLink(changesTemplate.relativeTo(baseUri), sequence, id, ChangeFeed.REL));
+
+						HttpHeaders headers = new HttpHeaders();
+						headers.add("Link", selfLink.toString());
+						headers.add(ETags.VARY, HalSmileHttpMessageConverter.ACCEPT);
+						headers.setETag(etag);
+
+						return new ResponseEntity<>(resources, headers, HttpStatus.OK);
+					}
+				});
+			}
+
+			@Override
+			public void onFailure(Throwable error) {
+				result.setErrorResult(error);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Exposes a page of the {@link Order}s of a {@link Customer} linking to the adjacent pages. Looks up the
+	 * {@link Customer} and the page of its {@link Order}s asynchronously.
+	 * 
+	 * @param id
+	 * @param position the position of the page's first {@link Order}.
+	 * @param size the maximum number of {@link Order}s to return.
+	 * @param request
+	 * @return
+	 */
+	@RequestMapping(value = "/customers/{id}/orders", params = Pagination.SIZE_PARAMETER)
+	DeferredResult<HttpEntity<Resources<OrderResource>>> showCustomerOrdersPage(@PathVariable final long id,
+			@RequestParam(value = Pagination.CURSOR_PARAMETER, defaultValue = "0") int position,
+			@RequestParam(Pagination.SIZE_PARAMETER) int size, WebRequest request) {
+
+		final Cursor cursor = Pagination.cursor(position, size);
+		final long sequence = orders.getChangeLog().getSequence();
+		final Projection projection = getProjection(request);
+		final String baseUri = links.getBaseUri();
+		final DeferredResult<HttpEntity<Resources<OrderResource>>> result = new DeferredResult<>();
+
+		asyncCustomers.findOne(id, new Callback<Customer>() {
+
+			@Override
+			public void onSuccess(final Customer customer) {
+
+				if (customer == null) {
+					result.setResult(new ResponseEntity<Resources<OrderResource>>(HttpStatus.OK));
+					return;
+				}
+
+				asyncOrders.findAll(customer, cursor, new DeferredResultCallback<Slice<Order>, HttpEntity<Resources<OrderResource>>>(
+						result) {
+
+					@Override
+					protected HttpEntity<Resources<OrderResource>> map(Slice<Order> slice) {
+
+						Resources<OrderResource> resources = new Resources<>(assembler.toOrderResources(slice.getContent(),
+								customer, projection, baseUri));
+						Pagination.addLinks(resources, slice, customerOrdersTemplate.relativeTo(baseUri), id);
+						resources.add(ChangeFeed.createLink(changesTemplate.relativeTo(baseUri), sequence, id, ChangeFeed.REL));
+
+						return new ResponseEntity<>(resources, HttpStatus.OK);
+					}
+				});
+			}
+
+			@Override
+			public void onFailure(Throwable error) {
+				result.setErrorResult(error);
+			}
+		});
+
+		return result;
+	}
+
+	/**
+	 * Exposes the statistics of the {@link Order}s of a {@link Customer}: the number of {@link Order}s and
+	 * {@link LineItem}s and how often each product was ordered, the most popular ones first. Lists the given number of
+	 * products only, if given. The statistics are maintained as {@link Order}s are written, so that clients don't have
+	 * to read and aggregate all {@link Order}s of the {@link Customer} themselves.
+	 * 
+	 * @param id
+	 * @param top the maximum number of products to list, can be {@literal null}.
+	 * @return
+	 */
+	@RequestMapping(value = "/customers/{id}/statistics", method = RequestMethod.GET)
+	HttpEntity<Resource<Statistics>> showCustomerStatistics(@PathVariable long id,
+			@RequestParam(value = TOP_PARAMETER, required = false) Integer top) {
+
+		if (top != null && top < 0) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		if (customers.findOne(id) == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+
+		Statistics statistics = orders.getStatistics().forCustomer(id, top == null ? Integer.MAX_VALUE : top);
+		String self = statisticsTemplate.expand(id);
+
+		Resource<Statistics> resource = new Resource<>(statistics);
+		resource.add(new Link(top == null ? self : self + "?" + TOP_PARAMETER + "=" + top));
+		resource.add(customerOrdersTemplate.withRel("orders", id));
+
+		return new ResponseEntity<>(resource, HttpStatus.OK);
+	}
+
+	/**
+	 * Exposes the {@link Order}s created or changed after the change with the given sequence number, optionally only the
+	 * ones of the given {@link Customer}, linking to the subsequent changes. Without a sequence number, only the link to
+	 * subsequent changes is exposed. If there are no changes yet, waits for them up to the given number of seconds
+	 * without holding a thread. Answers with {@code 410 Gone} if the changes since the given sequence number are not
+	 * retained anymore, so that clients have to re-read the {@link Order}s. Renders a server-sent event for clients
+	 * asking for an event stream.
+	 * 
+	 * @param since the sequence number of the last change seen, can be {@literal null}.
+	 * @param customerId the id of the {@link Customer} to restrict the changes to, can be {@literal null}.
+	 * @param wait the number of seconds to wait for changes.
+	 * @param request
+	 * @return
+	 */
+	@RequestMapping(value = "/orders/changes", method = RequestMethod.GET)
+	DeferredResult<HttpEntity<?>> showChanges(@RequestParam(value = ChangeFeed.SINCE_PARAMETER, required = false) Long since,
+			@RequestParam(value = ChangeFeed.CUSTOMER_PARAMETER, required = false) Long customerId,
+			@RequestParam(value = ChangeFeed.WAIT_PARAMETER, defaultValue = "0") int wait, WebRequest request) {
+
+		boolean eventStream = ChangeFeed.isEventStreamRequested(request);
+		Long lastEventId = eventStream ? ChangeFeed.getLastEventId(request) : null;
+		final ChangeLog changeLog = orders.getChangeLog();
+		final long sequence = lastEventId != null ? lastEventId : since != null ? since : changeLog.getSequence();
+		final ChangesQuery query = new ChangesQuery(sequence, customerId, getProjection(request), links.getBaseUri(),
+				eventStream);
+
+		int seconds = ChangeFeed.getWait(wait, eventStream);
+		Changes changes = changeLog.since(sequence, ChangeFeed.MAX_SIZE);
+
+		if (seconds == 0 || (since == null && lastEventId == null) || !changes.isComplete()
+				|| (!changes.getIds().isEmpty() && customerId == null)) {
+
+			DeferredResult<HttpEntity<?>> result = new DeferredResult<>();
+			render(changes, query, result);
+
+			return result;
+		}
+
+		final DeferredResult<HttpEntity<?>> result = new DeferredResult<HttpEntity<?>>(seconds * 1000L, query.render(
+				changes, Collections.<Order> emptyList()));
+		final ChangesWaiter waiter = new ChangesWaiter(changeLog, query, result);
+
+		result.onCompletion(new Runnable() {
+
+			@Override
+			public void run() {
+				changeLog.cancel(waiter);
+			}
+		});
+
+		waiter.answer(changes);
+
+		return result;
+	}
 
-		Customer customer = customers.findOne(id);
+	/**
+	 * Completes the given {@link DeferredResult} with the given {@link Changes}, looking up the {@link Order}s changed
+	 * asynchronously, as this might be invoked by the thread that recorded the change.
+	 * 
+	 * @param changes
+	 * @param query
+	 * @param result
+	 */
+	private void render(final Changes changes, final ChangesQuery query, DeferredResult<HttpEntity<?>> result) {
 
-		if (customer == null) {
-			return new ResponseEntity<>(HttpStatus.OK);
+		if (changes.getIds().isEmpty()) {
+			result.setResult(query.render(changes, Collections.<Order> emptyList()));
+			return;
 		}
 
-		List<OrderResource> orderResources = new ArrayList<>();
+		asyncOrders.findAll(changes.getIds(), new DeferredResultCallback<List<Order>, HttpEntity<?>>(result) {
+
+			@Override
+			protected HttpEntity<?> map(List<Order> orders) {
+				return query.render(changes, orders);
+			}
+		});
+	}
+
+	/**
+	 * Creates a new {@link Order} for the {@link Customer} and with the {@link LineItem}s given in the request body.
+	 * Returns {@code 400 Bad Request} if the {@link Customer} is unknown or the {@link LineItem}s are invalid.
+	 * 
+	 * @param input
+	 * @return
+	 */
+	@RequestMapping(value = "/orders", method = RequestMethod.POST)
+	HttpEntity<Resource<ProjectedOrder>> createOrder(@RequestBody OrderInput input) {
+
+		Long customerId = input.getCustomerId();
+		Customer customer = customerId == null ? null : customers.findOne(customerId.longValue());
+
+		if (customer == null || !isValid(input.getLineItems())) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		return render(orders.create(customer, input.getLineItems()), HttpStatus.CREATED);
+	}
+
+	/**
+	 * Replaces the {@link LineItem}s of an {@link Order} with the ones given in the request body. Returns
+	 * {@code 400 Bad Request} if they are invalid.
+	 * 
+	 * @param id
+	 * @param input
+	 * @return
+	 */
+	@RequestMapping(value = "/orders/{id}", method = RequestMethod.PUT)
+	HttpEntity<Resource<ProjectedOrder>> updateOrder(@PathVariable long id, @RequestBody OrderInput input) {
+
+		if (!isValid(input.getLineItems())) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+
+		return render(orders.update(id, input.getLineItems()), HttpStatus.OK);
+	}
+
+	/**
+	 * Adds the {@link LineItem}s given in the request body to an {@link Order}. Returns {@code 400 Bad Request} if they
+	 * are invalid.
+	 * 
+	 * @param id
+	 * @param input
+	 * @return
+	 */
+	@RequestMapping(value = "/orders/{id}", method = RequestMethod.PATCH)
+	HttpEntity<Resource<ProjectedOrder>> addLineItems(@PathVariable long id, @RequestBody OrderInput input) {
+
+		if (!isValid(input.getLineItems())) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
 
-		for (Order order : orders.findAll(customer)) {
+		return render(orders.add(id, input.getLineItems()), HttpStatus.OK);
+	}
 
-			OrderResource resource = new OrderResource(order.getLineItems());
-			resource.add(linkTo(methodOn(OrderController.class).showOrder(order.getId())).withSelfRel());
-			resource.add(linkTo(methodOn(CustomerController.class).showCustomer(id)).withRel("customer"));
+	/**
+	 * Renders the given, just written {@link Order} along with its entity tag. Points to the {@link Order} in the
+	 * {@code Location} header if it was created and returns {@code 404 Not Found} if there's no {@link Order}.
+	 * 
+	 * @param order can be {@literal null}.
+	 * @param status the status to respond with if the {@link Order} exists.
+	 * @return
+	 */
+	private HttpEntity<Resource<ProjectedOrder>> render(Order order, HttpStatus status) {
 
-			orderResources.add(resource);
+		if (order == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
 		}
 
-		Resources<OrderResource> resources = new Resources<>(orderResources);
-		resources.add(linkTo(methodOn(OrderController.class).showCustomerOrders(id)).withSelfRel());
+		Resource<ProjectedOrder> resource = assembler.toResource(order, Projection.ALL, links.getBaseUri());
 
 		HttpHeaders headers = new HttpHeaders();
-		headers.add("Link", linkTo(methodOn(OrderController.class).showCustomerOrders(id)).withSelfRel().toString());
+		headers.setETag(ETags.forOrder(order));
+
+		if (status == HttpStatus.CREATED) {
+			headers.setLocation(URI.create(resource.getId().getHref()));
+		}
 
-		return new ResponseEntity<>(resources, headers, HttpStatus.OK);
+		return new ResponseEntity<>(resource, headers, status);
 	}
 
 	/**
-	 * DTO for {@link Order}s.
+	 * Returns whether the given {@link LineItem}s can be added to an {@link Order}. {@link LineItem}s without a name are
+	 * rejected on deserialization already.
+	 * 
+	 * @param lineItems can be {@literal null}.
+	 * @return
+	 */
+	private static boolean isValid(List<LineItem> lineItems) {
+		return lineItems != null && !lineItems.contains(null);
+	}
+
+	private static Projection getProjection(WebRequest request) {
+		return ProjectedOrder.projection(request.getParameter(Projection.FIELDS_PARAMETER),
+				request.getParameter(Projection.EMBED_PARAMETER));
+	}
+
+	/**
+	 * DTO for {@link Order}s. The {@link LineItem}s are {@literal null} if not requested.
 	 * 
 	 * @author Oliver Gierke
 	 */
 	@RequiredArgsConstructor
 	@Getter
-	private static class OrderResource extends ResourceSupport {
+	@JsonInclude(Include.NON_NULL)
+	static class OrderResource extends ResourceSupport {
 
 		private final List<LineItem> lineItems;
 	}
+
+	/**
+	 * View of an {@link Order} exposing only the properties selected by a {@link Projection}. Rendered by the
+	 * {@link HalSerializers}, which read the selected properties straight from the {@link Order}, so that unselected
+	 * ones are never looked up.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@RequiredArgsConstructor
+	@Getter
+	static class ProjectedOrder {
+
+		static final String ID = "id";
+		static final String CUSTOMER = "customer";
+		static final String LINE_ITEMS = "lineItems";
+		static final String VERSION = "version";
+
+		static final List<String> PROPERTIES = Arrays.asList(ID, CUSTOMER, LINE_ITEMS, VERSION);
+		static final List<String> ASSOCIATIONS = Arrays.asList(CUSTOMER);
+
+		private final Order order;
+		private final Projection projection;
+
+		/**
+		 * Creates a {@link Projection} of {@link Order}s from the given request parameters.
+		 * 
+		 * @param fields the comma separated names of the properties to render, {@literal null} for all of them.
+		 * @param embed the comma separated names of the associations to embed, {@literal null} for all of them.
+		 * @return
+		 */
+		static Projection projection(String fields, String embed) {
+			return Projection.of(fields, embed, PROPERTIES, ASSOCIATIONS);
+		}
+	}
+
+	/**
+	 * A request for the {@link Changes} after a sequence number. Renders them independently of the request thread.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@RequiredArgsConstructor
+	private class ChangesQuery {
+
+		private final long since;
+		private final Long customerId;
+		private final Projection projection;
+		private final String baseUri;
+		private final boolean eventStream;
+
+		/**
+		 * Renders the given {@link Changes} with the given {@link Order}s changed.
+		 * 
+		 * @param changes must not be {@literal null}.
+		 * @param orders must not be {@literal null}.
+		 * @return
+		 */
+		HttpEntity<?> render(Changes changes, List<Order> orders) {
+
+			List<Order> selected = select(orders);
+			LinkTemplate template = changesTemplate.relativeTo(baseUri);
+
+			Resources<Resource<ProjectedOrder>> resources = new Resources<>(assembler.toResources(selected, projection,
+					baseUri));
+			resources.add(ChangeFeed.createLink(template, since, customerId, Link.REL_SELF));
+			resources.add(ChangeFeed.createLink(template, changes.getSequence(), customerId, Link.REL_NEXT));
+
+			if (!eventStream) {
+				return new ResponseEntity<>(resources, changes.isComplete() ? HttpStatus.OK : HttpStatus.GONE);
+			}
+
+			HttpHeaders headers = new HttpHeaders();
+			headers.setContentType(ChangeFeed.EVENT_STREAM);
+			headers.setCacheControl("no-cache");
+
+			try {
+
+				byte[] data = mapper.writeValueAsBytes(resources);
+				String event = changes.isComplete() ? ChangeFeed.REL : "reset";
+
+				return new ResponseEntity<>(ChangeFeed.toEvent(changes.getSequence(), event, data), headers, HttpStatus.OK);
+
+			} catch (IOException o_O) {
+				throw new IllegalStateException(o_O);
+			}
+		}
+	
+		/**
+		 * Returns the given {@link Order}s restricted to the ones of the {@link Customer} queried for, if any.
+		 * 
+		 * @param orders must not be {@literal null}.
+		 * @return
+		 */
+		List<Order> select(List<Order> orders) {
+
+			if (customerId == null) {
+				return orders;
+			}
+
+			List<Order> selected = new ArrayList<Order>(orders.size());
+
+			for (Order order : orders) {
+				if (order.getCustomer().hasId(customerId)) {
+					selected.add(order);
+				}
+			}
+
+			return selected;
+		}
+	}
+
+	/**
+	 * Waits for the {@link Changes} relevant to a {@link ChangesQuery} and completes a {@link DeferredResult} with them.
+	 * Changes of {@link Order}s of other {@link Customer}s than the one queried for are skipped and waiting resumes
+	 * after them.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private class ChangesWaiter implements Callback<Long> {
+
+		private final ChangeLog changeLog;
+		private final ChangesQuery query;
+		private final DeferredResult<HttpEntity<?>> result;
+		private volatile long seen;
+
+		/**
+		 * Creates a new {@link ChangesWaiter} for the given {@link ChangeLog}, {@link ChangesQuery} and
+		 * {@link DeferredResult}.
+		 * 
+		 * @param changeLog must not be {@literal null}.
+		 * @param query must not be {@literal null}.
+		 * @param result must not be {@literal null}.
+		 */
+		ChangesWaiter(ChangeLog changeLog, ChangesQuery query, DeferredResult<HttpEntity<?>> result) {
+
+			this.changeLog = changeLog;
+			this.query = query;
+			this.result = result;
+			this.seen = query.since;
+		}
+
+		/**
+		 * Completes the {@link DeferredResult} with the given {@link Changes} if they are relevant, waits for subsequent
+		 * ones otherwise.
+		 * 
+		 * @param changes must not be {@literal null}.
+		 */
+		void answer(final Changes changes) {
+
+			if (result.isSetOrExpired()) {
+				return;
+			}
+
+			if (!changes.isComplete() || (!changes.getIds().isEmpty() && query.customerId == null)) {
+				render(changes, query, result);
+				return;
+			}
+
+			if (changes.getIds().isEmpty()) {
+				changeLog.await(seen, this);
+				return;
+			}
+
+			asyncOrders.findAll(changes.getIds(), new Callback<List<Order>>() {
+
+				@Override
+				public void onSuccess(List<Order> orders) {
+
+					if (!query.select(orders).isEmpty()) {
+						result.setResult(query.render(changes, orders));
+						return;
+					}
+
+					seen = changes.getSequence();
+					answer(changeLog.since(seen, ChangeFeed.MAX_SIZE));
+				}
+
+				@Override
+				public void onFailure(Throwable error) {
+					result.setErrorResult(error);
+				}
+			});
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Callback#onSuccess(java.lang.Object)
+		 */
+		@Override
+		public void onSuccess(Long latest) {
+			answer(changeLog.since(seen, ChangeFeed.MAX_SIZE));
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Callback#onFailure(java.lang.Throwable)
+		 */
+		@Override
+		public void onFailure(Throwable error) {
+			result.setErrorResult(error);
+		}
+	}
+
+	/**
+	 * Request body to create and change {@link Order}s. The {@link Customer} is only considered on creation, as
+	 * {@link Order}s can't be moved to another {@link Customer}.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@Data
+	static class OrderInput {
+
+		private Long customerId;
+		private List<LineItem> lineItems = Collections.emptyList();
+	}
 }
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import lombok.RequiredArgsConstructor;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.ResourceAssembler;
+import org.springframework.hateoas.sample.Projection;
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+import org.springframework.hateoas.sample.hateoas.OrderController.OrderResource;
+import org.springframework.hateoas.sample.hateoas.OrderController.ProjectedOrder;
+import org.springframework.hateoas.sample.metrics.Recording;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ResourceAssembler} for {@link Order}s. Assembles whole {@link List}s of {@link Order}s in a single pass into
+ * collections sized up front, resolving the {@link LinkTemplate}s against the base URI once per {@link List} and
+ * sharing the {@code customer} {@link Link} between consecutive {@link Order}s of the same {@link Customer}.
+ * <p>
+ * {@link List}s of at least {@value #PARALLEL_THRESHOLD} {@link Order}s are split into chunks of
+ * {@value #CHUNK_SIZE}, which are assembled concurrently on a thread pool sized to the number of processors while the
+ * calling thread assembles the first one. The pool's queue is bounded, if it's full, chunks are assembled on the
+ * calling thread, so that a load of large requests degrades to sequential assembly instead of queuing up. The
+ * resources are returned in the order of the {@link Order}s either way.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+@Profile("hateoas")
+class OrderResourceAssembler implements ResourceAssembler<Order, Resource<ProjectedOrder>>, DisposableBean {
+
+	static final int PARALLEL_THRESHOLD = 2048;
+	static final int CHUNK_SIZE = 512;
+
+	private final ControllerLinkFactory links;
+	private final LinkTemplate orderTemplate, customerTemplate;
+	private final int parallelThreshold, chunkSize;
+	private final ExecutorService executor;
+
+	/**
+	 * Creates a new {@link OrderResourceAssembler} using the given {@link ControllerLinkFactory}, assembling
+	 * {@link List}s of at least {@value #PARALLEL_THRESHOLD} {@link Order}s in parallel.
+	 * 
+	 * @param links must not be {@literal null}.
+	 */
+	@Autowired
+	public OrderResourceAssembler(ControllerLinkFactory links) {
+		this(links, PARALLEL_THRESHOLD, CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a new {@link OrderResourceAssembler} using the given {@link ControllerLinkFactory}, assembling
+	 * {@link List}s of at least the given number of {@link Order}s in parallel in chunks of the given size.
+	 * 
+	 * @param links must not be {@literal null}.
+	 * @param parallelThreshold the minimum number of {@link Order}s to assemble in parallel.
+	 * @param chunkSize the number of {@link Order}s to assemble per task, must be greater than zero.
+	 */
+	OrderResourceAssembler(ControllerLinkFactory links, int parallelThreshold, int chunkSize) {
+
+		Assert.notNull(links, "ControllerLinkFactory must not be null!");
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than zero!");
+
+		int processors = Runtime.getRuntime().availableProcessors();
+
+		CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("assembly-");
+		threadFactory.setDaemon(true);
+
+		this.links = links;
+		this.orderTemplate = links.templateFor(methodOn(OrderController.class).showOrder(0L, null));
+		this.customerTemplate = links.templateFor(methodOn(CustomerController.class).showCustomer(0L, null));
+		this.parallelThreshold = parallelThreshold;
+		this.chunkSize = chunkSize;
+		this.executor = new ThreadPoolExecutor(processors, processors, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(processors * 4), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.DisposableBean#destroy()
+	 */
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.hateoas.ResourceAssembler#toResource(java.lang.Object)
+	 */
+	@Override
+	public Resource<ProjectedOrder> toResource(Order order) {
+		return toResource(order, Projection.ALL, links.getBaseUri());
+	}
+
+	/**
+	 * Creates a resource for the given {@link Order} projected with the given {@link Projection}, linking the
+	 * {@link Customer} if it's not embedded.
+	 * 
+	 * @param order must not be {@literal null}.
+	 * @param projection must not be {@literal null}.
+	 * @param baseUri the base URI to build the {@link Link}s for, must not be {@literal null}.
+	 * @return
+	 */
+	public Resource<ProjectedOrder> toResource(Order order, Projection projection, String baseUri) {
+
+		Assert.notNull(order, "Order must not be null!");
+		Assert.notNull(projection, "Projection must not be null!");
+
+		return toResource(order, projection, orderTemplate.relativeTo(baseUri), customerTemplate.relativeTo(baseUri));
+	}
+
+	/**
+	 * Creates resources for the given {@link Order}s projected with the given {@link Projection}.
+	 * 
+	 * @param orders must not be {@literal null}.
+	 * @param projection must not be {@literal null}.
+	 * @param baseUri the base URI to build the {@link Link}s for, must not be {@literal null}.
+	 * @return
+	 */
+	public List<Resource<ProjectedOrder>> toResources(List<Order> orders, final Projection projection, String baseUri) {
+
+		Assert.notNull(orders, "Orders must not be null!");
+		Assert.notNull(projection, "Projection must not be null!");
+
+		final LinkTemplate orderTemplate = this.orderTemplate.relativeTo(baseUri);
+		final LinkTemplate customerTemplate = this.customerTemplate.relativeTo(baseUri);
+		final boolean linkCustomer = !projection.embeds(ProjectedOrder.CUSTOMER);
+
+		return assemble(orders, new Assembly() {
+
+			@Override
+			void assemble(List<Order> orders, int from, int to, Object[] target) {
+
+				Link customerLink = null;
+				long customerId = 0;
+
+				for (int i = from; i < to; i++) {
+
+					Order order = orders.get(i);
+
+					if (linkCustomer && (customerLink == null || customerId != order.getCustomer().getId())) {
+						customerId = order.getCustomer().getId();
+						customerLink = customerTemplate.withRel(ProjectedOrder.CUSTOMER, customerId);
+					}
+
+					target[i] = toResource(order, projection, orderTemplate, customerLink);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Returns a view of the given {@link Order}s as resources projected with the given {@link Projection}. As opposed to
+	 * {@link #toResources(List, Projection, String)} the resources are assembled when accessed, so that streaming them
+	 * doesn't hold all of them in memory.
+	 * 
+	 * @param orders must not be {@literal null}.
+	 * @param projection must not be {@literal null}.
+	 * @param baseUri the base URI to build the {@link Link}s for, must not be {@literal null}.
+	 * @return
+	 */
+	public List<Resource<ProjectedOrder>> toResourceView(List<Order> orders, Projection projection, String baseUri) {
+
+		Assert.notNull(orders, "Orders must not be null!");
+		Assert.notNull(projection, "Projection must not be null!");
+
+		return new ProjectedOrders(orders, projection, orderTemplate.relativeTo(baseUri),
+				customerTemplate.relativeTo(baseUri));
+	}
+
+	/**
+	 * Creates {@link OrderResource}s for the given {@link Order}s of the given {@link Customer}. Includes the
+	 * {@link org.springframework.hateoas.sample.core.Order.LineItem}s only if selected by the given {@link Projection}.
+	 * 
+	 * @param orders must not be {@literal null}.
+	 * @param customer must not be {@literal null}.
+	 * @param projection must not be {@literal null}.
+	 * @param baseUri the base URI to build the {@link Link}s for, must not be {@literal null}.
+	 * @return
+	 */
+	public List<OrderResource> toOrderResources(List<Order> orders, Customer customer, Projection projection,
+			String baseUri) {
+
+		Assert.notNull(orders, "Orders must not be null!");
+		Assert.notNull(customer, "Customer must not be null!");
+		Assert.notNull(projection, "Projection must not be null!");
+
+		final LinkTemplate orderTemplate = this.orderTemplate.relativeTo(baseUri);
+		final Link customerLink = customerTemplate.relativeTo(baseUri).withRel(ProjectedOrder.CUSTOMER, customer.getId());
+		final boolean lineItems = projection.includes(ProjectedOrder.LINE_ITEMS);
+
+		return assemble(orders, new Assembly() {
+
+			@Override
+			void assemble(List<Order> orders, int from, int to, Object[] target) {
+
+				for (int i = from; i < to; i++) {
+
+					Order order = orders.get(i);
+
+					OrderResource resource = new OrderResource(lineItems ? order.getLineItems() : null);
+					resource.add(orderTemplate.withSelfRel(order.getId()));
+					resource.add(customerLink);
+
+					target[i] = resource;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Runs the given {@link Assembly} for the given {@link Order}s, in parallel chunks if there are enough of them.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> List<T> assemble(final List<Order> orders, final Assembly assembly) {
+
+		final int size = orders.size();
+		final Object[] result = new Object[size];
+
+		if (size < parallelThreshold || size <= chunkSize) {
+			assembly.assemble(orders, 0, size, result);
+			return (List<T>) Arrays.asList(result);
+		}
+
+		final Recording recording = Recording.current();
+		final Thread caller = Thread.currentThread();
+		List<Future<?>> chunks = new ArrayList<Future<?>>(size / chunkSize);
+
+		try {
+
+			for (int start = chunkSize; start < size; start += chunkSize) {
+
+				final int from = start;
+				final int to = Math.min(start + chunkSize, size);
+
+				chunks.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() {
+
+						// Run by the caller if the pool is saturated, rebinding would reset the phases it is timing
+						if (Thread.currentThread() == caller) {
+							assembly.assemble(orders, from, to, result);
+							return null;
+						}
+
+						Recording previous = Recording.bind(recording);
+
+						try {
+							assembly.assemble(orders, from, to, result);
+							return null;
+						} finally {
+							Recording.bind(previous);
+						}
+					}
+				}));
+			}
+
+			assembly.assemble(orders, 0, chunkSize, result);
+
+			// Completing the futures makes the elements written by the pool visible to this thread
+			for (Future<?> chunk : chunks) {
+				chunk.get();
+			}
+
+		} catch (InterruptedException o_O) {
+
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted assembling resources!", o_O);
+
+		} catch (ExecutionException o_O) {
+
+			Throwable cause = o_O.getCause();
+			throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+
+		} finally {
+
+			for (Future<?> chunk : chunks) {
+				chunk.cancel(true);
+			}
+		}
+
+		return (List<T>) Arrays.asList(result);
+	}
+
+	private static Resource<ProjectedOrder> toResource(Order order, Projection projection, LinkTemplate orderTemplate,
+			LinkTemplate customerTemplate) {
+
+		Link customerLink = projection.embeds(ProjectedOrder.CUSTOMER) ? null : customerTemplate.withRel(
+				ProjectedOrder.CUSTOMER, order.getCustomer().getId());
+
+		return toResource(order, projection, orderTemplate, customerLink);
+	}
+
+	/**
+	 * Creates a resource for the given {@link Order} linking the {@link Customer} with the given {@link Link} unless
+	 * it's {@literal null}, i.e. the {@link Customer} is embedded.
+	 */
+	private static Resource<ProjectedOrder> toResource(Order order, Projection projection, LinkTemplate orderTemplate,
+			Link customerLink) {
+
+		Resource<ProjectedOrder> resource = new Resource<ProjectedOrder>(new ProjectedOrder(order, projection));
+		resource.add(orderTemplate.withSelfRel(order.getId()));
+
+		if (customerLink != null) {
+			resource.add(customerLink);
+		}
+
+		return resource;
+	}
+
+	/**
+	 * Assembles the resources for a range of {@link Order}s into the same range of an array.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private abstract static class Assembly {
+
+		/**
+		 * Assembles the resources for the given range of the given {@link Order}s.
+		 * 
+		 * @param orders will never be {@literal null}.
+		 * @param from the index of the first {@link Order}.
+		 * @param to the index after the last {@link Order}.
+		 * @param target the array to store the resources at the indexes of their {@link Order}s.
+		 */
+		abstract void assemble(List<Order> orders, int from, int to, Object[] target);
+	}
+
+	/**
+	 * View of {@link Order}s as resources projected with a {@link Projection}.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	@RequiredArgsConstructor
+	private static class ProjectedOrders extends AbstractList<Resource<ProjectedOrder>> implements RandomAccess {
+
+		private final List<Order> orders;
+		private final Projection projection;
+		private final LinkTemplate orderTemplate, customerTemplate;
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public Resource<ProjectedOrder> get(int index) {
+			return toResource(orders.get(index), projection, orderTemplate, customerTemplate);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return orders.size();
+		}
+	}
+}
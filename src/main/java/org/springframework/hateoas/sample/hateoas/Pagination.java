@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.ResourceSupport;
+import org.springframework.hateoas.sample.core.Cursor;
+import org.springframework.hateoas.sample.core.Slice;
+
+/**
+ * Helper to expose {@link Slice}s as resources linking to the adjacent ones.
+ * 
+ * @author Oliver Gierke
+ */
+class Pagination {
+
+	static final String CURSOR_PARAMETER = "cursor";
+	static final String SIZE_PARAMETER = "size";
+	static final int MAX_SIZE = 1000;
+
+	private Pagination() {}
+
+	/**
+	 * Creates a {@link Cursor} from the given request parameters, limiting the size to {@value #MAX_SIZE}.
+	 * 
+	 * @param position
+	 * @param size
+	 * @return
+	 */
+	static Cursor cursor(int position, int size) {
+		return new Cursor(Math.max(0, position), Math.min(Math.max(1, size), MAX_SIZE));
+	}
+
+	/**
+	 * Adds {@code self}, {@code next} and {@code prev} {@link Link}s for the given {@link Slice} to the given resource.
+	 * 
+	 * @param resource must not be {@literal null}.
+	 * @param slice must not be {@literal null}.
+	 * @param template the {@link LinkTemplate} of the resource, must not be {@literal null}.
+	 * @param parameters the parameters to expand the {@link LinkTemplate} with.
+	 */
+	static void addLinks(ResourceSupport resource, Slice<?> slice, LinkTemplate template, Object... parameters) {
+		addLinks(resource, slice, template.expand(parameters));
+	}
+
+	/**
+	 * Adds {@code self}, {@code next} and {@code prev} {@link Link}s for the given {@link Slice} to the given resource.
+	 * 
+	 * @param resource must not be {@literal null}.
+	 * @param slice must not be {@literal null}.
+	 * @param uri the URI of the resource, might contain query parameters already, must not be {@literal null}.
+	 */
+	static void addLinks(ResourceSupport resource, Slice<?> slice, String uri) {
+
+		resource.add(createLink(uri, slice.getCursor(), Link.REL_SELF));
+
+		if (slice.hasNext()) {
+			resource.add(createLink(uri, slice.getNext(), Link.REL_NEXT));
+		}
+
+		if (slice.hasPrevious()) {
+			resource.add(createLink(uri, slice.getPrevious(), Link.REL_PREVIOUS));
+		}
+	}
+
+	private static Link createLink(String uri, Cursor cursor, String rel) {
+
+		StringBuilder builder = new StringBuilder(uri.length() + 24).append(uri);
+		builder.append(uri.indexOf('?') == -1 ? '?' : '&').append(CURSOR_PARAMETER).append('=').append(cursor.getPosition());
+		builder.append('&').append(SIZE_PARAMETER).append('=').append(cursor.getSize());
+
+		return new Link(builder.toString(), rel);
+	}
+}
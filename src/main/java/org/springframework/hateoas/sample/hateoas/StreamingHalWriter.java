@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.RelProvider;
+import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.hateoas.sample.metrics.Phase;
+import org.springframework.hateoas.sample.metrics.Recording;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Writes HAL collection resources straight to an {@link OutputStream} element by element instead of wrapping the
+ * elements into {@link org.springframework.hateoas.Resources} first and serializing those as a whole. Thus memory
+ * consumption doesn't depend on the size of the collection and the first bytes go out before the last element has
+ * been rendered. Produces the same representation as the HAL support enabled in {@link HypermediaConfiguration}, i.e.
+ * a single element is embedded as object, multiple ones as array.
+ * 
+ * @author Oliver Gierke
+ */
+class StreamingHalWriter {
+
+	private final JsonFactory factory;
+	private final ObjectWriter writer;
+	private final RelProvider relProvider;
+
+	/**
+	 * Creates a new {@link StreamingHalWriter} rendering the elements with the given {@link ObjectMapper}, writing the
+	 * format of its {@link JsonFactory}, e.g. Smile, and using a {@link DefaultRelProvider} like the HAL support enabled
+	 * in {@link HypermediaConfiguration}. The {@link ObjectMapper} is expected to be set up to render HAL, like the one
+	 * exposed by {@link HypermediaConfiguration#halObjectMapper()}.
+	 * 
+	 * @param mapper must not be {@literal null}.
+	 */
+	public StreamingHalWriter(ObjectMapper mapper) {
+
+		Assert.notNull(mapper, "ObjectMapper must not be null!");
+
+		this.factory = mapper.getFactory();
+		this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		this.relProvider = new DefaultRelProvider();
+	}
+
+	/**
+	 * Writes a HAL collection resource with the given {@link Link}s embedding the given elements of the given type.
+	 * 
+	 * @param stream must not be {@literal null}.
+	 * @param type must not be {@literal null}.
+	 * @param elements must not be {@literal null}.
+	 * @param links must not be {@literal null}.
+	 * @throws IOException
+	 */
+	public void write(OutputStream stream, Class<?> type, List<?> elements, Link... links) throws IOException {
+
+		Assert.notNull(stream, "OutputStream must not be null!");
+		Assert.notNull(type, "Type must not be null!");
+		Assert.notNull(elements, "Elements must not be null!");
+
+		long start = Recording.start(Phase.SERIALIZATION);
+
+		try {
+			doWrite(stream, type, elements, links);
+		} finally {
+			Recording.stop(Phase.SERIALIZATION, start);
+		}
+	}
+
+	private void doWrite(OutputStream stream, Class<?> type, List<?> elements, Link... links) throws IOException {
+
+		// Elements might be added while writing
+		int size = elements.size();
+
+		JsonGenerator generator = factory.createGenerator(stream, JsonEncoding.UTF8);
+		generator.writeStartObject();
+
+		if (links.length > 0) {
+
+			generator.writeObjectFieldStart("_links");
+
+			for (Link link : links) {
+				generator.writeObjectFieldStart(link.getRel());
+				generator.writeStringField("href", link.getHref());
+				generator.writeEndObject();
+			}
+
+			generator.writeEndObject();
+		}
+
+		generator.writeObjectFieldStart("_embedded");
+
+		if (size == 1) {
+
+			generator.writeFieldName(relProvider.getSingleResourceRelFor(type));
+			writer.writeValue(generator, elements.get(0));
+
+		} else if (size > 1) {
+
+			generator.writeArrayFieldStart(relProvider.getCollectionResourceRelFor(type));
+
+			for (int i = 0; i < size; i++) {
+				writer.writeValue(generator, elements.get(i));
+			}
+
+			generator.writeEndArray();
+		}
+
+		generator.writeEndObject();
+		generator.writeEndObject();
+		generator.flush();
+	}
+}
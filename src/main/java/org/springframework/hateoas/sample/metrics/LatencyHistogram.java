@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets in the spirit of HdrHistogram. Values are recorded in
+ * microseconds, values below {@value #SUB_BUCKET_COUNT} are tracked exactly, larger ones with a relative error of
+ * less than 1/{@value #HALF_SUB_BUCKET_COUNT}. Values above an hour are tracked as an hour.
+ * 
+ * @author Oliver Gierke
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKET_COUNT = SUB_BUCKET_COUNT >> 1;
+	private static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toMicros(1);
+
+	private final AtomicLongArray counts = new AtomicLongArray(indexOf(HIGHEST_TRACKABLE_VALUE) + 1);
+	private final AtomicLong totalCount = new AtomicLong();
+	private final AtomicLong totalValue = new AtomicLong();
+	private final AtomicLong maxValue = new AtomicLong();
+
+	/**
+	 * Records the given duration.
+	 * 
+	 * @param nanos the duration in nanoseconds, negative values are recorded as zero.
+	 */
+	public void recordNanos(long nanos) {
+
+		long value = Math.min(Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos)), HIGHEST_TRACKABLE_VALUE);
+
+		counts.incrementAndGet(indexOf(value));
+		totalCount.incrementAndGet();
+		totalValue.addAndGet(value);
+
+		long max = maxValue.get();
+
+		while (value > max && !maxValue.compareAndSet(max, value)) {
+			max = maxValue.get();
+		}
+	}
+
+	/**
+	 * Returns the number of values recorded.
+	 * 
+	 * @return
+	 */
+	public long getTotalCount() {
+		return totalCount.get();
+	}
+
+	/**
+	 * Returns the mean of the values recorded in microseconds.
+	 * 
+	 * @return
+	 */
+	public double getMean() {
+
+		long count = totalCount.get();
+		return count == 0 ? 0 : (double) totalValue.get() / count;
+	}
+
+	/**
+	 * Returns the largest value recorded in microseconds.
+	 * 
+	 * @return
+	 */
+	public long getMaxValue() {
+		return maxValue.get();
+	}
+
+	/**
+	 * Returns the value in microseconds the given percentage of recorded values are lower than or equal to. The value
+	 * returned is the highest value of the bucket the percentile falls into, but never more than the largest value
+	 * recorded.
+	 * 
+	 * @param percentile between 0 and 100.
+	 * @return
+	 */
+	public long getValueAtPercentile(double percentile) {
+
+		long count = 0;
+
+		for (int i = 0; i < counts.length(); i++) {
+			count += counts.get(i);
+		}
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+		long seen = 0;
+
+		for (int i = 0; i < counts.length(); i++) {
+
+			seen += counts.get(i);
+
+			if (seen >= rank) {
+				return Math.min(highestValueAt(i), maxValue.get());
+			}
+		}
+
+		return maxValue.get();
+	}
+
+	/**
+	 * Returns the index of the bucket the given non-negative value falls into. Values below {@link #SUB_BUCKET_COUNT}
+	 * get a bucket of their own, beyond that every power of two is split into {@link #HALF_SUB_BUCKET_COUNT} buckets.
+	 * 
+	 * @param value
+	 * @return
+	 */
+	static int indexOf(long value) {
+
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS + 1;
+
+		return SUB_BUCKET_COUNT + (exponent - SUB_BUCKET_BITS) * HALF_SUB_BUCKET_COUNT
+				+ (int) (value >>> shift) - HALF_SUB_BUCKET_COUNT;
+	}
+
+	/**
+	 * Returns the highest value falling into the bucket with the given index.
+	 * 
+	 * @param index
+	 * @return
+	 */
+	static long highestValueAt(int index) {
+
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+
+		int exponent = (index - SUB_BUCKET_COUNT) / HALF_SUB_BUCKET_COUNT + SUB_BUCKET_BITS;
+		int shift = exponent - SUB_BUCKET_BITS + 1;
+		long subBucket = (index - SUB_BUCKET_COUNT) % HALF_SUB_BUCKET_COUNT + HALF_SUB_BUCKET_COUNT;
+
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.hateoas.sample.core.AsyncCustomers;
+import org.springframework.hateoas.sample.core.AsyncOrders;
+import org.springframework.hateoas.sample.core.Customers;
+import org.springframework.hateoas.sample.core.Orders;
+
+/**
+ * Registers timing proxies for the repositories. They're primary, so that they're injected wherever a repository
+ * interface is required, while components depending on a particular implementation still get the implementation.
+ * 
+ * @author Oliver Gierke
+ */
+@Configuration
+class MetricsConfiguration {
+
+	@Bean
+	@Primary
+	public Customers timedCustomers(Customers customers) {
+		return TimedRepositories.timed(Customers.class, customers);
+	}
+
+	@Bean
+	@Primary
+	public Orders timedOrders(Orders orders) {
+		return TimedRepositories.timed(Orders.class, orders);
+	}
+
+	@Bean
+	@Primary
+	public AsyncCustomers timedAsyncCustomers(AsyncCustomers customers) {
+		return TimedRepositories.timed(AsyncCustomers.class, customers);
+	}
+
+	@Bean
+	@Primary
+	public AsyncOrders timedAsyncOrders(AsyncOrders orders) {
+		return TimedRepositories.timed(AsyncOrders.class, orders);
+	}
+}
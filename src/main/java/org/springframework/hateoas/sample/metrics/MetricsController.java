@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.Assert;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Exposes the latency histograms recorded by the {@link MetricsInterceptor}.
+ * 
+ * @author Oliver Gierke
+ */
+@Controller
+@RequestMapping("/metrics")
+public class MetricsController {
+
+	private final RequestMetrics metrics;
+
+	/**
+	 * Creates a new {@link MetricsController} exposing the given {@link RequestMetrics}.
+	 * 
+	 * @param metrics must not be {@literal null}.
+	 */
+	@Autowired
+	public MetricsController(RequestMetrics metrics) {
+
+		Assert.notNull(metrics, "RequestMetrics must not be null!");
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Exposes a summary of the latencies in microseconds by handler method and {@link Phase}.
+	 * 
+	 * @return
+	 */
+	@RequestMapping(method = RequestMethod.GET)
+	HttpEntity<Map<String, Map<String, Map<String, Object>>>> showMetrics() {
+		return new ResponseEntity<Map<String, Map<String, Map<String, Object>>>>(metrics.getSummary(), HttpStatus.OK);
+	}
+
+	/**
+	 * Drops the latencies recorded so far.
+	 * 
+	 * @return
+	 */
+	@RequestMapping(method = RequestMethod.DELETE)
+	HttpEntity<Void> resetMetrics() {
+
+		metrics.reset();
+		return new ResponseEntity<Void>(HttpStatus.NO_CONTENT);
+	}
+}
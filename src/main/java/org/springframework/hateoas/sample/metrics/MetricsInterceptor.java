@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+/**
+ * Records a {@link Recording} per request to a handler method into {@link RequestMetrics}. The {@link Recording} is
+ * kept in a request attribute, so that it survives the dispatches of requests handled asynchronously, and is bound to
+ * the request thread while a dispatch is handled.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+public class MetricsInterceptor extends HandlerInterceptorAdapter {
+
+	private static final String RECORDING_ATTRIBUTE = MetricsInterceptor.class.getName() + ".RECORDING";
+
+	private final RequestMetrics metrics;
+	private final ConcurrentMap<Method, String> names = new ConcurrentHashMap<Method, String>();
+
+	/**
+	 * Creates a new {@link MetricsInterceptor} recording into the given {@link RequestMetrics}.
+	 * 
+	 * @param metrics must not be {@literal null}.
+	 */
+	@Autowired
+	public MetricsInterceptor(RequestMetrics metrics) {
+
+		Assert.notNull(metrics, "RequestMetrics must not be null!");
+		this.metrics = metrics;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.web.servlet.handler.HandlerInterceptorAdapter#preHandle(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object)
+	 */
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+		if (!(handler instanceof HandlerMethod)) {
+			return true;
+		}
+
+		Recording recording = (Recording) request.getAttribute(RECORDING_ATTRIBUTE);
+
+		if (recording == null) {
+			recording = new Recording();
+			request.setAttribute(RECORDING_ATTRIBUTE, recording);
+		}
+
+		Recording.bind(recording);
+
+		return true;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.web.servlet.handler.HandlerInterceptorAdapter#afterConcurrentHandlingStarted(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object)
+	 */
+	@Override
+	public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+		Recording.bind(null);
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.web.servlet.handler.HandlerInterceptorAdapter#afterCompletion(javax.servlet.http.HttpServletRequest, javax.servlet.http.HttpServletResponse, java.lang.Object, java.lang.Exception)
+	 */
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+
+		Recording.bind(null);
+
+		Recording recording = (Recording) request.getAttribute(RECORDING_ATTRIBUTE);
+
+		if (recording != null && handler instanceof HandlerMethod) {
+			metrics.record(getName((HandlerMethod) handler), recording);
+		}
+	}
+
+	private String getName(HandlerMethod handler) {
+
+		Method method = handler.getMethod();
+		String name = names.get(method);
+
+		if (name == null) {
+			name = handler.getBeanType().getSimpleName() + "." + method.getName();
+			names.put(method, name);
+		}
+
+		return name;
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+/**
+ * The phases of handling a request latencies are recorded for.
+ * 
+ * @author Oliver Gierke
+ */
+public enum Phase {
+
+	/**
+	 * The entire request, from the handler being selected until the response is complete.
+	 */
+	TOTAL,
+
+	/**
+	 * Repository access, including the time asynchronous lookups are queued.
+	 */
+	REPOSITORY,
+
+	/**
+	 * Building links.
+	 */
+	LINKS,
+
+	/**
+	 * Rendering representations.
+	 */
+	SERIALIZATION;
+
+	/**
+	 * Returns the name of the phase as exposed by the {@link MetricsController}.
+	 * 
+	 * @return
+	 */
+	public String getKey() {
+		return name().toLowerCase();
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The time spent in the individual {@link Phase}s while handling a single request. A {@link Recording} is bound to
+ * the threads working on the request, so that code can time a {@link Phase} without access to the request:
+ * 
+ * <pre>
+ * long start = Recording.start(Phase.LINKS);
+ * ...
+ * Recording.stop(Phase.LINKS, start);
+ * </pre>
+ * 
+ * Timing a {@link Phase} on a thread without a {@link Recording} bound or while the {@link Phase} is already timed on
+ * that thread doesn't record anything, so that nested calls aren't counted twice.
+ * 
+ * @author Oliver Gierke
+ */
+public class Recording {
+
+	private static final long NOT_STARTED = Long.MIN_VALUE;
+	private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<Scope>() {
+
+		@Override
+		protected Scope initialValue() {
+			return new Scope();
+		}
+	};
+
+	private final long startTime = System.nanoTime();
+	private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+
+	/**
+	 * Returns the {@link Recording} bound to the current thread.
+	 * 
+	 * @return the current {@link Recording} or {@literal null} if none is bound.
+	 */
+	public static Recording current() {
+		return SCOPE.get().recording;
+	}
+
+	/**
+	 * Binds the given {@link Recording} to the current thread.
+	 * 
+	 * @param recording can be {@literal null} to unbind the current one.
+	 * @return the {@link Recording} bound before, can be {@literal null}.
+	 */
+	public static Recording bind(Recording recording) {
+
+		Scope scope = SCOPE.get();
+		Recording previous = scope.recording;
+
+		scope.recording = recording;
+		scope.active = 0;
+
+		return previous;
+	}
+
+	/**
+	 * Starts timing the given {@link Phase}.
+	 * 
+	 * @param phase must not be {@literal null}.
+	 * @return the value to hand to {@link #stop(Phase, long)}.
+	 */
+	public static long start(Phase phase) {
+
+		Scope scope = SCOPE.get();
+		int mask = 1 << phase.ordinal();
+
+		if (scope.recording == null || (scope.active & mask) != 0) {
+			return NOT_STARTED;
+		}
+
+		scope.active |= mask;
+		return System.nanoTime();
+	}
+
+	/**
+	 * Stops timing the given {@link Phase} and adds the time passed to the current {@link Recording}.
+	 * 
+	 * @param phase must not be {@literal null}.
+	 * @param start the value returned by {@link #start(Phase)}.
+	 */
+	public static void stop(Phase phase, long start) {
+
+		if (start == NOT_STARTED) {
+			return;
+		}
+
+		Scope scope = SCOPE.get();
+		scope.active &= ~(1 << phase.ordinal());
+
+		if (scope.recording != null) {
+			scope.recording.add(phase, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Adds the given time to the given {@link Phase}.
+	 * 
+	 * @param phase must not be {@literal null}.
+	 * @param nanos
+	 */
+	public void add(Phase phase, long nanos) {
+		this.nanos.addAndGet(phase.ordinal(), nanos);
+	}
+
+	/**
+	 * Returns the time spent in the given {@link Phase} in nanoseconds. For {@link Phase#TOTAL} that's the time passed
+	 * since the {@link Recording} was created.
+	 * 
+	 * @param phase must not be {@literal null}.
+	 * @return
+	 */
+	public long getNanos(Phase phase) {
+		return phase == Phase.TOTAL ? System.nanoTime() - startTime : nanos.get(phase.ordinal());
+	}
+
+	/**
+	 * The {@link Recording} bound to a thread and the {@link Phase}s currently timed on it.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class Scope {
+
+		Recording recording;
+		int active;
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * Latency histograms per handler and {@link Phase}.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+public class RequestMetrics {
+
+	private static final Phase[] PHASES = Phase.values();
+	private static final double[] PERCENTILES = { 50, 90, 99, 99.9 };
+
+	private final ConcurrentMap<String, LatencyHistogram[]> histograms = new ConcurrentHashMap<String, LatencyHistogram[]>();
+
+	/**
+	 * Records the times of all {@link Phase}s of the given {@link Recording} for the given handler.
+	 * 
+	 * @param handler must not be {@literal null}.
+	 * @param recording must not be {@literal null}.
+	 */
+	public void record(String handler, Recording recording) {
+
+		Assert.notNull(handler, "Handler must not be null!");
+		Assert.notNull(recording, "Recording must not be null!");
+
+		LatencyHistogram[] histograms = getHistograms(handler);
+
+		for (Phase phase : PHASES) {
+			histograms[phase.ordinal()].recordNanos(recording.getNanos(phase));
+		}
+	}
+
+	/**
+	 * Returns the {@link LatencyHistogram} of the given handler and {@link Phase}.
+	 * 
+	 * @param handler must not be {@literal null}.
+	 * @param phase must not be {@literal null}.
+	 * @return the {@link LatencyHistogram} or {@literal null} if nothing was recorded for the handler yet.
+	 */
+	public LatencyHistogram getHistogram(String handler, Phase phase) {
+
+		LatencyHistogram[] histograms = this.histograms.get(handler);
+		return histograms == null ? null : histograms[phase.ordinal()];
+	}
+
+	/**
+	 * Returns a summary of all histograms by handler and {@link Phase}. Latencies are given in microseconds.
+	 * 
+	 * @return
+	 */
+	public Map<String, Map<String, Map<String, Object>>> getSummary() {
+
+		Map<String, Map<String, Map<String, Object>>> result = new TreeMap<String, Map<String, Map<String, Object>>>();
+
+		for (Map.Entry<String, LatencyHistogram[]> entry : histograms.entrySet()) {
+
+			Map<String, Map<String, Object>> phases = new LinkedHashMap<String, Map<String, Object>>(PHASES.length);
+
+			for (Phase phase : PHASES) {
+				phases.put(phase.getKey(), summarize(entry.getValue()[phase.ordinal()]));
+			}
+
+			result.put(entry.getKey(), phases);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Drops all histograms recorded so far.
+	 */
+	public void reset() {
+		histograms.clear();
+	}
+
+	private LatencyHistogram[] getHistograms(String handler) {
+
+		LatencyHistogram[] histograms = this.histograms.get(handler);
+
+		if (histograms != null) {
+			return histograms;
+		}
+
+		histograms = new LatencyHistogram[PHASES.length];
+
+		for (int i = 0; i < histograms.length; i++) {
+			histograms[i] = new LatencyHistogram();
+		}
+
+		LatencyHistogram[] existing = this.histograms.putIfAbsent(handler, histograms);
+		return existing == null ? histograms : existing;
+	}
+
+	private static Map<String, Object> summarize(LatencyHistogram histogram) {
+
+		Map<String, Object> summary = new LinkedHashMap<String, Object>();
+		summary.put("count", histogram.getTotalCount());
+		summary.put("mean", Math.round(histogram.getMean()));
+
+		for (double percentile : PERCENTILES) {
+			summary.put("p" + String.valueOf(percentile).replace(".0", ""), histogram.getValueAtPercentile(percentile));
+		}
+
+		summary.put("max", histogram.getMaxValue());
+
+		return summary;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.springframework.hateoas.sample.core.Callback;
+import org.springframework.util.Assert;
+
+/**
+ * Creates proxies for repositories timing their invocations as {@link Phase#REPOSITORY}. Invocations taking a
+ * {@link Callback} are considered asynchronous. For those the time until the {@link Callback} is invoked is recorded
+ * and the {@link Recording} is bound to the thread invoking the {@link Callback}, so that the work done in it is
+ * recorded, too.
+ * 
+ * @author Oliver Gierke
+ */
+class TimedRepositories {
+
+	private TimedRepositories() {}
+
+	/**
+	 * Returns a proxy implementing the given repository interface and timing the invocations on the given repository.
+	 * 
+	 * @param type must not be {@literal null}.
+	 * @param repository must not be {@literal null}.
+	 * @return
+	 */
+	static <T> T timed(Class<T> type, T repository) {
+
+		Assert.notNull(type, "Type must not be null!");
+		Assert.notNull(repository, "Repository must not be null!");
+
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+				new TimingInvocationHandler(repository)));
+	}
+
+	/**
+	 * {@link InvocationHandler} timing invocations on the target repository.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class TimingInvocationHandler implements InvocationHandler {
+
+		private final Object target;
+
+		public TimingInvocationHandler(Object target) {
+			this.target = target;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+		 */
+		@Override
+		@SuppressWarnings("unchecked")
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+			if (method.getDeclaringClass().equals(Object.class)) {
+				return invoke(method, args);
+			}
+
+			Recording recording = Recording.current();
+
+			if (recording != null && args != null) {
+				for (int i = 0; i < args.length; i++) {
+					if (args[i] instanceof Callback) {
+						args[i] = new TimedCallback<Object>(recording, (Callback<Object>) args[i]);
+						return invoke(method, args);
+					}
+				}
+			}
+
+			long start = Recording.start(Phase.REPOSITORY);
+
+			try {
+				return invoke(method, args);
+			} finally {
+				Recording.stop(Phase.REPOSITORY, start);
+			}
+		}
+
+		private Object invoke(Method method, Object[] args) throws Throwable {
+
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException o_O) {
+				throw o_O.getCause();
+			}
+		}
+	}
+
+	/**
+	 * {@link Callback} recording the time until it's invoked and binding the {@link Recording} while delegating.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class TimedCallback<T> implements Callback<T> {
+
+		private final Recording recording;
+		private final Callback<T> delegate;
+		private final long start = System.nanoTime();
+
+		public TimedCallback(Recording recording, Callback<T> delegate) {
+			this.recording = recording;
+			this.delegate = delegate;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Callback#onSuccess(java.lang.Object)
+		 */
+		@Override
+		public void onSuccess(T result) {
+
+			Recording previous = enter();
+
+			try {
+				delegate.onSuccess(result);
+			} finally {
+				Recording.bind(previous);
+			}
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.hateoas.sample.core.Callback#onFailure(java.lang.Throwable)
+		 */
+		@Override
+		public void onFailure(Throwable error) {
+
+			Recording previous = enter();
+
+			try {
+				delegate.onFailure(error);
+			} finally {
+				Recording.bind(previous);
+			}
+		}
+
+		private Recording enter() {
+
+			recording.add(Phase.REPOSITORY, System.nanoTime() - start);
+			return Recording.bind(recording);
+		}
+	}
+}
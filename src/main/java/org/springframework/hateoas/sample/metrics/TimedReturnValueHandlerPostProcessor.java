@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import java.util.Collections;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.MethodParameter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodReturnValueHandler;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+/**
+ * {@link BeanPostProcessor} timing the handling of the return values of handler methods as
+ * {@link Phase#SERIALIZATION}. That's where the message converters render the representations returned.
+ * 
+ * @author Oliver Gierke
+ */
+@Component
+class TimedReturnValueHandlerPostProcessor implements BeanPostProcessor {
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessBeforeInitialization(java.lang.Object, java.lang.String)
+	 */
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) {
+		return bean;
+	}
+
+	/* 
+	 * (non-Javadoc)
+	 * @see org.springframework.beans.factory.config.BeanPostProcessor#postProcessAfterInitialization(java.lang.Object, java.lang.String)
+	 */
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+
+		if (bean instanceof RequestMappingHandlerAdapter) {
+
+			// The handlers are set up on initialization, so wrap the ones set up
+			RequestMappingHandlerAdapter adapter = (RequestMappingHandlerAdapter) bean;
+			HandlerMethodReturnValueHandler handler = new TimedReturnValueHandler(adapter.getReturnValueHandlers());
+
+			adapter.setReturnValueHandlers(Collections.singletonList(handler));
+		}
+
+		return bean;
+	}
+
+	/**
+	 * {@link HandlerMethodReturnValueHandler} timing the delegate's handling of return values.
+	 * 
+	 * @author Oliver Gierke
+	 */
+	private static class TimedReturnValueHandler implements HandlerMethodReturnValueHandler {
+
+		private final HandlerMethodReturnValueHandler delegate;
+
+		public TimedReturnValueHandler(HandlerMethodReturnValueHandler delegate) {
+			this.delegate = delegate;
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.web.method.support.HandlerMethodReturnValueHandler#supportsReturnType(org.springframework.core.MethodParameter)
+		 */
+		@Override
+		public boolean supportsReturnType(MethodParameter returnType) {
+			return delegate.supportsReturnType(returnType);
+		}
+
+		/* 
+		 * (non-Javadoc)
+		 * @see org.springframework.web.method.support.HandlerMethodReturnValueHandler#handleReturnValue(java.lang.Object, org.springframework.core.MethodParameter, org.springframework.web.method.support.ModelAndViewContainer, org.springframework.web.context.request.NativeWebRequest)
+		 */
+		@Override
+		public void handleReturnValue(Object returnValue, MethodParameter returnType, ModelAndViewContainer mavContainer,
+				NativeWebRequest webRequest) throws Exception {
+
+			long start = Recording.start(Phase.SERIALIZATION);
+
+			try {
+				delegate.handleReturnValue(returnValue, returnType, mavContainer, webRequest);
+			} finally {
+				Recording.stop(Phase.SERIALIZATION, start);
+			}
+		}
+	}
+}
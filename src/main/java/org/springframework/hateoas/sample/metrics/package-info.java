@@ -0,0 +1,4 @@
+/**
+ * Request-level metrics and latency histograms.
+ */
+package org.springframework.hateoas.sample.metrics;
\ No newline at end of file
@@ -18,6 +18,7 @@ package org.springframework.hateoas.sample.web;
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
 
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -25,8 +26,14 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.mvc.ControllerLinkBuilder;
+import org.springframework.hateoas.sample.ETags;
+import org.springframework.hateoas.sample.RepresentationCache;
+import org.springframework.hateoas.sample.RepresentationCache.Key;
 import org.springframework.hateoas.sample.core.Customer;
 import org.springframework.hateoas.sample.core.Customers;
+import org.springframework.hateoas.sample.metrics.Phase;
+import org.springframework.hateoas.sample.metrics.Recording;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -34,6 +41,9 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Plain Spring MVC controller implementation to expose {@link Customer}s.
@@ -47,20 +57,52 @@ import org.springframework.web.bind.annotation.RequestMethod;
 public class CustomerController {
 
 	private final @NonNull Customers customers;
+	private final @NonNull RepresentationCache cache;
+	private final ObjectMapper mapper = new ObjectMapper();
 
 	/**
-	 * Exposes a single {@link Customer}.
+	 * Exposes a single {@link Customer}. Answers conditional requests for an unchanged {@link Customer} without
+	 * rendering it and serves the representation from the {@link RepresentationCache} if possible.
 	 * 
 	 * @param id
+	 * @param request
 	 * @return
 	 */
 	@RequestMapping(value = "/{id}", method = RequestMethod.GET)
-	HttpEntity<Resource<Customer>> showCustomer(@PathVariable Long id) {
+	HttpEntity<byte[]> showCustomer(@PathVariable final long id, WebRequest request) {
+
+		final Customer customer = customers.findOne(id);
+
+		if (customer == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+
+		String etag = ETags.forCustomer(customer);
+
+		if (ETags.matches(request.getHeader(ETags.IF_NONE_MATCH), etag)) {
+			return ETags.notModified(etag);
+		}
+
+		long start = Recording.start(Phase.LINKS);
+		final ControllerLinkBuilder base = linkTo(CustomerController.class);
+		Recording.stop(Phase.LINKS, start);
+
+		Key key = new Key(Customer.class, id, RepresentationCache.JSON, base.toString());
+
+		return cache.getOrRender(key, etag, mapper, new Callable<Resource<Customer>>() {
+
+			@Override
+			public Resource<Customer> call() {
+
+				Resource<Customer> resource = new Resource<>(customer);
 
-		Resource<Customer> resource = new Resource<>(customers.findOne(id));
-		resource.add(linkTo(methodOn(CustomerController.class).showCustomer(id)).withSelfRel());
+				long start = Recording.start(Phase.LINKS);
+				resource.add(base.slash(id).withSelfRel());
+				Recording.stop(Phase.LINKS, start);
 
-		return new ResponseEntity<>(resource, HttpStatus.OK);
+				return resource;
+			}
+		});
 	}
 
 	/**
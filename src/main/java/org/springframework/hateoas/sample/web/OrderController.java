@@ -15,24 +15,43 @@
  */
 package org.springframework.hateoas.sample.web;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.servlet.http.HttpServletResponse;
 
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
+import org.springframework.hateoas.sample.ETags;
+import org.springframework.hateoas.sample.Projection;
+import org.springframework.hateoas.sample.RepresentationCache;
+import org.springframework.hateoas.sample.RepresentationCache.Key;
 import org.springframework.hateoas.sample.core.Customer;
 import org.springframework.hateoas.sample.core.Customers;
 import org.springframework.hateoas.sample.core.Order;
 import org.springframework.hateoas.sample.core.Orders;
+import org.springframework.hateoas.sample.metrics.Phase;
+import org.springframework.hateoas.sample.metrics.Recording;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 /**
  * Spring MVC controller exposing {@link Order} instances directly to the web. Quite a couple of problems to note here:
@@ -50,42 +69,109 @@ import org.springframework.web.bind.annotation.RequestMethod;
 @RequiredArgsConstructor(onConstructor = @_(@Autowired))
 public class OrderController {
 
+	private static final String ID = "id";
+	private static final String CUSTOMER = "customer";
+	private static final String LINE_ITEMS = "lineItems";
+	private static final String VERSION = "version";
+
+	private static final List<String> PROPERTIES = Arrays.asList(ID, CUSTOMER, LINE_ITEMS, VERSION);
+	private static final List<String> ASSOCIATIONS = Arrays.asList(CUSTOMER);
+
 	private final @NonNull Orders orders;
 	private final @NonNull Customers customers;
+	private final @NonNull RepresentationCache cache;
+	private final ObjectMapper mapper = new ObjectMapper().disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 
 	/**
-	 * Exposes all {@link Order}s.
+	 * Exposes all {@link Order}s. Streams them to the response one by one to keep memory consumption independent of the
+	 * number of {@link Order}s. Clients can select the properties to render via {@value Projection#FIELDS_PARAMETER} and
+	 * whether to embed the {@link Customer} via {@value Projection#EMBED_PARAMETER}. A {@link Customer} not embedded is
+	 * rendered as a reference only containing its id.
 	 * 
-	 * @return
+	 * @param fields the comma separated names of the properties to render, {@literal null} for all of them.
+	 * @param embed the comma separated names of the associations to embed, {@literal null} for all of them.
+	 * @param response
+	 * @throws IOException
 	 */
 	@RequestMapping(value = "/orders", method = RequestMethod.GET)
-	HttpEntity<List<Order>> showOrders() {
+	void showOrders(@RequestParam(value = Projection.FIELDS_PARAMETER, required = false) String fields,
+			@RequestParam(value = Projection.EMBED_PARAMETER, required = false) String embed, HttpServletResponse response)
+			throws IOException {
 
+		Projection projection = Projection.of(fields, embed, PROPERTIES, ASSOCIATIONS);
 		List<Order> result = orders.findAll();
-		return new ResponseEntity<List<Order>>(result, HttpStatus.OK);
+		int size = result.size();
+
+		response.setContentType("application/json;charset=UTF-8");
+
+		long start = Recording.start(Phase.SERIALIZATION);
+
+		try {
+
+			JsonGenerator generator = mapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+			generator.writeStartArray();
+
+			for (int i = 0; i < size; i++) {
+
+				if (projection.isAll()) {
+					mapper.writeValue(generator, result.get(i));
+				} else {
+					writeOrder(result.get(i), projection, generator);
+				}
+			}
+
+			generator.writeEndArray();
+			generator.flush();
+
+		} finally {
+			Recording.stop(Phase.SERIALIZATION, start);
+		}
 	}
 
 	/**
-	 * Exposes an individual {@link Order}.
+	 * Exposes an individual {@link Order}. Answers conditional requests for an unchanged {@link Order} without rendering
+	 * it and serves the representation from the {@link RepresentationCache} if possible.
 	 * 
 	 * @param id
+	 * @param request
 	 * @return
 	 */
 	@RequestMapping(value = "/orders/{id}")
-	HttpEntity<Order> showOrder(@PathVariable Long id) {
+	HttpEntity<byte[]> showOrder(@PathVariable long id, WebRequest request) {
+
+		final Order order = orders.findOne(id);
+
+		if (order == null) {
+			return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		}
+
+		String etag = ETags.forOrder(order);
+
+		if (ETags.matches(request.getHeader(ETags.IF_NONE_MATCH), etag)) {
+			return ETags.notModified(etag);
+		}
+
+		Key key = new Key(Order.class, id, RepresentationCache.JSON, "");
 
-		Order order = orders.findOne(id);
-		return new ResponseEntity<Order>(order, HttpStatus.OK);
+		return cache.getOrRender(key, etag, mapper, new Callable<Order>() {
+
+			@Override
+			public Order call() {
+				return order;
+			}
+		});
 	}
 
 	/**
-	 * Exposes all {@link Order}s placed by a particular customer.
+	 * Exposes all {@link Order}s placed by a particular customer. Answers conditional requests without rendering the
+	 * {@link Order}s if none of them changed.
 	 * 
 	 * @param id
+	 * @param request
 	 * @return
 	 */
 	@RequestMapping("/customers/{id}/orders")
-	HttpEntity<List<Order>> showCustomerOrders(@PathVariable Long id) {
+	HttpEntity<List<Order>> showCustomerOrders(@PathVariable long id, WebRequest request) {
 
 		Customer customer = customers.findOne(id);
 
@@ -93,6 +179,54 @@ public class OrderController {
 			return new ResponseEntity<List<Order>>(HttpStatus.NOT_FOUND);
 		}
 
-		return new ResponseEntity<List<Order>>(orders.findAll(customer), HttpStatus.OK);
+		List<Order> result = orders.findAll(customer);
+		String etag = ETags.forOrders(customer, result);
+
+		if (ETags.matches(request.getHeader(ETags.IF_NONE_MATCH), etag)) {
+			return ETags.notModified(etag);
+		}
+
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag(etag);
+
+		return new ResponseEntity<List<Order>>(result, headers, HttpStatus.OK);
+	}
+
+	/**
+	 * Writes the properties of the given {@link Order} selected by the given {@link Projection}. Properties not selected
+	 * are not even looked up.
+	 * 
+	 * @param order must not be {@literal null}.
+	 * @param projection must not be {@literal null}.
+	 * @param generator must not be {@literal null}.
+	 * @throws IOException
+	 */
+	private void writeOrder(Order order, Projection projection, JsonGenerator generator) throws IOException {
+
+		generator.writeStartObject();
+
+		if (projection.includes(ID)) {
+			generator.writeNumberField(ID, order.getId());
+		}
+
+		if (projection.embeds(CUSTOMER)) {
+			generator.writeFieldName(CUSTOMER);
+			mapper.writeValue(generator, order.getCustomer());
+		} else if (projection.includes(CUSTOMER)) {
+			generator.writeObjectFieldStart(CUSTOMER);
+			generator.writeNumberField(ID, order.getCustomer().getId());
+			generator.writeEndObject();
+		}
+
+		if (projection.includes(LINE_ITEMS)) {
+			generator.writeFieldName(LINE_ITEMS);
+			mapper.writeValue(generator, order.getLineItems());
+		}
+
+		if (projection.includes(VERSION)) {
+			generator.writeNumberField(VERSION, order.getVersion());
+		}
+
+		generator.writeEndObject();
 	}
 }
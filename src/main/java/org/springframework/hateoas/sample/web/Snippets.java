@@ -61,7 +61,7 @@ public class Snippets {
 
 		// import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
 		resource.add(linkTo(CustomerController.class).slash(id).withSelfRel());
-		resource.add(linkTo(methodOn(CustomerController.class).showCustomer(id)).withSelfRel());
+		resource.add(linkTo(methodOn(CustomerController.class).showCustomer(id, null)).withSelfRel());
 	}
 
 	/**
@@ -84,7 +84,7 @@ public class Snippets {
 		}
 
 		Resources<Order> resources = new Resources<>(orders.findAll(customer));
-		resources.add(linkTo(methodOn(CustomerController.class).showCustomer(id)).withRel("customer"));
+		resources.add(linkTo(methodOn(CustomerController.class).showCustomer(id, null)).withRel("customer"));
 		// resources.add(links.linkForSingleResource(Customer.class, id).withRel("customer"));
 
 		return new ResponseEntity<>(resources, HttpStatus.OK);
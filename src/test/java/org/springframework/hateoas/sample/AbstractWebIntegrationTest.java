@@ -17,6 +17,7 @@ package org.springframework.hateoas.sample;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -26,8 +27,13 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
 
 /**
  * Base class setting up Spring MVC integration testing bootstrapping the core application configuration.
@@ -39,6 +45,8 @@ import org.springframework.web.context.WebApplicationContext;
 @ContextConfiguration(classes = ApplicationConfig.class)
 public abstract class AbstractWebIntegrationTest {
 
+	private static final long DISPATCH_TIMEOUT = 15000;
+
 	@Autowired
 	WebApplicationContext context;
 
@@ -46,7 +54,57 @@ public abstract class AbstractWebIntegrationTest {
 
 	@Before
 	public void setUp() {
-		this.mvc = MockMvcBuilders.webAppContextSetup(context).build();
+		this.mvc = MockMvcBuilders.webAppContextSetup(context).addFilters(context.getBean(CompressionFilter.class))
+				.build();
+	}
+
+	/**
+	 * Performs the given request and, if the handler started asynchronous processing, waits for the result to be
+	 * available and dispatches it.
+	 * 
+	 * @param request must not be {@literal null}.
+	 * @return
+	 * @throws Exception
+	 * @see #dispatch(MvcResult)
+	 */
+	protected ResultActions perform(RequestBuilder request) throws Exception {
+
+		ResultActions actions = mvc.perform(request);
+		MvcResult result = actions.andReturn();
+
+		WebAsyncManager manager = WebAsyncUtils.getAsyncManager(result.getRequest());
+
+		return manager.isConcurrentHandlingStarted() ? dispatch(result) : actions;
+	}
+
+	/**
+	 * Waits for the result of the asynchronously handled request with the given {@link MvcResult} to be available and
+	 * dispatches it. {@link MvcResult#getAsyncResult()} returns before the {@link WebAsyncManager} has recorded the
+	 * result, so we wait for the latter explicitly. Fails if there's no result after {@value #DISPATCH_TIMEOUT}
+	 * milliseconds.
+	 * 
+	 * @param result must not be {@literal null}.
+	 * @return
+	 * @throws Exception
+	 */
+	protected ResultActions dispatch(MvcResult result) throws Exception {
+
+		WebAsyncManager manager = WebAsyncUtils.getAsyncManager(result.getRequest());
+		long deadline = System.currentTimeMillis() + DISPATCH_TIMEOUT;
+
+		result.getAsyncResult(DISPATCH_TIMEOUT);
+
+		while (!manager.hasConcurrentResult()) {
+
+			if (System.currentTimeMillis() > deadline) {
+				fail(String.format("No result recorded for %s %s within %s ms!", result.getRequest().getMethod(), result
+						.getRequest().getRequestURI(), DISPATCH_TIMEOUT));
+			}
+
+			Thread.sleep(1);
+		}
+
+		return mvc.perform(asyncDispatch(result));
 	}
 
 	@Test
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Unit tests for {@link CompressionFilter}.
+ * 
+ * @author Oliver Gierke
+ */
+public class CompressionFilterUnitTests {
+
+	CompressionFilter filter = new CompressionFilter(new ResponseCompression(1024));
+
+	@Test
+	public void compressesLargeBodiesWrittenInChunks() throws Exception {
+
+		byte[] body = new byte[10000];
+		Arrays.fill(body, (byte) 'a');
+
+		MockHttpServletResponse response = filter(body, 100, null);
+
+		assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(ResponseCompression.GZIP));
+		assertThat(response.getHeader("Content-Length"), is(nullValue()));
+		assertThat(response.getHeader("Vary"), is(ResponseCompression.ACCEPT_ENCODING));
+		assertThat(response.getHeader("ETag"), is("\"1-gzip\""));
+		assertThat(RepresentationCacheUnitTests.gunzip(response.getContentAsByteArray()), is(body));
+	}
+
+	@Test
+	public void writesSmallBodiesUncompressed() throws Exception {
+
+		MockHttpServletResponse response = filter("small".getBytes(), 1, null);
+
+		assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is(nullValue()));
+		assertThat(response.getContentAsString(), is("small"));
+		assertThat(response.getContentLength(), is(5));
+		assertThat(response.getHeader("ETag"), is("\"1\""));
+	}
+
+	@Test
+	public void addsAcceptEncodingToExistingVaryHeader() throws Exception {
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setHeader("Vary", "Accept");
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/"), response, new MockFilterChain());
+
+		assertThat(response.getHeader("Vary"), is("Accept, Accept-Encoding"));
+	}
+
+	@Test
+	public void doesNotCompressBodiesAlreadyEncoded() throws Exception {
+
+		byte[] body = new byte[2048];
+		MockHttpServletResponse response = filter(body, body.length, "identity");
+
+		assertThat(response.getHeader(ResponseCompression.CONTENT_ENCODING), is("identity"));
+		assertThat(response.getContentAsByteArray(), is(body));
+	}
+
+	private MockHttpServletResponse filter(final byte[] body, final int chunkSize, final String contentEncoding)
+			throws Exception {
+
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader(ResponseCompression.ACCEPT_ENCODING, "deflate, gzip;q=0.5");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+					IOException {
+
+				if (contentEncoding != null) {
+					response.setHeader(ResponseCompression.CONTENT_ENCODING, contentEncoding);
+				}
+
+				response.setContentLength(body.length);
+				response.setHeader("ETag", "\"1\"");
+
+				for (int i = 0; i < body.length; i += chunkSize) {
+					response.getOutputStream().write(body, i, Math.min(chunkSize, body.length - i));
+				}
+
+				response.getOutputStream().flush();
+			}
+		}));
+
+		return response;
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ETags}.
+ * 
+ * @author Oliver Gierke
+ */
+public class ETagsUnitTests {
+
+	@Test
+	public void appendsVariantToEntityTag() {
+
+		assertThat(ETags.forVariant("\"o1-2\"", "smile"), is("\"o1-2-smile\""));
+		assertThat(ETags.forGzip("\"o1-2-smile\""), is("\"o1-2-smile-gzip\""));
+		assertThat(ETags.forGzip("W/\"o1-2\""), is("W/\"o1-2\""));
+	}
+
+	@Test
+	public void matchesEntityTagAndItsGzipVariant() {
+
+		assertThat(ETags.matches("\"o1-2\"", "\"o1-2\""), is(true));
+		assertThat(ETags.matches("\"c1-0\", \"o1-2-gzip\"", "\"o1-2\""), is(true));
+		assertThat(ETags.matches("W/\"o1-2-gzip\"", "\"o1-2\""), is(true));
+		assertThat(ETags.matches("*", "\"o1-2\""), is(true));
+		assertThat(ETags.matches("\"o1-2-smile\"", "\"o1-2\""), is(false));
+		assertThat(ETags.matches("\"o1-1-gzip\"", "\"o1-2\""), is(false));
+		assertThat(ETags.matches(null, "\"o1-2\""), is(false));
+	}
+}
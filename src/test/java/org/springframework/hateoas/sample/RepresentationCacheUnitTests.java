@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+import org.springframework.hateoas.sample.RepresentationCache.Key;
+import org.springframework.http.HttpEntity;
+import org.springframework.util.StreamUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for {@link RepresentationCache}.
+ * 
+ * @author Oliver Gierke
+ */
+public class RepresentationCacheUnitTests {
+
+	ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void rendersRepresentationOnlyOncePerEntityTag() {
+
+		RepresentationCache cache = new RepresentationCache();
+		Key key = new Key(String.class, 1L, RepresentationCache.JSON, "");
+		CountingCallable body = new CountingCallable("foo");
+
+		assertThat(cache.getOrRender(key, "\"1\"", mapper, body).getBody(), is("\"foo\"".getBytes()));
+		assertThat(cache.getOrRender(key, "\"1\"", mapper, body).getBody(), is("\"foo\"".getBytes()));
+		assertThat(body.invocations.get(), is(1));
+
+		cache.getOrRender(key, "\"2\"", mapper, body);
+
+		assertThat(body.invocations.get(), is(2));
+		assertThat(cache.getHits(), is(1L));
+		assertThat(cache.getMisses(), is(2L));
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsedEntriesOnceFull() {
+
+		RepresentationCache cache = new RepresentationCache(8 * 200);
+		byte[] representation = new byte[64];
+
+		for (long i = 0; i < 8; i++) {
+			cache.put(new Key(String.class, i, RepresentationCache.JSON, ""), "1", representation);
+			cache.get(new Key(String.class, 0L, RepresentationCache.JSON, ""), "1");
+		}
+
+		assertThat(cache.getSize(), is(8));
+		assertThat(cache.getEvictions(), is(0L));
+
+		cache.put(new Key(String.class, 8L, RepresentationCache.JSON, ""), "1", representation);
+
+		assertThat(cache.getEvictions(), is(1L));
+		assertThat(cache.get(new Key(String.class, 0L, RepresentationCache.JSON, ""), "1"), is(notNullValue()));
+		assertThat(cache.get(new Key(String.class, 1L, RepresentationCache.JSON, ""), "1"), is(nullValue()));
+	}
+
+	@Test
+	public void doesNotCacheOversizedRepresentations() {
+
+		RepresentationCache cache = new RepresentationCache(1024);
+		cache.put(new Key(String.class, 1L, RepresentationCache.JSON, ""), "1", new byte[1024]);
+
+		assertThat(cache.getSize(), is(0));
+	}
+
+	@Test
+	public void cachesCompressedRepresentationsForClientsAcceptingGzip() throws Exception {
+
+		RepresentationCache cache = new RepresentationCache(1024 * 1024, new ResponseCompression(16));
+		Key key = new Key(String.class, 1L, RepresentationCache.JSON, "");
+		CountingCallable body = new CountingCallable("foobarfoobarfoobar");
+
+		HttpEntity<byte[]> plain = cache.getOrRender(key, "\"1\"", mapper, RepresentationCache.JSON_UTF8, null, body);
+		long bytes = cache.getBytes();
+
+		assertThat(plain.getHeaders().containsKey(ResponseCompression.CONTENT_ENCODING), is(false));
+		assertThat(plain.getBody(), is("\"foobarfoobarfoobar\"".getBytes()));
+
+		HttpEntity<byte[]> first = cache.getOrRender(key, "\"1\"", mapper, RepresentationCache.JSON_UTF8, "gzip", body);
+		HttpEntity<byte[]> second = cache.getOrRender(key, "\"1\"", mapper, RepresentationCache.JSON_UTF8, "gzip", body);
+
+		assertThat(plain.getHeaders().getETag(), is("\"1\""));
+		assertThat(first.getHeaders().getFirst(ResponseCompression.CONTENT_ENCODING), is(ResponseCompression.GZIP));
+		assertThat(first.getHeaders().getETag(), is("\"1-gzip\""));
+		assertThat(second.getBody(), is(sameInstance(first.getBody())));
+		assertThat(gunzip(first.getBody()), is(plain.getBody()));
+		assertThat(cache.getBytes(), is(bytes + first.getBody().length));
+		assertThat(body.invocations.get(), is(1));
+	}
+
+	static byte[] gunzip(byte[] bytes) throws IOException {
+
+		InputStream stream = new GZIPInputStream(new ByteArrayInputStream(bytes));
+		ByteArrayOutputStream result = new ByteArrayOutputStream();
+		StreamUtils.copy(stream, result);
+
+		return result.toByteArray();
+	}
+
+	static class CountingCallable implements Callable<Object> {
+
+		final AtomicInteger invocations = new AtomicInteger();
+		final Object value;
+
+		CountingCallable(Object value) {
+			this.value = value;
+		}
+
+		@Override
+		public Object call() {
+			invocations.incrementAndGet();
+			return value;
+		}
+	}
+}
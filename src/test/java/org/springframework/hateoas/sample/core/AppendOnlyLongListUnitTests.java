@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AppendOnlyLongList}.
+ * 
+ * @author Oliver Gierke
+ */
+public class AppendOnlyLongListUnitTests {
+
+	@Test
+	public void keepsElementsAcrossChunks() {
+
+		AppendOnlyLongList list = new AppendOnlyLongList();
+
+		for (long i = 0; i < 10000; i++) {
+			list.add(i * 3);
+		}
+
+		assertThat(list.size(), is(10000));
+
+		for (int i = 0; i < 10000; i++) {
+			assertThat(list.get(i), is(i * 3L));
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void rejectsIndexBeyondSize() {
+
+		AppendOnlyLongList list = new AppendOnlyLongList();
+		list.add(1L);
+		list.get(1);
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.hateoas.sample.core.BulkImporter.Format;
+import org.springframework.hateoas.sample.core.BulkImporter.InvalidRecordException;
+import org.springframework.hateoas.sample.core.BulkImporter.Result;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.core.Orders.InMemoryOrders;
+
+/**
+ * Unit tests for {@link BulkImporter}.
+ * 
+ * @author Oliver Gierke
+ */
+public class BulkImporterUnitTests {
+
+	InMemoryCustomers customers = new InMemoryCustomers();
+	InMemoryOrders orders = new InMemoryOrders(customers);
+	BulkImporter importer = new BulkImporter(customers, orders);
+
+	@After
+	public void tearDown() {
+		importer.destroy();
+	}
+
+	@Test
+	public void importsNdjson() throws Exception {
+
+		Result result = importFrom(Format.NDJSON, //
+				"{\"type\":\"customer\",\"id\":10,\"firstname\":\"Carter\",\"lastname\":\"Beauford\"}", //
+				"{\"type\":\"order\",\"id\":10,\"customerId\":10,\"lineItems\":[{\"name\":\"iPad\"}]}", //
+				"{\"type\":\"lineItem\",\"orderId\":10,\"name\":\"iPod\"}", //
+				"{\"type\":\"order\",\"id\":11,\"customerId\":1}", //
+				"{\"type\":\"order\",\"id\":12,\"customerId\":42}", //
+				"{\"type\":\"order\",\"id\":1,\"customerId\":1}");
+
+		assertResult(result, 1, 2, 2);
+		assertThat(customers.findOne(10L).getLastname(), is("Beauford"));
+		assertThat(orders.findOne(10L).getLineItems(), is(Arrays.asList(new LineItem("iPad"), new LineItem("iPod"))));
+		assertThat(orders.findAll(customers.findOne(1L)).size(), is(2));
+		assertThat(orders.findOne(12L), is(nullValue()));
+		assertThat(orders.getChangeLog().getSequence(), is(2L));
+	}
+
+	@Test
+	public void importsCsvAcrossBatches() throws Exception {
+
+		StringBuilder builder = new StringBuilder("customer,10,\"Carter \"\"CB\"\"\",\"Beauford, Jr.\"\n");
+
+		for (int i = 100; i < 100 + BulkImporter.BATCH_SIZE * 2; i++) {
+			builder.append("order,").append(i).append(",10\n");
+			builder.append("lineItem,").append(i).append(",iPad\n");
+		}
+
+		assertResult(importFrom(Format.CSV, builder.toString()), 1, BulkImporter.BATCH_SIZE * 2, 0);
+		assertThat(customers.findOne(10L).getFirstname(), is("Carter \"CB\""));
+		assertThat(customers.findOne(10L).getLastname(), is("Beauford, Jr."));
+		assertThat(orders.findAll(customers.findOne(10L)).size(), is(BulkImporter.BATCH_SIZE * 2));
+		assertThat(orders.findOne(100L + BulkImporter.BATCH_SIZE).getLineItems().size(), is(1));
+	}
+
+	@Test(expected = InvalidRecordException.class)
+	public void rejectsLineItemsNotFollowingTheirOrder() throws Exception {
+		importFrom(Format.CSV, "order,10,1", "lineItem,11,iPad");
+	}
+
+	@Test(expected = InvalidRecordException.class)
+	public void rejectsMalformedJson() throws Exception {
+		importFrom(Format.NDJSON, "{\"type\":\"order\",\"id\":");
+	}
+
+	@Test(expected = InvalidRecordException.class)
+	public void rejectsLineItemsWithNullName() throws Exception {
+		importFrom(Format.NDJSON, "{\"type\":\"order\",\"id\":10,\"customerId\":1,\"lineItems\":[{\"name\":null}]}");
+	}
+
+	@Test(expected = InvalidRecordException.class)
+	public void rejectsLineItemRecordsWithNullName() throws Exception {
+		importFrom(Format.NDJSON, "{\"type\":\"order\",\"id\":10,\"customerId\":1}",
+				"{\"type\":\"lineItem\",\"orderId\":10,\"name\":null}");
+	}
+
+	private Result importFrom(Format format, String... lines) throws IOException {
+
+		StringBuilder builder = new StringBuilder();
+
+		for (String line : lines) {
+			builder.append(line).append('\n');
+		}
+
+		byte[] bytes = builder.toString().getBytes(Charset.forName("UTF-8"));
+		return importer.importFrom(new ByteArrayInputStream(bytes), format);
+	}
+
+	private static void assertResult(Result result, long customers, long orders, long skipped) {
+
+		assertThat(result.getCustomers(), is(customers));
+		assertThat(result.getOrders(), is(orders));
+		assertThat(result.getSkipped(), is(skipped));
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import org.springframework.hateoas.sample.core.ChangeLog.Changes;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Unit tests for {@link ChangeLog}.
+ * 
+ * @author Oliver Gierke
+ */
+public class ChangeLogUnitTests {
+
+	ChangeLog log = new ChangeLog(4);
+
+	@Test
+	public void returnsEveryChangedIdOnlyOnce() {
+
+		log.record(1L);
+		log.record(2L);
+		log.record(1L);
+
+		Changes changes = log.since(0, 10);
+
+		assertThat(changes.getIds(), is(Arrays.asList(1L, 2L)));
+		assertThat(changes.getSequence(), is(3L));
+		assertThat(changes.isComplete(), is(true));
+
+		assertThat(log.since(1, 1).getIds(), is(Arrays.asList(2L)));
+		assertThat(log.since(1, 1).getSequence(), is(2L));
+		assertThat(log.since(3, 10).getIds().isEmpty(), is(true));
+	}
+
+	@Test
+	public void reportsChangesNotRetainedAnymore() {
+
+		for (long id = 1; id <= 5; id++) {
+			log.record(id);
+		}
+
+		assertThat(log.since(0, 10).isComplete(), is(false));
+		assertThat(log.since(1, 10).getIds(), is(Arrays.asList(2L, 3L, 4L, 5L)));
+		assertThat(log.since(6, 10).isComplete(), is(false));
+	}
+
+	@Test
+	public void notifiesWaitingCallbacksOnceAboutTheNextChange() {
+
+		RecordingCallback waiting = new RecordingCallback();
+		RecordingCallback cancelled = new RecordingCallback();
+
+		log.await(0, waiting);
+		log.await(0, cancelled);
+		log.cancel(cancelled);
+
+		log.record(1L);
+		log.record(2L);
+
+		assertThat(waiting.invocations.get(), is(1L));
+		assertThat(cancelled.invocations.get(), is(0L));
+
+		RecordingCallback late = new RecordingCallback();
+		log.await(1, late);
+
+		assertThat(late.invocations.get(), is(1L));
+	}
+
+	@Test
+	public void doesNotNotifyAboutChangesNotPublishedYet() {
+
+		// A writer took the next sequence number but didn't publish the change yet
+		((AtomicLong) ReflectionTestUtils.getField(log, "sequence")).incrementAndGet();
+
+		RecordingCallback waiting = new RecordingCallback();
+		log.await(0, waiting);
+
+		assertThat(log.since(0, 10).getIds().isEmpty(), is(true));
+		assertThat(waiting.invocations.get(), is(0L));
+
+		log.record(2L);
+
+		assertThat(waiting.invocations.get(), is(1L));
+	}
+
+	static class RecordingCallback implements Callback<Long> {
+
+		final AtomicLong invocations = new AtomicLong();
+
+		@Override
+		public void onSuccess(Long result) {
+			invocations.incrementAndGet();
+		}
+
+		@Override
+		public void onFailure(Throwable error) {
+			throw new AssertionError(error);
+		}
+	}
+}
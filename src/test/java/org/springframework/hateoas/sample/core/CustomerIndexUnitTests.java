@@ -0,0 +1,199 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+
+/**
+ * Unit tests for {@link CustomerIndex} as used by {@link InMemoryCustomers}.
+ * 
+ * @author Oliver Gierke
+ */
+public class CustomerIndexUnitTests {
+
+	InMemoryCustomers customers = new InMemoryCustomers();
+
+	@Test
+	public void findsCustomersByNameAndPrefixIgnoringCaseAndAccents() {
+
+		customers.create("D\u00e1vid", "Davis");
+		customers.create("Stefan", "Lessard");
+
+		assertThat(ids(customers.findByName("matthews", Cursor.first(10))), is(ids(1L)));
+		assertThat(ids(customers.findByName("MATT", Cursor.first(10))), is(ids()));
+		assertThat(ids(customers.findByName("david", Cursor.first(10))), is(ids(3L)));
+
+		// Both names of customer 3 match, but it's only returned once
+		assertThat(ids(customers.findByNameStartingWith("Dav", Cursor.first(10))), is(ids(1L, 3L)));
+		assertThat(ids(customers.findByNameStartingWith("l", Cursor.first(10))), is(ids(4L)));
+	}
+
+	@Test
+	public void skipsChangedNames() {
+
+		customers.update(1L, "David", "Matthews");
+
+		assertThat(ids(customers.findByName("dave", Cursor.first(10))), is(ids()));
+		assertThat(ids(customers.findByName("david", Cursor.first(10))), is(ids(1L)));
+		assertThat(ids(customers.findByName("matthews", Cursor.first(10))), is(ids(1L)));
+	}
+
+	@Test
+	public void pagesThroughMatchesAcrossRuns() {
+
+		for (int i = 0; i < 25; i++) {
+			customers.create("Boyd", "Tinsley");
+		}
+
+		CustomerIndex index = new CustomerIndex(customers);
+
+		for (Customer customer : customers.findAll()) {
+
+			index.add(customer);
+
+			if (customer.getId() == 12L) {
+				index.flush();
+			}
+		}
+
+		Slice<Customer> first = index.find("boyd", false, Cursor.first(20));
+		Slice<Customer> second = index.find("boyd", false, first.getNext());
+
+		assertThat(first.getContent().size(), is(20));
+		assertThat(first.hasNext(), is(true));
+		assertThat(second.getContent().size(), is(5));
+		assertThat(second.hasNext(), is(false));
+		assertThat(second.getContent().get(4).getId(), is(27L));
+
+		index.flush();
+
+		assertThat(index.find("tins", true, Cursor.first(30)).getContent().size(), is(25));
+	}
+
+	@Test
+	public void indexesLargeBatches() {
+
+		List<Customer> batch = new ArrayList<Customer>();
+
+		for (long id = 10; id < 10010; id++) {
+			batch.add(new Customer(id, id % 2 == 0 ? "Leroi" : "Butch", "Moore"));
+		}
+
+		customers.saveAll(batch);
+
+		assertThat(customers.findByName("leroi", Cursor.first(10)).getContent().get(0).getId(), is(10L));
+		assertThat(customers.findByNameStartingWith("moo", new Cursor(9990, 20)).getContent().size(), is(10));
+		assertThat(customers.findByName("matthews", Cursor.first(10)).getContent().size(), is(1));
+	}
+
+	@Test
+	public void findsAllIndexedCustomersWhileFlushing() throws Exception {
+
+		List<Customer> batch = new ArrayList<Customer>();
+
+		for (long id = 10; id < 4010; id++) {
+			batch.add(new Customer(id, "Carter", "Beauford"));
+		}
+
+		customers.saveAll(batch);
+
+		final CustomerIndex index = new CustomerIndex(customers);
+		final AtomicInteger indexed = new AtomicInteger();
+		final CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Void>> readers = new ArrayList<Future<Void>>();
+
+		try {
+
+			for (int i = 0; i < 3; i++) {
+
+				readers.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+
+						start.await();
+
+						for (int expected = indexed.get(); expected < 4000; expected = indexed.get()) {
+
+							// Every customer indexed before the lookup started has to be found
+							int found = index.find("carter", false, Cursor.first(Integer.MAX_VALUE)).getContent().size();
+							assertThat(found >= expected, is(true));
+						}
+
+						return null;
+					}
+				}));
+			}
+
+			start.countDown();
+
+			for (Customer customer : batch) {
+
+				index.add(customer);
+
+				if (indexed.incrementAndGet() % 50 == 0) {
+					index.flush();
+				}
+			}
+
+			for (Future<Void> reader : readers) {
+				reader.get();
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertThat(index.find("beauford", false, Cursor.first(Integer.MAX_VALUE)).getContent().size(), is(4000));
+	}
+
+	private static List<Long> ids(Slice<Customer> slice) {
+
+		List<Long> ids = new ArrayList<Long>();
+
+		for (Customer customer : slice.getContent()) {
+			ids.add(customer.getId());
+		}
+
+		return ids;
+	}
+
+	private static List<Long> ids(Long... ids) {
+
+		List<Long> result = new ArrayList<Long>();
+
+		for (Long id : ids) {
+			result.add(id);
+		}
+
+		return result;
+	}
+}
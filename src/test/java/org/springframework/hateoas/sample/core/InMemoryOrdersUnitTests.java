@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.core.OrderStatistics.Statistics;
+import org.springframework.hateoas.sample.core.Orders.InMemoryOrders;
+
+/**
+ * Unit tests for the write operations of {@link InMemoryOrders} and {@link InMemoryCustomers}.
+ * 
+ * @author Oliver Gierke
+ */
+public class InMemoryOrdersUnitTests {
+
+	private static final int THREADS = 8;
+	private static final int WRITES_PER_THREAD = 2000;
+
+	InMemoryCustomers customers = new InMemoryCustomers();
+	InMemoryOrders orders = new InMemoryOrders(customers);
+
+	LineItem iPod = new LineItem("iPod");
+
+	@Test
+	public void createsAndChangesOrders() {
+
+		Order order = orders.create(customers.findOne(2L), Arrays.asList(iPod));
+
+		assertThat(order.getId(), is(2L));
+		assertThat(orders.findAll().size(), is(2));
+		assertThat(orders.findAll(customers.findOne(2L)).get(0).getLineItems(), is(Arrays.asList(iPod)));
+
+		Order updated = orders.add(2L, Arrays.asList(iPod, iPod));
+
+		assertThat(updated.getLineItems().size(), is(3));
+		assertThat(updated.getVersion(), is(2L));
+		assertThat(order.getLineItems().size(), is(1));
+
+		assertThat(orders.update(2L, Collections.<LineItem> emptyList()).getLineItems().isEmpty(), is(true));
+		assertThat(orders.findOne(2L).getVersion(), is(3L));
+		assertThat(orders.update(42L, Arrays.asList(iPod)), is(nullValue()));
+	}
+
+	@Test
+	public void maintainsStatisticsAsOrdersAreWritten() {
+
+		orders.create(customers.findOne(1L), Arrays.asList(iPod, new LineItem("iPad")));
+		orders.add(2L, Arrays.asList(iPod));
+		orders.update(1L, Arrays.asList(iPod));
+
+		Statistics statistics = orders.getStatistics().forCustomer(1L, 10);
+
+		assertThat(statistics.getOrders(), is(2L));
+		assertThat(statistics.getLineItems(), is(4L));
+		assertThat(statistics.getProducts().size(), is(2));
+		assertThat(statistics.getProducts().get(0).getName(), is("iPod"));
+		assertThat(statistics.getProducts().get(0).getCount(), is(3L));
+
+		assertThat(orders.getStatistics().forCustomer(1L, 1).getProducts().size(), is(1));
+		assertThat(orders.getStatistics().forCustomer(2L, 10).getOrders(), is(0L));
+	}
+
+	@Test
+	public void refersToCurrentStateOfCustomer() {
+
+		Customer customer = customers.update(1L, "David", "Matthews");
+
+		assertThat(customer.getVersion(), is(1L));
+		assertThat(customers.findAll().get(0).getFirstname(), is("David"));
+		assertThat(orders.findOne(1L).getCustomer().getFirstname(), is("David"));
+		assertThat(orders.add(1L, Arrays.asList(iPod)).getCustomer(), is(sameInstance(customer)));
+	}
+
+	@Test
+	public void keepsAllLineItemsAddedConcurrently() throws Exception {
+
+		final int orderCount = 64;
+
+		for (int i = 0; i < orderCount; i++) {
+			orders.create(customers.findOne(1L), Collections.<LineItem> emptyList());
+		}
+
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+		try {
+
+			for (int i = 0; i < THREADS; i++) {
+
+				final int thread = i;
+
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+
+						start.await();
+
+						for (int j = 0; j < WRITES_PER_THREAD; j++) {
+
+							// Every Order is written by multiple threads while it's read concurrently
+							orders.add((thread + j) % orderCount + 2, Arrays.asList(iPod));
+							orders.findAll().get(j % orderCount);
+						}
+
+						return null;
+					}
+				}));
+			}
+
+			start.countDown();
+
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		long lineItems = 0;
+
+		for (Order order : orders.findAll(customers.findOne(1L))) {
+
+			lineItems += order.getLineItems().size();
+			assertThat(order.getVersion(), is((long) order.getLineItems().size()));
+		}
+
+		assertThat(lineItems, is(2L + THREADS * WRITES_PER_THREAD));
+	}
+
+	@Test
+	public void indexesAllOrdersCreatedConcurrently() throws Exception {
+
+		final CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+
+		try {
+
+			for (int i = 0; i < THREADS; i++) {
+
+				final Customer customer = customers.findOne(i % 2 + 1L);
+
+				futures.add(executor.submit(new Callable<Void>() {
+
+					@Override
+					public Void call() throws Exception {
+
+						start.await();
+
+						for (int j = 0; j < WRITES_PER_THREAD; j++) {
+
+							// Reading a customer's orders while they're added must see a stable list
+							orders.create(customer, Collections.<LineItem> emptyList());
+							List<Order> current = orders.findAll(customer);
+							assertThat(current.get(current.size() - 1), is(notNullValue()));
+						}
+
+						return null;
+					}
+				}));
+			}
+
+			start.countDown();
+
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+
+		} finally {
+			executor.shutdownNow();
+		}
+
+		int created = THREADS * WRITES_PER_THREAD;
+
+		assertThat(orders.findAll().size(), is(created + 1));
+		assertThat(orders.findAll(customers.findOne(1L)).size(), is(created / 2 + 1));
+		assertThat(orders.findAll(customers.findOne(2L)).size(), is(created / 2));
+	}
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+
+/**
+ * Unit tests for {@link LineItemStore}.
+ *
+ * @author Oliver Gierke
+ */
+public class LineItemStoreUnitTests {
+
+	LineItem iPad = new LineItem("iPad");
+	LineItem iPhone = new LineItem("iPhone");
+
+	@Test
+	public void appendsWithoutChangingTheGivenCodes() {
+
+		LineItemStore store = new LineItemStore();
+
+		int[] first = store.append(LineItemStore.EMPTY, iPad);
+		List<LineItem> before = store.view(first);
+		int[] second = store.append(first, iPhone);
+
+		assertThat(store.view(second), is(Arrays.asList(iPad, iPhone)));
+		assertThat(before, is(Arrays.asList(iPad)));
+		assertThat(store.size(), is(2));
+	}
+
+	@Test
+	public void doesNotGrowForKnownProducts() {
+
+		LineItemStore store = new LineItemStore();
+		int[] codes = store.encode(Arrays.asList(iPad, iPhone));
+
+		for (int i = 0; i < 1000; i++) {
+			codes = store.encode(store.view(store.append(codes, iPhone)));
+		}
+
+		assertThat(store.view(codes).size(), is(1002));
+		assertThat(store.size(), is(2));
+	}
+
+	@Test
+	public void sharesLineItemsWithTheSameName() {
+
+		LineItemStore store = new LineItemStore();
+		List<LineItem> items = store.view(store.encode(Arrays.asList(iPad, new LineItem("iPad"))));
+
+		assertThat(items.get(0), is(sameInstance(items.get(1))));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNullLineItems() {
+		new LineItemStore().encode(Arrays.asList(iPad, null));
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LongObjectMap}.
+ * 
+ * @author Oliver Gierke
+ */
+public class LongObjectMapUnitTests {
+
+	@Test
+	public void returnsNullForUnknownKey() {
+		assertThat(new LongObjectMap<String>().get(1L), is(nullValue()));
+	}
+
+	@Test
+	public void registersValuesAcrossResizes() {
+
+		LongObjectMap<String> map = new LongObjectMap<String>(2);
+
+		for (long i = -1000; i <= 1000; i++) {
+			assertThat(map.put(i, String.valueOf(i)), is(nullValue()));
+		}
+
+		assertThat(map.size(), is(2001));
+
+		for (long i = -1000; i <= 1000; i++) {
+			assertThat(map.get(i), is(String.valueOf(i)));
+		}
+
+		assertThat(map.get(Long.MAX_VALUE), is(nullValue()));
+	}
+
+	@Test
+	public void putIfAbsentKeepsExistingValue() {
+
+		LongObjectMap<String> map = new LongObjectMap<String>();
+
+		assertThat(map.putIfAbsent(0L, "first"), is(nullValue()));
+		assertThat(map.putIfAbsent(0L, "second"), is("first"));
+		assertThat(map.putIfAbsent(42L, "first"), is(nullValue()));
+		assertThat(map.putIfAbsent(42L, "second"), is("first"));
+
+		assertThat(map.get(0L), is("first"));
+		assertThat(map.get(42L), is("first"));
+		assertThat(map.size(), is(2));
+	}
+
+	@Test
+	public void putReplacesExistingValue() {
+
+		LongObjectMap<String> map = new LongObjectMap<String>();
+		map.put(42L, "first");
+
+		assertThat(map.put(42L, "second"), is("first"));
+		assertThat(map.get(42L), is("second"));
+		assertThat(map.size(), is(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNullValue() {
+		new LongObjectMap<String>().put(1L, null);
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+
+/**
+ * Unit tests for {@link PersistentOrders} and {@link PersistentCustomers}.
+ * 
+ * @author Oliver Gierke
+ */
+public class PersistentOrdersUnitTests {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void restoresOrdersAndCustomersFromLog() throws Exception {
+
+		File directory = folder.newFolder();
+
+		PersistentCustomers customers = new PersistentCustomers(new SegmentLog(new File(directory, "customers"), 1024));
+		PersistentOrders orders = new PersistentOrders(customers, new SegmentLog(new File(directory, "orders"), 1024));
+
+		Customer customer = customers.findOne(2L);
+		orders.save(new Order(2L, customer).add(new LineItem("iPod")));
+
+		customers.destroy();
+		orders.destroy();
+
+		customers = new PersistentCustomers(new SegmentLog(new File(directory, "customers"), 1024));
+		orders = new PersistentOrders(customers, new SegmentLog(new File(directory, "orders"), 1024));
+
+		assertThat(customers.findAll().size(), is(2));
+		assertThat(orders.findAll().size(), is(2));
+
+		Order order = orders.findOne(1L);
+
+		assertThat(order.getCustomer().getFirstname(), is("Dave"));
+		assertThat(order.getLineItems().size(), is(2));
+		assertThat(order.getVersion(), is(2L));
+		assertThat(orders.findAll(customer).get(0).getLineItems().get(0).getName(), is("iPod"));
+		assertThat(orders.getStatistics().forCustomer(1L, 10).getLineItems(), is(2L));
+		assertThat(orders.getStatistics().forCustomer(2L, 10).getProducts().get(0).getName(), is("iPod"));
+	}
+
+	@Test
+	public void readingAndUpdatingOrdersDoesNotGrowLineItemStorage() throws Exception {
+
+		File directory = folder.newFolder();
+
+		PersistentCustomers customers = new PersistentCustomers(new SegmentLog(new File(directory, "customers"), 1024));
+		PersistentOrders orders = new PersistentOrders(customers, new SegmentLog(new File(directory, "orders"), 1024));
+
+		List<LineItem> lineItems = orders.findOne(1L).getLineItems();
+		int size = Order.LINE_ITEMS.size();
+
+		for (int i = 0; i < 1000; i++) {
+			orders.findOne(1L);
+			orders.update(1L, lineItems);
+		}
+
+		assertThat(Order.LINE_ITEMS.size(), is(size));
+		assertThat(orders.findOne(1L).getLineItems(), is(lineItems));
+	}
+
+	@Test
+	public void recordsOrdersOfChangedCustomerInChangeLog() throws Exception {
+
+		File directory = folder.newFolder();
+
+		PersistentCustomers customers = new PersistentCustomers(new SegmentLog(new File(directory, "customers"), 1024));
+		PersistentOrders orders = new PersistentOrders(customers, new SegmentLog(new File(directory, "orders"), 1024));
+
+		long sequence = orders.getChangeLog().getSequence();
+		orders.recordCustomerChange(customers.update(1L, "David", "Matthews"));
+
+		assertThat(orders.getChangeLog().since(sequence, 10).getIds(), hasItem(1L));
+		assertThat(orders.findOne(1L).getCustomer().getFirstname(), is("David"));
+
+		customers.destroy();
+		orders.destroy();
+	}
+
+	@Test
+	public void keepsLatestStateOfOrdersAcrossCompactions() throws Exception {
+
+		File directory = folder.newFolder();
+
+		PersistentCustomers customers = new PersistentCustomers(new SegmentLog(new File(directory, "customers"), 1024));
+		PersistentOrders orders = new PersistentOrders(customers, new SegmentLog(new File(directory, "orders"), 128));
+
+		Order order = orders.findOne(1L).add(new LineItem("iPod"));
+
+		for (int i = 0; i < 50; i++) {
+			orders.save(order);
+		}
+
+		orders.compact();
+
+		assertThat(orders.getSegmentCount() < 5, is(true));
+		assertThat(orders.findOne(1L).getVersion(), is(3L));
+		assertThat(orders.findAll(customers.findOne(1L)).size(), is(1));
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.hateoas.sample.core.Customers.InMemoryCustomers;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.core.Orders.InMemoryOrders;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Unit tests for {@link RepositorySnapshots} and {@link Snapshot}.
+ *
+ * @author Oliver Gierke
+ */
+public class RepositorySnapshotsUnitTests {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void restoresRepositoriesFromSnapshot() throws Exception {
+
+		MockEnvironment environment = new MockEnvironment();
+		environment.setProperty(RepositorySnapshots.FILE_PROPERTY, folder.newFile().getAbsolutePath());
+
+		InMemoryCustomers customers = new InMemoryCustomers();
+		InMemoryOrders orders = new InMemoryOrders(customers);
+
+		customers.save(new Customer(3L, "Stefan", "Lessard"));
+
+		// Spans multiple chunks of the snapshot
+		List<Order> added = new ArrayList<Order>();
+		LineItem iPod = new LineItem("iPod");
+
+		for (long id = 2; id < 100000; id++) {
+			added.add(new Order(id, customers.findOne(id % 3 + 1)).add(iPod));
+		}
+
+		orders.saveAll(added);
+		new RepositorySnapshots(customers, orders, environment).destroy();
+
+		customers = new InMemoryCustomers();
+		orders = new InMemoryOrders(customers);
+		new RepositorySnapshots(customers, orders, environment).afterPropertiesSet();
+
+		assertThat(customers.findAll().size(), is(3));
+		assertThat(customers.findOne(3L).getFirstname(), is("Stefan"));
+		assertThat(orders.findAll().size(), is(99999));
+		assertThat(orders.findAll(customers.findOne(1L)).size(), is(33334));
+
+		Order order = orders.findOne(99999L);
+
+		assertThat(order.getCustomer(), is(sameInstance(customers.findOne(1L))));
+		assertThat(order.getVersion(), is(1L));
+		assertThat(order.getLineItems().get(0).getName(), is("iPod"));
+		assertThat(orders.findOne(1L).getLineItems().size(), is(2));
+	}
+
+	@Test
+	public void restoresChangesToSampleDataFromSnapshot() throws Exception {
+
+		MockEnvironment environment = new MockEnvironment();
+		environment.setProperty(RepositorySnapshots.FILE_PROPERTY, folder.getRoot().getAbsolutePath() + "/snapshot");
+
+		InMemoryCustomers customers = new InMemoryCustomers(environment);
+		InMemoryOrders orders = new InMemoryOrders(customers, environment);
+
+		customers.update(1L, "David", "Matthews");
+		orders.update(1L, Arrays.asList(new LineItem("iPod")));
+		new RepositorySnapshots(customers, orders, environment).destroy();
+
+		customers = new InMemoryCustomers(environment);
+		orders = new InMemoryOrders(customers, environment);
+		new RepositorySnapshots(customers, orders, environment).afterPropertiesSet();
+
+		assertThat(customers.findAll().size(), is(2));
+		assertThat(customers.findOne(1L).getFirstname(), is("David"));
+		assertThat(orders.findAll().size(), is(1));
+		assertThat(orders.findOne(1L).getLineItems().size(), is(1));
+		assertThat(orders.findOne(1L).getLineItems().get(0).getName(), is("iPod"));
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.core;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.hateoas.sample.core.SegmentLog.Compaction;
+import org.springframework.hateoas.sample.core.SegmentLog.RecordHandler;
+
+/**
+ * Unit tests for {@link SegmentLog}.
+ * 
+ * @author Oliver Gierke
+ */
+public class SegmentLogUnitTests {
+
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void replaysRecordsAfterReopening() throws Exception {
+
+		File directory = folder.newFolder();
+		SegmentLog log = new SegmentLog(directory, 1024);
+
+		long address = log.append(record(1, "foo"));
+		log.append(record(2, "bar"));
+		log.close();
+
+		assertThat(valueOf(log.read(address)), is("foo"));
+
+		Map<Long, String> replayed = replay(new SegmentLog(directory, 1024));
+
+		assertThat(replayed.size(), is(2));
+		assertThat(replayed.get(1L), is("foo"));
+		assertThat(replayed.get(2L), is("bar"));
+	}
+
+	@Test
+	public void rollsSegmentsOnceFull() throws Exception {
+
+		File directory = folder.newFolder();
+		SegmentLog log = new SegmentLog(directory, 64);
+
+		for (long i = 0; i < 10; i++) {
+			log.append(record(i, "value" + i));
+		}
+
+		assertThat(log.getSegmentCount(), is(5));
+		assertThat(replay(new SegmentLog(directory, 64)).size(), is(10));
+	}
+
+	@Test
+	public void compactionKeepsLatestRecordsOnly() throws Exception {
+
+		File directory = folder.newFolder();
+		SegmentLog log = new SegmentLog(directory, 64);
+		final Map<Long, Long> addresses = new HashMap<Long, Long>();
+
+		for (int i = 0; i < 10; i++) {
+			addresses.put(i % 2L, log.append(record(i % 2L, "value" + i)));
+		}
+
+		int segments = log.getSegmentCount();
+
+		log.compact(new Compaction() {
+
+			@Override
+			public boolean isLive(long address, ByteBuffer payload) {
+				return addresses.get(payload.getLong(0)) == address;
+			}
+
+			@Override
+			public void moved(long from, long to, ByteBuffer payload) {
+				addresses.put(payload.getLong(0), to);
+			}
+		});
+
+		assertThat(log.getSegmentCount() < segments, is(true));
+		assertThat(valueOf(log.read(addresses.get(0L))), is("value8"));
+		assertThat(valueOf(log.read(addresses.get(1L))), is("value9"));
+
+		Map<Long, String> replayed = replay(new SegmentLog(directory, 64));
+
+		assertThat(replayed.get(0L), is("value8"));
+		assertThat(replayed.get(1L), is("value9"));
+	}
+
+	@Test
+	public void reusesSlotsOfCompactedSegmentsWithoutResolvingStaleAddresses() throws Exception {
+
+		SegmentLog log = new SegmentLog(folder.newFolder(), 64);
+		final Map<Long, Long> addresses = new HashMap<Long, Long>();
+		long stale = log.append(record(0, "value"));
+
+		Compaction compaction = new Compaction() {
+
+			@Override
+			public boolean isLive(long address, ByteBuffer payload) {
+				return addresses.get(payload.getLong(0)) == address;
+			}
+
+			@Override
+			public void moved(long from, long to, ByteBuffer payload) {
+				addresses.put(payload.getLong(0), to);
+			}
+		};
+
+		addresses.put(0L, stale);
+
+		for (int round = 0; round < 20; round++) {
+
+			for (int i = 0; i < 10; i++) {
+				addresses.put(i % 2L, log.append(record(i % 2L, "value" + i)));
+			}
+
+			log.compact(compaction);
+		}
+
+		assertThat(log.getSlotCount() < 20, is(true));
+		assertThat(log.read(stale), is(nullValue()));
+		assertThat(valueOf(log.read(addresses.get(0L))), is("value8"));
+		assertThat(valueOf(log.read(addresses.get(1L))), is("value9"));
+	}
+
+	@Test
+	public void ignoresTornRecordAtTheEndOfTheLog() throws Exception {
+
+		File directory = folder.newFolder();
+		SegmentLog log = new SegmentLog(directory, 1024);
+		log.append(record(1, "foo"));
+		long address = log.append(record(2, "bar"));
+		log.close();
+
+		RandomAccessFile file = new RandomAccessFile(directory.listFiles()[0], "rw");
+		file.seek((int) address + 8);
+		file.writeLong(4711);
+		file.close();
+
+		SegmentLog reopened = new SegmentLog(directory, 1024);
+
+		assertThat(replay(reopened).keySet(), hasItem(1L));
+		assertThat(replay(reopened).size(), is(1));
+
+		reopened.append(record(3, "baz"));
+
+		assertThat(replay(reopened).size(), is(2));
+	}
+
+	private static byte[] record(long id, String value) {
+
+		ByteBuffer buffer = ByteBuffer.allocate(8 + SegmentLog.sizeOf(value));
+		buffer.putLong(id);
+		SegmentLog.putString(buffer, value);
+
+		return buffer.array();
+	}
+
+	private static String valueOf(ByteBuffer payload) {
+
+		payload.getLong();
+		return SegmentLog.getString(payload);
+	}
+
+	private static Map<Long, String> replay(SegmentLog log) {
+
+		final Map<Long, String> result = new HashMap<Long, String>();
+
+		log.replay(new RecordHandler() {
+
+			@Override
+			public void handle(long address, ByteBuffer payload) {
+				result.put(payload.getLong(0), valueOf(payload));
+			}
+		});
+
+		return result;
+	}
+}
@@ -15,12 +15,29 @@
  */
 package org.springframework.hateoas.sample.hateoas;
 
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.springframework.hateoas.sample.AbstractWebIntegrationTest;
+import org.springframework.hateoas.sample.ETags;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.StringUtils;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 
 /**
  * Web integration test using the {@code hateoas} profile.
@@ -32,6 +49,417 @@ public class ApplicationIntegrationTest extends AbstractWebIntegrationTest {
 
 	@Test
 	public void foo() throws Exception {
-		mvc.perform(get("/customers/1")).andExpect(status().isOk());
+		perform(get("/customers/1")).andExpect(status().isOk());
+	}
+
+	@Test
+	public void exposesLinksToOrdersAndCustomerForCustomerOrders() throws Exception {
+
+		perform(get("/customers/1/orders")).//
+				andExpect(status().isOk()).//
+				andExpect(header().string("Link", containsString("<http://localhost/customers/1/orders>;rel=\"self\""))).//
+				andExpect(content().string(containsString("\"href\":\"http://localhost/orders/1\""))).//
+				andExpect(content().string(containsString("\"href\":\"http://localhost/customers/1\"")));
+	}
+
+	@Test
+	public void considersForwardedHostForLinks() throws Exception {
+
+		perform(get("/orders/1").header("X-Forwarded-Host", "example.com:8080")).//
+				andExpect(content().string(containsString("\"href\":\"http://example.com:8080/orders/1\"")));
+	}
+
+	@Test
+	public void streamsOrdersAsHal() throws Exception {
+
+		perform(get("/orders")).//
+				andExpect(status().isOk()).//
+				andExpect(content().contentType("application/json;charset=UTF-8")).//
+				andExpect(content().string("{\"_links\":{\"self\":{\"href\":\"http://localhost/orders\"}," + //
+						"\"changes\":{\"href\":\"http://localhost/orders/changes?since=0\"}}," + //
+						"\"_embedded\":{\"order\":{\"id\":1,\"customer\":{\"id\":1,\"firstname\":\"Dave\",\"lastname\":\"Matthews\",\"version\":0}," + //
+						"\"lineItems\":[{\"name\":\"iPhone\"},{\"name\":\"iPad\"}],\"version\":2}}}"));
+	}
+
+	@Test
+	public void rendersSelectedPropertiesAndLinksAssociationsNotEmbedded() throws Exception {
+
+		perform(get("/orders").param("fields", "id,customer").param("embed", "")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string("{\"_links\":{\"self\":{\"href\":\"http://localhost/orders\"}," + //
+						"\"changes\":{\"href\":\"http://localhost/orders/changes?since=0\"}}," + //
+						"\"_embedded\":{\"order\":{\"id\":1,\"_links\":{\"self\":{\"href\":\"http://localhost/orders/1\"}," + //
+						"\"customer\":{\"href\":\"http://localhost/customers/1\"}}}}}"));
+
+		perform(get("/orders/1").param("fields", "id,version")).//
+				andExpect(content().string("{\"id\":1,\"version\":2,\"_links\":{\"self\":{\"href\":\"http://localhost/orders/1\"}," + //
+						"\"customer\":{\"href\":\"http://localhost/customers/1\"}}}"));
+
+		perform(get("/customers/1/orders").param("fields", "")).//
+				andExpect(content().string(not(containsString("lineItems"))));
+	}
+
+	@Test
+	public void ignoresUnknownPropertiesAndAssociationsSelected() throws Exception {
+
+		String expected = perform(get("/orders/1").param("fields", "id,version")).//
+				andReturn().getResponse().getContentAsString();
+
+		perform(get("/orders/1").param("fields", "version,foo,id").param("embed", "customer,bar")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(expected));
+	}
+
+	@Test
+	public void exposesPagesOfCustomersLinkingToAdjacentPages() throws Exception {
+
+		perform(get("/customers").param("size", "1")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"next\":{\"href\":\"http://localhost/customers?cursor=1&size=1\"}"))).//
+				andExpect(content().string(not(containsString("\"prev\""))));
+
+		perform(get("/customers").param("cursor", "1").param("size", "1")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"prev\":{\"href\":\"http://localhost/customers?cursor=0&size=1\"}"))).//
+				andExpect(content().string(containsString("Carter"))).//
+				andExpect(content().string(not(containsString("\"next\""))));
+	}
+
+	@Test
+	public void exposesPagesOfCustomerOrders() throws Exception {
+
+		perform(get("/customers/1/orders").param("size", "10")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/customers/1/orders?cursor=0&size=10\"}"))).//
+				andExpect(content().string(containsString("\"href\":\"http://localhost/orders/1\"")));
+
+		perform(get("/orders").param("size", "10")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/orders?cursor=0&size=10\"}")));
+	}
+
+	@Test
+	public void answersConditionalRequestsForUnchangedResources() throws Exception {
+
+		for (String uri : new String[] { "/orders/1", "/customers/1", "/customers/1/orders" }) {
+
+			String etag = perform(get(uri)).//
+					andExpect(status().isOk()).//
+					andExpect(header().string("ETag", notNullValue())).//
+					andReturn().getResponse().getHeader("ETag");
+
+			perform(get(uri).header("If-None-Match", etag)).//
+					andExpect(status().isNotModified()).//
+					andExpect(content().string(""));
+
+			perform(get(uri).header("If-None-Match", "\"foo\"")).//
+					andExpect(status().isOk());
+		}
+	}
+
+	@Test
+	public void returnsNotFoundForUnknownOrder() throws Exception {
+		perform(get("/orders/4711")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void exposesBatchesOfOrdersAndCustomersLinkingToIndividualResources() throws Exception {
+
+		perform(get("/orders").param("ids", "1,4711")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/orders?ids=1,4711\"}"))).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/orders/1\"}")));
+
+		perform(get("/customers").param("ids", "2,1")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/customers/2\"}"))).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/customers/1\"}")));
+	}
+
+	@Test
+	public void prefersBatchesOverPagesIfBothIdsAndSizeAreGiven() throws Exception {
+
+		perform(get("/orders").param("ids", "1").param("size", "2")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/orders?ids=1\"}")));
+
+		perform(get("/customers").param("ids", "2").param("size", "1")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/customers/2\"}"))).//
+				andExpect(content().string(not(containsString("\"next\""))));
+	}
+
+	@Test
+	public void rendersSmileForClientsPreferringIt() throws Exception {
+
+		ObjectMapper mapper = new ObjectMapper(new SmileFactory());
+
+		for (String uri : new String[] { "/orders", "/orders/1", "/customers/1", "/customers/1/orders" }) {
+
+			MockHttpServletResponse response = perform(get(uri).accept(HalSmileHttpMessageConverter.HAL_SMILE)).//
+					andExpect(status().isOk()).//
+					andExpect(content().contentType(HalSmileHttpMessageConverter.HAL_SMILE)).//
+					andReturn().getResponse();
+
+			assertThat(getVary(response), hasItem("Accept"));
+
+			JsonNode self = mapper.readTree(response.getContentAsByteArray()).path("_links").path("self");
+			assertThat(self.path("href").asText(), is("http://localhost" + uri));
+
+			Object etag = response.getHeaderValue("ETag");
+
+			if (etag != null) {
+
+				MockHttpServletResponse json = perform(get(uri).header(ETags.IF_NONE_MATCH, etag)).//
+						andExpect(status().isOk()).//
+						andExpect(header().string("ETag", not(etag))).//
+						andReturn().getResponse();
+
+				assertThat(getVary(json), hasItem("Accept"));
+
+				perform(get(uri).accept(HalSmileHttpMessageConverter.HAL_SMILE).header(ETags.IF_NONE_MATCH, etag)).//
+						andExpect(status().isNotModified());
+			}
+		}
+
+		perform(get("/orders/1").accept(MediaType.TEXT_HTML, MediaType.ALL)).//
+				andExpect(content().contentType("application/json;charset=UTF-8"));
+	}
+
+	@Test
+	public void doesNotCompressResponsesBelowMinimumSize() throws Exception {
+
+		perform(get("/customers/1").header("Accept-Encoding", "gzip")).//
+				andExpect(status().isOk()).//
+				andExpect(header().string("Vary", "Accept-Encoding")).//
+				andExpect(header().string("Content-Encoding", nullValue())).//
+				andExpect(content().string(containsString("\"firstname\":\"Dave\"")));
+	}
+
+	@Test
+	public void recordsLatenciesOfAsynchronouslyHandledRequests() throws Exception {
+
+		perform(delete("/metrics")).andExpect(status().isNoContent());
+		perform(get("/customers/1/orders")).andExpect(status().isOk());
+
+		perform(get("/metrics")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"OrderController.showCustomerOrders\":{\"total\":{\"count\":1"))).//
+				andExpect(content().string(containsString("\"repository\":{\"count\":1"))).//
+				andExpect(content().string(containsString("\"serialization\":{\"count\":1")));
+	}
+
+	@Test
+	@DirtiesContext
+	public void createsAndChangesOrdersAndCustomers() throws Exception {
+
+		perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"customerId\":2,\"lineItems\":[{\"name\":\"iPod\"}]}")).//
+				andExpect(status().isCreated()).//
+				andExpect(header().string("Location", "http://localhost/orders/2")).//
+				andExpect(header().string("ETag", "\"o2-0-0\""));
+
+		perform(request(HttpMethod.PATCH, "/orders/2").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"lineItems\":[{\"name\":\"iPad\"}]}")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"lineItems\":[{\"name\":\"iPod\"},{\"name\":\"iPad\"}]")));
+
+		perform(put("/customers/2").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"firstname\":\"Carter\",\"lastname\":\"Beauford Jr.\"}")).//
+				andExpect(status().isOk()).//
+				andExpect(header().string("ETag", "\"c2-1\""));
+
+		perform(put("/orders/2").contentType(MediaType.APPLICATION_JSON).content("{\"lineItems\":[]}")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"lineItems\":[]")));
+
+		perform(get("/customers/2/orders")).//
+				andExpect(content().string(containsString("\"href\":\"http://localhost/orders/2\"")));
+
+		perform(get("/orders/2")).//
+				andExpect(header().string("ETag", "\"o2-2-1\"")).//
+				andExpect(content().string(containsString("\"lastname\":\"Beauford Jr.\"")));
+
+		perform(put("/orders/4711").contentType(MediaType.APPLICATION_JSON).content("{\"lineItems\":[]}")).//
+				andExpect(status().isNotFound());
+
+		perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content("{\"customerId\":4711}")).//
+				andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void rejectsCustomersWithoutNames() throws Exception {
+
+		List<String> contents = Arrays.asList("{}", "{\"firstname\":\"Dave\"}",
+				"{\"firstname\":\"\",\"lastname\":\"Matthews\"}");
+
+		for (String content : contents) {
+
+			perform(post("/customers").contentType(MediaType.APPLICATION_JSON).content(content)).//
+					andExpect(status().isBadRequest());
+			perform(put("/customers/1").contentType(MediaType.APPLICATION_JSON).content(content)).//
+					andExpect(status().isBadRequest());
+		}
+
+		perform(get("/customers/1")).//
+				andExpect(header().string("ETag", "\"c1-0\""));
+		perform(get("/customers/3")).//
+				andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void rejectsLineItemsThatAreNullOrWithoutName() throws Exception {
+
+		for (String lineItems : Arrays.asList("[null]", "[{}]", "[{\"name\":null}]")) {
+
+			String content = "{\"customerId\":1,\"lineItems\":" + lineItems + "}";
+
+			perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content(content)).//
+					andExpect(status().isBadRequest());
+			perform(put("/orders/1").contentType(MediaType.APPLICATION_JSON).content(content)).//
+					andExpect(status().isBadRequest());
+			perform(request(HttpMethod.PATCH, "/orders/1").contentType(MediaType.APPLICATION_JSON).content(content)).//
+					andExpect(status().isBadRequest());
+		}
+
+		perform(get("/orders/1")).//
+				andExpect(header().string("ETag", "\"o1-2-0\""));
+	}
+
+	@Test
+	@DirtiesContext
+	public void exposesOrdersChangedSinceTheGivenSequenceNumber() throws Exception {
+
+		perform(get("/orders/changes")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"next\":{\"href\":\"http://localhost/orders/changes?since=0\"}")));
+
+		MvcResult poll = mvc.perform(get("/orders/changes").param("since", "0").param("wait", "10")).andReturn();
+
+		perform(request(HttpMethod.PATCH, "/orders/1").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"lineItems\":[{\"name\":\"iPod\"}]}")).//
+				andExpect(status().isOk());
+
+		dispatch(poll).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"name\":\"iPod\""))).//
+				andExpect(content().string(containsString("\"next\":{\"href\":\"http://localhost/orders/changes?since=1\"}")));
+
+		perform(get("/orders/changes").param("since", "0").param("customer", "2")).//
+				andExpect(content().string(not(containsString("\"href\":\"http://localhost/orders/1\""))));
+
+		perform(get("/orders/changes").param("since", "4711")).//
+				andExpect(status().isGone());
+
+		perform(get("/orders/changes").accept(MediaType.valueOf("text/event-stream")).header("Last-Event-ID", "0")).//
+				andExpect(content().contentType("text/event-stream;charset=UTF-8")).//
+				andExpect(content().string(startsWith("id: 1\nevent: changes\ndata: {")));
+	}
+
+	@Test
+	@DirtiesContext
+	public void exposesOrdersOfRenamedCustomerAsChanged() throws Exception {
+
+		MvcResult poll = mvc.perform(get("/orders/changes").param("since", "0").param("customer", "1").param("wait", "10"))
+				.andReturn();
+
+		perform(put("/customers/1").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"firstname\":\"David\",\"lastname\":\"Matthews\"}")).//
+				andExpect(status().isOk());
+
+		dispatch(poll).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"href\":\"http://localhost/orders/1\""))).//
+				andExpect(content().string(containsString("\"firstname\":\"David\""))).//
+				andExpect(content().string(containsString("\"next\":{\"href\":\"http://localhost/orders/changes?since=1&customer=1\"}")));
+	}
+
+	@Test
+	@DirtiesContext
+	public void keepsWaitingForChangesOfTheGivenCustomer() throws Exception {
+
+		MvcResult poll = mvc.perform(get("/orders/changes").param("since", "0").param("customer", "2").param("wait", "10"))
+				.andReturn();
+
+		perform(request(HttpMethod.PATCH, "/orders/1").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"lineItems\":[{\"name\":\"iPod\"}]}")).//
+				andExpect(status().isOk());
+
+		Thread.sleep(200);
+		assertThat(WebAsyncUtils.getAsyncManager(poll.getRequest()).hasConcurrentResult(), is(false));
+
+		perform(post("/orders").contentType(MediaType.APPLICATION_JSON).content(
+				"{\"customerId\":2,\"lineItems\":[{\"name\":\"iPad\"}]}")).//
+				andExpect(status().isCreated());
+
+		dispatch(poll).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"href\":\"http://localhost/orders/2\""))).//
+				andExpect(content().string(not(containsString("\"href\":\"http://localhost/orders/1\"")))).//
+				andExpect(content().string(containsString("\"next\":{\"href\":\"http://localhost/orders/changes?since=2&customer=2\"}")));
+	}
+
+	@Test
+	public void searchesCustomersByName() throws Exception {
+
+		perform(get("/customers/search").param("prefix", "mAt").param("size", "1")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/customers/1\"}"))).//
+				andExpect(content().string(containsString("\"href\":\"http://localhost/customers/search?prefix=mAt&cursor=0&size=1\"")));
+
+		perform(get("/customers/search").param("name", "carter")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/customers/2\"}")));
+
+		perform(get("/customers/search").param("name", " ")).//
+				andExpect(status().isBadRequest());
+	}
+
+	@Test
+	public void exposesOrderStatisticsOfCustomers() throws Exception {
+
+		perform(get("/customers/1")).//
+				andExpect(content().string(containsString("\"statistics\":{\"href\":\"http://localhost/customers/1/statistics\"}")));
+
+		String content = perform(get("/customers/1/statistics").param("top", "1")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"self\":{\"href\":\"http://localhost/customers/1/statistics?top=1\"}"))).//
+				andExpect(content().string(containsString("\"orders\":{\"href\":\"http://localhost/customers/1/orders\"}"))).//
+				andReturn().getResponse().getContentAsString();
+
+		JsonNode statistics = new ObjectMapper().readTree(content);
+
+		assertThat(statistics.path("orders").asLong() > 0, is(true));
+		assertThat(statistics.path("products").size(), is(1));
+
+		perform(get("/customers/42/statistics")).andExpect(status().isNotFound());
+		perform(get("/customers/1/statistics").param("top", "-1")).andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@DirtiesContext
+	public void importsCustomersAndOrdersInBulk() throws Exception {
+
+		perform(post("/imports").contentType(MediaType.valueOf("application/x-ndjson")).content(
+				"{\"type\":\"customer\",\"id\":10,\"lastname\":\"Beauford\"}\n"
+						+ "{\"type\":\"order\",\"id\":10,\"customerId\":10,\"lineItems\":[{\"name\":\"iPod\"}]}")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"customers\":1,\"orders\":1,\"skipped\":0")));
+
+		perform(post("/imports").contentType(MediaType.valueOf("text/csv")).content("order,11,10\nlineItem,11,iPad")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string(containsString("\"orders\":1")));
+
+		perform(get("/customers/10/orders")).//
+				andExpect(content().string(containsString("\"href\":\"http://localhost/orders/11\"")));
+
+		perform(post("/imports").contentType(MediaType.valueOf("text/csv")).content("lineItem,12,iPad")).//
+				andExpect(status().isBadRequest());
+	}
+
+	private static List<String> getVary(MockHttpServletResponse response) {
+
+		String vary = StringUtils.collectionToCommaDelimitedString(response.getHeaders("Vary"));
+		return Arrays.asList(StringUtils.tokenizeToStringArray(vary, ","));
 	}
 }
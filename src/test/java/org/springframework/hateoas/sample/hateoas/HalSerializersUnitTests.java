@@ -0,0 +1,127 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.hateoas.sample.Projection;
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+import org.springframework.hateoas.sample.core.Order.LineItem;
+import org.springframework.hateoas.sample.hateoas.OrderController.OrderResource;
+import org.springframework.hateoas.sample.hateoas.OrderController.ProjectedOrder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for {@link HalSerializers}, verifying they render the same representations as the default HAL setup for
+ * the collections it renders completely.
+ * 
+ * @author Oliver Gierke
+ */
+public class HalSerializersUnitTests {
+
+	ObjectMapper reference, mapper;
+
+	Customer customer = new Customer(1L, "Dave", "Matthews");
+	Order order = new Order(1L, customer).add(new LineItem("iPad")).add(new LineItem("iPhone"));
+
+	@Before
+	public void setUp() {
+
+		reference = new ObjectMapper();
+		reference.registerModule(new Jackson2HalModule());
+		reference.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(new DefaultRelProvider()));
+
+		mapper = new HypermediaConfiguration().halObjectMapper();
+	}
+
+	@Test
+	public void rendersDomainTypesLikeDefaultSetup() throws Exception {
+
+		assertSameRepresentation(customer);
+		assertSameRepresentation(new Customer(2L, null, "Beauford"));
+		assertSameRepresentation(order);
+		assertSameRepresentation(new Order(2L, customer));
+	}
+
+	@Test
+	public void rendersResourcesLikeDefaultSetup() throws Exception {
+
+		Resource<Customer> resource = new Resource<Customer>(customer, new Link("http://localhost/customers/1"),
+				new Link("http://localhost/orders/1", "order"), new Link("http://localhost/orders/2", "order"));
+
+		assertSameRepresentation(resource);
+		assertSameRepresentation(new Resource<Order>(order));
+		assertSameRepresentation(new Resources<Resource<Customer>>(Arrays.asList(resource)));
+		assertSameRepresentation(new Resources<Resource<Customer>>(Arrays.asList(resource, resource), new Link(
+				"http://localhost/customers")));
+		assertSameRepresentation(new Resources<Order>(Arrays.asList(order, order)));
+		assertSameRepresentation(new Resources<Customer>(Collections.<Customer> emptyList()));
+	}
+
+	@Test
+	public void rendersOrderResourcesLikeDefaultSetup() throws Exception {
+
+		OrderResource resource = new OrderResource(order.getLineItems());
+		resource.add(new Link("http://localhost/orders/1"));
+		resource.add(new Link("http://localhost/customers/1", "customer"));
+
+		assertSameRepresentation(new Resources<OrderResource>(Arrays.asList(resource)));
+		assertSameRepresentation(new Resources<OrderResource>(Arrays.asList(resource, resource)));
+	}
+
+	@Test
+	public void embedsAllElementsOfLargerCollections() throws Exception {
+
+		List<Order> orders = Arrays.asList(order, new Order(2L, customer), new Order(3L, customer));
+		JsonNode node = mapper.readTree(mapper.writeValueAsString(new Resources<Order>(orders)));
+
+		assertThat(node.path("_embedded").path("orderList").size(), is(3));
+		assertThat(node.path("_embedded").path("orderList").get(0).path("id").asLong(), is(1L));
+	}
+
+	@Test
+	public void rendersProjectedOrdersLikeOrdersReducedToTheSelectedProperties() throws Exception {
+
+		ProjectedOrder all = new ProjectedOrder(order, Projection.ALL);
+		assertThat(mapper.writeValueAsString(all), is(reference.writeValueAsString(order)));
+
+		ProjectedOrder sparse = new ProjectedOrder(order, ProjectedOrder.projection("id,customer,lineItems", "customer"));
+		assertThat(mapper.writeValueAsString(new Resources<ProjectedOrder>(Arrays.asList(sparse, sparse))),
+				is(reference.writeValueAsString(new Resources<Order>(Arrays.asList(order, order))).replace(",\"version\":2", "")));
+
+		ProjectedOrder linked = new ProjectedOrder(order, ProjectedOrder.projection("id,customer", ""));
+		assertThat(mapper.writeValueAsString(linked), is("{\"id\":1}"));
+	}
+
+	private void assertSameRepresentation(Object value) throws Exception {
+		assertThat(mapper.writeValueAsString(value), is(reference.writeValueAsString(value)));
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.sample.Projection;
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+import org.springframework.hateoas.sample.hateoas.OrderController.OrderResource;
+import org.springframework.hateoas.sample.hateoas.OrderController.ProjectedOrder;
+import org.springframework.hateoas.sample.metrics.Phase;
+import org.springframework.hateoas.sample.metrics.Recording;
+
+/**
+ * Unit tests for {@link OrderResourceAssembler}.
+ * 
+ * @author Oliver Gierke
+ */
+public class OrderResourceAssemblerUnitTests {
+
+	static final String BASE_URI = "http://localhost";
+
+	OrderResourceAssembler assembler = new OrderResourceAssembler(new ControllerLinkFactory());
+
+	Customer dave = new Customer(1L, "Dave", "Matthews");
+	Customer carter = new Customer(2L, "Carter", "Beauford");
+	List<Order> orders = Arrays.asList(new Order(1L, dave), new Order(2L, dave), new Order(3L, carter));
+
+	@Test
+	public void sharesCustomerLinksBetweenOrdersOfTheSameCustomer() {
+
+		List<Resource<ProjectedOrder>> resources = assembler.toResources(orders, ProjectedOrder.projection(null, ""),
+				BASE_URI);
+
+		assertThat(resources.size(), is(3));
+		assertThat(resources.get(0).getId(), is(new Link("http://localhost/orders/1")));
+		assertThat(resources.get(0).getLink("customer"), is(sameInstance(resources.get(1).getLink("customer"))));
+		assertThat(resources.get(2).getLink("customer"), is(new Link("http://localhost/customers/2", "customer")));
+	}
+
+	@Test
+	public void doesNotLinkEmbeddedCustomers() {
+
+		List<Resource<ProjectedOrder>> resources = assembler.toResources(orders, Projection.ALL, BASE_URI);
+
+		assertThat(resources.get(0).getLinks(), is(Arrays.asList(new Link("http://localhost/orders/1"))));
+		assertThat(assembler.toResourceView(orders, Projection.ALL, BASE_URI).get(2).getLinks(), is(resources.get(2)
+				.getLinks()));
+	}
+
+	@Test
+	public void assemblesLargeListsInParallelPreservingOrder() {
+
+		List<Order> orders = new ArrayList<Order>();
+
+		for (int i = 0; i < 1000; i++) {
+			orders.add(new Order(i, i % 3 == 0 ? carter : dave));
+		}
+
+		OrderResourceAssembler parallel = new OrderResourceAssembler(new ControllerLinkFactory(), 100, 64);
+		List<Resource<ProjectedOrder>> resources = parallel.toResources(orders, ProjectedOrder.projection(null, ""),
+				BASE_URI);
+		List<Resource<ProjectedOrder>> expected = assembler.toResources(orders, ProjectedOrder.projection(null, ""),
+				BASE_URI);
+
+		assertThat(resources.size(), is(1000));
+
+		for (int i = 0; i < resources.size(); i++) {
+			assertThat(resources.get(i).getContent().getOrder(), is(sameInstance(orders.get(i))));
+			assertThat(resources.get(i).getLinks(), is(expected.get(i).getLinks()));
+		}
+
+		parallel.destroy();
+	}
+
+	@Test
+	public void keepsPhasesTimedByCallerActiveIfItAssemblesChunksItself() {
+
+		List<Order> orders = new ArrayList<Order>();
+
+		for (int i = 0; i < 10000; i++) {
+			orders.add(new Order(i, dave));
+		}
+
+		// Single order chunks saturate the pool so that the caller has to assemble some of them
+		OrderResourceAssembler parallel = new OrderResourceAssembler(new ControllerLinkFactory(), 2, 1);
+		Recording recording = new Recording();
+		Recording.bind(recording);
+
+		try {
+
+			long start = Recording.start(Phase.SERIALIZATION);
+			parallel.toResources(orders, Projection.ALL, BASE_URI);
+
+			// Nested timing of a phase already timed must not be counted
+			Recording.stop(Phase.SERIALIZATION, Recording.start(Phase.SERIALIZATION));
+			assertThat(recording.getNanos(Phase.SERIALIZATION), is(0L));
+
+			Recording.stop(Phase.SERIALIZATION, start);
+
+		} finally {
+			Recording.bind(null);
+			parallel.destroy();
+		}
+	}
+
+	@Test
+	public void assemblesOrderResourcesWithSharedCustomerLink() {
+
+		List<OrderResource> resources = assembler.toOrderResources(orders.subList(0, 2), dave,
+				ProjectedOrder.projection("", null), BASE_URI);
+
+		assertThat(resources.get(0).getLineItems(), is(nullValue()));
+		assertThat(resources.get(0).getLink("customer"), is(sameInstance(resources.get(1).getLink("customer"))));
+	}
+}
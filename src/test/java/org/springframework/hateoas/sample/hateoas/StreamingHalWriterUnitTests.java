@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.hateoas;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.hateoas.sample.core.Customer;
+import org.springframework.hateoas.sample.core.Order;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Unit tests for {@link StreamingHalWriter}.
+ * 
+ * @author Oliver Gierke
+ */
+public class StreamingHalWriterUnitTests {
+
+	static final Link LINK = new Link("http://localhost/orders");
+
+	@Test
+	public void rendersSameRepresentationAsHalModule() throws Exception {
+
+		Customer customer = new Customer(1L, "Dave", "Matthews");
+		List<Order> orders = new ArrayList<Order>();
+
+		for (int i = 0; i < 3; i++) {
+
+			assertThat(stream(orders), is(render(orders)));
+
+			orders.add(new Order(i, customer).add(new Order.LineItem("iPad")));
+		}
+	}
+
+	private static String stream(List<Order> orders) throws Exception {
+
+		ByteArrayOutputStream stream = new ByteArrayOutputStream();
+		new StreamingHalWriter(new HypermediaConfiguration().halObjectMapper()).write(stream, Order.class, orders, LINK);
+
+		return stream.toString("UTF-8");
+	}
+
+	private static String render(List<Order> orders) throws Exception {
+
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.registerModule(new Jackson2HalModule());
+		mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(new DefaultRelProvider()));
+
+		return mapper.writeValueAsString(new Resources<Order>(orders, LINK));
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.springframework.hateoas.sample.metrics;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ * 
+ * @author Oliver Gierke
+ */
+public class LatencyHistogramUnitTests {
+
+	@Test
+	public void mapsValuesToBucketsCoveringThem() {
+
+		for (long value = 0; value < 1 << 20; value++) {
+
+			int index = LatencyHistogram.indexOf(value);
+
+			assertThat(LatencyHistogram.highestValueAt(index) >= value, is(true));
+			assertThat(index == 0 || LatencyHistogram.highestValueAt(index - 1) < value, is(true));
+		}
+	}
+
+	@Test
+	public void calculatesPercentilesWithinBucketPrecision() {
+
+		LatencyHistogram histogram = new LatencyHistogram();
+
+		for (long micros = 1; micros <= 10000; micros++) {
+			histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(micros));
+		}
+
+		assertThat(histogram.getTotalCount(), is(10000L));
+		assertThat(histogram.getMaxValue(), is(10000L));
+		assertThat(histogram.getValueAtPercentile(100), is(10000L));
+		assertThat(Math.abs(histogram.getValueAtPercentile(50) - 5000) <= 5000 / 64, is(true));
+		assertThat(Math.abs(histogram.getValueAtPercentile(99) - 9900) <= 9900 / 64, is(true));
+	}
+}
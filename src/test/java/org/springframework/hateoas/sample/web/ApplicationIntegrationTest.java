@@ -15,6 +15,7 @@
  */
 package org.springframework.hateoas.sample.web;
 
+import static org.hamcrest.CoreMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -34,4 +35,39 @@ public class ApplicationIntegrationTest extends AbstractWebIntegrationTest {
 	public void foo() throws Exception {
 		mvc.perform(get("/customers/1")).andExpect(status().isOk());
 	}
+
+	@Test
+	public void exposesOrdersOfCustomer() throws Exception {
+
+		mvc.perform(get("/customers/1/orders")).andExpect(status().isOk());
+		mvc.perform(get("/customers/4711/orders")).andExpect(status().isNotFound());
+	}
+
+	@Test
+	public void streamsOrders() throws Exception {
+
+		mvc.perform(get("/orders")).//
+				andExpect(status().isOk()).//
+				andExpect(content().contentType("application/json;charset=UTF-8")).//
+				andExpect(content().string(startsWith("[{\"id\":1,\"customer\":{\"id\":1,")));
+	}
+
+	@Test
+	public void streamsSelectedPropertiesOfOrdersOnly() throws Exception {
+
+		mvc.perform(get("/orders").param("fields", "id,customer,unknown").param("embed", "")).//
+				andExpect(status().isOk()).//
+				andExpect(content().string("[{\"id\":1,\"customer\":{\"id\":1}}]"));
+	}
+
+	@Test
+	public void answersConditionalRequestsForUnchangedOrder() throws Exception {
+
+		String etag = mvc.perform(get("/orders/1")).//
+				andExpect(status().isOk()).//
+				andReturn().getResponse().getHeader("ETag");
+
+		mvc.perform(get("/orders/1").header("If-None-Match", etag)).//
+				andExpect(status().isNotModified());
+	}
 }